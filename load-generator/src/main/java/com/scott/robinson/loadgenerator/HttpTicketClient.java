@@ -0,0 +1,106 @@
+package com.scott.robinson.loadgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal client of the ticketing system's REST API. Each call reads the whole response so that the connection is
+ * returned to the JDK's keep-alive pool, meaning each worker thread reuses a connection rather than opening one per
+ * request.
+ */
+final class HttpTicketClient implements TicketClient {
+
+    private static final Pattern HOLD_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final String baseUrl;
+
+    private final int timeoutMillis;
+
+    private final String tier;
+
+    HttpTicketClient(final String baseUrl, final int timeoutMillis, final String tier) {
+        this.baseUrl = baseUrl;
+        this.timeoutMillis = timeoutMillis;
+        this.tier = tier;
+    }
+
+    @Override
+    public int hold(final int numSeats, final String customerEmail) throws IOException {
+        final HttpURLConnection connection = open("/tickets/request?numSeats=" + numSeats, "GET", customerEmail);
+        if (tier != null) {
+            connection.setRequestProperty("tier", tier);
+        }
+        final String body = read(connection);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            return -1;
+        }
+        final Matcher matcher = HOLD_ID.matcher(body);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    @Override
+    public boolean reserve(final int seatHoldId, final String customerEmail) throws IOException {
+        final HttpURLConnection connection = open("/tickets/" + seatHoldId + "/reserve", "POST", customerEmail);
+        final String body = read(connection);
+        return connection.getResponseCode() == HttpURLConnection.HTTP_OK && body.contains("successful");
+    }
+
+    @Override
+    public boolean cancel(final int seatHoldId, final String customerEmail) throws IOException {
+        final HttpURLConnection connection = open("/tickets/" + seatHoldId + "/cancel", "DELETE", customerEmail);
+        final String body = read(connection);
+        return connection.getResponseCode() == HttpURLConnection.HTTP_OK && body.startsWith("Successfully");
+    }
+
+    @Override
+    public boolean map() throws IOException {
+        final HttpURLConnection connection = open("/tickets/map", "GET", null);
+        final String body = read(connection);
+        return connection.getResponseCode() == HttpURLConnection.HTTP_OK && body.startsWith("Seats Available");
+    }
+
+    /**
+     * Nothing to close, as connections are pooled by the JDK.
+     */
+    @Override
+    public void close() {
+    }
+
+    private HttpURLConnection open(final String path, final String method, final String customerEmail)
+            throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        if (customerEmail != null) {
+            connection.setRequestProperty("customer", customerEmail);
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the whole response body, or error body, and closes the stream.
+     */
+    private static String read(final HttpURLConnection connection) throws IOException {
+        final InputStream stream = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST ?
+                connection.getInputStream() : connection.getErrorStream();
+        if (stream == null) {
+            return "";
+        }
+        try (InputStream in = stream) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
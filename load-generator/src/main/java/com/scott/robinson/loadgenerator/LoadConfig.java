@@ -0,0 +1,122 @@
+package com.scott.robinson.loadgenerator;
+
+import lombok.Value;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable configuration of a load test, parsed from {@code --name=value} command line arguments.
+ */
+@Value
+final class LoadConfig {
+
+    /**
+     * The base URL of the ticketing system, without a trailing slash. The binary protocol is served by the same host.
+     */
+    private final String baseUrl;
+
+    /**
+     * Whether requests are sent over REST or the binary protocol.
+     */
+    private final Protocol protocol;
+
+    /**
+     * The port the binary protocol is served on.
+     */
+    private final int rpcPort;
+
+    /**
+     * The number of binary protocol connections the requests in flight are pipelined over.
+     */
+    private final int rpcConnections;
+
+    /**
+     * The constant number of requests started per second, however slowly the ticketing system responds.
+     */
+    private final int rate;
+
+    /**
+     * The number of seconds to measure for, after the warm-up.
+     */
+    private final int durationSeconds;
+
+    /**
+     * The number of seconds to run before measuring, whose requests are sent but not recorded.
+     */
+    private final int warmupSeconds;
+
+    /**
+     * The number of connections, and so requests, which may be in flight at once.
+     */
+    private final int concurrency;
+
+    private final WorkloadMix mix;
+
+    private final int minSeats;
+
+    private final int maxSeats;
+
+    /**
+     * The customer tier sent with hold requests, or null to send none.
+     */
+    private final String tier;
+
+    private final int timeoutMillis;
+
+    /**
+     * The directory the latency histograms and summary are written to.
+     */
+    private final Path reportDirectory;
+
+    /**
+     * @return The host of the ticketing system, taken from the base URL
+     */
+    String getHost() {
+        return URI.create(baseUrl).getHost();
+    }
+
+    static LoadConfig parse(final String... args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Arguments must be --name=value, not [" + arg + "]");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        final String seats = options.getOrDefault("seats", "1-4");
+        final String[] seatRange = seats.split("-");
+        final int minSeats = Integer.parseInt(seatRange[0]);
+        final int maxSeats = Integer.parseInt(seatRange[seatRange.length - 1]);
+        if (minSeats < 1 || maxSeats < minSeats) {
+            throw new IllegalArgumentException("Seats must be a number or range such as 1-4, not [" + seats + "]");
+        }
+
+        final String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        return new LoadConfig(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl,
+                Protocol.valueOf(options.getOrDefault("protocol", "rest").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(options.getOrDefault("rpc-port", "9090")),
+                Integer.parseInt(options.getOrDefault("rpc-connections", "4")),
+                Integer.parseInt(options.getOrDefault("rate", "200")),
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                Integer.parseInt(options.getOrDefault("warmup", "10")),
+                Integer.parseInt(options.getOrDefault("concurrency", "64")),
+                WorkloadMix.parse(options.getOrDefault("mix", "hold:50,reserve:25,cancel:15,map:10")),
+                minSeats, maxSeats, options.get("tier"),
+                Integer.parseInt(options.getOrDefault("timeout", "10000")),
+                Paths.get(options.getOrDefault("report", "load-report")));
+    }
+
+    /**
+     * The protocols the ticketing system serves.
+     */
+    enum Protocol {
+        REST,
+        RPC
+    }
+}
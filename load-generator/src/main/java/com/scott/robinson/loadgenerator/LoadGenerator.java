@@ -0,0 +1,191 @@
+package com.scott.robinson.loadgenerator;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the ticketing system's REST API, or its binary protocol, with an open-loop workload: requests are started at a
+ * constant rate on a fixed schedule regardless of how quickly earlier requests complete, as real customers would
+ * arrive.
+ *
+ * <p>A closed-loop generator, where each connection waits for its response before sending the next request, quietly
+ * slows down when the system under test does and so under-reports the latency customers would see. Here each request
+ * is timed from when it was scheduled to start, so once every connection is busy the time a request spends waiting
+ * for one is counted against the system rather than hidden.
+ *
+ * <p>Reserves and cancels act on holds made earlier in the run, newest first, as a customer would reserve soon after
+ * holding. When no hold is outstanding a hold is made instead.
+ */
+public final class LoadGenerator {
+
+    /**
+     * The highest latency tracked, in microseconds. Longer latencies are recorded as this value.
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final LoadConfig config;
+
+    private final TicketClient client;
+
+    private final Deque<OutstandingHold> outstandingHolds = new ConcurrentLinkedDeque<>();
+
+    private final AtomicLong customerSequence = new AtomicLong();
+
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+
+    private final LongAdder[] successes = new LongAdder[Operation.values().length];
+
+    private final LongAdder[] failures = new LongAdder[Operation.values().length];
+
+    LoadGenerator(final LoadConfig config) throws IOException {
+        this.config = config;
+        this.client = config.getProtocol() == LoadConfig.Protocol.RPC ?
+                new RpcTicketClient(config.getHost(), config.getRpcPort(), config.getRpcConnections(),
+                        config.getTimeoutMillis(), config.getTier()) :
+                new HttpTicketClient(config.getBaseUrl(), config.getTimeoutMillis(), config.getTier());
+        for (Operation operation : Operation.values()) {
+            latencies[operation.ordinal()] = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+            successes[operation.ordinal()] = new LongAdder();
+            failures[operation.ordinal()] = new LongAdder();
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final LoadConfig config = LoadConfig.parse(args);
+        final LoadReport report = new LoadGenerator(config).run();
+        report.printSummary(System.out);
+        report.write(config.getReportDirectory());
+        System.out.println();
+        System.out.println("Latency histograms written to " + config.getReportDirectory().toAbsolutePath());
+    }
+
+    /**
+     * Runs the warm-up and then the measured duration, and waits for every request to complete.
+     */
+    LoadReport run() throws InterruptedException, IOException {
+        final ExecutorService workers = Executors.newFixedThreadPool(config.getConcurrency());
+        final long warmupRequests = (long) config.getRate() * config.getWarmupSeconds();
+        final long totalRequests = warmupRequests + (long) config.getRate() * config.getDurationSeconds();
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        final long endNanos = warmupNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        final long start = System.nanoTime();
+
+        long started = 0;
+        for (long request = 0; request < totalRequests; request++) {
+            final long scheduled = start + scheduledNanos(request, config.getRate());
+            final long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            final boolean recorded = request >= warmupRequests;
+            if (recorded) {
+                started++;
+            }
+            final Operation operation = config.getMix().pick(ThreadLocalRandom.current().nextDouble());
+            workers.execute(() -> execute(operation, scheduled, recorded));
+        }
+        final double startedSeconds = (System.nanoTime() - start - warmupNanos) / 1e9;
+
+        workers.shutdown();
+        workers.awaitTermination(config.getTimeoutMillis() + TimeUnit.NANOSECONDS.toMillis(endNanos),
+                TimeUnit.MILLISECONDS);
+        workers.shutdownNow();
+        client.close();
+
+        final double measuredSeconds = config.getDurationSeconds();
+        final List<OperationReport> operations = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            final int index = operation.ordinal();
+            if (latencies[index].getTotalCount() == 0 && config.getMix().getWeight(operation) == 0) {
+                continue;
+            }
+            operations.add(new OperationReport(operation, successes[index].sum(), failures[index].sum(),
+                    successes[index].sum() / measuredSeconds, latencies[index].copy()));
+        }
+        return new LoadReport(config, started / Math.max(startedSeconds, measuredSeconds), operations);
+    }
+
+    /**
+     * Schedules the request within its second exactly, rather than adding a period rounded down to whole nanoseconds,
+     * so the schedule never drifts ahead of the rate however long the run or whatever the rate.
+     *
+     * @return The nanoseconds after the start of the run at which the request is due to start
+     */
+    static long scheduledNanos(final long request, final int rate) {
+        return TimeUnit.SECONDS.toNanos(request / rate) + (request % rate) * TimeUnit.SECONDS.toNanos(1) / rate;
+    }
+
+    /**
+     * Sends a single request and records its latency from the time it was scheduled.
+     */
+    private void execute(final Operation picked, final long scheduledNanos, final boolean recorded) {
+        Operation operation = picked;
+        boolean success;
+        try {
+            OutstandingHold hold = null;
+            if (operation == Operation.RESERVE || operation == Operation.CANCEL) {
+                hold = outstandingHolds.pollLast();
+                if (hold == null) {
+                    operation = Operation.HOLD;
+                }
+            }
+            switch (operation) {
+                case HOLD:
+                    final String customerEmail = "load-" + customerSequence.incrementAndGet() + "@example.com";
+                    final int numSeats = ThreadLocalRandom.current().nextInt(config.getMinSeats(),
+                            config.getMaxSeats() + 1);
+                    final int id = client.hold(numSeats, customerEmail);
+                    success = id >= 0;
+                    if (success) {
+                        outstandingHolds.addLast(new OutstandingHold(id, customerEmail));
+                    }
+                    break;
+                case RESERVE:
+                    success = client.reserve(hold.id, hold.customerEmail);
+                    break;
+                case CANCEL:
+                    success = client.cancel(hold.id, hold.customerEmail);
+                    break;
+                default:
+                    success = client.map();
+                    break;
+            }
+        } catch (IOException | RuntimeException e) {
+            success = false;
+        }
+
+        if (recorded) {
+            final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+            latencies[operation.ordinal()].recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+            (success ? successes : failures)[operation.ordinal()].increment();
+        }
+    }
+
+    /**
+     * A seat hold made during the run which has not yet been reserved or canceled.
+     */
+    private static final class OutstandingHold {
+
+        private final int id;
+
+        private final String customerEmail;
+
+        private OutstandingHold(final int id, final String customerEmail) {
+            this.id = id;
+            this.customerEmail = customerEmail;
+        }
+    }
+}
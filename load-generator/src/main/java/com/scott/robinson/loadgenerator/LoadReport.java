@@ -0,0 +1,67 @@
+package com.scott.robinson.loadgenerator;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable results of a load test: the throughput and latency of each {@link Operation}.
+ */
+@Value
+final class LoadReport {
+
+    private final LoadConfig config;
+
+    /**
+     * The number of requests started per second across the measured duration, which falls short of the configured
+     * rate only if the generator itself could not keep up.
+     */
+    private final double achievedRate;
+
+    private final List<OperationReport> operations;
+
+    /**
+     * Writes the summary, and an HdrHistogram percentile distribution per operation which can be plotted with the
+     * HdrHistogram plotter, to the report directory.
+     */
+    void write(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")), false,
+                "UTF-8")) {
+            printSummary(out);
+        }
+        for (OperationReport operation : operations) {
+            final String name = operation.getOperation().name().toLowerCase(Locale.ROOT) + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name)), false, "UTF-8")) {
+                // Scale microseconds to milliseconds
+                operation.getLatency().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    void printSummary(final PrintStream out) {
+        final String target = config.getProtocol() == LoadConfig.Protocol.RPC ?
+                "rpc://" + config.getHost() + ":" + config.getRpcPort() + " over " + config.getRpcConnections() +
+                        " pipelined connections" : config.getBaseUrl();
+        out.printf(Locale.ROOT, "Target %s at %d requests/sec for %d sec with %d in flight, mix %s%n",
+                target, config.getRate(), config.getDurationSeconds(), config.getConcurrency(), config.getMix());
+        out.printf(Locale.ROOT, "Achieved %.1f requests/sec%n%n", achievedRate);
+        out.printf(Locale.ROOT, "%-8s %10s %10s %12s %10s %10s %10s %10s %10s%n", "Op", "Success", "Failure",
+                "Success/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+        for (OperationReport operation : operations) {
+            out.printf(Locale.ROOT, "%-8s %10d %10d %12.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    operation.getOperation(), operation.getSuccesses(), operation.getFailures(),
+                    operation.getThroughput(), millis(operation, 50.0), millis(operation, 90.0),
+                    millis(operation, 99.0), millis(operation, 99.9), operation.getLatency().getMaxValue() / 1000.0);
+        }
+    }
+
+    private static double millis(final OperationReport operation, final double percentile) {
+        return operation.getLatency().getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.scott.robinson.loadgenerator;
+
+/**
+ * The operations the load generator drives against the ticketing system, described by their REST endpoints. Over the
+ * binary protocol the equivalent operation of the ticket service is called instead.
+ */
+enum Operation {
+
+    /**
+     * {@code GET /tickets/request}, holding seats for a new customer.
+     */
+    HOLD,
+
+    /**
+     * {@code POST /tickets/{id}/reserve}, reserving an outstanding hold.
+     */
+    RESERVE,
+
+    /**
+     * {@code DELETE /tickets/{id}/cancel}, canceling an outstanding hold.
+     */
+    CANCEL,
+
+    /**
+     * {@code GET /tickets/map}, viewing the seat map.
+     */
+    MAP
+}
@@ -0,0 +1,34 @@
+package com.scott.robinson.loadgenerator;
+
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Immutable results of a single {@link Operation} within a load test.
+ */
+@Value
+final class OperationReport {
+
+    private final Operation operation;
+
+    /**
+     * The number of requests which completed successfully.
+     */
+    private final long successes;
+
+    /**
+     * The number of requests which were refused, for example because the venue sold out, or failed to complete.
+     */
+    private final long failures;
+
+    /**
+     * Successful requests per second over the measured duration.
+     */
+    private final double throughput;
+
+    /**
+     * Latency in microseconds of every recorded request, measured from when it was scheduled to start rather than
+     * when it was sent, so time spent waiting for a free connection is included.
+     */
+    private final Histogram latency;
+}
@@ -0,0 +1,210 @@
+package com.scott.robinson.loadgenerator;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal client of the ticketing system's binary protocol. The worker threads share a few long-lived connections
+ * and pipeline their requests on them, sending each request without waiting for the responses to requests already in
+ * flight, as a partner integration would.
+ *
+ * <p>The load generator is built apart from the ticketing system, so the parts of the wire format it uses are repeated
+ * here: every frame is an int length followed by that many bytes, a request holds a request Id, an operation and its
+ * arguments, and a response holds the request Id, a status, and the result. Strings are an int byte length, or -1 for
+ * null, followed by UTF-8.
+ */
+final class RpcTicketClient implements TicketClient {
+
+    private static final byte FIND_AND_HOLD_SEATS = 2;
+    private static final byte RESERVE_SEATS = 3;
+    private static final byte CANCEL_SEAT_HOLD = 5;
+    private static final byte SEAT_MAP = 8;
+
+    private static final byte OK = 0;
+
+    private final Connection[] connections;
+
+    private final AtomicInteger nextConnection = new AtomicInteger();
+
+    private final int timeoutMillis;
+
+    private final String tier;
+
+    RpcTicketClient(final String host, final int port, final int connections, final int timeoutMillis,
+                    final String tier) throws IOException {
+        this.connections = new Connection[connections];
+        this.timeoutMillis = timeoutMillis;
+        this.tier = tier;
+        for (int i = 0; i < connections; i++) {
+            this.connections[i] = new Connection(host, port);
+        }
+    }
+
+    @Override
+    public int hold(final int numSeats, final String customerEmail) throws IOException {
+        final DataInputStream response = call(FIND_AND_HOLD_SEATS, request -> {
+            request.writeInt(numSeats);
+            writeString(request, customerEmail);
+            writeString(request, tier);
+            writeString(request, null);
+        });
+        return response == null ? -1 : response.readInt();
+    }
+
+    @Override
+    public boolean reserve(final int seatHoldId, final String customerEmail) throws IOException {
+        final DataInputStream response = call(RESERVE_SEATS, request -> {
+            request.writeInt(seatHoldId);
+            writeString(request, customerEmail);
+        });
+        return response != null && response.readInt() >= 0;
+    }
+
+    @Override
+    public boolean cancel(final int seatHoldId, final String customerEmail) throws IOException {
+        final DataInputStream response = call(CANCEL_SEAT_HOLD, request -> {
+            request.writeInt(seatHoldId);
+            writeString(request, customerEmail);
+        });
+        return response != null && response.readBoolean();
+    }
+
+    @Override
+    public boolean map() throws IOException {
+        final DataInputStream response = call(SEAT_MAP, request -> {
+        });
+        return response != null && response.readInt() >= 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Connection connection : connections) {
+            connection.socket.close();
+        }
+    }
+
+    /**
+     * Sends the request on the next connection in turn and waits for its response.
+     *
+     * @return The result of the request, or null if the server refused it
+     */
+    private DataInputStream call(final byte operation, final Arguments arguments) throws IOException {
+        final Connection connection = connections[Math.floorMod(nextConnection.getAndIncrement(), connections.length)];
+        final CompletableFuture<DataInputStream> response = connection.send(operation, arguments);
+        try {
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a response", e);
+        } catch (ExecutionException e) {
+            throw new IOException("The connection was lost", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("No response within " + timeoutMillis + " ms", e);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @FunctionalInterface
+    private interface Arguments {
+        void write(DataOutputStream request) throws IOException;
+    }
+
+    /**
+     * A single connection, with a thread completing its calls as the responses arrive.
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final OutputStream out;
+
+        private final Map<Integer, CompletableFuture<DataInputStream>> calls = new ConcurrentHashMap<>();
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+        private final DataOutputStream request = new DataOutputStream(buffer);
+
+        private int lastRequestId;
+
+        private Connection(final String host, final int port) throws IOException {
+            this.socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            this.out = socket.getOutputStream();
+
+            final Thread reader = new Thread(this::readResponses, "rpc-reader-" + socket.getLocalPort());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private synchronized CompletableFuture<DataInputStream> send(final byte operation,
+                                                                    final Arguments arguments) throws IOException {
+            final int requestId = ++lastRequestId;
+            final CompletableFuture<DataInputStream> response = new CompletableFuture<>();
+            calls.put(requestId, response);
+
+            buffer.reset();
+            request.writeInt(0);
+            request.writeInt(requestId);
+            request.writeByte(operation);
+            arguments.write(request);
+            final byte[] frame = buffer.toByteArray();
+            final int length = frame.length - Integer.BYTES;
+            frame[0] = (byte) (length >>> 24);
+            frame[1] = (byte) (length >>> 16);
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+            try {
+                out.write(frame);
+            } catch (IOException e) {
+                calls.remove(requestId);
+                throw e;
+            }
+            return response;
+        }
+
+        private void readResponses() {
+            IOException cause = new IOException("The connection was closed");
+            try {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true) {
+                    final byte[] frame = new byte[in.readInt()];
+                    in.readFully(frame);
+                    final DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+                    final CompletableFuture<DataInputStream> call = calls.remove(response.readInt());
+                    if (call != null) {
+                        call.complete(response.readByte() == OK ? response : null);
+                    }
+                }
+            } catch (IOException e) {
+                cause = e;
+            } finally {
+                for (CompletableFuture<DataInputStream> call : calls.values()) {
+                    call.completeExceptionally(cause);
+                }
+            }
+        }
+    }
+}
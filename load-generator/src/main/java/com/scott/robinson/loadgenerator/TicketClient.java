@@ -0,0 +1,30 @@
+package com.scott.robinson.loadgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A minimal client of the ticketing system, over either of the protocols it serves.
+ */
+interface TicketClient extends Closeable {
+
+    /**
+     * @return The Id of the new seat hold, or -1 if no seats were held
+     */
+    int hold(final int numSeats, final String customerEmail) throws IOException;
+
+    /**
+     * @return Whether the hold was reserved
+     */
+    boolean reserve(final int seatHoldId, final String customerEmail) throws IOException;
+
+    /**
+     * @return Whether the hold was canceled
+     */
+    boolean cancel(final int seatHoldId, final String customerEmail) throws IOException;
+
+    /**
+     * @return Whether the seat map was returned
+     */
+    boolean map() throws IOException;
+}
@@ -0,0 +1,78 @@
+package com.scott.robinson.loadgenerator;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The proportion of each {@link Operation} within the workload, parsed from weights such as
+ * {@code hold:60,reserve:20,cancel:10,map:10}. Weights are relative and need not add up to 100.
+ */
+final class WorkloadMix {
+
+    private final Map<Operation, Integer> weights;
+
+    /**
+     * The cumulative weights of each operation in declaration order, for picking by a uniform random number.
+     */
+    private final int[] cumulative;
+
+    private WorkloadMix(final Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.cumulative = new int[Operation.values().length];
+        int total = 0;
+        for (Operation operation : Operation.values()) {
+            total += weights.getOrDefault(operation, 0);
+            cumulative[operation.ordinal()] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The workload mix must include at least one operation.");
+        }
+    }
+
+    static WorkloadMix parse(final String mix) {
+        final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            final String[] nameAndWeight = entry.trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Mix entries must be operation:weight, not [" + entry + "]");
+            }
+            final int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative, not [" + entry + "]");
+            }
+            weights.put(Operation.valueOf(nameAndWeight[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        return new WorkloadMix(weights);
+    }
+
+    /**
+     * @param random A uniform random number in [0, 1)
+     * @return The operation the number falls on
+     */
+    Operation pick(final double random) {
+        final int target = (int) (random * cumulative[cumulative.length - 1]);
+        for (Operation operation : Operation.values()) {
+            if (target < cumulative[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Random number out of range: " + random);
+    }
+
+    int getWeight(final Operation operation) {
+        return weights.getOrDefault(operation, 0);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey().name().toLowerCase(Locale.ROOT)).append(':').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
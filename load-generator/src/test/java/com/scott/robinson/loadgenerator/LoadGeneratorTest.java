@@ -0,0 +1,203 @@
+package com.scott.robinson.loadgenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LoadGenerator} against stubs of the ticketing system's REST API and binary protocol.
+ */
+public final class LoadGeneratorTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger nextHoldId = new AtomicInteger();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private HttpServer server;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/tickets", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void run() throws Exception {
+        final Path reportDirectory = folder.getRoot().toPath().resolve("report");
+        final LoadConfig config = LoadConfig.parse("--url=http://localhost:" + server.getAddress().getPort() + "/",
+                "--rate=200", "--duration=2", "--warmup=1", "--concurrency=4",
+                "--mix=hold:50,reserve:20,cancel:20,map:10", "--seats=2-4", "--report=" + reportDirectory);
+
+        final LoadReport report = new LoadGenerator(config).run();
+        report.write(reportDirectory);
+
+        // Verify requests were started at the configured rate, including the unrecorded warm-up
+        assertThat(requests.get(), is(600));
+        long recorded = 0;
+        for (OperationReport operation : report.getOperations()) {
+            assertThat(operation.getFailures(), is(0L));
+            assertThat(operation.getLatency().getTotalCount(), is(operation.getSuccesses()));
+            recorded += operation.getSuccesses();
+        }
+        assertThat(recorded, is(400L));
+        assertThat(report.getAchievedRate(), both(greaterThan(0.0)).and(lessThanOrEqualTo(200.0)));
+        assertThat(report.getOperations().size(), is(4));
+
+        // Verify the summary and a histogram per operation were written
+        assertThat(new String(Files.readAllBytes(reportDirectory.resolve("summary.txt")), StandardCharsets.UTF_8),
+                containsString("RESERVE"));
+        assertThat(Files.size(reportDirectory.resolve("hold.hgrm")), greaterThanOrEqualTo(1L));
+        assertThat(Files.exists(reportDirectory.resolve("map.hgrm")), is(true));
+    }
+
+    @Test
+    public void scheduledNanos() {
+        // A rate which does not divide a second lands each whole second exactly, without drifting
+        assertThat(LoadGenerator.scheduledNanos(0, 3), is(0L));
+        assertThat(LoadGenerator.scheduledNanos(1, 3), is(333_333_333L));
+        assertThat(LoadGenerator.scheduledNanos(2, 3), is(666_666_666L));
+        assertThat(LoadGenerator.scheduledNanos(3, 3), is(1_000_000_000L));
+        assertThat(LoadGenerator.scheduledNanos(7 * 3600, 7), is(3600_000_000_000L));
+
+        // Requests are evenly spaced within a second
+        long previous = LoadGenerator.scheduledNanos(0, 200);
+        for (long request = 1; request <= 200 * 60; request++) {
+            final long scheduled = LoadGenerator.scheduledNanos(request, 200);
+            assertThat(scheduled - previous, is(5_000_000L));
+            previous = scheduled;
+        }
+        assertThat(LoadGenerator.scheduledNanos(1_000_000_000L * 60, 1_000_000_000), is(60_000_000_000L));
+    }
+
+    @Test
+    public void run_rpc() throws Exception {
+        try (ServerSocket rpcServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            final Thread acceptor = new Thread(() -> acceptRpc(rpcServer));
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            final Path reportDirectory = folder.getRoot().toPath().resolve("report");
+            final LoadConfig config = LoadConfig.parse("--url=http://localhost:" + server.getAddress().getPort(),
+                    "--protocol=rpc", "--rpc-port=" + rpcServer.getLocalPort(), "--rpc-connections=2",
+                    "--rate=200", "--duration=2", "--warmup=1", "--concurrency=4",
+                    "--mix=hold:50,reserve:20,cancel:20,map:10", "--report=" + reportDirectory);
+            final LoadReport report = new LoadGenerator(config).run();
+
+            // Verify every request went over the binary protocol and succeeded
+            assertThat(requests.get(), is(600));
+            long recorded = 0;
+            for (OperationReport operation : report.getOperations()) {
+                assertThat(operation.getFailures(), is(0L));
+                recorded += operation.getSuccesses();
+            }
+            assertThat(recorded, is(400L));
+        }
+    }
+
+    /**
+     * Answers each binary protocol operation the way the ticketing system does when it succeeds.
+     */
+    private void acceptRpc(final ServerSocket rpcServer) {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = rpcServer.accept();
+            } catch (IOException e) {
+                return;
+            }
+            final Thread connection = new Thread(() -> {
+                try (Socket closing = socket) {
+                    final DataInputStream in = new DataInputStream(closing.getInputStream());
+                    final DataOutputStream out = new DataOutputStream(closing.getOutputStream());
+                    while (true) {
+                        final byte[] frame = new byte[in.readInt()];
+                        in.readFully(frame);
+                        requests.incrementAndGet();
+                        final ByteBuffer request = ByteBuffer.wrap(frame);
+                        final int requestId = request.getInt();
+                        final byte operation = request.get();
+
+                        // Length, request Id, OK status, and then a result of up to five bytes
+                        final ByteBuffer response = ByteBuffer.allocate(14);
+                        response.putInt(0).putInt(requestId).put((byte) 0);
+                        if (operation == 2) {
+                            response.putInt(nextHoldId.incrementAndGet());
+                        } else if (operation == 5) {
+                            response.put((byte) 1);
+                        } else {
+                            response.putInt(1).put((byte) 'a');
+                        }
+                        response.putInt(0, response.position() - Integer.BYTES);
+                        out.write(response.array(), 0, response.position());
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // Closed by the load generator
+                }
+            });
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    /**
+     * Answers each endpoint the way the ticketing system does when it succeeds.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        final String path = exchange.getRequestURI().getPath();
+        final String body;
+        if (path.equals("/tickets/request")) {
+            body = "{\"id\":" + nextHoldId.incrementAndGet() + ",\"customerEmail\":\"" +
+                    exchange.getRequestHeaders().getFirst("customer") + "\"}";
+        } else if (path.endsWith("/reserve")) {
+            body = "Your reservation was successful. Confirmation code: abc";
+        } else if (path.endsWith("/cancel")) {
+            body = "Successfully canceled reservation. Thank you!";
+        } else {
+            body = "Seats Available: 10\n\n";
+        }
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.scott.robinson.loadgenerator;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link WorkloadMix}.
+ */
+public final class WorkloadMixTest {
+
+    @Test
+    public void pick() {
+        final WorkloadMix mix = WorkloadMix.parse("hold:60, reserve:20,map:20");
+
+        // Verify the operations are picked in proportion to their weights
+        assertThat(mix.pick(0.0), is(Operation.HOLD));
+        assertThat(mix.pick(0.59), is(Operation.HOLD));
+        assertThat(mix.pick(0.6), is(Operation.RESERVE));
+        assertThat(mix.pick(0.79), is(Operation.RESERVE));
+        assertThat(mix.pick(0.8), is(Operation.MAP));
+        assertThat(mix.pick(0.999), is(Operation.MAP));
+        assertThat(mix.getWeight(Operation.CANCEL), is(0));
+        assertThat(mix.toString(), is("hold:60,reserve:20,map:20"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unknownOperation() {
+        WorkloadMix.parse("hold:1,refund:1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_empty() {
+        WorkloadMix.parse("hold:0");
+    }
+}
@@ -1,8 +1,11 @@
 package com.scott.robinson.ticketsystem;
 
 import lombok.Getter;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Clock;
+
 /**
  * {@link Configuration} providing the values for the venue size and hold timeout.
  */
@@ -20,16 +23,224 @@ public class ConfigurationProvider {
      */
     private final int seatsPerRow;
 
+    /**
+     * Path of a venue layout file describing sections, rows, and aisles. When empty a rectangular venue of
+     * {@link #rows} by {@link #seatsPerRow} is used. Defaults to {@link #DEFAULT_LAYOUT_FILE}.
+     */
+    private final String layoutFile;
+
     /**
      * Number of seconds before a hold becomes invalid. Defaults to {@link #DEFAULT_HOLD_TIMEOUT_SEC}.
      */
     private final int holdTimeoutSeconds;
 
+    /**
+     * Whether customers must pass through the waiting room before requesting seats. Defaults to
+     * {@link #DEFAULT_WAITING_ROOM_ENABLED}.
+     */
+    private final boolean waitingRoomEnabled;
+
+    /**
+     * Number of queued customers admitted from the waiting room each second. Defaults to
+     * {@link #DEFAULT_ADMISSION_RATE}.
+     */
+    private final int admissionRatePerSecond;
+
+    /**
+     * Number of seconds an admission token remains valid once admitted. Defaults to
+     * {@link #DEFAULT_ADMISSION_WINDOW_SEC}.
+     */
+    private final int admissionWindowSeconds;
+
+    /**
+     * Maximum number of idempotency keys remembered for each operation. Defaults to
+     * {@link #DEFAULT_IDEMPOTENCY_CAPACITY}.
+     */
+    private final int idempotencyCapacity;
+
+    /**
+     * Number of seconds an idempotency key is remembered. Defaults to {@link #DEFAULT_IDEMPOTENCY_TTL_SEC}.
+     */
+    private final int idempotencyTtlSeconds;
+
+    /**
+     * The role this instance plays in replicating the venue: none, primary, or standby. Defaults to
+     * {@link #DEFAULT_REPLICATION_ROLE}.
+     */
+    private final String replicationRole;
+
+    /**
+     * Host of the primary a standby replicates from. Defaults to {@link #DEFAULT_REPLICATION_HOST}.
+     */
+    private final String replicationHost;
+
+    /**
+     * Port the primary listens on for its standby. Defaults to {@link #DEFAULT_REPLICATION_PORT}.
+     */
+    private final int replicationPort;
+
+    /**
+     * Whether the primary confirms changes before (sync) or without (async) acknowledgement from the standby. Defaults
+     * to {@link #DEFAULT_REPLICATION_ACK}.
+     */
+    private final String replicationAck;
+
+    /**
+     * Number of milliseconds the primary waits for an acknowledgement in sync mode. Defaults to
+     * {@link #DEFAULT_REPLICATION_TIMEOUT_MS}.
+     */
+    private final int replicationTimeoutMillis;
+
+    /**
+     * Whether the ticket engine is warmed up on a scratch venue before the application reports ready. Defaults to
+     * {@link #DEFAULT_WARMUP_ENABLED}.
+     */
+    private final boolean warmupEnabled;
+
+    /**
+     * Number of seconds warm-up may run before the application reports ready regardless. Defaults to
+     * {@link #DEFAULT_WARMUP_TIMEOUT_SEC}.
+     */
+    private final int warmupTimeoutSeconds;
+
+    /**
+     * Whether hold requests are scheduled across customer tiers by weight. Defaults to
+     * {@link #DEFAULT_SCHEDULER_ENABLED}.
+     */
+    private final boolean schedulerEnabled;
+
+    /**
+     * The customer tiers and their weights as name:weight pairs, highest priority first. Requests from unknown tiers
+     * are scheduled in the last. Defaults to {@link #DEFAULT_SCHEDULER_TIERS}.
+     */
+    private final String schedulerTiers;
+
+    /**
+     * Number of hold requests which may wait in each tier before further requests are turned away. Defaults to
+     * {@link #DEFAULT_SCHEDULER_QUEUE}.
+     */
+    private final int schedulerQueueCapacity;
+
+    /**
+     * The allocation strategy used to choose seats, either best or compact. Defaults to
+     * {@link #DEFAULT_ALLOCATION_STRATEGY}.
+     */
+    private final String allocationStrategy;
+
+    /**
+     * Whether the venue is shared with other worker processes through a memory mapped file. Defaults to
+     * {@link #DEFAULT_SHARED_VENUE}.
+     */
+    private final boolean sharedVenue;
+
+    /**
+     * The file the shared venue is mapped from, created by the first worker to start. Defaults to
+     * {@link #DEFAULT_SHARED_VENUE_FILE}.
+     */
+    private final String sharedVenueFile;
+
+    /**
+     * Number of holds the shared venue can store at once. Only used when the file is created. Defaults to
+     * {@link #DEFAULT_SHARED_VENUE_HOLD_SLOTS}.
+     */
+    private final int sharedVenueHoldSlots;
+
+    /**
+     * Number of workers which can share the venue at once, at most 256. Only used when the file is created. Defaults
+     * to {@link #DEFAULT_SHARED_VENUE_WORKERS}.
+     */
+    private final int sharedVenueWorkers;
+
+    /**
+     * Number of milliseconds without a heartbeat before a worker is presumed dead and its unfinished changes are
+     * recovered. Defaults to {@link #DEFAULT_SHARED_VENUE_HEARTBEAT_MS}.
+     */
+    private final int sharedVenueHeartbeatMillis;
+
+    /**
+     * Whether the customer operations are also served over the binary protocol. Defaults to
+     * {@link #DEFAULT_RPC_ENABLED}.
+     */
+    private final boolean rpcEnabled;
+
+    /**
+     * Port the binary protocol is served on. Defaults to {@link #DEFAULT_RPC_PORT}.
+     */
+    private final int rpcPort;
+
+    /**
+     * Number of threads running binary protocol requests. Defaults to {@link #DEFAULT_RPC_THREADS}.
+     */
+    private final int rpcThreads;
+
+    /**
+     * Whether confirmation codes can be validated and checked in at the gate. Defaults to
+     * {@link #DEFAULT_GATE_ENABLED}.
+     */
+    private final boolean gateEnabled;
+
+    /**
+     * Whether customers refused for lack of consecutive seats may join the waitlist. A shared venue has no waitlist
+     * whatever the setting. Defaults to {@link #DEFAULT_WAITLIST_ENABLED}.
+     */
+    private final boolean waitlistEnabled;
+
+    /**
+     * Most customers which may be on the waitlist at once. Defaults to {@link #DEFAULT_WAITLIST_CAPACITY}.
+     */
+    private final int waitlistCapacity;
+
+    /**
+     * Number of seconds a customer on the waitlist may go without polling before giving up their place. Defaults to
+     * {@link #DEFAULT_WAITLIST_TIMEOUT_SEC}.
+     */
+    private final int waitlistTimeoutSeconds;
+
     public ConfigurationProvider() {
         // Build configurations
         rows = getSystemPropertyOrDefault(VENUE_ROWS, DEFAULT_ROWS);
         seatsPerRow = getSystemPropertyOrDefault(VENUE_SEATS_PER_ROW, DEFAULT_SEATS_PER_ROW);
+        layoutFile = getSystemPropertyOrDefault(VENUE_LAYOUT, DEFAULT_LAYOUT_FILE);
         holdTimeoutSeconds = getSystemPropertyOrDefault(HOLD_TIMEOUT_SEC, DEFAULT_HOLD_TIMEOUT_SEC);
+        waitingRoomEnabled = getSystemPropertyOrDefault(WAITING_ROOM_ENABLED, DEFAULT_WAITING_ROOM_ENABLED);
+        admissionRatePerSecond = getSystemPropertyOrDefault(ADMISSION_RATE, DEFAULT_ADMISSION_RATE);
+        admissionWindowSeconds = getSystemPropertyOrDefault(ADMISSION_WINDOW_SEC, DEFAULT_ADMISSION_WINDOW_SEC);
+        idempotencyCapacity = getSystemPropertyOrDefault(IDEMPOTENCY_CAPACITY, DEFAULT_IDEMPOTENCY_CAPACITY);
+        idempotencyTtlSeconds = getSystemPropertyOrDefault(IDEMPOTENCY_TTL_SEC, DEFAULT_IDEMPOTENCY_TTL_SEC);
+        replicationRole = getSystemPropertyOrDefault(REPLICATION_ROLE, DEFAULT_REPLICATION_ROLE);
+        replicationHost = getSystemPropertyOrDefault(REPLICATION_HOST, DEFAULT_REPLICATION_HOST);
+        replicationPort = getSystemPropertyOrDefault(REPLICATION_PORT, DEFAULT_REPLICATION_PORT);
+        replicationAck = getSystemPropertyOrDefault(REPLICATION_ACK, DEFAULT_REPLICATION_ACK);
+        replicationTimeoutMillis = getSystemPropertyOrDefault(REPLICATION_TIMEOUT_MS, DEFAULT_REPLICATION_TIMEOUT_MS);
+        warmupEnabled = getSystemPropertyOrDefault(WARMUP_ENABLED, DEFAULT_WARMUP_ENABLED);
+        warmupTimeoutSeconds = getSystemPropertyOrDefault(WARMUP_TIMEOUT_SEC, DEFAULT_WARMUP_TIMEOUT_SEC);
+        schedulerEnabled = getSystemPropertyOrDefault(SCHEDULER_ENABLED, DEFAULT_SCHEDULER_ENABLED);
+        schedulerTiers = getSystemPropertyOrDefault(SCHEDULER_TIERS, DEFAULT_SCHEDULER_TIERS);
+        schedulerQueueCapacity = getSystemPropertyOrDefault(SCHEDULER_QUEUE, DEFAULT_SCHEDULER_QUEUE);
+        allocationStrategy = getSystemPropertyOrDefault(ALLOCATION_STRATEGY, DEFAULT_ALLOCATION_STRATEGY);
+        sharedVenue = getSystemPropertyOrDefault(SHARED_VENUE, DEFAULT_SHARED_VENUE);
+        sharedVenueFile = getSystemPropertyOrDefault(SHARED_VENUE_FILE, DEFAULT_SHARED_VENUE_FILE);
+        sharedVenueHoldSlots = getSystemPropertyOrDefault(SHARED_VENUE_HOLD_SLOTS, DEFAULT_SHARED_VENUE_HOLD_SLOTS);
+        sharedVenueWorkers = getSystemPropertyOrDefault(SHARED_VENUE_WORKERS, DEFAULT_SHARED_VENUE_WORKERS);
+        sharedVenueHeartbeatMillis = getSystemPropertyOrDefault(SHARED_VENUE_HEARTBEAT_MS,
+                DEFAULT_SHARED_VENUE_HEARTBEAT_MS);
+        rpcEnabled = getSystemPropertyOrDefault(RPC_ENABLED, DEFAULT_RPC_ENABLED);
+        rpcPort = getSystemPropertyOrDefault(RPC_PORT, DEFAULT_RPC_PORT);
+        rpcThreads = getSystemPropertyOrDefault(RPC_THREADS, DEFAULT_RPC_THREADS);
+        gateEnabled = getSystemPropertyOrDefault(GATE_ENABLED, DEFAULT_GATE_ENABLED);
+        waitlistEnabled = getSystemPropertyOrDefault(WAITLIST_ENABLED, DEFAULT_WAITLIST_ENABLED);
+        waitlistCapacity = getSystemPropertyOrDefault(WAITLIST_CAPACITY, DEFAULT_WAITLIST_CAPACITY);
+        waitlistTimeoutSeconds = getSystemPropertyOrDefault(WAITLIST_TIMEOUT_SEC, DEFAULT_WAITLIST_TIMEOUT_SEC);
+    }
+
+    /**
+     * The {@link Clock} used to time holds. Provided as a bean so that time can be simulated.
+     *
+     * @return The system {@link Clock}
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
     }
 
     /**
@@ -48,10 +259,95 @@ public class ConfigurationProvider {
         }
     }
 
+    /**
+     * Checks for the system property or returns the provided default value.
+     *
+     * @param key The system property key for which to check for the configuration
+     * @param defaultValue The default value to use in the case no system property is found
+     * @return The system property or the default value
+     */
+    private String getSystemPropertyOrDefault(final String key, final String defaultValue) {
+        return System.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Checks for the system property or returns the provided default value.
+     *
+     * @param key The system property key for which to check for the configuration
+     * @param defaultValue The default value to use in the case no system property is found
+     * @return The system property converted to a {@link Boolean} or the default value
+     */
+    private boolean getSystemPropertyOrDefault(final String key, final boolean defaultValue) {
+        final String sysProp = System.getProperty(key);
+        if (sysProp != null) {
+            return Boolean.parseBoolean(sysProp);
+        } else {
+            return defaultValue;
+        }
+    }
+
     private final int DEFAULT_ROWS = 9;
     private final int DEFAULT_SEATS_PER_ROW = 33;
+    private final String DEFAULT_LAYOUT_FILE = "";
     private final int DEFAULT_HOLD_TIMEOUT_SEC = 60;
+    private final boolean DEFAULT_WAITING_ROOM_ENABLED = false;
+    private final int DEFAULT_ADMISSION_RATE = 50;
+    private final int DEFAULT_ADMISSION_WINDOW_SEC = 300;
+    private final int DEFAULT_IDEMPOTENCY_CAPACITY = 100000;
+    private final int DEFAULT_IDEMPOTENCY_TTL_SEC = 600;
+    private final String DEFAULT_REPLICATION_ROLE = "none";
+    private final String DEFAULT_REPLICATION_HOST = "localhost";
+    private final int DEFAULT_REPLICATION_PORT = 7070;
+    private final String DEFAULT_REPLICATION_ACK = "async";
+    private final int DEFAULT_REPLICATION_TIMEOUT_MS = 1000;
+    private final boolean DEFAULT_WARMUP_ENABLED = false;
+    private final int DEFAULT_WARMUP_TIMEOUT_SEC = 60;
+    private final boolean DEFAULT_SCHEDULER_ENABLED = false;
+    private final String DEFAULT_SCHEDULER_TIERS = "member:5,partner:3,general:1";
+    private final int DEFAULT_SCHEDULER_QUEUE = 1000;
+    private final String DEFAULT_ALLOCATION_STRATEGY = "best";
+    private final boolean DEFAULT_SHARED_VENUE = false;
+    private final String DEFAULT_SHARED_VENUE_FILE = "ticket-system.venue";
+    private final int DEFAULT_SHARED_VENUE_HOLD_SLOTS = 65536;
+    private final int DEFAULT_SHARED_VENUE_WORKERS = 64;
+    private final int DEFAULT_SHARED_VENUE_HEARTBEAT_MS = 5000;
+    private final boolean DEFAULT_RPC_ENABLED = false;
+    private final int DEFAULT_RPC_PORT = 9090;
+    private final int DEFAULT_RPC_THREADS = 8;
+    private final boolean DEFAULT_GATE_ENABLED = false;
+    private final boolean DEFAULT_WAITLIST_ENABLED = true;
+    private final int DEFAULT_WAITLIST_CAPACITY = 100000;
+    private final int DEFAULT_WAITLIST_TIMEOUT_SEC = 60;
     private final String VENUE_ROWS = "venue.rows";
     private final String VENUE_SEATS_PER_ROW = "venue.seats";
+    private final String VENUE_LAYOUT = "venue.layout";
     private final String HOLD_TIMEOUT_SEC = "timeout.hold";
+    private final String WAITING_ROOM_ENABLED = "waitingroom.enabled";
+    private final String ADMISSION_RATE = "waitingroom.rate";
+    private final String ADMISSION_WINDOW_SEC = "waitingroom.window";
+    private final String IDEMPOTENCY_CAPACITY = "idempotency.capacity";
+    private final String IDEMPOTENCY_TTL_SEC = "idempotency.ttl";
+    private final String REPLICATION_ROLE = "replication.role";
+    private final String REPLICATION_HOST = "replication.host";
+    private final String REPLICATION_PORT = "replication.port";
+    private final String REPLICATION_ACK = "replication.ack";
+    private final String REPLICATION_TIMEOUT_MS = "replication.timeout";
+    private final String WARMUP_ENABLED = "warmup.enabled";
+    private final String WARMUP_TIMEOUT_SEC = "warmup.timeout";
+    private final String SCHEDULER_ENABLED = "scheduler.enabled";
+    private final String SCHEDULER_TIERS = "scheduler.tiers";
+    private final String SCHEDULER_QUEUE = "scheduler.queue";
+    private final String ALLOCATION_STRATEGY = "allocation.strategy";
+    private final String SHARED_VENUE = "venue.shared";
+    private final String SHARED_VENUE_FILE = "venue.shared.file";
+    private final String SHARED_VENUE_HOLD_SLOTS = "venue.shared.holds";
+    private final String SHARED_VENUE_WORKERS = "venue.shared.workers";
+    private final String SHARED_VENUE_HEARTBEAT_MS = "venue.shared.heartbeat";
+    private final String RPC_ENABLED = "rpc.enabled";
+    private final String RPC_PORT = "rpc.port";
+    private final String RPC_THREADS = "rpc.threads";
+    private final String GATE_ENABLED = "gate.enabled";
+    private final String WAITLIST_ENABLED = "waitlist.enabled";
+    private final String WAITLIST_CAPACITY = "waitlist.capacity";
+    private final String WAITLIST_TIMEOUT_SEC = "waitlist.timeout";
 }
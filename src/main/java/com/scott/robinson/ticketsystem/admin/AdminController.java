@@ -1,8 +1,13 @@
 package com.scott.robinson.ticketsystem.admin;
 
+import com.scott.robinson.ticketsystem.customer.FragmentationReport;
 import com.scott.robinson.ticketsystem.customer.SeatHold;
 import com.scott.robinson.ticketsystem.customer.SeatReservation;
+import com.scott.robinson.ticketsystem.customer.VenueReport;
+import com.scott.robinson.ticketsystem.replication.ReplicationStatus;
+import com.scott.robinson.ticketsystem.scheduler.TierStatus;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,4 +24,44 @@ public interface AdminController {
      * The current seat holds.
      */
     Map<Integer, SeatHold> showHolds();
+
+    /**
+     * The size, start up time, and memory footprint of the venue.
+     */
+    VenueReport showVenue();
+
+    /**
+     * How the open seats of the venue are broken up.
+     */
+    FragmentationReport showFragmentation();
+
+    /**
+     * Take a range of seats out of sale.
+     */
+    int blockSeats(final int firstRow, final int lastRow, final int firstSeat, final int lastSeat);
+
+    /**
+     * Return a range of blocked seats to sale.
+     */
+    int releaseSeats(final int firstRow, final int lastRow, final int firstSeat, final int lastSeat);
+
+    /**
+     * Reserve a range of seats for a customer.
+     */
+    List<SeatReservation> reserveSeats(final int firstRow, final int lastRow, final int firstSeat, final int lastSeat, final String customerEmail);
+
+    /**
+     * The queue depth and latency of each customer tier.
+     */
+    List<TierStatus> showScheduler();
+
+    /**
+     * The current state of replication.
+     */
+    ReplicationStatus showReplication();
+
+    /**
+     * Promote this standby to accept customer requests.
+     */
+    ReplicationStatus promote();
 }
@@ -1,12 +1,23 @@
 package com.scott.robinson.ticketsystem.admin;
 
+import com.scott.robinson.ticketsystem.customer.FragmentationReport;
 import com.scott.robinson.ticketsystem.customer.SeatHold;
+import com.scott.robinson.ticketsystem.customer.SeatRange;
 import com.scott.robinson.ticketsystem.customer.SeatReservation;
 import com.scott.robinson.ticketsystem.customer.TicketService;
+import com.scott.robinson.ticketsystem.customer.VenueReport;
+import com.scott.robinson.ticketsystem.replication.ReplicationService;
+import com.scott.robinson.ticketsystem.replication.ReplicationStatus;
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.scheduler.TierStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,9 +30,16 @@ public final class AdminControllerImpl implements AdminController {
 
     private final TicketService ticketService;
 
+    private final ReplicationService replicationService;
+
+    private final HoldScheduler holdScheduler;
+
     @Autowired
-    AdminControllerImpl(final TicketService ticketService) {
+    AdminControllerImpl(final TicketService ticketService, final ReplicationService replicationService,
+                        final HoldScheduler holdScheduler) {
         this.ticketService = ticketService;
+        this.replicationService = replicationService;
+        this.holdScheduler = holdScheduler;
     }
 
     /**
@@ -41,4 +59,89 @@ public final class AdminControllerImpl implements AdminController {
     public Map<Integer, SeatHold> showHolds() {
         return ticketService.getHolds();
     }
+
+    /**
+     * Returns the size, start up time, and memory footprint of the venue.
+     */
+    @RequestMapping(path = "/venue", produces = "application/json")
+    @Override
+    public VenueReport showVenue() {
+        return ticketService.getVenueReport();
+    }
+
+    /**
+     * Returns how the open seats are broken up into free runs, and the allocation strategy in use.
+     */
+    @RequestMapping(path = "/fragmentation", produces = "application/json")
+    @Override
+    public FragmentationReport showFragmentation() {
+        return ticketService.getFragmentationReport();
+    }
+
+    /**
+     * Blocks every seat within the rows and seat positions provided, inclusive, for example for production or camera positions.
+     * The range must not contain held or reserved seats.
+     *
+     * @return The number of seats newly blocked
+     */
+    @RequestMapping(path = "/seats/block", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public int blockSeats(@RequestParam final int firstRow, @RequestParam final int lastRow,
+                          @RequestParam final int firstSeat, @RequestParam final int lastSeat) {
+        return ticketService.blockSeats(new SeatRange(firstRow, lastRow, firstSeat, lastSeat));
+    }
+
+    /**
+     * Re-opens the blocked seats within the rows and seat positions provided. The range must not contain held or
+     * reserved seats.
+     *
+     * @return The number of seats re-opened
+     */
+    @RequestMapping(path = "/seats/release", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public int releaseSeats(@RequestParam final int firstRow, @RequestParam final int lastRow,
+                            @RequestParam final int firstSeat, @RequestParam final int lastSeat) {
+        return ticketService.releaseBlockedSeats(new SeatRange(firstRow, lastRow, firstSeat, lastSeat));
+    }
+
+    /**
+     * Reserves every seat within the rows and seat positions provided for the customer, for example for complimentary
+     * tickets. The range may contain open or blocked seats.
+     *
+     * @return The reservations made
+     */
+    @RequestMapping(path = "/seats/reserve", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public List<SeatReservation> reserveSeats(@RequestParam final int firstRow, @RequestParam final int lastRow,
+                                              @RequestParam final int firstSeat, @RequestParam final int lastSeat,
+                                              @RequestHeader(name = "customer") final String customerEmail) {
+        return ticketService.reserveSeatRange(new SeatRange(firstRow, lastRow, firstSeat, lastSeat), customerEmail);
+    }
+
+    /**
+     * Returns the queue depth and hold latency of each customer tier.
+     */
+    @RequestMapping(path = "/scheduler", produces = "application/json")
+    @Override
+    public List<TierStatus> showScheduler() {
+        return holdScheduler.status();
+    }
+
+    /**
+     * Returns the replication role, progress, and acknowledgement latency of this instance.
+     */
+    @RequestMapping(path = "/replication", produces = "application/json")
+    @Override
+    public ReplicationStatus showReplication() {
+        return replicationService.status();
+    }
+
+    /**
+     * Promotes this standby to a primary so that it begins accepting customer requests.
+     */
+    @RequestMapping(path = "/replication/promote", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public ReplicationStatus promote() {
+        return replicationService.promote();
+    }
 }
@@ -0,0 +1,113 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * {@link Enum} of the ways in which the best seats for a group are chosen from the open seats of the {@link Venue}.
+ * Each strategy searches the venue's free runs without allocating, returning the row and first seat packed into a long
+ * as {@code row << 32 | firstSeat}, or -1 if no row can seat the group.
+ */
+enum AllocationStrategy {
+
+    /**
+     * The first row which can seat the group, with the group as near the middle of the row as its free runs allow.
+     * This gives each group the best seats available at that moment, regardless of the gaps left behind.
+     */
+    BEST {
+        @Override
+        long find(final Venue venue, final int numSeats) {
+            final int rowNum = venue.findRow(0, numSeats);
+            if (rowNum < 0) {
+                return -1;
+            }
+            return (long) rowNum << 32 | RankedBlocks.best(venue, rowNum, numSeats);
+        }
+    },
+
+    /**
+     * Scores candidate blocks in the first few rows which can seat the group by both position and the gaps they leave
+     * in their free run, and takes the lowest score. A block is penalized for each row it is behind the first
+     * candidate row and each seat its centre is from the middle of the row, as with {@link #BEST}, but also for each
+     * leftover piece of its run and heavily for leftover pieces too small to seat a pair. Groups therefore fill runs
+     * exactly or sit flush against an edge rather than splitting a run into unsellable single seats, trading a
+     * slightly less central seat now for larger groups still being sellable late in the sale.
+     */
+    COMPACT {
+        @Override
+        long find(final Venue venue, final int numSeats) {
+            final int firstRow = venue.findRow(0, numSeats);
+            long best = -1;
+            int bestScore = Integer.MAX_VALUE;
+            int rowNum = firstRow;
+            for (int considered = 0; rowNum >= 0 && considered < CANDIDATE_ROWS; considered++) {
+                final int rowScore = (rowNum - firstRow) * ROW_PENALTY;
+                if (rowScore >= bestScore) {
+                    // Every block in this and later rows scores worse than the best already found
+                    break;
+                }
+
+                final int middle2 = venue.getRowExtent(rowNum);
+                final int runs = venue.getRunCount(rowNum);
+                for (int run = 0; run < runs; run++) {
+                    final int runStart = venue.getRunStart(rowNum, run);
+                    final int runEnd = venue.getRunEnd(rowNum, run);
+                    final int lastStart = runEnd - numSeats + 1;
+                    if (lastStart < runStart) {
+                        continue;
+                    }
+
+                    // The candidates are flush against either end of the run, or as central as the run allows, taken
+                    // in order of position so that ties go to the earlier seat
+                    final int central = Math.max(runStart, Math.min(lastStart, (middle2 - numSeats) / 2));
+                    for (int candidate = 0; candidate < 3; candidate++) {
+                        final int start = candidate == 0 ? runStart : candidate == 1 ? central : lastStart;
+                        final int score = rowScore + compactScore(middle2, runStart, runEnd, start, numSeats);
+                        if (score < bestScore) {
+                            bestScore = score;
+                            best = (long) rowNum << 32 | start;
+                        }
+                    }
+                }
+                rowNum = venue.findRow(rowNum + 1, numSeats);
+            }
+            return best;
+        }
+    };
+
+    /**
+     * The number of rows which can seat the group that {@link #COMPACT} considers.
+     */
+    static final int CANDIDATE_ROWS = 4;
+
+    /**
+     * Leftover pieces smaller than this many seats are stranded: too small for the typical group.
+     */
+    static final int STRANDED_SEATS = 2;
+
+    /**
+     * The {@link #COMPACT} penalties, in half seats of distance from the middle of the row.
+     */
+    static final int ROW_PENALTY = 8;
+    static final int PIECE_PENALTY = 4;
+    static final int STRANDED_PENALTY = 24;
+
+    /**
+     * Finds the seats for the group. Must be called while the venue is not changing.
+     *
+     * @return The row and first seat packed as {@code row << 32 | firstSeat}, or -1 if no row can seat the group
+     */
+    abstract long find(Venue venue, int numSeats);
+
+    /**
+     * Scores a block within its free run as {@link #COMPACT} does, leaving out the penalty for its row.
+     *
+     * @param middle2 The extent of the row, which is twice its middle
+     */
+    static int compactScore(final int middle2, final int runStart, final int runEnd, final int start,
+                            final int numSeats) {
+        return Math.abs(2 * start + numSeats - middle2) + leftoverPenalty(start - runStart)
+                + leftoverPenalty(runEnd - start - numSeats + 1);
+    }
+
+    private static int leftoverPenalty(final int seats) {
+        return seats == 0 ? 0 : seats < STRANDED_SEATS ? STRANDED_PENALTY : PIECE_PENALTY;
+    }
+}
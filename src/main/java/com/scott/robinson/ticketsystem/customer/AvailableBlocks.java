@@ -0,0 +1,161 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable page of the blocks of consecutive open seats available for a group, best first as ranked by the
+ * {@link AllocationStrategy} in use.
+ */
+@Value
+public final class AvailableBlocks {
+
+    private final int numSeats;
+
+    /**
+     * The rank of the first block within this page.
+     */
+    private final int offset;
+
+    private final List<Seats> blocks;
+
+    /**
+     * The offset of the next page, or -1 if there are no further blocks.
+     */
+    private final int nextOffset;
+
+    /**
+     * Pages through the blocks of consecutive open seats using the free runs maintained by the venue. Rows without a
+     * long enough free run are skipped through the venue's index, and rows before the requested page are skipped by
+     * their block count, so only the rows on the page are enumerated. The venue must not change during the call.
+     *
+     * @param strategy The strategy whose order the blocks are ranked in
+     * @param numSeats The size of the group
+     * @param offset The rank of the first block to return
+     * @param limit The maximum number of blocks to return, at most {@link TicketServiceImpl#MAX_BLOCKS_PER_PAGE}
+     */
+    static AvailableBlocks find(final Venue venue, final AllocationStrategy strategy, final int numSeats,
+                                final int offset, final int limit) {
+        if (numSeats < 1) {
+            throw TicketError.INVALID_SEAT_COUNT.exception();
+        }
+        if (offset < 0 || limit < 1 || limit > TicketServiceImpl.MAX_BLOCKS_PER_PAGE) {
+            throw TicketError.INVALID_PAGE.exception();
+        }
+        return strategy == AllocationStrategy.COMPACT ? findCompact(venue, numSeats, offset, limit)
+                : findBest(venue, numSeats, offset, limit);
+    }
+
+    /**
+     * Ranks the blocks as {@link AllocationStrategy#BEST} does: by row, and then by closeness to the middle of the row.
+     */
+    private static AvailableBlocks findBest(final Venue venue, final int numSeats, final int offset,
+                                            final int limit) {
+        final List<Seats> blocks = new ArrayList<>(limit);
+        boolean more = false;
+        int skip = offset;
+        for (int rowNum = venue.findRow(0, numSeats); rowNum >= 0; rowNum = venue.findRow(rowNum + 1, numSeats)) {
+            if (blocks.size() == limit) {
+                more = true;
+                break;
+            }
+
+            final RankedBlocks rowBlocks = new RankedBlocks(venue, rowNum, numSeats);
+            if (rowBlocks.count() <= skip) {
+                skip -= rowBlocks.count();
+                continue;
+            }
+            for (; skip > 0; skip--) {
+                rowBlocks.next();
+            }
+            while (rowBlocks.hasNext() && blocks.size() < limit) {
+                final int firstSeat = rowBlocks.next();
+                blocks.add(new Seats(rowNum, firstSeat, firstSeat + numSeats - 1));
+            }
+            if (rowBlocks.hasNext()) {
+                more = true;
+                break;
+            }
+        }
+        return new AvailableBlocks(numSeats, offset, blocks, more ? offset + blocks.size() : -1);
+    }
+
+    /**
+     * Ranks the blocks as {@link AllocationStrategy#COMPACT} does. The rows which can seat the group are taken in
+     * windows of {@link AllocationStrategy#CANDIDATE_ROWS}, as the strategy considers them, and every block of a window
+     * is scored by its row and its place within its free run, lowest first, with ties going to the earlier row and then
+     * the earlier seat. Windows before the requested page are skipped by their block count, so only the windows on the
+     * page are scored.
+     */
+    private static AvailableBlocks findCompact(final Venue venue, final int numSeats, final int offset,
+                                               final int limit) {
+        final List<Seats> blocks = new ArrayList<>(limit);
+        final int[] rows = new int[AllocationStrategy.CANDIDATE_ROWS];
+        boolean more = false;
+        int skip = offset;
+        int rowNum = venue.findRow(0, numSeats);
+        while (rowNum >= 0) {
+            if (blocks.size() == limit) {
+                more = true;
+                break;
+            }
+
+            int windowRows = 0;
+            int count = 0;
+            for (; rowNum >= 0 && windowRows < rows.length; rowNum = venue.findRow(rowNum + 1, numSeats)) {
+                rows[windowRows++] = rowNum;
+                count += blockCount(venue, rowNum, numSeats);
+            }
+            if (count <= skip) {
+                skip -= count;
+                continue;
+            }
+
+            // Pack each block as its score, its row within the window, and its first seat, so sorting ranks them
+            final long[] ranked = new long[count];
+            int block = 0;
+            for (int window = 0; window < windowRows; window++) {
+                final int row = rows[window];
+                final int middle2 = venue.getRowExtent(row);
+                final int runs = venue.getRunCount(row);
+                for (int run = 0; run < runs; run++) {
+                    final int runStart = venue.getRunStart(row, run);
+                    final int runEnd = venue.getRunEnd(row, run);
+                    for (int start = runStart; start <= runEnd - numSeats + 1; start++) {
+                        final int score = (row - rows[0]) * AllocationStrategy.ROW_PENALTY
+                                + AllocationStrategy.compactScore(middle2, runStart, runEnd, start, numSeats);
+                        ranked[block++] = (long) score << 40 | (long) window << 32 | start;
+                    }
+                }
+            }
+            Arrays.sort(ranked);
+
+            int next = skip;
+            skip = 0;
+            for (; next < count && blocks.size() < limit; next++) {
+                final int firstSeat = (int) ranked[next];
+                blocks.add(new Seats(rows[(int) (ranked[next] >>> 32) & 0xFF], firstSeat, firstSeat + numSeats - 1));
+            }
+            if (next < count) {
+                more = true;
+                break;
+            }
+        }
+        return new AvailableBlocks(numSeats, offset, blocks, more ? offset + blocks.size() : -1);
+    }
+
+    /**
+     * @return The number of blocks of the group size within the free runs of the row
+     */
+    private static int blockCount(final Venue venue, final int rowNum, final int numSeats) {
+        int count = 0;
+        final int runs = venue.getRunCount(rowNum);
+        for (int run = 0; run < runs; run++) {
+            count += Math.max(0, venue.getRunEnd(rowNum, run) - venue.getRunStart(rowNum, run) - numSeats + 2);
+        }
+        return count;
+    }
+}
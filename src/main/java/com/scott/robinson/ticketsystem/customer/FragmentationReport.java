@@ -0,0 +1,75 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.util.Locale;
+
+/**
+ * Immutable report of how the open seats of the venue are broken up into free runs, the groups of consecutive open
+ * seats which can be sold together.
+ */
+@Value
+public final class FragmentationReport {
+
+    /**
+     * The number of run lengths counted individually.
+     */
+    private static final int RUN_LENGTH_BUCKETS = 16;
+
+    /**
+     * The {@link AllocationStrategy} in use.
+     */
+    private final String strategy;
+
+    private final long openSeats;
+
+    private final long freeRuns;
+
+    /**
+     * The length of the longest free run, which is the largest group that can still be seated.
+     */
+    private final int longestRun;
+
+    /**
+     * The number of open seats in free runs too short to seat a pair.
+     */
+    private final long strandedSeats;
+
+    /**
+     * The number of free runs of each length, where index {@code i} counts runs of {@code i + 1} seats and the last
+     * entry counts every longer run.
+     */
+    private final long[] runLengths;
+
+    /**
+     * @return The fraction of open seats which are stranded
+     */
+    public double getStrandedRate() {
+        return openSeats == 0 ? 0 : (double) strandedSeats / openSeats;
+    }
+
+    /**
+     * Counts every free run of the venue, which costs time in proportion to the number of runs rather than seats. The
+     * venue must not change during the call.
+     */
+    static FragmentationReport of(final Venue venue, final AllocationStrategy strategy) {
+        final long[] runLengths = new long[RUN_LENGTH_BUCKETS];
+        long freeRuns = 0;
+        long strandedSeats = 0;
+        int longestRun = 0;
+        for (int rowNum = 0; rowNum < venue.getRowCount(); rowNum++) {
+            final int runs = venue.getRunCount(rowNum);
+            for (int run = 0; run < runs; run++) {
+                final int length = venue.getRunEnd(rowNum, run) - venue.getRunStart(rowNum, run) + 1;
+                runLengths[Math.min(length, RUN_LENGTH_BUCKETS) - 1]++;
+                if (length < AllocationStrategy.STRANDED_SEATS) {
+                    strandedSeats += length;
+                }
+                longestRun = Math.max(longestRun, length);
+            }
+            freeRuns += runs;
+        }
+        return new FragmentationReport(strategy.name().toLowerCase(Locale.ROOT), venue.getOpenSeats(), freeRuns,
+                longestRun, strandedSeats, runLengths);
+    }
+}
@@ -0,0 +1,160 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring cache used to de-duplicate retried requests. The first request for an idempotency key performs
+ * the work and any request repeating the key before it expires receives the original result instead.
+ *
+ * <p>Entries are kept in insertion order. Since every entry lives for the same amount of time the oldest entry is
+ * always the first to expire, which allows both expiration and the capacity bound to be enforced from the head of the
+ * {@link LinkedHashMap}.
+ *
+ * @param <V> The type of the cached result
+ */
+final class IdempotencyCache<V> {
+
+    /**
+     * {@link Map} of idempotency keys to the result of the original request, which is still pending while the original
+     * request is in flight.
+     */
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    private final int capacity;
+
+    private final long ttlMillis;
+
+    private final Clock clock;
+
+    IdempotencyCache(final int capacity, final int ttlSeconds, final Clock clock) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.clock = clock;
+    }
+
+    /**
+     * Performs the action unless the key has been seen before, in which case the original result is returned. A
+     * repeated key arriving while the original action is still in flight waits for and shares its result. Failed actions
+     * are not cached so that the request may be retried.
+     *
+     * @param key The idempotency key, or null to always perform the action
+     * @param action The work to perform on the first request for the key
+     * @return The result of the first request made with the key
+     */
+    V execute(final String key, final Supplier<V> action) {
+        return await(executeAsync(key, () -> CompletableFuture.completedFuture(action.get())));
+    }
+
+    /**
+     * Starts the action unless the key has been seen before, in which case the original result is returned. A repeated
+     * key arriving while the original action is still in flight shares its result without waiting for it. Failed
+     * actions are not cached so that the request may be retried.
+     *
+     * @param key The idempotency key, or null to always perform the action
+     * @param action The work to start on the first request for the key
+     * @return {@link CompletableFuture} of the result of the first request made with the key
+     */
+    CompletableFuture<V> executeAsync(final String key, final Supplier<CompletableFuture<V>> action) {
+        if (key == null) {
+            return start(action);
+        }
+
+        final Entry<V> existing;
+        final Entry<V> entry;
+        synchronized (entries) {
+            final long now = clock.millis();
+            evict(now);
+
+            existing = entries.get(key);
+            if (existing == null) {
+                entry = new Entry<>(now);
+                entries.put(key, entry);
+            } else {
+                entry = null;
+            }
+        }
+
+        if (existing != null) {
+            return existing.result;
+        }
+
+        start(action).whenComplete((value, failure) -> {
+            if (failure == null) {
+                entry.result.complete(value);
+                return;
+            }
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null ?
+                    failure.getCause() : failure);
+        });
+        return entry.result;
+    }
+
+    /**
+     * @return The number of idempotency keys currently remembered
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes expired entries and, if the cache is full, the oldest entries. Must be called while synchronized on
+     * {@link #entries}.
+     */
+    private void evict(final long now) {
+        final Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry<V> eldest = iterator.next();
+            if (entries.size() < capacity && now - eldest.creationMillis < ttlMillis) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return The future the action returns, or a failed future if the action throws rather than returning one
+     */
+    private static <V> CompletableFuture<V> start(final Supplier<CompletableFuture<V>> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            final CompletableFuture<V> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Waits for the result and rethrows its failure, if any, to the caller.
+     */
+    private V await(final CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final long creationMillis;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Entry(final long creationMillis) {
+            this.creationMillis = creationMillis;
+        }
+    }
+}
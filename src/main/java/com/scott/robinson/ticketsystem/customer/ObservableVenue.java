@@ -0,0 +1,23 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * A venue whose changes can be followed, starting from a snapshot, as a stream of {@link VenueMutation}s.
+ */
+public interface ObservableVenue {
+
+    /**
+     * Registers a listener to receive every subsequent {@link VenueMutation}, whether made on this instance or applied
+     * from another.
+     */
+    void addMutationListener(final VenueMutationListener listener);
+
+    /**
+     * @return {@link VenueSnapshot} of the current holds and reservations
+     */
+    VenueSnapshot snapshot();
+
+    /**
+     * @return Whether the venue rejects customer requests which would change it, as a standby does
+     */
+    boolean isReadOnly();
+}
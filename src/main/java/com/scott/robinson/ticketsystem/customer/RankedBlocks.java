@@ -0,0 +1,134 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * Enumerates the first seat of every block of consecutive open seats of a given size within a single row, best first.
+ * The best block is the one starting nearest the middle of the row, with ties going to the block nearer the start of
+ * the row.
+ *
+ * <p>The candidates are built from the row's free runs: a run of length {@code L} holds {@code L - n + 1} blocks of
+ * {@code n} seats. Enumeration walks outwards from the middle across those ranges, so producing each block costs
+ * constant time regardless of the size of the row.
+ */
+final class RankedBlocks {
+
+    private final int middle;
+
+    /**
+     * The ranges of first seats of the blocks, sorted by position.
+     */
+    private final int[] starts;
+    private final int[] ends;
+    private final int ranges;
+
+    /**
+     * The number of blocks within the row.
+     */
+    private final int count;
+
+    /**
+     * The next candidate at or before the middle, within range {@link #leftRange}, which is -1 once exhausted.
+     */
+    private int left;
+    private int leftRange;
+
+    /**
+     * The next candidate after the middle, within range {@link #rightRange}, which is {@link #ranges} once exhausted.
+     */
+    private int right;
+    private int rightRange;
+
+    /**
+     * The venue must not change while the blocks are being enumerated.
+     */
+    RankedBlocks(final Venue venue, final int row, final int numSeats) {
+        this.middle = venue.getRowExtent(row) / 2;
+
+        final int runs = venue.getRunCount(row);
+        starts = new int[runs];
+        ends = new int[runs];
+        int range = 0;
+        int blocks = 0;
+        for (int run = 0; run < runs; run++) {
+            final int lastStart = venue.getRunEnd(row, run) - numSeats + 1;
+            if (lastStart >= venue.getRunStart(row, run)) {
+                starts[range] = venue.getRunStart(row, run);
+                ends[range] = lastStart;
+                blocks += lastStart - starts[range] + 1;
+                range++;
+            }
+        }
+        this.ranges = range;
+        this.count = blocks;
+
+        // Position the left cursor on the last range starting at or before the middle, and the right on the next
+        leftRange = -1;
+        while (leftRange + 1 < ranges && starts[leftRange + 1] <= middle) {
+            leftRange++;
+        }
+        if (leftRange >= 0) {
+            left = Math.min(ends[leftRange], middle);
+        }
+        rightRange = leftRange >= 0 && ends[leftRange] > middle ? leftRange : leftRange + 1;
+        if (rightRange < ranges) {
+            right = Math.max(starts[rightRange], middle + 1);
+        }
+    }
+
+    /**
+     * Finds the first seat of the best block in the row without allocating, which is the first block
+     * {@link #next()} would return. The row must contain at least one block.
+     */
+    static int best(final Venue venue, final int row, final int numSeats) {
+        final int middle = venue.getRowExtent(row) / 2;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        final int runs = venue.getRunCount(row);
+        for (int run = 0; run < runs; run++) {
+            final int firstStart = venue.getRunStart(row, run);
+            final int lastStart = venue.getRunEnd(row, run) - numSeats + 1;
+            if (lastStart < firstStart) {
+                continue;
+            }
+
+            // The best block within a run starts as near the middle as the run allows
+            final int start = Math.max(firstStart, Math.min(middle, lastStart));
+            final int distance = Math.abs(start - middle);
+            if (distance < bestDistance) {
+                best = start;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The total number of blocks within the row
+     */
+    int count() {
+        return count;
+    }
+
+    boolean hasNext() {
+        return leftRange >= 0 || rightRange < ranges;
+    }
+
+    /**
+     * @return The first seat of the next best block
+     */
+    int next() {
+        final boolean takeLeft = rightRange >= ranges || (leftRange >= 0 && middle - left <= right - middle);
+        if (takeLeft) {
+            final int seat = left--;
+            if (left < starts[leftRange] && --leftRange >= 0) {
+                left = ends[leftRange];
+            }
+            return seat;
+        }
+
+        final int seat = right++;
+        if (right > ends[rightRange] && ++rightRange < ranges) {
+            right = starts[rightRange];
+        }
+        return seat;
+    }
+}
@@ -0,0 +1,14 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * {@link org.springframework.stereotype.Controller} to report whether the application is ready for customers.
+ */
+interface ReadinessController {
+
+    /**
+     * @return {@link WarmupReport} with an OK status once ready, otherwise a service unavailable status
+     */
+    ResponseEntity<WarmupReport> ready();
+}
@@ -0,0 +1,35 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This {@link RestController} contains the endpoint a load balancer would poll before routing customers to the
+ * application.
+ */
+@RestController
+final class ReadinessControllerImpl implements ReadinessController {
+
+    private final WarmupService warmupService;
+
+    @Autowired
+    ReadinessControllerImpl(final WarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    /**
+     * Reports whether warm-up has finished.
+     *
+     * @return {@link WarmupReport} of the progress of warm-up, with a 503 status until the application is ready
+     */
+    @RequestMapping(path = "/ready", method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public ResponseEntity<WarmupReport> ready() {
+        final WarmupReport report = warmupService.getReport();
+        return new ResponseEntity<>(report, report.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
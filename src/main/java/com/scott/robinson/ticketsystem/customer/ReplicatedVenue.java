@@ -0,0 +1,26 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * A venue whose changes can be streamed to, and applied on, another instance of the ticketing system.
+ */
+public interface ReplicatedVenue extends ObservableVenue {
+
+    /**
+     * Discards the current state of the venue and replaces it with the provided snapshot, then notifies the listeners.
+     */
+    void restore(final VenueSnapshot snapshot);
+
+    /**
+     * Applies a mutation received from another instance, then notifies the listeners.
+     *
+     * @param sequence The sequence number of the mutation on the instance which produced it
+     * @param mutation The mutation to apply
+     */
+    void apply(final long sequence, final VenueMutation mutation);
+
+    /**
+     * Read-only venues reject customer requests which would change the venue and do not expire holds, leaving both to
+     * the instance they are replicating.
+     */
+    void setReadOnly(final boolean readOnly);
+}
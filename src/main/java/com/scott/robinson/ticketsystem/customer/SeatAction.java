@@ -27,9 +27,9 @@ abstract class SeatAction {
     @NonNull
     private final LocalDateTime creationTime;
 
-    SeatAction(final String email, final Seats seats) {
+    SeatAction(final String email, final Seats seats, final LocalDateTime creationTime) {
         this.email = email;
         this.seats = seats;
-        this.creationTime = LocalDateTime.now();
+        this.creationTime = creationTime;
     }
 }
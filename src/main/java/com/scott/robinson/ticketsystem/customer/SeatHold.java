@@ -1,9 +1,8 @@
 package com.scott.robinson.ticketsystem.customer;
 
-import java.security.SecureRandom;
 import lombok.Getter;
 
-import java.util.Random;
+import java.time.LocalDateTime;
 
 /**
  * Immutable object to represent a group of seats being held for a specific user.
@@ -12,13 +11,13 @@ import java.util.Random;
 public final class SeatHold extends SeatAction {
 
     /**
-     * The random int, primary key of this object generated in the constructor
+     * The random int, primary key of this object generated by the {@link TicketService}
      */
     private final int id;
 
-    SeatHold(final String email, final Seats seats) {
-        super(email, seats);
-        this.id = new SecureRandom().nextInt(9999999) + 1;
+    SeatHold(final int id, final String email, final Seats seats, final LocalDateTime creationTime) {
+        super(email, seats, creationTime);
+        this.id = id;
     }
 
 }
@@ -0,0 +1,19 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+/**
+ * Immutable rectangular range of seats, from the first to the last row and the first to the last seat position, all
+ * inclusive. Positions within the range which have no seat, such as aisles, are ignored.
+ */
+@Value
+public final class SeatRange {
+
+    private final int firstRow;
+
+    private final int lastRow;
+
+    private final int firstSeat;
+
+    private final int lastSeat;
+}
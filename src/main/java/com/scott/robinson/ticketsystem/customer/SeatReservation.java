@@ -3,6 +3,7 @@ package com.scott.robinson.ticketsystem.customer;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
@@ -17,9 +18,15 @@ public final class SeatReservation extends SeatAction {
     @NonNull
     private final String confirmationCode;
 
-    SeatReservation(final String email, final Seats seats) {
-        super(email, seats);
+    SeatReservation(final String email, final Seats seats, final LocalDateTime creationTime) {
+        super(email, seats, creationTime);
         this.confirmationCode = UUID.randomUUID().toString();
     }
 
+    SeatReservation(final String confirmationCode, final String email, final Seats seats,
+                    final LocalDateTime creationTime) {
+        super(email, seats, creationTime);
+        this.confirmationCode = confirmationCode;
+    }
+
 }
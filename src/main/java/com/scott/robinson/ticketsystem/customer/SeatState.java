@@ -8,7 +8,11 @@ import lombok.Getter;
 enum SeatState {
     OPEN('O'),
     HELD('H'),
-    RESERVED('R');
+    RESERVED('R'),
+    /**
+     * Taken out of sale by an administrator, for example for production or camera positions.
+     */
+    BLOCKED('B');
 
     @Getter
     final char abbreviation;
@@ -0,0 +1,104 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+import java.lang.reflect.Field;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Plain, volatile, and atomic access to memory by address, used by {@link SharedVenue} to work on a mapped file
+ * shared between processes, which no public API of Java 8 can compare-and-swap. This is the only class which touches
+ * {@code sun.misc.Unsafe} and {@code sun.nio.ch.DirectBuffer}, so javac's warnings that they are internal proprietary
+ * API are expected here and nowhere else. On Java 9 and later the JVM must be started with
+ * {@code --add-exports java.base/sun.nio.ch=ALL-UNNAMED} for the address of a mapping to be read.
+ *
+ * <p>Addresses are absolute and must lie within a mapping which is still in use.
+ */
+final class SharedMemory {
+
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            final Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SharedMemory() {
+    }
+
+    /**
+     * @return The address of the first byte of the mapping
+     */
+    static long address(final MappedByteBuffer mapping) {
+        return ((DirectBuffer) mapping).address();
+    }
+
+    static byte getByte(final long address) {
+        return UNSAFE.getByte(address);
+    }
+
+    static void putByte(final long address, final byte value) {
+        UNSAFE.putByte(address, value);
+    }
+
+    static short getShort(final long address) {
+        return UNSAFE.getShort(address);
+    }
+
+    static void putShort(final long address, final short value) {
+        UNSAFE.putShort(address, value);
+    }
+
+    static int getInt(final long address) {
+        return UNSAFE.getInt(address);
+    }
+
+    static void putInt(final long address, final int value) {
+        UNSAFE.putInt(address, value);
+    }
+
+    static int getIntVolatile(final long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
+    static void putIntVolatile(final long address, final int value) {
+        UNSAFE.putIntVolatile(null, address, value);
+    }
+
+    static long getLong(final long address) {
+        return UNSAFE.getLong(address);
+    }
+
+    static void putLong(final long address, final long value) {
+        UNSAFE.putLong(address, value);
+    }
+
+    static long getLongVolatile(final long address) {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    static void putLongVolatile(final long address, final long value) {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    static boolean compareAndSwapInt(final long address, final int expected, final int update) {
+        return UNSAFE.compareAndSwapInt(null, address, expected, update);
+    }
+
+    static boolean compareAndSwapLong(final long address, final long expected, final long update) {
+        return UNSAFE.compareAndSwapLong(null, address, expected, update);
+    }
+
+    /**
+     * @return The value before the delta was added
+     */
+    static int getAndAddInt(final long address, final int delta) {
+        return UNSAFE.getAndAddInt(null, address, delta);
+    }
+}
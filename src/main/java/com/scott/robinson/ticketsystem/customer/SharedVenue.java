@@ -0,0 +1,1203 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The seats, holds, and reservations of a venue kept in a memory mapped file, so that several worker processes on the
+ * same host can sell from a single inventory. Every process maps the same physical memory, and nothing is locked:
+ * each change is made by compare-and-swap on the mapping through {@link SharedMemory}. An instance is one worker's
+ * handle on the file.
+ *
+ * <p>Each seat is an int holding the {@link SeatState} ordinal and, for a held seat, the Id of its hold in the bits
+ * above. A group of seats is taken by swapping each seat in turn from open to held, undoing the seats already taken if
+ * another worker gets to one first. Other workers may briefly see part of a group held, but a seat is never taken
+ * twice. A count of the open seats in each row, and a bound on the longest run of open seats the row can hold, let the
+ * search skip rows which cannot seat the group without reading their seats. A search which finds no room in a row
+ * lowers its bound to the longest run it found, and every seat which becomes open resets the bound to unknown and
+ * advances its version, so a search which read the row before the seat opened cannot lower the bound below the run.
+ *
+ * <p>Holds live in a fixed table of slots. The control word of a slot packs the hold Id, the worker acting on it, and
+ * its state. A change which touches seats first moves the slot into a transient state naming the worker and records
+ * the seats involved, and only then changes them. If the worker stops heartbeating part way through, another worker
+ * adopts the slot and either finishes or undoes the change, see {@link #recover()}. A worker which was only paused is
+ * fenced by the control word of its change: it checks the word before recording seats in the slot and after taking
+ * them, and completes the change by swapping from exactly that word, so once its slot has been adopted it returns any
+ * seats it took and fails. What it can still do is overwrite the seats recorded in a slot claimed again within the
+ * instant between its check and its write.
+ *
+ * <p>A crash can leave a row's open seat count out by one for each seat a thread of the dead worker had swapped but not
+ * yet counted, which only makes the search visit or skip that row needlessly, and a reservation record written but
+ * never committed, which is never read.
+ *
+ * <p>An administrator's change to a range of seats claims a slot in the same way. It marks each seat of the range as
+ * belonging to the change, keeping whether the seat was open or blocked, and a marked seat reads as held. Once every
+ * seat is marked, along with any reservation records it writes, the slot moves to applying, which commits the change.
+ * A recovering worker rolls back a change which is still changing and finishes one which is applying.
+ *
+ * <p>Reservations are appended to a log of fixed size records, each committed by a flag written after the record.
+ *
+ * <p>All values are in native byte order and every long is 8 byte aligned:
+ * <pre>
+ * Header       int magic ({@link #MAGIC}), int version ({@link #VERSION}), int row count, int max row extent,
+ *              long seat count, int hold slots, int worker slots, int reservation capacity, int reservation count
+ * Workers      per worker: long heartbeat millis, int incarnation, int unused
+ * Rows         per row: int open seats
+ * Run bounds   per row: long version and longest open run, packed as {@code version << 32 | longest}
+ * Seats        per row, per position up to the max row extent: int seat
+ * Holds        per slot: long control, int row, int first seat, int seat count, int reservation, long creation millis,
+ *              short email length, email bytes, or for a range change: long control, int first row, int first seat,
+ *              int last row, int first reservation, int last seat, int seat state, int reservation count
+ * Reservations per record: long committed, int row, int first seat, int last seat, int unused, long creation millis,
+ *              confirmation code, short email length, email bytes
+ * </pre>
+ */
+final class SharedVenue {
+
+    static final int MAGIC = 0x544B5356;
+    static final int VERSION = 3;
+
+    /**
+     * The longest email address a hold or reservation can store, in UTF-8 bytes.
+     */
+    static final int MAX_EMAIL_BYTES = 94;
+
+    private static final SeatState[] STATES = SeatState.values();
+
+    private static final int STATE_BITS = 3;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    private static final int OPEN = SeatState.OPEN.ordinal();
+    private static final int HELD = SeatState.HELD.ordinal();
+    private static final int RESERVED = SeatState.RESERVED.ordinal();
+    private static final int BLOCKED = SeatState.BLOCKED.ordinal();
+
+    /**
+     * States of a seat marked by a range change, above those of {@link SeatState}, keeping whether it was open or
+     * blocked before the change.
+     */
+    private static final int MARKED_OPEN = 4;
+    private static final int MARKED_BLOCKED = 5;
+
+    /**
+     * The run bound of a row in which any run may be open.
+     */
+    private static final int UNKNOWN_RUN = Integer.MAX_VALUE;
+
+    /**
+     * Hold Ids must fit in a seat above its state. Each slot issues the Ids congruent to its index, so the slot of a
+     * hold is found from its Id.
+     */
+    private static final int MAX_HOLD_ID = (1 << (31 - STATE_BITS)) - 1;
+
+    /**
+     * Slot states. Every state other than free and held is transient and names the worker making the change.
+     */
+    private static final int FREE = 0;
+    private static final int CLAIMING = 1;
+    private static final int HELD_SLOT = 2;
+    private static final int RESERVING = 3;
+    private static final int RELEASING = 4;
+    private static final int CHANGING = 5;
+    private static final int APPLYING = 6;
+
+    /**
+     * The most workers a worker index can name within a control word.
+     */
+    private static final int MAX_WORKERS = 256;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int WORKER_BYTES = 16;
+    private static final int HOLD_BYTES = 128;
+    private static final int RESERVATION_BYTES = 192;
+    private static final int CODE_BYTES = 36;
+
+    private static final int HEADER_ROWS = 8;
+    private static final int HEADER_MAX_ROW_EXTENT = 12;
+    private static final int HEADER_SEATS = 16;
+    private static final int HEADER_HOLD_SLOTS = 24;
+    private static final int HEADER_WORKER_SLOTS = 28;
+    private static final int HEADER_RESERVATION_CAPACITY = 32;
+    private static final int HEADER_RESERVATION_COUNT = 36;
+
+    private static final int WORKER_HEARTBEAT = 0;
+    private static final int WORKER_INCARNATION = 8;
+
+    private static final int HOLD_CONTROL = 0;
+    private static final int HOLD_ROW = 8;
+    private static final int HOLD_FIRST_SEAT = 12;
+    private static final int HOLD_SEAT_COUNT = 16;
+    private static final int HOLD_RESERVATION = 20;
+    private static final int HOLD_CREATION = 24;
+    private static final int HOLD_EMAIL = 32;
+
+    private static final int RANGE_FIRST_ROW = 8;
+    private static final int RANGE_FIRST_SEAT = 12;
+    private static final int RANGE_LAST_ROW = 16;
+    private static final int RANGE_RESERVATION = 20;
+    private static final int RANGE_LAST_SEAT = 24;
+    private static final int RANGE_STATE = 28;
+    private static final int RANGE_RECORDS = 32;
+
+    private static final int RESERVATION_COMMITTED = 0;
+    private static final int RESERVATION_ROW = 8;
+    private static final int RESERVATION_FIRST_SEAT = 12;
+    private static final int RESERVATION_LAST_SEAT = 16;
+    private static final int RESERVATION_CREATION = 24;
+    private static final int RESERVATION_CODE = 32;
+    private static final int RESERVATION_EMAIL = RESERVATION_CODE + CODE_BYTES;
+
+    /**
+     * Kept so the mapping is not released while in use.
+     */
+    private final MappedByteBuffer mapping;
+
+    private final long address;
+
+    private final VenueLayout layout;
+
+    private final Clock clock;
+
+    private final int rowCount;
+
+    private final int maxRowExtent;
+
+    private final int holdSlots;
+
+    private final int workerSlots;
+
+    private final int reservationCapacity;
+
+    private final long rowsOffset;
+
+    private final long runBoundsOffset;
+
+    private final long seatsOffset;
+
+    private final long holdsOffset;
+
+    private final long reservationsOffset;
+
+    /**
+     * A worker which has not heartbeated for this long is presumed dead.
+     */
+    private final long heartbeatTimeoutMillis;
+
+    /**
+     * The index of this worker within the worker table, which changes if the registration is lost.
+     */
+    private volatile int worker;
+
+    private volatile int incarnation;
+
+    private SharedVenue(final FileChannel channel, final VenueLayout layout, final Clock clock, final int holdSlots,
+                        final int workerSlots, final long heartbeatTimeoutMillis) throws IOException {
+        if (workerSlots < 1 || workerSlots > MAX_WORKERS || holdSlots < 1) {
+            throw new IllegalArgumentException("A shared venue needs at least one hold slot and between 1 and "
+                    + MAX_WORKERS + " worker slots.");
+        }
+        this.layout = layout;
+        this.clock = clock;
+        this.rowCount = layout.getRowCount();
+        this.maxRowExtent = layout.getMaxRowExtent();
+        this.holdSlots = holdSlots;
+        this.workerSlots = workerSlots;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+
+        // Every reservation takes at least one seat, and each slot can abandon at most one record per crash
+        final long capacity = layout.getSeatCount() + holdSlots;
+        this.rowsOffset = HEADER_BYTES + (long) workerSlots * WORKER_BYTES;
+        this.runBoundsOffset = align(rowsOffset + 4L * rowCount);
+        this.seatsOffset = runBoundsOffset + 8L * rowCount;
+        this.holdsOffset = align(seatsOffset + 4L * rowCount * maxRowExtent);
+        this.reservationsOffset = holdsOffset + (long) holdSlots * HOLD_BYTES;
+        final long size = reservationsOffset + capacity * RESERVATION_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A shared venue of " + layout.getSeatCount() + " seats and " + holdSlots
+                    + " hold slots is too large to map.");
+        }
+        this.reservationCapacity = (int) capacity;
+        this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.address = SharedMemory.address(mapping);
+    }
+
+    /**
+     * Maps the shared venue file, creating it if it does not yet exist, and registers this process as a worker. The
+     * file is locked while it is created or checked, so workers started together agree on its contents. The number
+     * of hold and worker slots of an existing file take precedence over those requested.
+     *
+     * @param heartbeatTimeoutMillis How long a worker may go without calling {@link #heartbeat()} before the others
+     *                               presume it dead
+     */
+    static SharedVenue open(final Path path, final VenueLayout layout, final Clock clock, final int holdSlots,
+                            final int workerSlots, final long heartbeatTimeoutMillis) throws IOException {
+        final SharedVenue venue;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            if (channel.size() == 0) {
+                venue = new SharedVenue(channel, layout, clock, holdSlots, workerSlots, heartbeatTimeoutMillis);
+                venue.initialize();
+            } else {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // Read the whole header
+                }
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IllegalArgumentException("[" + path + "] is not a version " + VERSION
+                            + " shared venue.");
+                }
+                if (header.getInt(HEADER_ROWS) != layout.getRowCount()
+                        || header.getInt(HEADER_MAX_ROW_EXTENT) != layout.getMaxRowExtent()
+                        || header.getLong(HEADER_SEATS) != layout.getSeatCount()) {
+                    throw new IllegalArgumentException("The shared venue [" + path
+                            + "] was created for a different venue layout.");
+                }
+                venue = new SharedVenue(channel, layout, clock, header.getInt(HEADER_HOLD_SLOTS),
+                        header.getInt(HEADER_WORKER_SLOTS), heartbeatTimeoutMillis);
+            }
+        }
+        venue.register();
+        return venue;
+    }
+
+    /**
+     * Writes the header and the open seat count and run bound of each row into a newly created file, which is
+     * otherwise zero.
+     */
+    private void initialize() {
+        for (int row = 0; row < rowCount; row++) {
+            SharedMemory.putInt(rowOpenAddress(row), layout.getRowSeatCount(row));
+            SharedMemory.putLong(runBoundAddress(row), UNKNOWN_RUN);
+        }
+        SharedMemory.putInt(address + HEADER_ROWS, rowCount);
+        SharedMemory.putInt(address + HEADER_MAX_ROW_EXTENT, maxRowExtent);
+        SharedMemory.putLong(address + HEADER_SEATS, layout.getSeatCount());
+        SharedMemory.putInt(address + HEADER_HOLD_SLOTS, holdSlots);
+        SharedMemory.putInt(address + HEADER_WORKER_SLOTS, workerSlots);
+        SharedMemory.putInt(address + HEADER_RESERVATION_CAPACITY, reservationCapacity);
+        SharedMemory.putInt(address + 4, VERSION);
+        SharedMemory.putIntVolatile(address, MAGIC);
+    }
+
+    VenueLayout getLayout() {
+        return layout;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    long getSeatCount() {
+        return layout.getSeatCount();
+    }
+
+    int getHoldSlots() {
+        return holdSlots;
+    }
+
+    int getWorker() {
+        return worker;
+    }
+
+    /**
+     * @return The size of the mapping in bytes
+     */
+    long getMappedBytes() {
+        return mapping.capacity();
+    }
+
+    /**
+     * @return The sum of the open seat counts of every row
+     */
+    long getOpenSeats() {
+        long open = 0;
+        for (int row = 0; row < rowCount; row++) {
+            open += SharedMemory.getIntVolatile(rowOpenAddress(row));
+        }
+        return open;
+    }
+
+    /**
+     * @return The state of the seat, which must exist, with a seat marked by a range change read as held
+     */
+    SeatState get(final int row, final int seat) {
+        final int state = SharedMemory.getIntVolatile(seatAddress(row, seat)) & STATE_MASK;
+        return state < STATES.length ? STATES[state] : SeatState.HELD;
+    }
+
+    /**
+     * Copies the seats into a {@link Venue} on the heap, so reports can use its free runs. Seats are read one at a
+     * time while other workers continue, so the copy is not a single point in time. Every seat is read, so a copy costs
+     * time in proportion to the size of the venue and callers on a customer path should reuse one.
+     */
+    Venue copy() {
+        final Venue venue = new Venue(layout);
+        for (int row = 0; row < rowCount; row++) {
+            final int segments = layout.getSegmentCount(row);
+            for (int segment = 0; segment < segments; segment++) {
+                final int end = layout.getSegmentEnd(row, segment);
+                int first = layout.getSegmentStart(row, segment);
+                while (first <= end) {
+                    final SeatState state = get(row, first);
+                    int last = first;
+                    while (last < end && get(row, last + 1) == state) {
+                        last++;
+                    }
+                    if (state != SeatState.OPEN) {
+                        venue.set(row, first, last, state);
+                    }
+                    first = last + 1;
+                }
+            }
+        }
+        return venue;
+    }
+
+    /**
+     * Claims a free slot in the worker table, recovering any change left part way by the previous holder of the slot.
+     */
+    private void register() {
+        final long now = System.currentTimeMillis();
+        for (int index = 0; index < workerSlots; index++) {
+            final long heartbeat = SharedMemory.getLongVolatile(workerAddress(index) + WORKER_HEARTBEAT);
+            if (heartbeat != 0 && now - heartbeat <= heartbeatTimeoutMillis) {
+                continue;
+            }
+            if (SharedMemory.compareAndSwapLong(workerAddress(index) + WORKER_HEARTBEAT, heartbeat, now)) {
+                incarnation = SharedMemory.getAndAddInt(workerAddress(index) + WORKER_INCARNATION, 1) + 1;
+                worker = index;
+                for (int slot = 0; slot < holdSlots; slot++) {
+                    final long control = readControl(slot);
+                    if (isTransient(control) && workerOf(control) == index) {
+                        complete(slot, control);
+                    }
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("All " + workerSlots + " worker slots of the shared venue are in use.");
+    }
+
+    /**
+     * Records that this worker is alive. Must be called well within the heartbeat timeout.
+     *
+     * @return False if this worker had been presumed dead and its slot taken by another, in which case it has
+     * registered again under a new slot
+     */
+    boolean heartbeat() {
+        final long base = workerAddress(worker);
+        if (SharedMemory.getIntVolatile(base + WORKER_INCARNATION) != incarnation) {
+            register();
+            return false;
+        }
+        SharedMemory.putLongVolatile(base + WORKER_HEARTBEAT, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Releases this worker's slot in the worker table. Any hold it made remains until it is reserved, canceled, or
+     * expires.
+     */
+    void close() {
+        final long base = workerAddress(worker);
+        if (SharedMemory.getIntVolatile(base + WORKER_INCARNATION) == incarnation) {
+            SharedMemory.putLongVolatile(base + WORKER_HEARTBEAT, 0);
+        }
+    }
+
+    private boolean isAlive(final int index) {
+        final long heartbeat = SharedMemory.getLongVolatile(workerAddress(index) + WORKER_HEARTBEAT);
+        return heartbeat != 0 && System.currentTimeMillis() - heartbeat <= heartbeatTimeoutMillis;
+    }
+
+    /**
+     * Finds the best available seats: the first row with a long enough run of open seats, and within it the block
+     * starting nearest the middle of the row, as {@link RankedBlocks#best(Venue, int, int)} chooses. Rows whose open
+     * seat count or run bound is too low are skipped without reading their seats, and a row found to have no room
+     * has its bound lowered for later searches.
+     *
+     * @return The row and first seat packed as {@code row << 32 | seat}, or -1 if no seats match
+     */
+    long find(final int numSeats) {
+        for (int row = 0; row < rowCount; row++) {
+            if (SharedMemory.getIntVolatile(rowOpenAddress(row)) < numSeats) {
+                continue;
+            }
+            final long runBound = SharedMemory.getLongVolatile(runBoundAddress(row));
+            if ((int) runBound < numSeats) {
+                continue;
+            }
+            final int best = best(row, numSeats);
+            if (best >= 0) {
+                return (long) row << 32 | best;
+            }
+
+            // Fails if a seat of the row has opened since the bound was read, leaving it unknown
+            SharedMemory.compareAndSwapLong(runBoundAddress(row), runBound, (runBound & ~0xFFFFFFFFL) | (-1 - best));
+        }
+        return -1;
+    }
+
+    /**
+     * @return The first seat of the best block of the row, or if none fits, -1 minus the longest run of open seats
+     */
+    private int best(final int row, final int numSeats) {
+        final int middle = layout.getRowExtent(row) / 2;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int longest = 0;
+        final int segments = layout.getSegmentCount(row);
+        for (int segment = 0; segment < segments; segment++) {
+            final int end = layout.getSegmentEnd(row, segment);
+            int runStart = -1;
+            for (int seat = layout.getSegmentStart(row, segment); seat <= end + 1; seat++) {
+                if (seat <= end && SharedMemory.getInt(seatAddress(row, seat)) == OPEN) {
+                    if (runStart < 0) {
+                        runStart = seat;
+                    }
+                    continue;
+                }
+                final int lastStart = seat - numSeats;
+                if (runStart >= 0) {
+                    longest = Math.max(longest, seat - runStart);
+                }
+                if (runStart >= 0 && lastStart >= runStart) {
+                    final int start = Math.max(runStart, Math.min(middle, lastStart));
+                    final int distance = Math.abs(start - middle);
+                    if (distance < bestDistance) {
+                        best = start;
+                        bestDistance = distance;
+                    }
+                }
+                runStart = -1;
+            }
+        }
+        return best >= 0 ? best : -1 - longest;
+    }
+
+    /**
+     * Finds and holds the best available seats.
+     *
+     * @return The new {@link SeatHold}
+     */
+    SeatHold hold(final int numSeats, final String customerEmail) {
+        return completeHold(claim(numSeats, customerEmail));
+    }
+
+    /**
+     * Makes the hold of a claim visible, provided the slot is still in exactly the claimed state. If this worker was
+     * presumed dead since, the worker which adopted the slot releases the seats.
+     *
+     * @param claimed The control word returned by {@link #claim(int, String)}
+     */
+    SeatHold completeHold(final long claimed) {
+        final int slot = slotOf(idOf(claimed));
+        if (!swapControl(slot, claimed, control(idOf(claimed), worker, HELD_SLOT))) {
+            throw presumedDead();
+        }
+        return readHold(slot, idOf(claimed));
+    }
+
+    /**
+     * Finds the best available seats and reserves them without the hold ever becoming visible.
+     *
+     * @return The new {@link SeatReservation}
+     */
+    SeatReservation purchase(final int numSeats, final String customerEmail) {
+        final long claimed = claim(numSeats, customerEmail);
+        final int slot = slotOf(idOf(claimed));
+        final long reserving = control(idOf(claimed), worker, RESERVING);
+        if (!swapControl(slot, claimed, reserving)) {
+            throw presumedDead();
+        }
+        return completeReservation(slot, reserving);
+    }
+
+    /**
+     * Claims a slot, records the hold's email and creation time, and then takes the best available seats, searching
+     * again whenever another worker takes one of them first.
+     *
+     * <p>The claim is fenced by its control word. The word is checked before the seats are recorded in the slot and
+     * again once they are taken, so if this worker is paused for longer than the heartbeat timeout and another worker
+     * adopts the slot meanwhile, it returns any seats the other worker did not release and fails rather than
+     * completing a claim which is no longer its own.
+     *
+     * @return The control word of the slot, left in the claiming state, which the change completing the claim must
+     * swap from
+     */
+    long claim(final int numSeats, final String customerEmail) {
+        final byte[] email = encodeEmail(customerEmail);
+        final long claimed = claimSlot(CLAIMING);
+        if (claimed == 0) {
+            throw TicketError.HOLDS_FULL.exception();
+        }
+        final int slot = slotOf(idOf(claimed));
+        final long base = holdAddress(slot);
+        SharedMemory.putInt(base + HOLD_RESERVATION, -1);
+        SharedMemory.putLong(base + HOLD_CREATION, clock.millis());
+        writeString(base + HOLD_EMAIL, email);
+
+        final int held = heldBy(idOf(claimed));
+        while (true) {
+            if (readControl(slot) != claimed) {
+                throw presumedDead();
+            }
+            final long bestSeats = find(numSeats);
+            if (bestSeats < 0) {
+                swapControl(slot, claimed, control(idOf(claimed), 0, FREE));
+                throw TicketError.NO_CONSECUTIVE_SEATS.exception();
+            }
+
+            // The seats are recorded before any is taken so a recovering worker knows which to undo
+            final int row = (int) (bestSeats >>> 32);
+            final int firstSeat = (int) bestSeats;
+            final int lastSeat = firstSeat + numSeats - 1;
+            SharedMemory.putInt(base + HOLD_ROW, row);
+            SharedMemory.putInt(base + HOLD_FIRST_SEAT, firstSeat);
+            SharedMemory.putIntVolatile(base + HOLD_SEAT_COUNT, numSeats);
+            if (swapAll(row, firstSeat, lastSeat, OPEN, held)) {
+                if (readControl(slot) == claimed) {
+                    return claimed;
+                }
+
+                // Adopted while the seats were being taken, perhaps before some of them were
+                for (int seat = firstSeat; seat <= lastSeat; seat++) {
+                    swap(row, seat, held, OPEN);
+                }
+                throw presumedDead();
+            }
+        }
+    }
+
+    /**
+     * Claims the next free slot after a random starting point, so workers rarely contend for the same slot.
+     *
+     * @param state The transient state to claim the slot in
+     * @return The control word of the claimed slot, or 0 if every slot is in use
+     */
+    private long claimSlot(final int state) {
+        final int start = ThreadLocalRandom.current().nextInt(holdSlots);
+        for (int i = 0; i < holdSlots; i++) {
+            final int slot = (start + i) % holdSlots;
+            final long control = readControl(slot);
+            final long claimed = control(nextHoldId(slot, idOf(control)), worker, state);
+            if (stateOf(control) == FREE && swapControl(slot, control, claimed)) {
+                return claimed;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The next Id issued by the slot, wrapping back to its first
+     */
+    private int nextHoldId(final int slot, final int previousId) {
+        if (previousId == 0 || previousId > MAX_HOLD_ID - holdSlots) {
+            return slot + 1;
+        }
+        return previousId + holdSlots;
+    }
+
+    /**
+     * @return The hold, or null if no hold with the Id currently exists
+     */
+    SeatHold getHold(final int seatHoldId) {
+        if (seatHoldId < 1 || seatHoldId > MAX_HOLD_ID) {
+            return null;
+        }
+        final int slot = slotOf(seatHoldId);
+        final long control = readControl(slot);
+        if (idOf(control) != seatHoldId || stateOf(control) != HELD_SLOT) {
+            return null;
+        }
+
+        // The slot may be released and reused while it is read, so the read only counts if the control is unchanged
+        final SeatHold seatHold = readHold(slot, seatHoldId);
+        return readControl(slot) == control ? seatHold : null;
+    }
+
+    /**
+     * @return Every current hold, keyed by Id
+     */
+    Map<Integer, SeatHold> getHolds() {
+        final Map<Integer, SeatHold> holds = new HashMap<>();
+        for (int slot = 0; slot < holdSlots; slot++) {
+            final long control = readControl(slot);
+            if (stateOf(control) == HELD_SLOT) {
+                final SeatHold seatHold = readHold(slot, idOf(control));
+                if (readControl(slot) == control) {
+                    holds.put(seatHold.getId(), seatHold);
+                }
+            }
+        }
+        return holds;
+    }
+
+    /**
+     * @return Every committed reservation, keyed by confirmation code
+     */
+    Map<String, SeatReservation> getReservations() {
+        final Map<String, SeatReservation> reservations = new HashMap<>();
+        final int count = Math.min(SharedMemory.getIntVolatile(address + HEADER_RESERVATION_COUNT),
+                reservationCapacity);
+        for (int index = 0; index < count; index++) {
+            final long base = reservationAddress(index);
+            if (SharedMemory.getLongVolatile(base + RESERVATION_COMMITTED) != 0) {
+                final SeatReservation seatReservation = readReservation(base);
+                reservations.put(seatReservation.getConfirmationCode(), seatReservation);
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * Reserves the seats of a hold belonging to the customer.
+     *
+     * @return The new {@link SeatReservation}, or null if no such hold exists
+     */
+    SeatReservation reserve(final int seatHoldId, final String customerEmail) {
+        final long control = ownedControl(seatHoldId, customerEmail);
+        if (control == 0) {
+            return null;
+        }
+        final int slot = slotOf(seatHoldId);
+        final long reserving = control(seatHoldId, worker, RESERVING);
+        return swapControl(slot, control, reserving) ? completeReservation(slot, reserving) : null;
+    }
+
+    /**
+     * Releases the seats of a hold belonging to the customer.
+     *
+     * @return The released {@link SeatHold}, or null if no such hold exists
+     */
+    SeatHold release(final int seatHoldId, final String customerEmail) {
+        final long control = ownedControl(seatHoldId, customerEmail);
+        if (control == 0) {
+            return null;
+        }
+        final int slot = slotOf(seatHoldId);
+        final SeatHold seatHold = readHold(slot, seatHoldId);
+        final long releasing = control(seatHoldId, worker, RELEASING);
+        if (!swapControl(slot, control, releasing)) {
+            return null;
+        }
+        completeRelease(slot, releasing);
+        return seatHold;
+    }
+
+    /**
+     * @return The control word of the customer's hold, or 0 if the customer has no hold with the Id
+     */
+    private long ownedControl(final int seatHoldId, final String customerEmail) {
+        final SeatHold seatHold = getHold(seatHoldId);
+        if (seatHold == null || !seatHold.getEmail().equalsIgnoreCase(customerEmail)) {
+            return 0;
+        }
+        final long control = readControl(slotOf(seatHoldId));
+        return idOf(control) == seatHoldId && stateOf(control) == HELD_SLOT ? control : 0;
+    }
+
+    /**
+     * Releases every hold created before the cutoff. Any number of workers may expire holds at once, since each hold
+     * is only released by the worker which moves its slot into the releasing state.
+     *
+     * @return The holds released by this worker
+     */
+    List<SeatHold> expire(final long cutoffMillis) {
+        final List<SeatHold> expired = new ArrayList<>();
+        for (int slot = 0; slot < holdSlots; slot++) {
+            final long control = readControl(slot);
+            if (stateOf(control) != HELD_SLOT || SharedMemory.getLong(holdAddress(slot) + HOLD_CREATION) >= cutoffMillis) {
+                continue;
+            }
+            final SeatHold seatHold = readHold(slot, idOf(control));
+            final long releasing = control(idOf(control), worker, RELEASING);
+            if (swapControl(slot, control, releasing)) {
+                completeRelease(slot, releasing);
+                expired.add(seatHold);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Adopts and completes every change left part way by a worker which has stopped heartbeating. Claims and releases
+     * are rolled back and forward respectively, returning their seats to open. A reservation is rolled forward if its
+     * record was committed, and otherwise rolled back to the hold it started from. A range change is rolled back
+     * unless it was applying.
+     *
+     * @return The number of changes recovered
+     */
+    int recover() {
+        int recovered = 0;
+        for (int slot = 0; slot < holdSlots; slot++) {
+            final long control = readControl(slot);
+            if (!isTransient(control) || workerOf(control) == worker || isAlive(workerOf(control))) {
+                continue;
+            }
+            final long adopted = control(idOf(control), worker, stateOf(control));
+            if (swapControl(slot, control, adopted)) {
+                complete(slot, adopted);
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    private void complete(final int slot, final long control) {
+        switch (stateOf(control)) {
+            case CLAIMING:
+            case RELEASING:
+                completeRelease(slot, control);
+                break;
+            case RESERVING:
+                final long base = holdAddress(slot);
+                final int index = SharedMemory.getIntVolatile(base + HOLD_RESERVATION);
+                if (index >= 0 && index < reservationCapacity
+                        && SharedMemory.getLongVolatile(reservationAddress(index) + RESERVATION_COMMITTED) != 0) {
+                    completeSeats(slot, control, RESERVED);
+                } else {
+                    SharedMemory.putIntVolatile(base + HOLD_RESERVATION, -1);
+                    swapControl(slot, control, control(idOf(control), worker, HELD_SLOT));
+                }
+                break;
+            case CHANGING:
+                rollBackChange(slot, control);
+                break;
+            case APPLYING:
+                completeChange(slot, control);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Appends and commits the reservation record for a slot in the reserving state, then reserves its seats and frees
+     * the slot. The index of the record is stored in the slot before the record is written, so a recovering worker
+     * can tell whether it was committed.
+     */
+    private SeatReservation completeReservation(final int slot, final long control) {
+        final long base = holdAddress(slot);
+        final int row = SharedMemory.getInt(base + HOLD_ROW);
+        final int firstSeat = SharedMemory.getInt(base + HOLD_FIRST_SEAT);
+        final int lastSeat = firstSeat + SharedMemory.getInt(base + HOLD_SEAT_COUNT) - 1;
+        final String email = readString(base + HOLD_EMAIL);
+        final SeatReservation seatReservation = new SeatReservation(email, new Seats(row, firstSeat, lastSeat),
+                toDateTime(clock.millis()));
+        record(seatReservation, base);
+        completeSeats(slot, control, RESERVED);
+        return seatReservation;
+    }
+
+    private void completeRelease(final int slot, final long control) {
+        completeSeats(slot, control, OPEN);
+    }
+
+    /**
+     * Moves every seat of the slot still held by its hold to the state, then frees the slot. Seats already moved,
+     * such as by a worker which died part way through, are left as they are.
+     */
+    private void completeSeats(final int slot, final long control, final int state) {
+        final long base = holdAddress(slot);
+        final int row = SharedMemory.getInt(base + HOLD_ROW);
+        final int firstSeat = SharedMemory.getInt(base + HOLD_FIRST_SEAT);
+        final int lastSeat = firstSeat + SharedMemory.getIntVolatile(base + HOLD_SEAT_COUNT) - 1;
+        final int held = heldBy(idOf(control));
+        if (row >= 0 && row < rowCount) {
+            for (int seat = Math.max(firstSeat, 0); seat <= lastSeat && seat < maxRowExtent; seat++) {
+                swap(row, seat, held, state);
+            }
+        }
+        swapControl(slot, control, control(idOf(control), 0, FREE));
+    }
+
+    /**
+     * Appends a committed record of a reservation whose seats are about to be reserved.
+     *
+     * @param holdBase The address of the slot the reservation is made from, which is told the record's index
+     */
+    private void record(final SeatReservation seatReservation, final long holdBase) {
+        final int index = allocateRecords(1);
+        SharedMemory.putIntVolatile(holdBase + HOLD_RESERVATION, index);
+        writeRecord(index, seatReservation);
+        SharedMemory.putLongVolatile(reservationAddress(index) + RESERVATION_COMMITTED, 1);
+    }
+
+    /**
+     * @return The index of the first of the consecutive records allocated
+     */
+    private int allocateRecords(final int count) {
+        final int index = SharedMemory.getAndAddInt(address + HEADER_RESERVATION_COUNT, count);
+        if (index > reservationCapacity - count) {
+            throw new IllegalStateException("The shared venue has no room for further reservations.");
+        }
+        return index;
+    }
+
+    /**
+     * Writes every field of a record but its committed flag.
+     */
+    private void writeRecord(final int index, final SeatReservation seatReservation) {
+        final long base = reservationAddress(index);
+        final Seats seats = seatReservation.getSeats();
+        SharedMemory.putInt(base + RESERVATION_ROW, seats.getRow());
+        SharedMemory.putInt(base + RESERVATION_FIRST_SEAT, seats.getFirstSeat());
+        SharedMemory.putInt(base + RESERVATION_LAST_SEAT, seats.getLastSeat());
+        SharedMemory.putLong(base + RESERVATION_CREATION,
+                seatReservation.getCreationTime().atZone(clock.getZone()).toInstant().toEpochMilli());
+        final byte[] code = seatReservation.getConfirmationCode().getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < CODE_BYTES; i++) {
+            SharedMemory.putByte(base + RESERVATION_CODE + i, i < code.length ? code[i] : 0);
+        }
+        writeString(base + RESERVATION_EMAIL, encodeEmail(seatReservation.getEmail()));
+    }
+
+    /**
+     * Moves every seat of the range which is open or blocked to the state, all or nothing.
+     *
+     * @return The number of seats whose state changed, or -1 if the range contains a held or reserved seat
+     */
+    int change(final SeatRange range, final SeatState seatState) {
+        return changeRange(range, seatState.ordinal(), null, null);
+    }
+
+    /**
+     * Reserves every seat of the range which is open or blocked, all or nothing, recording a reservation for each
+     * group of consecutive seats. The records are committed along with the change, so a worker which dies part way
+     * through leaves neither seats reserved without a record nor a record without its seats.
+     *
+     * @return The reservations made, or null if the range contains a held or reserved seat
+     */
+    List<SeatReservation> reserve(final SeatRange range, final String customerEmail) {
+        encodeEmail(customerEmail);
+        final List<SeatReservation> reservations = new ArrayList<>();
+        return changeRange(range, RESERVED, customerEmail, reservations) < 0 ? null : reservations;
+    }
+
+    /**
+     * Claims a slot for the range, marks each of its seats, writes any reservation records, and then commits by moving
+     * the slot to applying. Marks are swapped from open or blocked only, so if a held or reserved seat is found the
+     * seats already marked are returned to their previous state.
+     *
+     * @param customerEmail The customer to reserve the seats for, or null if the state is not reserved
+     * @param reservations  Receives the reservations made, or null if the state is not reserved
+     * @return The number of seats whose state changed, or -1 if the range contains a held or reserved seat
+     */
+    private int changeRange(final SeatRange range, final int state, final String customerEmail,
+                            final List<SeatReservation> reservations) {
+        final long claimed = claimSlot(CHANGING);
+        if (claimed == 0) {
+            throw TicketError.HOLDS_FULL.exception();
+        }
+        final int slot = slotOf(idOf(claimed));
+        final long base = holdAddress(slot);
+        SharedMemory.putInt(base + RANGE_FIRST_ROW, range.getFirstRow());
+        SharedMemory.putInt(base + RANGE_LAST_ROW, range.getLastRow());
+        SharedMemory.putInt(base + RANGE_FIRST_SEAT, range.getFirstSeat());
+        SharedMemory.putInt(base + RANGE_LAST_SEAT, range.getLastSeat());
+        SharedMemory.putInt(base + RANGE_STATE, state);
+        SharedMemory.putInt(base + RANGE_RECORDS, 0);
+        SharedMemory.putIntVolatile(base + RANGE_RESERVATION, -1);
+
+        final List<Seats> segments = segments(base);
+        final int changed = mark(segments, idOf(claimed), state);
+        if (changed < 0) {
+            rollBackChange(slot, claimed);
+            return -1;
+        }
+        if (reservations != null) {
+            final int index;
+            try {
+                index = allocateRecords(segments.size());
+            } catch (IllegalStateException e) {
+                rollBackChange(slot, claimed);
+                throw e;
+            }
+            SharedMemory.putInt(base + RANGE_RECORDS, segments.size());
+            SharedMemory.putIntVolatile(base + RANGE_RESERVATION, index);
+            final LocalDateTime creationTime = toDateTime(clock.millis());
+            for (int i = 0; i < segments.size(); i++) {
+                final SeatReservation seatReservation = new SeatReservation(customerEmail, segments.get(i),
+                        creationTime);
+                writeRecord(index + i, seatReservation);
+                reservations.add(seatReservation);
+            }
+        }
+
+        final long applying = control(idOf(claimed), worker, APPLYING);
+        if (!swapControl(slot, claimed, applying)) {
+            throw presumedDead();
+        }
+        completeChange(slot, applying);
+        return changed;
+    }
+
+    /**
+     * Marks every seat of the segments as belonging to the change, stopping at the first seat which is neither open
+     * nor blocked.
+     *
+     * @return The number of seats not already in the state, or -1 if a held or reserved seat was found
+     */
+    private int mark(final List<Seats> segments, final int changeId, final int state) {
+        int changed = 0;
+        for (Seats seats : segments) {
+            for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+                int current;
+                do {
+                    current = SharedMemory.getIntVolatile(seatAddress(seats.getRow(), seat));
+                    if (current != OPEN && current != BLOCKED) {
+                        return -1;
+                    }
+                } while (!swap(seats.getRow(), seat, current, marked(changeId, current)));
+                if (current != state) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns every seat marked by the change to its previous state, and frees the slot.
+     */
+    private void rollBackChange(final int slot, final long control) {
+        final int changeId = idOf(control);
+        for (Seats seats : segments(holdAddress(slot))) {
+            for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+                if (!swap(seats.getRow(), seat, marked(changeId, OPEN), OPEN)) {
+                    swap(seats.getRow(), seat, marked(changeId, BLOCKED), BLOCKED);
+                }
+            }
+        }
+        swapControl(slot, control, control(changeId, 0, FREE));
+    }
+
+    /**
+     * Commits the reservation records of an applying change, moves every seat it marked to its state, and frees the
+     * slot. Seats already moved, such as by a worker which died part way through, are left as they are.
+     */
+    private void completeChange(final int slot, final long control) {
+        final long base = holdAddress(slot);
+        final int state = SharedMemory.getInt(base + RANGE_STATE);
+        final int index = SharedMemory.getIntVolatile(base + RANGE_RESERVATION);
+        if (index >= 0) {
+            final int end = Math.min(index + SharedMemory.getInt(base + RANGE_RECORDS), reservationCapacity);
+            for (int record = index; record < end; record++) {
+                SharedMemory.putLongVolatile(reservationAddress(record) + RESERVATION_COMMITTED, 1);
+            }
+        }
+
+        final int changeId = idOf(control);
+        for (Seats seats : segments(base)) {
+            for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+                if (!swap(seats.getRow(), seat, marked(changeId, OPEN), state)) {
+                    swap(seats.getRow(), seat, marked(changeId, BLOCKED), state);
+                }
+            }
+        }
+        swapControl(slot, control, control(changeId, 0, FREE));
+    }
+
+    /**
+     * Splits the range recorded in a slot into the groups of consecutive seats which exist within it, one for each
+     * segment of each row, ignoring any part of the range outside the venue.
+     */
+    private List<Seats> segments(final long base) {
+        final int firstRow = Math.max(SharedMemory.getInt(base + RANGE_FIRST_ROW), 0);
+        final int lastRow = Math.min(SharedMemory.getInt(base + RANGE_LAST_ROW), rowCount - 1);
+        final int firstSeat = SharedMemory.getInt(base + RANGE_FIRST_SEAT);
+        final int lastSeat = SharedMemory.getInt(base + RANGE_LAST_SEAT);
+        final List<Seats> segments = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            final int segmentCount = layout.getSegmentCount(row);
+            for (int segment = 0; segment < segmentCount; segment++) {
+                final int first = Math.max(firstSeat, layout.getSegmentStart(row, segment));
+                final int last = Math.min(lastSeat, layout.getSegmentEnd(row, segment));
+                if (first <= last) {
+                    segments.add(new Seats(row, first, last));
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static int marked(final int changeId, final int previous) {
+        return changeId << STATE_BITS | (previous == OPEN ? MARKED_OPEN : MARKED_BLOCKED);
+    }
+
+    /**
+     * Swaps each seat from the first to the last from the expected value to the update, all or nothing.
+     *
+     * @return False if another worker changed one of the seats first, in which case none are changed
+     */
+    private boolean swapAll(final int row, final int firstSeat, final int lastSeat, final int expected,
+                            final int update) {
+        for (int seat = firstSeat; seat <= lastSeat; seat++) {
+            if (!swap(row, seat, expected, update)) {
+                for (int taken = seat - 1; taken >= firstSeat; taken--) {
+                    swap(row, taken, update, expected);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Swaps a seat from the expected value to the update, adjusting the row's open seat count if either is open, and
+     * resetting its run bound if the seat opens.
+     */
+    private boolean swap(final int row, final int seat, final int expected, final int update) {
+        if (!SharedMemory.compareAndSwapInt(seatAddress(row, seat), expected, update)) {
+            return false;
+        }
+        if (expected == OPEN) {
+            SharedMemory.getAndAddInt(rowOpenAddress(row), -1);
+        } else if (update == OPEN) {
+            SharedMemory.getAndAddInt(rowOpenAddress(row), 1);
+            long runBound;
+            do {
+                runBound = SharedMemory.getLongVolatile(runBoundAddress(row));
+            } while (!SharedMemory.compareAndSwapLong(runBoundAddress(row), runBound,
+                    ((runBound >>> 32) + 1) << 32 | UNKNOWN_RUN));
+        }
+        return true;
+    }
+
+    private SeatHold readHold(final int slot, final int seatHoldId) {
+        final long base = holdAddress(slot);
+        final int firstSeat = SharedMemory.getInt(base + HOLD_FIRST_SEAT);
+        final Seats seats = new Seats(SharedMemory.getInt(base + HOLD_ROW), firstSeat,
+                firstSeat + SharedMemory.getIntVolatile(base + HOLD_SEAT_COUNT) - 1);
+        return new SeatHold(seatHoldId, readString(base + HOLD_EMAIL), seats,
+                toDateTime(SharedMemory.getLong(base + HOLD_CREATION)));
+    }
+
+    private SeatReservation readReservation(final long base) {
+        final byte[] code = new byte[CODE_BYTES];
+        for (int i = 0; i < CODE_BYTES; i++) {
+            code[i] = SharedMemory.getByte(base + RESERVATION_CODE + i);
+        }
+        final Seats seats = new Seats(SharedMemory.getInt(base + RESERVATION_ROW),
+                SharedMemory.getInt(base + RESERVATION_FIRST_SEAT), SharedMemory.getInt(base + RESERVATION_LAST_SEAT));
+        return new SeatReservation(new String(code, StandardCharsets.US_ASCII).trim(),
+                readString(base + RESERVATION_EMAIL), seats, toDateTime(SharedMemory.getLong(base + RESERVATION_CREATION)));
+    }
+
+    private LocalDateTime toDateTime(final long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), clock.getZone());
+    }
+
+    private static byte[] encodeEmail(final String customerEmail) {
+        final byte[] email = customerEmail.getBytes(StandardCharsets.UTF_8);
+        if (email.length > MAX_EMAIL_BYTES) {
+            throw new TicketException(TicketError.INVALID_EMAIL, "Email addresses may be at most " + MAX_EMAIL_BYTES
+                    + " bytes in a shared venue.");
+        }
+        return email;
+    }
+
+    private static void writeString(final long at, final byte[] bytes) {
+        SharedMemory.putShort(at, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            SharedMemory.putByte(at + 2 + i, bytes[i]);
+        }
+    }
+
+    private static String readString(final long at) {
+        final byte[] bytes = new byte[Math.min(Math.max(SharedMemory.getShort(at), 0), MAX_EMAIL_BYTES)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = SharedMemory.getByte(at + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private IllegalStateException presumedDead() {
+        return new IllegalStateException("Worker [" + worker + "] was presumed dead and its change was undone by "
+                + "another worker.");
+    }
+
+    /**
+     * @return The slot which issued the hold Id
+     */
+    private int slotOf(final int holdId) {
+        return (holdId - 1) % holdSlots;
+    }
+
+    private long readControl(final int slot) {
+        return SharedMemory.getLongVolatile(holdAddress(slot) + HOLD_CONTROL);
+    }
+
+    private boolean swapControl(final int slot, final long expected, final long update) {
+        return SharedMemory.compareAndSwapLong(holdAddress(slot) + HOLD_CONTROL, expected, update);
+    }
+
+    private static long control(final int holdId, final int worker, final int state) {
+        return (long) holdId << 32 | worker << 8 | state;
+    }
+
+    private static int idOf(final long control) {
+        return (int) (control >>> 32);
+    }
+
+    private static int workerOf(final long control) {
+        return (int) (control >>> 8) & (MAX_WORKERS - 1);
+    }
+
+    private static int stateOf(final long control) {
+        return (int) control & 0xFF;
+    }
+
+    private static boolean isTransient(final long control) {
+        final int state = stateOf(control);
+        return state != FREE && state != HELD_SLOT;
+    }
+
+    private static int heldBy(final int holdId) {
+        return holdId << STATE_BITS | HELD;
+    }
+
+    private long seatAddress(final int row, final int seat) {
+        return address + seatsOffset + 4L * ((long) row * maxRowExtent + seat);
+    }
+
+    private long rowOpenAddress(final int row) {
+        return address + rowsOffset + 4L * row;
+    }
+
+    private long runBoundAddress(final int row) {
+        return address + runBoundsOffset + 8L * row;
+    }
+
+    private long workerAddress(final int index) {
+        return address + HEADER_BYTES + (long) index * WORKER_BYTES;
+    }
+
+    private long holdAddress(final int slot) {
+        return address + holdsOffset + (long) slot * HOLD_BYTES;
+    }
+
+    private long reservationAddress(final int index) {
+        return address + reservationsOffset + (long) index * RESERVATION_BYTES;
+    }
+
+    private static long align(final long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
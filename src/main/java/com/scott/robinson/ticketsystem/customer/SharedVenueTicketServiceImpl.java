@@ -0,0 +1,471 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Service} used in place of {@link TicketServiceImpl} when the venue is shared between several worker
+ * processes on the same host. The seats, holds, and reservations live in a {@link SharedVenue} mapped from the
+ * configured file, so every worker sells from the same inventory and any worker can reserve or cancel a hold made by
+ * another. The shared venue coordinates the workers itself, so this class takes no locks around changes.
+ *
+ * <p>Every worker heartbeats, recovers the changes left part way by workers which have stopped, and expires holds on
+ * a timer. Seats are always allocated as {@link AllocationStrategy#BEST} chooses them.
+ *
+ * <p>Each {@link VenueMutation} made by this worker is published to its registered {@link VenueMutationListener}s.
+ * Changes made by other workers are not, so the venue is only an {@link ObservableVenue} and cannot be replicated to
+ * or from another instance.
+ */
+@Service
+@ConditionalOnProperty(name = "venue.shared", havingValue = "true")
+final class SharedVenueTicketServiceImpl implements TicketService, ObservableVenue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedVenueTicketServiceImpl.class);
+
+    /**
+     * The number of milliseconds between heartbeats, which must be well within the heartbeat timeout.
+     */
+    private static final long MAINTENANCE_INTERVAL_MS = 1000;
+
+    /**
+     * The longest a copy of the venue is reused for browsing, so copying costs at most one copy per interval however
+     * often customers browse.
+     */
+    private static final long BROWSE_COPY_MAX_AGE_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SharedVenue venue;
+
+    /**
+     * The number of microseconds taken to map and register with the {@link #venue}.
+     */
+    private final long venueInitializationMicros;
+
+    private final int holdExpirationSec;
+
+    private final Clock clock;
+
+    private final Timer maintenanceTimer;
+
+    /**
+     * The copy of the venue customers last browsed, or null before the first browse.
+     */
+    private volatile BrowseCopy browseCopy;
+
+    /**
+     * The listeners notified of each {@link VenueMutation} made by this worker.
+     */
+    private volatile VenueMutationListener[] mutationListeners = new VenueMutationListener[0];
+
+    /**
+     * Locking {@link Object} used to notify listeners of one mutation at a time and in sequence.
+     */
+    private final Object mutationLock = new Object();
+
+    /**
+     * The sequence number of the last {@link VenueMutation} published. Guarded by the {@link #mutationLock}.
+     */
+    private long mutationSequence;
+
+    @Autowired
+    SharedVenueTicketServiceImpl(ConfigurationProvider configurationProvider, Clock clock) {
+        this(configurationProvider, clock, true);
+    }
+
+    /**
+     * @param scheduleMaintenance Whether to heartbeat, recover, and expire holds on a timer. When false, such as in
+     *                            tests, each is only done when called
+     */
+    SharedVenueTicketServiceImpl(ConfigurationProvider configurationProvider, Clock clock,
+                                 boolean scheduleMaintenance) {
+        this(configurationProvider, clock, Paths.get(configurationProvider.getSharedVenueFile()), scheduleMaintenance);
+    }
+
+    /**
+     * @param file The shared venue file to map in place of the configured one, such as a scratch venue for warm-up
+     */
+    SharedVenueTicketServiceImpl(ConfigurationProvider configurationProvider, Clock clock, Path file,
+                                 boolean scheduleMaintenance) {
+        holdExpirationSec = configurationProvider.getHoldTimeoutSeconds();
+        this.clock = clock;
+        if (!AllocationStrategy.BEST.name().equalsIgnoreCase(configurationProvider.getAllocationStrategy())) {
+            LOGGER.warn("A shared venue always allocates the best seats, ignoring the [{}] allocation strategy",
+                    configurationProvider.getAllocationStrategy());
+        }
+
+        final long start = System.nanoTime();
+        try {
+            venue = SharedVenue.open(file, TicketServiceImpl.loadLayout(configurationProvider), clock,
+                    configurationProvider.getSharedVenueHoldSlots(), configurationProvider.getSharedVenueWorkers(),
+                    configurationProvider.getSharedVenueHeartbeatMillis());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to map the shared venue [" + file + "]", e);
+        }
+        venueInitializationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        LOGGER.info("Mapped shared venue [{}] of {} seats in {} us as worker {}", file, venue.getSeatCount(),
+                venueInitializationMicros, venue.getWorker());
+
+        if (scheduleMaintenance) {
+            maintenanceTimer = new Timer("shared-venue", true);
+            maintenanceTimer.schedule(new MaintenanceTask(), 0, MAINTENANCE_INTERVAL_MS);
+        } else {
+            maintenanceTimer = null;
+        }
+    }
+
+    @Override
+    public int numSeatsAvailable() {
+        return (int) venue.getOpenSeats();
+    }
+
+    @Override
+    public SeatHold findAndHoldSeats(final int numSeats, final String customerEmail) {
+        if (numSeats < 1) {
+            throw TicketError.INVALID_SEAT_COUNT.exception();
+        }
+        final SeatHold seatHold = venue.hold(numSeats, customerEmail);
+        if (isPublishing()) {
+            publish(VenueMutation.hold(seatHold));
+        }
+        commit();
+        return seatHold;
+    }
+
+    @Override
+    public String reserveSeats(final int seatHoldId, final String customerEmail) {
+        final SeatHold seatHold = isPublishing() ? venue.getHold(seatHoldId) : null;
+        final SeatReservation seatReservation = venue.reserve(seatHoldId, customerEmail);
+        if (seatReservation == null) {
+            throw TicketError.HOLD_NOT_FOUND.exception();
+        }
+        if (seatHold != null) {
+            publish(VenueMutation.reserve(seatHold, seatReservation));
+        }
+        commit();
+        return seatReservation.getConfirmationCode();
+    }
+
+    @Override
+    public SeatReservation holdAndReserveSeats(final int numSeats, final String customerEmail) {
+        if (numSeats < 1) {
+            throw TicketError.INVALID_SEAT_COUNT.exception();
+        }
+        final SeatReservation seatReservation = venue.purchase(numSeats, customerEmail);
+        if (isPublishing()) {
+            publish(VenueMutation.purchase(seatReservation));
+        }
+        commit();
+        return seatReservation;
+    }
+
+    @Override
+    public boolean cancelSeatHold(final int seatHoldId, final String customerEmail) {
+        final SeatHold seatHold = venue.release(seatHoldId, customerEmail);
+        if (seatHold != null && isPublishing()) {
+            publish(VenueMutation.release(seatHold));
+        }
+        commit();
+        return seatHold != null;
+    }
+
+    /**
+     * Pages through the blocks of consecutive open seats of a copy of the {@link #venue}. A copy costs time in
+     * proportion to the number of seats, so each is reused for up to {@link #BROWSE_COPY_MAX_AGE_NS} and the blocks
+     * may be that far behind the venue.
+     */
+    @Override
+    public AvailableBlocks findAvailableBlocks(final int numSeats, final int offset, final int limit) {
+        BrowseCopy copy = browseCopy;
+        final long now = System.nanoTime();
+        if (copy == null || now - copy.takenNanos > BROWSE_COPY_MAX_AGE_NS) {
+            copy = new BrowseCopy(venue.copy(), now);
+            browseCopy = copy;
+        }
+        return AvailableBlocks.find(copy.venue, AllocationStrategy.BEST, numSeats, offset, limit);
+    }
+
+    @Override
+    public String seatMap() {
+        return venue.copy().seatMap();
+    }
+
+    @Override
+    public Map<Integer, SeatHold> getHolds() {
+        return venue.getHolds();
+    }
+
+    @Override
+    public Map<String, SeatReservation> getReservations() {
+        return venue.getReservations();
+    }
+
+    @Override
+    public SeatHold getHold(final int seatHoldId, final String customerEmail) {
+        final SeatHold seatHold = venue.getHold(seatHoldId);
+        if (seatHold != null && seatHold.getEmail().equalsIgnoreCase(customerEmail)) {
+            return seatHold;
+        }
+        throw TicketError.HOLD_NOT_FOUND.exception();
+    }
+
+    /**
+     * Blocks the range in a single all or nothing step, although other workers may briefly see part of it as held
+     * while it changes.
+     */
+    @Override
+    public int blockSeats(final SeatRange range) {
+        final int blocked = change(range, SeatState.BLOCKED);
+        publish(VenueMutation.block(range, LocalDateTime.now(clock)));
+        commit();
+        return blocked;
+    }
+
+    @Override
+    public int releaseBlockedSeats(final SeatRange range) {
+        final int released = change(range, SeatState.OPEN);
+        publish(VenueMutation.unblock(range, LocalDateTime.now(clock)));
+        commit();
+        return released;
+    }
+
+    /**
+     * Reserves the range and records a reservation for each group of consecutive seats in a single change, so if the
+     * worker dies part way through the change is either undone or finished by another worker.
+     */
+    @Override
+    public List<SeatReservation> reserveSeatRange(final SeatRange range, final String customerEmail) {
+        checkRange(range);
+        final List<SeatReservation> reservations = venue.reserve(range, customerEmail);
+        if (reservations == null) {
+            throw TicketError.RANGE_NOT_AVAILABLE.exception();
+        }
+        for (SeatReservation seatReservation : reservations) {
+            publish(VenueMutation.purchase(seatReservation));
+        }
+        commit();
+        return reservations;
+    }
+
+    private int change(final SeatRange range, final SeatState seatState) {
+        checkRange(range);
+        final int changed = venue.change(range, seatState);
+        if (changed < 0) {
+            throw TicketError.RANGE_NOT_AVAILABLE.exception();
+        }
+        return changed;
+    }
+
+    private void checkRange(final SeatRange range) {
+        if (range.getFirstRow() < 0 || range.getLastRow() >= venue.getRowCount()
+                || range.getFirstRow() > range.getLastRow() || range.getFirstSeat() < 0
+                || range.getFirstSeat() > range.getLastSeat()) {
+            throw new TicketException(TicketError.INVALID_RANGE, "The range " + range + " is not within the venue.");
+        }
+    }
+
+    /**
+     * Every row of the venue is mapped, so the allocated bytes are the size of the mapping rather than heap.
+     */
+    @Override
+    public VenueReport getVenueReport() {
+        return new VenueReport(venue.getRowCount(), venue.getSeatCount(), venue.getOpenSeats(), venue.getRowCount(),
+                venue.getMappedBytes(), venueInitializationMicros);
+    }
+
+    @Override
+    public FragmentationReport getFragmentationReport() {
+        return FragmentationReport.of(venue.copy(), AllocationStrategy.BEST);
+    }
+
+    /**
+     * Released seats are matched to waiting customers in the critical section which released them, which workers
+     * sharing a venue do not have, so a shared venue has no waitlist.
+     */
+    @Override
+    public WaitlistStatus joinWaitlist(final int numSeats, final String customerEmail) {
+        throw TicketError.WAITLIST_DISABLED.exception();
+    }
+
+    @Override
+    public WaitlistStatus getWaitlistStatus(final long waitlistId, final String customerEmail) {
+        throw TicketError.WAITLIST_DISABLED.exception();
+    }
+
+    @Override
+    public boolean leaveWaitlist(final long waitlistId, final String customerEmail) {
+        throw TicketError.WAITLIST_DISABLED.exception();
+    }
+
+    @Override
+    public void addMutationListener(final VenueMutationListener listener) {
+        synchronized (mutationLock) {
+            final VenueMutationListener[] listeners = Arrays.copyOf(mutationListeners, mutationListeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            mutationListeners = listeners;
+        }
+    }
+
+    /**
+     * The holds, reservations, and blocked seats of every worker, as of the last mutation this worker published. Other
+     * workers continue while the venue is read, so the snapshot is not a single point in time.
+     */
+    @Override
+    public VenueSnapshot snapshot() {
+        synchronized (mutationLock) {
+            final Map<String, SeatReservation> reservations = venue.getReservations();
+            final Map<Integer, SeatHold> holds = venue.getHolds();
+            final List<VenueMutation> mutations = new ArrayList<>(reservations.size() + holds.size());
+            for (SeatReservation seatReservation : reservations.values()) {
+                mutations.add(VenueMutation.purchase(seatReservation));
+            }
+            for (SeatHold seatHold : holds.values()) {
+                mutations.add(VenueMutation.hold(seatHold));
+            }
+            addBlockedSeats(mutations);
+            return new VenueSnapshot(mutationSequence, mutations);
+        }
+    }
+
+    /**
+     * Adds a {@link VenueMutation.Type#BLOCK} mutation for each group of consecutive blocked seats.
+     */
+    private void addBlockedSeats(final List<VenueMutation> mutations) {
+        final Venue seats = venue.copy();
+        final LocalDateTime creationTime = LocalDateTime.now(clock);
+        for (int rowNum = 0; rowNum < seats.getRowCount(); rowNum++) {
+            if (seats.isRowOpen(rowNum)) {
+                continue;
+            }
+            int firstBlocked = -1;
+            for (int seat = 0; seat <= seats.getRowExtent(rowNum); seat++) {
+                final boolean blocked = seat < seats.getRowExtent(rowNum) && seats.exists(rowNum, seat)
+                        && seats.get(rowNum, seat) == SeatState.BLOCKED;
+                if (blocked && firstBlocked < 0) {
+                    firstBlocked = seat;
+                } else if (!blocked && firstBlocked >= 0) {
+                    mutations.add(VenueMutation.block(new SeatRange(rowNum, rowNum, firstBlocked, seat - 1),
+                            creationTime));
+                    firstBlocked = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * A shared venue is never a standby, so it always accepts changes.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    private void publish(final VenueMutation mutation) {
+        synchronized (mutationLock) {
+            final long sequence = ++mutationSequence;
+            for (VenueMutationListener listener : mutationListeners) {
+                listener.onMutation(sequence, mutation);
+            }
+        }
+    }
+
+    private boolean isPublishing() {
+        return mutationListeners.length > 0;
+    }
+
+    private void commit() {
+        for (VenueMutationListener listener : mutationListeners) {
+            listener.onCommit();
+        }
+    }
+
+    /**
+     * Releases the seat holds, made by any worker, which have existed beyond the configured expiration threshold
+     * {@link ConfigurationProvider#holdTimeoutSeconds}, as measured by the {@link #clock}.
+     *
+     * @return The number of seat holds released by this worker
+     */
+    int expireHolds() {
+        final List<SeatHold> expired = venue.expire(clock.millis() - TimeUnit.SECONDS.toMillis(holdExpirationSec));
+        if (isPublishing()) {
+            for (SeatHold seatHold : expired) {
+                publish(VenueMutation.release(seatHold));
+            }
+        }
+        commit();
+        return expired.size();
+    }
+
+    /**
+     * Heartbeats and recovers the changes left part way by workers which have stopped.
+     *
+     * @return The number of changes recovered
+     */
+    int maintain() {
+        if (!venue.heartbeat()) {
+            LOGGER.warn("Shared venue registration was lost, continuing as worker {}", venue.getWorker());
+        }
+        final int recovered = venue.recover();
+        if (recovered > 0) {
+            LOGGER.warn("Recovered {} changes left by stopped workers", recovered);
+        }
+        return recovered;
+    }
+
+    /**
+     * Stops maintenance and releases this worker's registration so its slot can be reused at once.
+     */
+    @PreDestroy
+    void close() {
+        if (maintenanceTimer != null) {
+            maintenanceTimer.cancel();
+        }
+        venue.close();
+    }
+
+    /**
+     * Internal class used to heartbeat, recover, and expire seat holds on a timer.
+     */
+    final class MaintenanceTask extends TimerTask {
+        @Override
+        public void run() {
+            try {
+                maintain();
+                expireHolds();
+            } catch (RuntimeException e) {
+                LOGGER.error("Shared venue maintenance failed", e);
+            }
+        }
+    }
+
+    /**
+     * A copy of the venue and when it was taken, as measured by {@link System#nanoTime()}.
+     */
+    private static final class BrowseCopy {
+
+        private final Venue venue;
+
+        private final long takenNanos;
+
+        private BrowseCopy(final Venue venue, final long takenNanos) {
+            this.venue = venue;
+            this.takenNanos = takenNanos;
+        }
+    }
+}
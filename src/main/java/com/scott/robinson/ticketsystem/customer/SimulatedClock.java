@@ -0,0 +1,56 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * {@link Clock} which only moves when told to, allowing hours of traffic to be replayed against the
+ * {@link TicketService} in moments.
+ */
+final class SimulatedClock extends Clock {
+
+    private volatile Instant instant;
+
+    private final ZoneId zone;
+
+    SimulatedClock(final Instant instant) {
+        this(instant, ZoneOffset.UTC);
+    }
+
+    private SimulatedClock(final Instant instant, final ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock to the provided instant, which must not be before the current instant.
+     */
+    void set(final Instant instant) {
+        if (instant.isBefore(this.instant)) {
+            throw new IllegalArgumentException("A simulated clock cannot move backwards.");
+        }
+        this.instant = instant;
+    }
+
+    void advance(final Duration duration) {
+        set(instant.plus(duration));
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+        return new SimulatedClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
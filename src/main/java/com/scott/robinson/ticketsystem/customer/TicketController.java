@@ -1,5 +1,7 @@
 package com.scott.robinson.ticketsystem.customer;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * {@link org.springframework.stereotype.Controller} to provide a REST API to the ticketing system.
  */
@@ -11,14 +13,27 @@ interface TicketController {
     String seeAvailableSeats();
 
     /**
-     * @return {@link SeatHold} for the requested number of seats for the provided user
+     * @return {@link AvailableBlocks} page of the blocks of seats available for a group
+     */
+    AvailableBlocks findBlocks(final int numSeats, final int offset, final int limit);
+
+    /**
+     * @return {@link CompletableFuture} of the {@link SeatHold} for the requested number of seats for the provided user
      */
-    SeatHold requestSeats(final int numSeats, final String customerEmail);
+    CompletableFuture<SeatHold> requestSeats(final int numSeats, final String customerEmail, final String tier,
+                          final String admissionToken, final String idempotencyKey);
+
+    /**
+     * @return {@link CompletableFuture} of the {@link SeatReservation} for the requested number of seats for the
+     * provided user
+     */
+    CompletableFuture<SeatReservation> purchaseSeats(final int numSeats, final String customerEmail, final String tier,
+                                  final String admissionToken, final String idempotencyKey);
 
     /**
      * @return {@link String} confirmation code for the reservation
      */
-    String reserveSeats(final int id, final String customerEmail);
+    String reserveSeats(final int id, final String customerEmail, final String idempotencyKey);
 
     /**
      * @return {@link String} confirmation of the results of the cancellation attempt
@@ -30,4 +45,20 @@ interface TicketController {
      */
     SeatHold getHold(final int id, final String customerEmail);
 
+    /**
+     * @return {@link CompletableFuture} of the {@link WaitlistStatus} of the provided user's new waitlist request
+     */
+    CompletableFuture<WaitlistStatus> joinWaitlist(final int numSeats, final String customerEmail, final String tier,
+                                                   final String admissionToken);
+
+    /**
+     * @return {@link WaitlistStatus} associated with the provided id and email
+     */
+    WaitlistStatus getWaitlistStatus(final long id, final String customerEmail);
+
+    /**
+     * @return {@link String} confirmation of the results of leaving the waitlist
+     */
+    String leaveWaitlist(final long id, final String customerEmail);
+
 }
@@ -1,5 +1,8 @@
 package com.scott.robinson.ticketsystem.customer;
 
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.waitingroom.WaitingRoomService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -8,6 +11,10 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Clock;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * NOTE: [SR] This REST controller is primarily for demo purposes and would be more complete if it were to be put into
  * production code. The objective of this class is to allow code reviewers some additional plugs to test the
@@ -20,11 +27,45 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/tickets")
 final class TicketControllerImpl implements TicketController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final TicketService ticketService;
 
+    private final WaitingRoomService waitingRoomService;
+
+    private final HoldScheduler holdScheduler;
+
+    /**
+     * {@link IdempotencyCache} of seat holds keyed by the customer's email, number of seats, and idempotency key. Holds
+     * are only remembered for as long as they are held, so a late retry is not handed a hold which has expired.
+     */
+    private final IdempotencyCache<SeatHold> holdRequests;
+
+    /**
+     * {@link IdempotencyCache} of confirmation codes keyed by the customer's email, seat hold Id, and idempotency key.
+     */
+    private final IdempotencyCache<String> reserveRequests;
+
+    /**
+     * {@link IdempotencyCache} of seat reservations keyed by the customer's email, number of seats, and idempotency
+     * key.
+     */
+    private final IdempotencyCache<SeatReservation> purchaseRequests;
+
     @Autowired
-    TicketControllerImpl(final TicketService ticketService) {
+    TicketControllerImpl(final TicketService ticketService, final WaitingRoomService waitingRoomService,
+                         final HoldScheduler holdScheduler, final ConfigurationProvider configurationProvider,
+                         final Clock clock) {
         this.ticketService = ticketService;
+        this.waitingRoomService = waitingRoomService;
+        this.holdScheduler = holdScheduler;
+
+        final int capacity = configurationProvider.getIdempotencyCapacity();
+        final int ttlSeconds = configurationProvider.getIdempotencyTtlSeconds();
+        this.holdRequests = new IdempotencyCache<>(capacity,
+                Math.min(ttlSeconds, configurationProvider.getHoldTimeoutSeconds()), clock);
+        this.reserveRequests = new IdempotencyCache<>(capacity, ttlSeconds, clock);
+        this.purchaseRequests = new IdempotencyCache<>(capacity, ttlSeconds, clock);
     }
 
     /**
@@ -45,30 +86,92 @@ final class TicketControllerImpl implements TicketController {
     }
 
     /**
-     * Finds and holds the best available seats.
+     * Lists the blocks of consecutive open seats available for a group, best first, for seat pickers to browse without
+     * parsing the seat map.
+     *
+     * @param numSeats Number of seats in the group
+     * @param offset The rank of the first block to return
+     * @param limit The maximum number of blocks to return
+     * @return {@link AvailableBlocks} page of blocks
+     */
+    @RequestMapping(path = "/blocks", method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public AvailableBlocks findBlocks(@RequestParam final int numSeats,
+                                      @RequestParam(defaultValue = "0") final int offset,
+                                      @RequestParam(defaultValue = "20") final int limit) {
+        return ticketService.findAvailableBlocks(numSeats, offset, limit);
+    }
+
+    /**
+     * Finds and holds the best available seats. While the waiting room is enabled only users holding an admitted
+     * token may request seats. The request is scheduled within the customer's tier, and the response is written once
+     * it has run without holding a container thread while it waits. Retrying with the same idempotency key returns
+     * the original seat hold rather than holding additional seats.
      *
      * @param numSeats Number of seats requested
      * @param customerEmail User's email address
-     * @return {@link SeatHold} representing the seat hold for the user
+     * @param tier Optional customer tier, such as member or general
+     * @param admissionToken The admission token issued by the waiting room
+     * @param idempotencyKey Optional key identifying retries of the same request
+     * @return {@link CompletableFuture} of the {@link SeatHold} representing the seat hold for the user
      */
     @RequestMapping(path = "/request", method = RequestMethod.GET, produces = "application/json")
     @Override
-    public SeatHold requestSeats(@RequestParam final int numSeats, @RequestHeader(name = "customer") final String customerEmail) {
-        return ticketService.findAndHoldSeats(numSeats, customerEmail);
+    public CompletableFuture<SeatHold> requestSeats(
+            @RequestParam final int numSeats,
+            @RequestHeader(name = "customer") final String customerEmail,
+            @RequestHeader(name = "tier", required = false) final String tier,
+            @RequestHeader(name = "admission", required = false) final String admissionToken,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) final String idempotencyKey) {
+        if (!waitingRoomService.isAdmitted(admissionToken, customerEmail)) {
+            throw new RuntimeException("A valid admission token from the waiting room is required to request seats.");
+        }
+        return holdRequests.executeAsync(scopedKey(idempotencyKey, customerEmail, numSeats),
+                () -> holdScheduler.schedule(tier, () -> ticketService.findAndHoldSeats(numSeats, customerEmail)));
+    }
+
+    /**
+     * Finds and reserves the best available seats in a single request, for channels which always reserve immediately.
+     * The same waiting room, tier, and idempotency rules apply as when requesting seats.
+     *
+     * @param numSeats Number of seats requested
+     * @param customerEmail User's email address
+     * @param tier Optional customer tier, such as member or general
+     * @param admissionToken The admission token issued by the waiting room
+     * @param idempotencyKey Optional key identifying retries of the same request
+     * @return {@link CompletableFuture} of the {@link SeatReservation} containing the confirmation code for the user
+     */
+    @RequestMapping(path = "/purchase", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public CompletableFuture<SeatReservation> purchaseSeats(
+            @RequestParam final int numSeats,
+            @RequestHeader(name = "customer") final String customerEmail,
+            @RequestHeader(name = "tier", required = false) final String tier,
+            @RequestHeader(name = "admission", required = false) final String admissionToken,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) final String idempotencyKey) {
+        if (!waitingRoomService.isAdmitted(admissionToken, customerEmail)) {
+            throw new RuntimeException("A valid admission token from the waiting room is required to request seats.");
+        }
+        return purchaseRequests.executeAsync(scopedKey(idempotencyKey, customerEmail, numSeats),
+                () -> holdScheduler.schedule(tier, () -> ticketService.holdAndReserveSeats(numSeats, customerEmail)));
     }
 
     /**
-     * Promotes a specific seat hold to a reservation.
+     * Promotes a specific seat hold to a reservation. Retrying with the same idempotency key returns the original
+     * confirmation code.
      *
      * @param id The Id of the seat hold
      * @param customerEmail The user's email address
+     * @param idempotencyKey Optional key identifying retries of the same request
      * @return {@link String} confirmation code
      */
     @RequestMapping(path = "/{id}/reserve", method = RequestMethod.POST, produces = "text/plain")
     @Override
-    public String reserveSeats(@PathVariable final int id, @RequestHeader(name = "customer") final String customerEmail) {
+    public String reserveSeats(@PathVariable final int id, @RequestHeader(name = "customer") final String customerEmail,
+                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false) final String idempotencyKey) {
         try {
-            final String confirmation = ticketService.reserveSeats(id, customerEmail);
+            final String confirmation = reserveRequests.execute(scopedKey(idempotencyKey, customerEmail, id),
+                    () -> ticketService.reserveSeats(id, customerEmail));
             return confirmation == null ?
                     "Failed to confirm reservation [" + id + "]. Please check your email and try again!" :
                     "Your reservation was successful. Confirmation code: " + confirmation;
@@ -111,6 +214,81 @@ final class TicketControllerImpl implements TicketController {
         return ticketService.getHold(id, customerEmail);
     }
 
+    /**
+     * Places the user on the waitlist after being refused for lack of consecutive seats. The same waiting room and tier
+     * rules apply as when requesting seats, since the request may be matched with a hold immediately.
+     *
+     * @param numSeats Number of seats requested
+     * @param customerEmail User's email address
+     * @param tier Optional customer tier, such as member or general
+     * @param admissionToken The admission token issued by the waiting room
+     * @return {@link CompletableFuture} of the {@link WaitlistStatus} containing the Id to poll with
+     */
+    @RequestMapping(path = "/waitlist", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public CompletableFuture<WaitlistStatus> joinWaitlist(
+            @RequestParam final int numSeats,
+            @RequestHeader(name = "customer") final String customerEmail,
+            @RequestHeader(name = "tier", required = false) final String tier,
+            @RequestHeader(name = "admission", required = false) final String admissionToken) {
+        if (!waitingRoomService.isAdmitted(admissionToken, customerEmail)) {
+            throw new RuntimeException("A valid admission token from the waiting room is required to request seats.");
+        }
+        return holdScheduler.schedule(tier, () -> ticketService.joinWaitlist(numSeats, customerEmail));
+    }
+
+    /**
+     * Reports whether the user's waitlist request has been matched with a seat hold. This is cheap enough to be polled
+     * frequently, and must be polled to keep the request's place.
+     *
+     * @param id The Id of the waitlist request
+     * @param customerEmail The user's email address
+     * @return {@link WaitlistStatus} containing the {@link SeatHold} once matched
+     */
+    @RequestMapping(path = "/waitlist/{id}", method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public WaitlistStatus getWaitlistStatus(@PathVariable final long id,
+                                            @RequestHeader(name = "customer") final String customerEmail) {
+        return ticketService.getWaitlistStatus(id, customerEmail);
+    }
+
+    /**
+     * Leave the waitlist.
+     *
+     * @param id The Id of the waitlist request
+     * @param customerEmail The user's email address
+     * @return The result of leaving
+     */
+    @RequestMapping(path = "/waitlist/{id}", method = RequestMethod.DELETE, produces = "text/plain")
+    @Override
+    public String leaveWaitlist(@PathVariable final long id,
+                                @RequestHeader(name = "customer") final String customerEmail) {
+        try {
+            final boolean left = ticketService.leaveWaitlist(id, customerEmail);
+            return left ?
+                    "Successfully left the waitlist [" + id + "]." :
+                    "Failed to leave the waitlist [" + id + "]. The request may already have been matched.";
+        } catch (RuntimeException e) {
+            return errorMessage(e.getMessage());
+        }
+    }
+
+    /**
+     * Scopes the idempotency key to the customer and request parameters so that keys cannot collide across customers.
+     *
+     * @return The scoped key, or null if no idempotency key was provided
+     */
+    private String scopedKey(final String idempotencyKey, final String customerEmail, final Object... parameters) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder(customerEmail.toLowerCase(Locale.ROOT));
+        for (Object parameter : parameters) {
+            sb.append('\n').append(parameter);
+        }
+        return sb.append('\n').append(idempotencyKey).toString();
+    }
+
     /**
      * Wrap an exception nicely for requests that produce text/plain.
      */
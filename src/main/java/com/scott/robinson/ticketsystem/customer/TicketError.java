@@ -0,0 +1,41 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Getter;
+
+/**
+ * {@link Enum} of the reasons a request to the {@link TicketService} can be refused. Each error has a single shared
+ * {@link TicketException}, so refusing a request allocates nothing and never captures a stack trace.
+ */
+public enum TicketError {
+    INVALID_SEAT_COUNT("Number of seats must be greater than one."),
+    NO_CONSECUTIVE_SEATS("No consecutive seats are available for the requested number of seats."),
+    HOLD_NOT_FOUND("No seat hold was found for that combination of Id and email address."),
+    INVALID_PAGE("Offset must not be negative and limit must be between 1 and "
+            + TicketServiceImpl.MAX_BLOCKS_PER_PAGE + "."),
+    INVALID_RANGE("The range is not within the venue."),
+    RANGE_NOT_AVAILABLE("The range contains held or reserved seats."),
+    READ_ONLY("This instance is a standby and cannot accept changes until it is promoted."),
+    HOLDS_FULL("No further seats can be held until existing holds are reserved, canceled, or expire."),
+    INVALID_EMAIL("The email address is too long."),
+    GROUP_TOO_LARGE("No row of the venue has enough consecutive seats for a group of that size."),
+    WAITLIST_FULL("The waitlist is full. Please try again later."),
+    WAITLIST_NOT_FOUND("No waitlist request was found for that combination of Id and email address."),
+    WAITLIST_DISABLED("The waitlist is not available.");
+
+    @Getter
+    private final String message;
+
+    private final TicketException exception;
+
+    TicketError(final String message) {
+        this.message = message;
+        this.exception = new TicketException(this, message);
+    }
+
+    /**
+     * @return The shared {@link TicketException} for this error
+     */
+    TicketException exception() {
+        return exception;
+    }
+}
@@ -0,0 +1,22 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Getter;
+
+/**
+ * {@link RuntimeException} thrown when the {@link TicketService} refuses a request. Ticket exceptions are expected
+ * outcomes, such as a sold out venue, rather than faults, so they are created without a stack trace or suppressed
+ * exceptions and the common ones are shared through {@link TicketError#exception()}.
+ */
+public final class TicketException extends RuntimeException {
+
+    @Getter
+    private final TicketError error;
+
+    /**
+     * @param message Describes this occurrence of the error in more detail than {@link TicketError#getMessage()}
+     */
+    TicketException(final TicketError error, final String message) {
+        super(message, null, false, false);
+        this.error = error;
+    }
+}
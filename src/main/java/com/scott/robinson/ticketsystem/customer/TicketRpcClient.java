@@ -0,0 +1,291 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client of a {@link TicketRpcServer} over a single long-lived connection.
+ *
+ * <p>Every call returns at once with a {@link CompletableFuture}, which is completed with the result or, if the server
+ * refused or could not run the request, with a {@link TicketRpcException}. Calls may be made from any number of threads
+ * and are pipelined: each request is sent as soon as it is made, without waiting for the responses to earlier
+ * requests, and the server answers the requests of a connection in the order they were sent.
+ */
+public final class TicketRpcClient implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TicketRpcClient.class);
+
+    private final Socket socket;
+
+    private final OutputStream out;
+
+    /**
+     * The calls awaiting a response, by request Id.
+     */
+    private final Map<Integer, Call<?>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Locking {@link Object} used to manage access to the {@link #request} buffer, the request Ids, and the socket's
+     * output.
+     */
+    private final Object writeLock = new Object();
+
+    private final TicketRpcCodec.FrameBuffer request = new TicketRpcCodec.FrameBuffer(256);
+
+    private int lastRequestId;
+
+    private volatile boolean closed;
+
+    public TicketRpcClient(final String host, final int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+
+        final Thread reader = new Thread(this::readResponses, "rpc-client-" + socket.getLocalPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @see TicketService#numSeatsAvailable()
+     */
+    public CompletableFuture<Integer> numSeatsAvailable() {
+        return call(TicketRpcCodec.NUM_SEATS_AVAILABLE, data -> {
+        }, DataInputStream::readInt);
+    }
+
+    /**
+     * @param tier           Optional customer tier, such as member or general
+     * @param admissionToken The admission token issued by the waiting room, required while it is enabled
+     * @see TicketService#findAndHoldSeats(int, String)
+     */
+    public CompletableFuture<SeatHold> findAndHoldSeats(final int numSeats, final String customerEmail,
+                                                        final String tier, final String admissionToken) {
+        return call(TicketRpcCodec.FIND_AND_HOLD_SEATS, data -> {
+            data.writeInt(numSeats);
+            TicketRpcCodec.writeString(data, customerEmail);
+            TicketRpcCodec.writeString(data, tier);
+            TicketRpcCodec.writeString(data, admissionToken);
+        }, TicketRpcCodec::readSeatHold);
+    }
+
+    /**
+     * @see TicketService#reserveSeats(int, String)
+     */
+    public CompletableFuture<String> reserveSeats(final int seatHoldId, final String customerEmail) {
+        return call(TicketRpcCodec.RESERVE_SEATS, data -> {
+            data.writeInt(seatHoldId);
+            TicketRpcCodec.writeString(data, customerEmail);
+        }, TicketRpcCodec::readString);
+    }
+
+    /**
+     * @param tier           Optional customer tier, such as member or general
+     * @param admissionToken The admission token issued by the waiting room, required while it is enabled
+     * @see TicketService#holdAndReserveSeats(int, String)
+     */
+    public CompletableFuture<SeatReservation> holdAndReserveSeats(final int numSeats, final String customerEmail,
+                                                                  final String tier, final String admissionToken) {
+        return call(TicketRpcCodec.HOLD_AND_RESERVE_SEATS, data -> {
+            data.writeInt(numSeats);
+            TicketRpcCodec.writeString(data, customerEmail);
+            TicketRpcCodec.writeString(data, tier);
+            TicketRpcCodec.writeString(data, admissionToken);
+        }, TicketRpcCodec::readSeatReservation);
+    }
+
+    /**
+     * @see TicketService#cancelSeatHold(int, String)
+     */
+    public CompletableFuture<Boolean> cancelSeatHold(final int seatHoldId, final String customerEmail) {
+        return call(TicketRpcCodec.CANCEL_SEAT_HOLD, data -> {
+            data.writeInt(seatHoldId);
+            TicketRpcCodec.writeString(data, customerEmail);
+        }, DataInputStream::readBoolean);
+    }
+
+    /**
+     * @see TicketService#getHold(int, String)
+     */
+    public CompletableFuture<SeatHold> getHold(final int seatHoldId, final String customerEmail) {
+        return call(TicketRpcCodec.GET_HOLD, data -> {
+            data.writeInt(seatHoldId);
+            TicketRpcCodec.writeString(data, customerEmail);
+        }, response -> response.readBoolean() ? TicketRpcCodec.readSeatHold(response) : null);
+    }
+
+    /**
+     * @see TicketService#findAvailableBlocks(int, int, int)
+     */
+    public CompletableFuture<AvailableBlocks> findAvailableBlocks(final int numSeats, final int offset,
+                                                                  final int limit) {
+        return call(TicketRpcCodec.FIND_AVAILABLE_BLOCKS, data -> {
+            data.writeInt(numSeats);
+            data.writeInt(offset);
+            data.writeInt(limit);
+        }, TicketRpcCodec::readAvailableBlocks);
+    }
+
+    /**
+     * @see TicketService#seatMap()
+     */
+    public CompletableFuture<String> seatMap() {
+        return call(TicketRpcCodec.SEAT_MAP, data -> {
+        }, TicketRpcCodec::readString);
+    }
+
+    /**
+     * Closes the connection. Calls still awaiting a response are completed with a {@link TicketRpcException}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+
+    private <T> CompletableFuture<T> call(final byte operation, final Arguments arguments,
+                                          final Result<T> result) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        synchronized (writeLock) {
+            if (closed) {
+                future.completeExceptionally(new TicketRpcException(null, "The connection is closed."));
+                return future;
+            }
+            final int requestId = ++lastRequestId;
+            calls.put(requestId, new Call<>(future, result));
+            try {
+                request.reset();
+                final int start = request.begin();
+                request.data().writeInt(requestId);
+                request.data().writeByte(operation);
+                arguments.write(request.data());
+                request.end(start);
+                if (request.size() - Integer.BYTES > TicketRpcCodec.MAX_REQUEST_BYTES) {
+                    // The server would close the connection rather than read it
+                    calls.remove(requestId);
+                    future.completeExceptionally(new TicketRpcException(null, "The request is too large."));
+                    return future;
+                }
+                request.writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                calls.remove(requestId);
+                future.completeExceptionally(new TicketRpcException("Unable to send the request.", e));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Completes each call as its response arrives, until the connection is closed.
+     */
+    private void readResponses() {
+        IOException cause = null;
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                final int length = in.readInt();
+                if (length < Integer.BYTES + 1 || length > TicketRpcCodec.MAX_RESPONSE_BYTES) {
+                    throw new IOException("Invalid response frame length [" + length + "]");
+                }
+                final byte[] frame = new byte[length];
+                in.readFully(frame);
+
+                final DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+                final Call<?> call = calls.remove(response.readInt());
+                if (call != null) {
+                    try {
+                        call.complete(response.readByte(), response);
+                    } catch (IOException e) {
+                        call.future.completeExceptionally(new TicketRpcException("Malformed response.", e));
+                        throw e;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                LOGGER.warn("Connection to the ticket server lost: {}", e.getMessage());
+            }
+            cause = e;
+        } finally {
+            // No call can be added once closed is set under the write lock, so none is left waiting
+            synchronized (writeLock) {
+                closed = true;
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Closing regardless
+            }
+            for (Integer requestId : calls.keySet()) {
+                final Call<?> call = calls.remove(requestId);
+                if (call != null) {
+                    call.future.completeExceptionally(new TicketRpcException("The connection was closed.", cause));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the arguments of a request.
+     */
+    @FunctionalInterface
+    private interface Arguments {
+        void write(DataOutputStream request) throws IOException;
+    }
+
+    /**
+     * Reads the result of a successful request.
+     */
+    @FunctionalInterface
+    private interface Result<T> {
+        T read(DataInputStream response) throws IOException;
+    }
+
+    private static final class Call<T> {
+        private final CompletableFuture<T> future;
+        private final Result<T> result;
+
+        private Call(final CompletableFuture<T> future, final Result<T> result) {
+            this.future = future;
+            this.result = result;
+        }
+
+        private void complete(final byte status, final DataInputStream response) throws IOException {
+            if (status == TicketRpcCodec.OK) {
+                future.complete(result.read(response));
+            } else if (status == TicketRpcCodec.REFUSED) {
+                final String error = TicketRpcCodec.readString(response);
+                future.completeExceptionally(new TicketRpcException(errorOf(error),
+                        TicketRpcCodec.readString(response)));
+            } else {
+                future.completeExceptionally(new TicketRpcException(null, TicketRpcCodec.readString(response)));
+            }
+        }
+
+        /**
+         * @return The {@link TicketError} of the name, or null if the server is newer and has errors this client does
+         * not know
+         */
+        private static TicketError errorOf(final String name) {
+            try {
+                return TicketError.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the frames exchanged between a {@link TicketRpcClient} and a {@link TicketRpcServer}.
+ *
+ * <p>Every frame is an int length followed by that many bytes. A request frame holds the request Id chosen by the
+ * client, the operation, and its arguments. A response frame holds the Id of the request it answers, a status, and
+ * then the result for {@link #OK}, the name and message of the {@link TicketError} for {@link #REFUSED}, or a message
+ * for {@link #FAILED}. Seats are written as three ints, times as UTC epoch seconds and nanoseconds, and strings as an
+ * int byte length, or -1 for null, followed by UTF-8.
+ */
+final class TicketRpcCodec {
+
+    /**
+     * The largest request frame a server accepts. Requests carry only a few ints and short strings.
+     */
+    static final int MAX_REQUEST_BYTES = 4096;
+
+    /**
+     * The largest response frame a client accepts, enough for the seat map of a very large venue.
+     */
+    static final int MAX_RESPONSE_BYTES = 64 * 1024 * 1024;
+
+    static final byte NUM_SEATS_AVAILABLE = 1;
+    static final byte FIND_AND_HOLD_SEATS = 2;
+    static final byte RESERVE_SEATS = 3;
+    static final byte HOLD_AND_RESERVE_SEATS = 4;
+    static final byte CANCEL_SEAT_HOLD = 5;
+    static final byte GET_HOLD = 6;
+    static final byte FIND_AVAILABLE_BLOCKS = 7;
+    static final byte SEAT_MAP = 8;
+
+    static final byte OK = 0;
+    static final byte REFUSED = 1;
+    static final byte FAILED = 2;
+
+    private TicketRpcCodec() {
+    }
+
+    static void writeSeatHold(final DataOutput out, final SeatHold seatHold) throws IOException {
+        out.writeInt(seatHold.getId());
+        writeSeatAction(out, seatHold);
+    }
+
+    static SeatHold readSeatHold(final DataInputStream in) throws IOException {
+        final int id = in.readInt();
+        return new SeatHold(id, readString(in), readSeats(in), readTime(in));
+    }
+
+    static void writeSeatReservation(final DataOutput out, final SeatReservation seatReservation)
+            throws IOException {
+        writeString(out, seatReservation.getConfirmationCode());
+        writeSeatAction(out, seatReservation);
+    }
+
+    static SeatReservation readSeatReservation(final DataInputStream in) throws IOException {
+        final String confirmationCode = readString(in);
+        return new SeatReservation(confirmationCode, readString(in), readSeats(in), readTime(in));
+    }
+
+    static void writeAvailableBlocks(final DataOutput out, final AvailableBlocks blocks) throws IOException {
+        out.writeInt(blocks.getNumSeats());
+        out.writeInt(blocks.getOffset());
+        out.writeInt(blocks.getNextOffset());
+        out.writeInt(blocks.getBlocks().size());
+        for (Seats seats : blocks.getBlocks()) {
+            writeSeats(out, seats);
+        }
+    }
+
+    static AvailableBlocks readAvailableBlocks(final DataInputStream in) throws IOException {
+        final int numSeats = in.readInt();
+        final int offset = in.readInt();
+        final int nextOffset = in.readInt();
+        final int size = in.readInt();
+        final List<Seats> blocks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            blocks.add(readSeats(in));
+        }
+        return new AvailableBlocks(numSeats, offset, blocks, nextOffset);
+    }
+
+    /**
+     * Unlike {@link DataOutput#writeUTF(String)} this is not limited to 64KB, so it can carry the seat map of a large
+     * venue.
+     */
+    static void writeString(final DataOutput out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new EOFException("String of [" + length + "] bytes is longer than the frame");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeSeatAction(final DataOutput out, final SeatAction seatAction) throws IOException {
+        writeString(out, seatAction.getEmail());
+        writeSeats(out, seatAction.getSeats());
+        out.writeLong(seatAction.getCreationTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(seatAction.getCreationTime().getNano());
+    }
+
+    private static void writeSeats(final DataOutput out, final Seats seats) throws IOException {
+        out.writeInt(seats.getRow());
+        out.writeInt(seats.getFirstSeat());
+        out.writeInt(seats.getLastSeat());
+    }
+
+    private static Seats readSeats(final DataInputStream in) throws IOException {
+        final int row = in.readInt();
+        final int firstSeat = in.readInt();
+        return new Seats(row, firstSeat, in.readInt());
+    }
+
+    private static LocalDateTime readTime(final DataInputStream in) throws IOException {
+        final long epochSecond = in.readLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, in.readInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Reusable buffer which frames are encoded into back to back, so that a batch of frames can be written to a socket
+     * at once without copying.
+     */
+    static final class FrameBuffer extends ByteArrayOutputStream {
+
+        private final DataOutputStream data = new DataOutputStream(this);
+
+        FrameBuffer(final int size) {
+            super(size);
+        }
+
+        DataOutputStream data() {
+            return data;
+        }
+
+        /**
+         * Starts a frame by reserving space for its length.
+         *
+         * @return The position of the frame, to be passed to {@link #end(int)}
+         */
+        int begin() throws IOException {
+            final int start = count;
+            data.writeInt(0);
+            return start;
+        }
+
+        /**
+         * Completes the frame started at the position by filling in its length.
+         */
+        void end(final int start) {
+            final int length = count - start - Integer.BYTES;
+            buf[start] = (byte) (length >>> 24);
+            buf[start + 1] = (byte) (length >>> 16);
+            buf[start + 2] = (byte) (length >>> 8);
+            buf[start + 3] = (byte) length;
+        }
+
+        /**
+         * Discards everything written after the position, such as a partly encoded result.
+         */
+        void truncate(final int position) {
+            count = position;
+        }
+
+        /**
+         * @return A {@link ByteBuffer} over the encoded frames, valid until the buffer is next written or reset
+         */
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
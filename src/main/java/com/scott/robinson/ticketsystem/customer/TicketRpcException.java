@@ -0,0 +1,26 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Getter;
+
+/**
+ * {@link RuntimeException} completing a {@link TicketRpcClient} call which the server refused or could not run, or
+ * which was lost with its connection.
+ */
+public final class TicketRpcException extends RuntimeException {
+
+    /**
+     * The reason the {@link TicketService} refused the request, or null if the request failed for another reason.
+     */
+    @Getter
+    private final TicketError error;
+
+    TicketRpcException(final TicketError error, final String message) {
+        super(message);
+        this.error = error;
+    }
+
+    TicketRpcException(final String message, final Throwable cause) {
+        super(message, cause);
+        this.error = null;
+    }
+}
@@ -0,0 +1,616 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.waitingroom.WaitingRoomService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the customer operations of the {@link TicketService} over a length-prefixed binary protocol, described by
+ * {@link TicketRpcCodec}, for partners which make too many calls to pay for JSON and HTTP headers on each.
+ *
+ * <p>Connections are long lived and requests may be pipelined: a client can send any number of requests without
+ * waiting for their responses. A single selector thread reads and frames the requests of every connection. The
+ * requests of each connection are then run in order, one at a time, on a pool of workers, since holds may wait on the
+ * {@link HoldScheduler}. A worker writes the responses to every request it finds queued as a single batch, so a
+ * pipelining client receives many responses per write. A hold or purchase waiting on the {@link HoldScheduler} parks
+ * its connection rather than its worker: the worker moves on to other connections, and the connection's later requests
+ * stay queued behind it until the scheduler completes it. When a connection has {@link #MAX_PIPELINED} requests
+ * queued, or a client stops reading its responses, no more of its requests are read until it catches up.
+ *
+ * <p>Holds and purchases are subject to the same waiting room and tier scheduling as the REST endpoints. Idempotency
+ * keys are not supported, since the client sees the response to each request on the same connection.
+ */
+public final class TicketRpcServer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TicketRpcServer.class);
+
+    /**
+     * The most requests queued for a connection before reading from it is paused.
+     */
+    private static final int MAX_PIPELINED = 1024;
+
+    /**
+     * The most bytes of responses waiting for a client to read them before reading from it is paused.
+     */
+    private static final int MAX_UNSENT_BYTES = 1024 * 1024;
+
+    /**
+     * The size of the responses at which a worker writes its batch without waiting for the queue to empty.
+     */
+    private static final int BATCH_BYTES = 64 * 1024;
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final TicketService ticketService;
+
+    private final WaitingRoomService waitingRoomService;
+
+    private final HoldScheduler holdScheduler;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final ExecutorService workers;
+
+    /**
+     * Connections whose interest in reading or writing may have been changed by a worker, to be updated by the
+     * selector thread.
+     */
+    private final Queue<Connection> interestChanges = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    public TicketRpcServer(final TicketService ticketService, final WaitingRoomService waitingRoomService,
+                           final HoldScheduler holdScheduler, final int port, final int threads) throws IOException {
+        this.ticketService = ticketService;
+        this.waitingRoomService = waitingRoomService;
+        this.holdScheduler = holdScheduler;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+
+        final AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "rpc-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        final Thread selectorThread = new Thread(this::select, "rpc-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        workers.shutdownNow();
+    }
+
+    private void select() {
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        try {
+            while (!closed) {
+                selector.select();
+                for (Connection connection = interestChanges.poll(); connection != null;
+                     connection = interestChanges.poll()) {
+                    connection.updateInterest();
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            LOGGER.warn("Unable to accept a connection: {}", e.getMessage());
+                        }
+                        continue;
+                    }
+                    final Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                        if (key.isValid()) {
+                            connection.updateInterest();
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        LOGGER.debug("Closing connection from {}: {}", connection.address, e.getMessage());
+                        connection.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Binary protocol server stopped", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // Closing regardless
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Closing regardless
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        final Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connection.interestOps = SelectionKey.OP_READ;
+    }
+
+    /**
+     * Runs a single request and encodes its response, including any refusal, into the responses. Holds and purchases
+     * are instead handed to the {@link HoldScheduler} and returned, to be encoded once the scheduler has run them.
+     *
+     * @return The {@link Scheduled} request, or null if its response has been encoded
+     */
+    private Scheduled<?> execute(final byte[] frame, final TicketRpcCodec.FrameBuffer responses) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        final DataOutputStream out = responses.data();
+        final int requestId = in.readInt();
+        final byte operation = in.readByte();
+
+        final int start = responses.begin();
+        out.writeInt(requestId);
+        final int status = responses.size();
+        out.writeByte(TicketRpcCodec.OK);
+        Scheduled<?> scheduled = null;
+        try {
+            switch (operation) {
+                case TicketRpcCodec.NUM_SEATS_AVAILABLE:
+                    out.writeInt(ticketService.numSeatsAvailable());
+                    break;
+                case TicketRpcCodec.FIND_AND_HOLD_SEATS: {
+                    final int numSeats = in.readInt();
+                    final String customerEmail = readEmail(in);
+                    final String tier = TicketRpcCodec.readString(in);
+                    admit(TicketRpcCodec.readString(in), customerEmail);
+                    scheduled = new Scheduled<>(requestId, holdScheduler.schedule(tier,
+                            () -> ticketService.findAndHoldSeats(numSeats, customerEmail)), TicketRpcCodec::writeSeatHold);
+                    break;
+                }
+                case TicketRpcCodec.RESERVE_SEATS: {
+                    final int seatHoldId = in.readInt();
+                    TicketRpcCodec.writeString(out, ticketService.reserveSeats(seatHoldId, readEmail(in)));
+                    break;
+                }
+                case TicketRpcCodec.HOLD_AND_RESERVE_SEATS: {
+                    final int numSeats = in.readInt();
+                    final String customerEmail = readEmail(in);
+                    final String tier = TicketRpcCodec.readString(in);
+                    admit(TicketRpcCodec.readString(in), customerEmail);
+                    scheduled = new Scheduled<>(requestId, holdScheduler.schedule(tier,
+                            () -> ticketService.holdAndReserveSeats(numSeats, customerEmail)),
+                            TicketRpcCodec::writeSeatReservation);
+                    break;
+                }
+                case TicketRpcCodec.CANCEL_SEAT_HOLD: {
+                    final int seatHoldId = in.readInt();
+                    out.writeBoolean(ticketService.cancelSeatHold(seatHoldId, readEmail(in)));
+                    break;
+                }
+                case TicketRpcCodec.GET_HOLD: {
+                    final int seatHoldId = in.readInt();
+                    final SeatHold seatHold = ticketService.getHold(seatHoldId, readEmail(in));
+                    out.writeBoolean(seatHold != null);
+                    if (seatHold != null) {
+                        TicketRpcCodec.writeSeatHold(out, seatHold);
+                    }
+                    break;
+                }
+                case TicketRpcCodec.FIND_AVAILABLE_BLOCKS: {
+                    final int numSeats = in.readInt();
+                    final int offset = in.readInt();
+                    TicketRpcCodec.writeAvailableBlocks(out,
+                            ticketService.findAvailableBlocks(numSeats, offset, in.readInt()));
+                    break;
+                }
+                case TicketRpcCodec.SEAT_MAP:
+                    TicketRpcCodec.writeString(out, ticketService.seatMap());
+                    break;
+                default:
+                    throw new RuntimeException("Unknown operation [" + operation + "].");
+            }
+        } catch (EOFException | RuntimeException e) {
+            fail(responses, status, e);
+        }
+        if (scheduled != null) {
+            responses.truncate(start);
+            return scheduled;
+        }
+        responses.end(start);
+        return null;
+    }
+
+    /**
+     * Replaces the partly encoded result at the position with the refusal or failure of the request.
+     */
+    private static void fail(final TicketRpcCodec.FrameBuffer responses, final int status, final Exception e)
+            throws IOException {
+        final DataOutputStream out = responses.data();
+        responses.truncate(status);
+        if (e instanceof TicketException) {
+            out.writeByte(TicketRpcCodec.REFUSED);
+            TicketRpcCodec.writeString(out, ((TicketException) e).getError().name());
+            TicketRpcCodec.writeString(out, e.getMessage());
+        } else if (e instanceof EOFException) {
+            out.writeByte(TicketRpcCodec.FAILED);
+            TicketRpcCodec.writeString(out, "The request is missing arguments.");
+        } else {
+            out.writeByte(TicketRpcCodec.FAILED);
+            TicketRpcCodec.writeString(out, e.getMessage());
+        }
+    }
+
+    private static String readEmail(final DataInputStream in) throws IOException {
+        final String customerEmail = TicketRpcCodec.readString(in);
+        if (customerEmail == null) {
+            throw new RuntimeException("A customer email address is required.");
+        }
+        return customerEmail;
+    }
+
+    private void admit(final String admissionToken, final String customerEmail) {
+        if (!waitingRoomService.isAdmitted(admissionToken, customerEmail)) {
+            throw new RuntimeException("A valid admission token from the waiting room is required to request seats.");
+        }
+    }
+
+    /**
+     * Encodes the result of a scheduled request.
+     */
+    private interface ResultWriter<T> {
+        void write(DataOutput out, T result) throws IOException;
+    }
+
+    /**
+     * A hold or purchase handed to the {@link HoldScheduler}, and how to encode its result.
+     */
+    private static final class Scheduled<T> {
+
+        private final int requestId;
+
+        private final CompletableFuture<T> result;
+
+        private final ResultWriter<T> writer;
+
+        private Scheduled(final int requestId, final CompletableFuture<T> result, final ResultWriter<T> writer) {
+            this.requestId = requestId;
+            this.result = result;
+            this.writer = writer;
+        }
+
+        /**
+         * Encodes the response to the request, which must have completed.
+         */
+        private void respond(final TicketRpcCodec.FrameBuffer responses) throws IOException {
+            final DataOutputStream out = responses.data();
+            final int start = responses.begin();
+            out.writeInt(requestId);
+            final int status = responses.size();
+            out.writeByte(TicketRpcCodec.OK);
+            try {
+                writer.write(out, result.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                fail(responses, status, e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e);
+            }
+            responses.end(start);
+        }
+    }
+
+    /**
+     * The state of a single client connection. Requests are framed by the selector thread and run by at most one
+     * worker at a time, which is what keeps them in order. A connection whose request is waiting on the
+     * {@link HoldScheduler} keeps its claim on running, so that no other worker takes up its later requests, and is
+     * resumed on a worker once the request completes.
+     */
+    private final class Connection implements Runnable {
+
+        private final SocketChannel channel;
+
+        private final Object address;
+
+        private SelectionKey key;
+
+        /**
+         * Bytes of a request frame which has not yet been read in full. Only used by the selector thread.
+         */
+        private byte[] partial;
+
+        /**
+         * The responses being batched by the running worker. Only used by that worker.
+         */
+        private final TicketRpcCodec.FrameBuffer responses = new TicketRpcCodec.FrameBuffer(4096);
+
+        /**
+         * The requests waiting to be run. Guarded by this connection.
+         */
+        private final ArrayDeque<byte[]> requests = new ArrayDeque<>();
+
+        /**
+         * Responses which could not yet be written to the socket. Guarded by this connection.
+         */
+        private final ArrayDeque<ByteBuffer> unsent = new ArrayDeque<>();
+
+        private int unsentBytes;
+
+        /**
+         * Whether a worker is running this connection's requests. Guarded by this connection.
+         */
+        private boolean running;
+
+        /**
+         * The operations the selector is interested in. Guarded by this connection.
+         */
+        private int interestOps;
+
+        private Connection(final SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.address = channel.getRemoteAddress();
+        }
+
+        /**
+         * Reads whatever the client has sent and queues each complete request frame.
+         */
+        private void read(final ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            if (partial != null) {
+                buffer.put(partial);
+                partial = null;
+            }
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Closed by the client");
+            }
+            buffer.flip();
+
+            boolean queued = false;
+            while (buffer.remaining() >= Integer.BYTES) {
+                final int length = buffer.getInt(buffer.position());
+                if (length < Integer.BYTES + 1 || length > TicketRpcCodec.MAX_REQUEST_BYTES) {
+                    throw new IOException("Invalid request frame length [" + length + "]");
+                }
+                if (buffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                buffer.position(buffer.position() + Integer.BYTES);
+                final byte[] frame = new byte[length];
+                buffer.get(frame);
+                synchronized (this) {
+                    requests.add(frame);
+                }
+                queued = true;
+            }
+            if (buffer.hasRemaining()) {
+                partial = new byte[buffer.remaining()];
+                buffer.get(partial);
+            }
+
+            if (queued) {
+                synchronized (this) {
+                    if (running) {
+                        return;
+                    }
+                    running = true;
+                }
+                try {
+                    workers.execute(this);
+                } catch (RuntimeException e) {
+                    // The server is closing
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Runs the queued requests in order, writing the responses whenever the queue empties or the batch is large.
+         */
+        @Override
+        public void run() {
+            process(null);
+        }
+
+        /**
+         * Encodes the response to the scheduled request the connection was waiting on, if any, and then runs the queued
+         * requests until they run out or another must wait on the scheduler.
+         */
+        private void process(final Scheduled<?> resumed) {
+            try {
+                if (resumed != null) {
+                    resumed.respond(responses);
+                }
+                while (true) {
+                    final byte[] frame;
+                    synchronized (this) {
+                        frame = requests.poll();
+                        if (frame == null && responses.size() == 0) {
+                            running = false;
+                            break;
+                        }
+                    }
+                    if (frame == null) {
+                        send();
+                        continue;
+                    }
+                    final Scheduled<?> scheduled = execute(frame, responses);
+                    if (scheduled != null) {
+                        if (!scheduled.result.isDone()) {
+                            // Hand back the worker while the scheduler runs the request, sending what came before it
+                            if (responses.size() > 0) {
+                                send();
+                            }
+                            scheduled.result.whenComplete((result, failure) -> resume(scheduled));
+                            return;
+                        }
+                        scheduled.respond(responses);
+                    }
+                    if (responses.size() >= BATCH_BYTES) {
+                        send();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("Closing connection from {}", address, e);
+                close();
+                synchronized (this) {
+                    running = false;
+                }
+            }
+        }
+
+        /**
+         * Continues running the connection's requests on a worker once its scheduled request has completed. This is
+         * called by the scheduler's thread, so it does no more than hand the connection over.
+         */
+        private void resume(final Scheduled<?> scheduled) {
+            try {
+                workers.execute(() -> process(scheduled));
+            } catch (RuntimeException e) {
+                // The server is closing
+                close();
+                synchronized (this) {
+                    running = false;
+                }
+            }
+        }
+
+        /**
+         * Writes the batch of responses straight to the socket if nothing is already waiting to be sent, and leaves
+         * whatever the socket will not take for the selector thread to write.
+         */
+        private void send() throws IOException {
+            boolean changed;
+            synchronized (this) {
+                final ByteBuffer bytes = responses.toByteBuffer();
+                if (unsent.isEmpty()) {
+                    channel.write(bytes);
+                }
+                if (bytes.hasRemaining()) {
+                    final ByteBuffer copy = ByteBuffer.allocate(bytes.remaining());
+                    copy.put(bytes).flip();
+                    unsent.add(copy);
+                    unsentBytes += copy.remaining();
+                }
+                changed = desiredOps() != interestOps;
+            }
+            responses.reset();
+            if (changed) {
+                interestChanges.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Writes the responses the socket would not take earlier.
+         */
+        private synchronized void write() throws IOException {
+            while (!unsent.isEmpty()) {
+                final ByteBuffer bytes = unsent.peek();
+                unsentBytes -= channel.write(bytes);
+                if (bytes.hasRemaining()) {
+                    return;
+                }
+                unsent.poll();
+            }
+        }
+
+        private synchronized int desiredOps() {
+            final boolean reading = requests.size() < MAX_PIPELINED && unsentBytes < MAX_UNSENT_BYTES;
+            return (reading ? SelectionKey.OP_READ : 0) | (unsent.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Reads only while the client is keeping up, and writes only while responses are waiting. Only called by the
+         * selector thread.
+         */
+        private void updateInterest() {
+            synchronized (this) {
+                final int ops = desiredOps();
+                if (ops == interestOps || !key.isValid()) {
+                    return;
+                }
+                interestOps = ops;
+            }
+            try {
+                key.interestOps(interestOps);
+            } catch (CancelledKeyException ignored) {
+                // Closed by a worker
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Closing regardless
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * Serves the customer operations of the {@link TicketService} over the binary protocol of {@link TicketRpcServer},
+ * alongside the REST endpoints.
+ */
+public interface TicketRpcService {
+
+    /**
+     * @return The port the binary protocol is served on, or -1 if it is disabled
+     */
+    int getPort();
+}
@@ -0,0 +1,66 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.waitingroom.WaitingRoomService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+
+/**
+ * The {@link Service} which runs the {@link TicketRpcServer} when it is enabled. The port is bound as the application
+ * starts, so a port already in use fails start up, but connections are only accepted once the application is ready.
+ */
+@Service
+final class TicketRpcServiceImpl implements TicketRpcService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TicketRpcServiceImpl.class);
+
+    private final TicketRpcServer server;
+
+    @Autowired
+    TicketRpcServiceImpl(final ConfigurationProvider configurationProvider, final TicketService ticketService,
+                         final WaitingRoomService waitingRoomService, final HoldScheduler holdScheduler) {
+        if (!configurationProvider.isRpcEnabled()) {
+            this.server = null;
+            return;
+        }
+
+        final int port = configurationProvider.getRpcPort();
+        try {
+            this.server = new TicketRpcServer(ticketService, waitingRoomService, holdScheduler, port,
+                    configurationProvider.getRpcThreads());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to listen for binary protocol clients on port [" + port + "]", e);
+        }
+    }
+
+    @Override
+    public int getPort() {
+        return server == null ? -1 : server.getPort();
+    }
+
+    /**
+     * Starts accepting connections once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (server != null) {
+            server.start();
+            LOGGER.info("Serving the binary protocol on port [{}]", server.getPort());
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.scott.robinson.ticketsystem.customer;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,6 +35,29 @@ public interface TicketService {
      */
     String reserveSeats(final int seatHoldId, final String customerEmail);
 
+    /**
+     * Find the best available seats and reserve them for a customer in a single step. This is equivalent to
+     * {@link #findAndHoldSeats(int, String)} followed immediately by {@link #reserveSeats(int, String)}, but the seats
+     * are never held and no {@link SeatHold} is created.
+     *
+     * @param numSeats      the number of seats to find and reserve
+     * @param customerEmail unique identifier for the customer
+     * @return a SeatReservation object identifying the specific seats and the reservation confirmation code
+     */
+    SeatReservation holdAndReserveSeats(final int numSeats, final String customerEmail);
+
+    /**
+     * Find the blocks of consecutive open seats which could seat a group, ranked in the order
+     * {@link #findAndHoldSeats(int, String)} would choose them under the configured allocation strategy: by default by
+     * row, and then by closeness to the middle of the row. Blocks overlap, so holding one block may remove others from
+     * later pages.
+     *
+     * @param numSeats the size of the group
+     * @param offset   the rank of the first block to return
+     * @param limit    the maximum number of blocks to return
+     * @return a page of {@link AvailableBlocks}
+     */
+    AvailableBlocks findAvailableBlocks(final int numSeats, final int offset, final int limit);
 
     /**
      * Added by [Scott Robinson]. This additional method to return a text-based map which helps visualize in lieu
@@ -56,7 +80,7 @@ public interface TicketService {
      * {@link com.scott.robinson.ticketsystem.admin.AdminController} to give insight into the internal map of seat
      * holds.
      *
-     * @return The internal {@link Map} of seat holds
+     * @return A copy of the {@link Map} of seat holds
      */
     Map<Integer, SeatHold> getHolds();
 
@@ -65,10 +89,55 @@ public interface TicketService {
      * {@link com.scott.robinson.ticketsystem.admin.AdminController} to give insight into the internal map of seat
      * reservations.
      *
-     * @return The internal {@link Map} of seat reservations
+     * @return A copy of the {@link Map} of seat reservations
      */
     Map<String, SeatReservation> getReservations();
 
+    /**
+     * To be used only by the {@link com.scott.robinson.ticketsystem.admin.AdminController} to take a range of seats out
+     * of sale. The range may only contain open or already blocked seats, and is blocked in a single atomic step.
+     *
+     * @param range the seats to block
+     * @return the number of seats newly blocked
+     */
+    int blockSeats(final SeatRange range);
+
+    /**
+     * To be used only by the {@link com.scott.robinson.ticketsystem.admin.AdminController} to return a range of blocked
+     * seats to sale. The range may only contain open or blocked seats, and is released in a single atomic step.
+     *
+     * @param range the seats to release
+     * @return the number of seats re-opened
+     */
+    int releaseBlockedSeats(final SeatRange range);
+
+    /**
+     * To be used only by the {@link com.scott.robinson.ticketsystem.admin.AdminController} to reserve a range of open or
+     * blocked seats, such as for complimentary tickets, in a single atomic step. A reservation is made for each group
+     * of consecutive seats within the range.
+     *
+     * @param range         the seats to reserve
+     * @param customerEmail the email address of the customer the seats are reserved for
+     * @return the reservations made
+     */
+    List<SeatReservation> reserveSeatRange(final SeatRange range, final String customerEmail);
+
+    /**
+     * To be used only by the {@link com.scott.robinson.ticketsystem.admin.AdminController} to give insight into the
+     * size, start up time, and memory footprint of the venue.
+     *
+     * @return {@link VenueReport} describing the venue
+     */
+    VenueReport getVenueReport();
+
+    /**
+     * To be used only by the {@link com.scott.robinson.ticketsystem.admin.AdminController} to give insight into how the
+     * open seats of the venue are broken up.
+     *
+     * @return {@link FragmentationReport} describing the free runs of the venue
+     */
+    FragmentationReport getFragmentationReport();
+
     /**
      * Added by [Scott Robinson]. This additional method allows the customer to review their seat hold by providing the
      * seat hold id.
@@ -79,4 +148,36 @@ public interface TicketService {
      */
     SeatHold getHold(final int seatHoldId, final String customerEmail);
 
+    /**
+     * Places a customer refused for lack of consecutive seats on the waitlist. As soon as enough consecutive seats are
+     * released, by a hold being canceled or expiring or by blocked seats being returned to sale, they are held for the
+     * customer who has waited longest among those whose group fits. If seats are already available the request is
+     * matched immediately.
+     *
+     * @param numSeats      the number of seats to hold once available
+     * @param customerEmail the customer's email address
+     * @return {@link WaitlistStatus} of the request, which must be polled through
+     * {@link #getWaitlistStatus(long, String)} to keep its place
+     */
+    WaitlistStatus joinWaitlist(final int numSeats, final String customerEmail);
+
+    /**
+     * Reports whether the request has been matched with a {@link SeatHold}. Polling keeps the request's place on the
+     * waitlist.
+     *
+     * @param waitlistId    the Id returned by {@link #joinWaitlist(int, String)}
+     * @param customerEmail the customer's email address
+     * @return {@link WaitlistStatus} of the request
+     */
+    WaitlistStatus getWaitlistStatus(final long waitlistId, final String customerEmail);
+
+    /**
+     * Removes a request which is still waiting from the waitlist.
+     *
+     * @param waitlistId    the Id returned by {@link #joinWaitlist(int, String)}
+     * @param customerEmail the customer's email address
+     * @return {@link boolean} indicating whether the request was waiting and has been removed
+     */
+    boolean leaveWaitlist(final long waitlistId, final String customerEmail);
+
 }
\ No newline at end of file
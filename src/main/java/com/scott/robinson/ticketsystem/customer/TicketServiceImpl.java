@@ -1,33 +1,72 @@
 package com.scott.robinson.ticketsystem.customer;
 
 import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link Service} which is responsible for managing the ticket operations as well as maintaining the in-memory
  * venue object.
+ *
+ * <p>Every change to the venue is published as a {@link VenueMutation} to the registered
+ * {@link VenueMutationListener}s while the {@link #venueLock} is held, so listeners observe changes in the same order
+ * they were applied.
+ *
+ * <p>Used unless the venue is shared between worker processes, see {@link SharedVenueTicketServiceImpl}.
  */
 @Service
-final class TicketServiceImpl implements TicketService {
+@ConditionalOnProperty(name = "venue.shared", havingValue = "false", matchIfMissing = true)
+final class TicketServiceImpl implements TicketService, ReplicatedVenue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TicketServiceImpl.class);
+
+    /**
+     * The most blocks returned by a single call to {@link #findAvailableBlocks(int, int, int)}.
+     */
+    static final int MAX_BLOCKS_PER_PAGE = 100;
+
+    /**
+     * Returned by {@link #findBestSeats(int)} when no seats match.
+     */
+    private static final long NO_SEATS = -1;
+
+    /**
+     * Seat hold Ids are random numbers from one to this value, inclusive.
+     */
+    private static final int MAX_HOLD_ID = 9999999;
 
     /**
-     * {@link SeatState} array used to represent the venue. The array is initialized in the
+     * {@link Venue} used to represent the seating. The venue is initialized in the
      * {@link #TicketServiceImpl(ConfigurationProvider)} constructor and uses the row and seat width defined in the
-     * {@link ConfigurationProvider}. Each seat in represented by an entry in the array and it's state defined by it's
-     * associated {@link SeatState}.
+     * {@link ConfigurationProvider}. Each seat's state is defined by it's associated {@link SeatState}, with storage
+     * for a row only allocated once one of its seats is no longer open.
      */
-    private final SeatState[][] venue;
+    private final Venue venue;
+
+    /**
+     * The number of microseconds taken to initialize the {@link #venue}.
+     */
+    private final long venueInitializationMicros;
 
     /**
      * Locking {@link Object} used manage concurrent modification of the {@link #venue}.
@@ -46,79 +85,261 @@ final class TicketServiceImpl implements TicketService {
 
     /**
      * {@link Map} to maintain the existing {@link #seatReservedMap}. The key to this {@link Map} is the reservation
-     * confirmation code.
+     * confirmation code. Guarded by the {@link #venueLock}.
      */
     private Map<String, SeatReservation> seatReservedMap = new HashMap<>();
 
     private final int holdExpirationSec;
 
-    @Autowired
+    /**
+     * {@link Waitlist} of customers waiting for seats to be released. Guarded by the {@link #venueLock}, and
+     * additionally by the {@link #seatHoldMapLock} whenever its requests are matched with holds.
+     */
+    private final Waitlist waitlist;
+
+    private final boolean waitlistEnabled;
+
+    /**
+     * The {@link AllocationStrategy} used to choose the seats for each group.
+     */
+    private final AllocationStrategy allocationStrategy;
+
+    /**
+     * The {@link Clock} used to time the creation and expiration of holds.
+     */
+    private final Clock clock;
+
+    /**
+     * Shared source of seat hold Ids. Seeding a {@link SecureRandom} is expensive, so one instance is reused.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The listeners notified of each {@link VenueMutation}.
+     */
+    private volatile VenueMutationListener[] mutationListeners = new VenueMutationListener[0];
+
+    /**
+     * The sequence number of the last {@link VenueMutation} applied to the {@link #venue}. Guarded by the
+     * {@link #venueLock}.
+     */
+    private long mutationSequence;
+
+    /**
+     * Whether this instance is replicating another and must reject changes from customers.
+     */
+    private volatile boolean readOnly;
+
     TicketServiceImpl(ConfigurationProvider configurationProvider) {
+        this(configurationProvider, Clock.systemDefaultZone());
+    }
+
+    @Autowired
+    TicketServiceImpl(ConfigurationProvider configurationProvider, Clock clock) {
+        this(configurationProvider, clock, true);
+    }
+
+    /**
+     * @param scheduleExpiry Whether holds are expired on a timer. When false, such as when time is simulated, holds are
+     *                       only expired by calling {@link #expireHolds()}
+     */
+    TicketServiceImpl(ConfigurationProvider configurationProvider, Clock clock, boolean scheduleExpiry) {
         // Initialize the configurable variables
         holdExpirationSec = configurationProvider.getHoldTimeoutSeconds();
-        venue = new SeatState[configurationProvider.getRows()][configurationProvider.getSeatsPerRow()];
-        for (int row = 0; row < venue.length; row++) {
-            for (int seat = 0; seat < venue[0].length; seat++) {
-                venue[row][seat] = SeatState.OPEN;
-            }
-        }
+        allocationStrategy = AllocationStrategy.valueOf(
+                configurationProvider.getAllocationStrategy().toUpperCase(Locale.ROOT));
+        this.clock = clock;
+        final long start = System.nanoTime();
+        venue = new Venue(loadLayout(configurationProvider));
+        venueInitializationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        LOGGER.info("Initialized venue of {} seats in {} us using {} bytes", venue.getSeatCount(),
+                venueInitializationMicros, venue.getAllocatedBytes());
+        waitlist = new Waitlist(venue.getLongestRun(), configurationProvider.getWaitlistCapacity(),
+                TimeUnit.SECONDS.toMillis(configurationProvider.getWaitlistTimeoutSeconds()),
+                TimeUnit.SECONDS.toMillis(holdExpirationSec));
+        waitlistEnabled = configurationProvider.isWaitlistEnabled();
 
         // Trigger the expiration logic on a times interval
-        final Timer expireHoldTimer = new Timer();
-        expireHoldTimer.schedule(new ExpireHoldsTask(), 0, 1000);
+        if (scheduleExpiry) {
+            final Timer expireHoldTimer = new Timer();
+            expireHoldTimer.schedule(new ExpireHoldsTask(), 0, 1000);
+        }
+    }
+
+    /**
+     * Loads the configured venue layout file, or lays out a rectangular venue using the configured rows and seats per
+     * row if no layout file is configured.
+     */
+    static VenueLayout loadLayout(final ConfigurationProvider configurationProvider) {
+        final String layoutFile = configurationProvider.getLayoutFile();
+        if (layoutFile.isEmpty()) {
+            return VenueLayout.rectangle(configurationProvider.getRows(), configurationProvider.getSeatsPerRow());
+        }
+        try {
+            return VenueLayout.map(Paths.get(layoutFile));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load the venue layout [" + layoutFile + "]", e);
+        }
     }
 
     /**
-     * Calculates the total number of seats available in the {@link #venue}.
+     * Returns the total number of seats available in the {@link #venue}, which is maintained as seats change state.
      *
      * @return The number of seats currently available for hold or reservation in the {@link #venue}
      */
     @Override
     public int numSeatsAvailable() {
-        int numSeatsAvailable = 0;
         synchronized (venueLock) {
-            for (int rowNum = 0; rowNum < venue.length; rowNum++) {
-                final SeatState[] row = venue[rowNum];
-                for (int seat = 0; seat < row.length; seat++) {
-                    if (row[seat] == SeatState.OPEN) {
-                        numSeatsAvailable++;
-                    }
+            return (int) venue.getOpenSeats();
+        }
+    }
+
+    /**
+     * Pages through the blocks of consecutive open seats using the free runs maintained by the {@link #venue}.
+     *
+     * @param numSeats The size of the group
+     * @param offset The rank of the first block to return
+     * @param limit The maximum number of blocks to return, at most {@link #MAX_BLOCKS_PER_PAGE}
+     * @return {@link AvailableBlocks} page of blocks
+     */
+    @Override
+    public AvailableBlocks findAvailableBlocks(final int numSeats, final int offset, final int limit) {
+        synchronized (venueLock) {
+            return AvailableBlocks.find(venue, allocationStrategy, numSeats, offset, limit);
+        }
+    }
+
+    /**
+     * Blocks the range after checking that none of its seats are held or reserved. The seats of each row are updated
+     * as a whole range rather than seat by seat, and the locks are held throughout so that no partially blocked range
+     * is ever visible.
+     *
+     * @param range The seats to block
+     * @return The number of seats newly blocked
+     */
+    @Override
+    public int blockSeats(final SeatRange range) {
+        int blocked = 0;
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                checkWritable();
+                final List<Seats> segments = rangeSegments(range);
+                for (Seats seats : segments) {
+                    blocked += venue.countOpen(seats.getRow(), seats.getFirstSeat(), seats.getLastSeat());
+                }
+                setSeatState(segments, SeatState.BLOCKED);
+                if (isPublishing()) {
+                    publish(VenueMutation.block(range, LocalDateTime.now(clock)));
                 }
             }
         }
-        return numSeatsAvailable;
+        commit();
+        return blocked;
     }
 
     /**
-     * Builds a {@link String} representation of the two-dimensional {@link #venue} showing the open, held, and reserved
-     * seats via the associated {@link SeatState#abbreviation}.
+     * Re-opens the blocked seats within the range after checking that none of its seats are held or reserved.
      *
-     * @return {@link String} representation of the {@link #venue}
+     * @param range The seats to release
+     * @return The number of seats re-opened
      */
     @Override
-    public String seatMap() {
-        final StringBuilder sb = new StringBuilder();
+    public int releaseBlockedSeats(final SeatRange range) {
+        int released = 0;
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                checkWritable();
+                final List<Seats> segments = rangeSegments(range);
+                for (Seats seats : segments) {
+                    released += seats.getLastSeat() - seats.getFirstSeat() + 1
+                            - venue.countOpen(seats.getRow(), seats.getFirstSeat(), seats.getLastSeat());
+                }
+                setSeatState(segments, SeatState.OPEN);
+                if (isPublishing()) {
+                    publish(VenueMutation.unblock(range, LocalDateTime.now(clock)));
+                }
+                matchWaitlist();
+            }
+        }
+        commit();
+        return released;
+    }
+
+    /**
+     * Reserves every seat in the range after checking that none of its seats are held or reserved.
+     *
+     * @param range The seats to reserve
+     * @param customerEmail The email address of the customer the seats are reserved for
+     * @return The {@link SeatReservation} made for each group of consecutive seats
+     */
+    @Override
+    public List<SeatReservation> reserveSeatRange(final SeatRange range, final String customerEmail) {
+        final List<SeatReservation> reservations = new ArrayList<>();
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                checkWritable();
+                final List<Seats> segments = rangeSegments(range);
+                setSeatState(segments, SeatState.RESERVED);
+                final LocalDateTime creationTime = LocalDateTime.now(clock);
+                for (Seats seats : segments) {
+                    final SeatReservation seatReservation = new SeatReservation(customerEmail, seats, creationTime);
+                    seatReservedMap.put(seatReservation.getConfirmationCode(), seatReservation);
+                    reservations.add(seatReservation);
+                    if (isPublishing()) {
+                        publish(VenueMutation.purchase(seatReservation));
+                    }
+                }
+            }
+        }
+        commit();
+        return reservations;
+    }
 
-        // Header
-        sb.append("row\t");
-        for (int i = 0; i < venue[0].length; i++) {
-            sb.append(i).append('\t');
+    /**
+     * Splits the range into the groups of consecutive seats which exist within it, one for each segment of each row,
+     * and checks that none of them are held or reserved. Must be called while synchronized on the {@link #venueLock}.
+     *
+     * @return The {@link Seats} within the range
+     */
+    private List<Seats> rangeSegments(final SeatRange range) {
+        if (range.getFirstRow() < 0 || range.getLastRow() >= venue.getRowCount()
+                || range.getFirstRow() > range.getLastRow() || range.getFirstSeat() < 0
+                || range.getFirstSeat() > range.getLastSeat()) {
+            throw new TicketException(TicketError.INVALID_RANGE, "The range " + range + " is not within the venue.");
         }
-        sb.append("\n");
 
-        // Rows
-        synchronized (venueLock) {
-            for (int rowNum = 0; rowNum < venue.length; rowNum++) {
-                sb.append(rowNum);
-                sb.append(":\t");
-                final SeatState[] row = venue[rowNum];
-                for (SeatState seatState : row) {
-                    sb.append(seatState.getAbbreviation()).append('\t');
+        final List<Seats> segments = new ArrayList<>();
+        final VenueLayout layout = venue.getLayout();
+        for (int rowNum = range.getFirstRow(); rowNum <= range.getLastRow(); rowNum++) {
+            final int segmentCount = layout.getSegmentCount(rowNum);
+            for (int segment = 0; segment < segmentCount; segment++) {
+                final int firstSeat = Math.max(range.getFirstSeat(), layout.getSegmentStart(rowNum, segment));
+                final int lastSeat = Math.min(range.getLastSeat(), layout.getSegmentEnd(rowNum, segment));
+                if (firstSeat > lastSeat) {
+                    continue;
                 }
-                sb.append('\n');
+                if (venue.contains(rowNum, firstSeat, lastSeat, SeatState.HELD)
+                        || venue.contains(rowNum, firstSeat, lastSeat, SeatState.RESERVED)) {
+                    throw new TicketException(TicketError.RANGE_NOT_AVAILABLE, "Row [" + rowNum
+                            + "] has held or reserved seats between [" + firstSeat + "] and [" + lastSeat + "].");
+                }
+                segments.add(new Seats(rowNum, firstSeat, lastSeat));
             }
         }
-        return sb.toString();
+        return segments;
+    }
+
+    /**
+     * Builds a {@link String} representation of the {@link #venue} showing the open, held, and reserved
+     * seats via the associated {@link SeatState#abbreviation}.
+     *
+     * @return {@link String} representation of the {@link #venue}
+     */
+    @Override
+    public String seatMap() {
+        synchronized (venueLock) {
+            return venue.seatMap();
+        }
     }
 
     /**
@@ -131,26 +352,45 @@ final class TicketServiceImpl implements TicketService {
     @Override
     public SeatHold findAndHoldSeats(final int numSeats, final String customerEmail) {
         if (numSeats < 1) {
-            throw new RuntimeException("Number of seats must be greater than one.");
+            throw TicketError.INVALID_SEAT_COUNT.exception();
         }
 
-        // Find the best available seats
-        final Seats seats = holdBestSeats(numSeats);
-        if (seats == null) {
-            throw new RuntimeException("No consecutive seats available for [" + numSeats + "] seats.");
-        }
-
-        // Create a hold of the found seats
-        final SeatHold seatHold = new SeatHold(customerEmail, seats);
+        final SeatHold seatHold;
 
-        // Add the seat hold to the map
+        // Synchronize on both the seat hold map and the venue so the hold is recorded in the same step as its seats
         synchronized (seatHoldMapLock) {
-            seatHoldMap.put(seatHold.getId(), seatHold);
+            synchronized (venueLock) {
+                checkWritable();
+
+                // Find the best available seats
+                final long bestSeats = findBestSeats(numSeats);
+                if (bestSeats == NO_SEATS) {
+                    throw TicketError.NO_CONSECUTIVE_SEATS.exception();
+                }
+                seatHold = holdSeats(toSeats(bestSeats, numSeats), customerEmail);
+            }
         }
+        commit();
 
         return seatHold;
     }
 
+    /**
+     * Places the seats on hold for the customer. Must be called while synchronized on both the
+     * {@link #seatHoldMapLock} and the {@link #venueLock}.
+     */
+    private SeatHold holdSeats(final Seats seats, final String customerEmail) {
+        setSeatState(seats, SeatState.HELD);
+
+        // Create a hold of the found seats and add it to the map
+        final SeatHold seatHold = new SeatHold(nextHoldId(), customerEmail, seats, LocalDateTime.now(clock));
+        seatHoldMap.put(seatHold.getId(), seatHold);
+        if (isPublishing()) {
+            publish(VenueMutation.hold(seatHold));
+        }
+        return seatHold;
+    }
+
     /**
      * Converts a seat hold into a seat reservation. If no seat hold is found for the provided Id and email address then
      * a {@link RuntimeException} is thrown.
@@ -165,112 +405,118 @@ final class TicketServiceImpl implements TicketService {
         synchronized (seatHoldMapLock) {
             // Synchronize on the venue because we are updating entry values in the array
             synchronized (venueLock) {
+                checkWritable();
+
                 // Ensure the seat hold exists with the provided email address
                 final SeatHold seatHold = seatHoldMap.get(seatHoldId);
                 if (seatHold == null || !seatHold.getEmail().equalsIgnoreCase(customerEmail)) {
-                    throw new RuntimeException("No seat hold was found for id [" + seatHoldId + "] and email [" + customerEmail + "]");
+                    throw TicketError.HOLD_NOT_FOUND.exception();
                 }
 
                 // Set associated seats to reserved
                 final Seats seats = seatHold.getSeats();
-                for (int i = seats.getFirstSeat(); i <= seats.getLastSeat(); i++) {
-                    venue[seats.getRow()][i] = SeatState.RESERVED;
-                }
+                setSeatState(seats, SeatState.RESERVED);
 
                 // Remove the hold since we are converting it into a reservation
                 seatHoldMap.remove(seatHoldId);
 
                 // Generate the SeatReservation
-                SeatReservation seatReservation = new SeatReservation(customerEmail, seats);
+                SeatReservation seatReservation = new SeatReservation(customerEmail, seats, LocalDateTime.now(clock));
 
                 // Store the new reservation
                 confirmationCode = seatReservation.getConfirmationCode();
                 seatReservedMap.put(confirmationCode, seatReservation);
+                if (isPublishing()) {
+                    publish(VenueMutation.reserve(seatHold, seatReservation));
+                }
             }
         }
+        commit();
 
         return confirmationCode;
     }
 
     /**
-     * Finds and holds the best available seats based on the number of seats requested and the availability within
-     * the {@link #venue}.
+     * Finds the best available seats and reserves them immediately, without creating an intermediate
+     * {@link SeatHold}. If no consecutive seats are available then a {@link RuntimeException} is thrown.
      *
-     * @param numSeats The number of seats the user has requested
-     * @return {@link Seats} containing row and seat information matching the user's requirements or null if no matching seats were found
+     * @param numSeats      The number of seats requested by the user
+     * @param customerEmail The user's email address
+     * @return {@link SeatReservation} representing the seats that have been reserved by the user
      */
-    private Seats holdBestSeats(final int numSeats) {
-        synchronized (venueLock) {
-            final List<Integer> firstSeatOptions = new ArrayList<>();
-            int rowNum;
-            for (rowNum = 0; rowNum < venue.length; rowNum++) {
-                final SeatState[] row = venue[rowNum];
-
-                // Find all possible seat combinations for row
-                for (int seat = 0; seat < row.length; seat++) {
-                    // Iterate through each seat to see if it is a possible first seat
-                    boolean isPossibility = true;
-                    boolean hasMorePossibilities = true;
-                    for (int j = 0; j < numSeats; j++) {
-                        final int additionalSeat = seat + j;
-                        if (additionalSeat > row.length - 1) {
-                            // Reached the end of the row before fulfilling seat count requirement
-                            hasMorePossibilities = false;
-
-                            // Do not continue to check additional seats because we have already reached the end of the row
-                            break;
-                        } else if (row[additionalSeat] != SeatState.OPEN) {
-                            // Seat required is unavailable, so this potential first seat is not a possibility
-                            isPossibility = false;
-
-                            // Do not continue to check because it has already failed to meet the consecutive seating criteria
-                            break;
-                        }
-                    }
+    @Override
+    public SeatReservation holdAndReserveSeats(final int numSeats, final String customerEmail) {
+        if (numSeats < 1) {
+            throw TicketError.INVALID_SEAT_COUNT.exception();
+        }
 
-                    if (!hasMorePossibilities) {
-                        // Reached a point in the row where there are no more possibilities due to the requested seat count
-                        break;
-                    }
-                    if (isPossibility) {
-                        // All required seats following the first seat are available, this is an option
-                        firstSeatOptions.add(seat);
-                    }
-                }
+        final SeatReservation seatReservation;
 
-                // Stop checking additional rows if the current row has available seating matching the criteria
-                if (!firstSeatOptions.isEmpty()) {
-                    break;
-                }
-            }
+        // Find and reserve the seats within a single critical section so they are never visible as held
+        synchronized (venueLock) {
+            checkWritable();
 
-            // If there are no available options for any row, then return null to indicate that no seats could be with with the criteria
-            if (firstSeatOptions.isEmpty()) {
-                return null;
+            final long bestSeats = findBestSeats(numSeats);
+            if (bestSeats == NO_SEATS) {
+                throw TicketError.NO_CONSECUTIVE_SEATS.exception();
             }
-
-            // Get the seat selection that is most in the middle of the row
-            final int middle = venue[0].length / 2;
-            int distance = Math.abs(firstSeatOptions.get(0) - middle);
-            int idx = 0;
-            for(int c = 1; c < firstSeatOptions.size(); c++){
-                int cDistance = Math.abs(firstSeatOptions.get(c) - middle);
-                if(cDistance < distance){
-                    idx = c;
-                    distance = cDistance;
-                }
+            final Seats seats = toSeats(bestSeats, numSeats);
+            setSeatState(seats, SeatState.RESERVED);
+
+            // Generate and store the SeatReservation
+            seatReservation = new SeatReservation(customerEmail, seats, LocalDateTime.now(clock));
+            seatReservedMap.put(seatReservation.getConfirmationCode(), seatReservation);
+            if (isPublishing()) {
+                publish(VenueMutation.purchase(seatReservation));
             }
+        }
+        commit();
 
-            final int firstSeat = firstSeatOptions.get(idx);
-            final int lastSeat = firstSeat + numSeats - 1;
+        return seatReservation;
+    }
 
-            // Update the seats within the venue array to be HELD
-            final Seats seats = new Seats(rowNum, firstSeat, lastSeat);
-            for (int i = seats.getFirstSeat(); i <= seats.getLastSeat(); i++) {
-                venue[seats.getRow()][i] = SeatState.HELD;
-            }
+    /**
+     * Finds the best available seats based on the number of seats requested, the availability within the
+     * {@link #venue}, and the {@link #allocationStrategy}. Must be called while synchronized on the {@link #venueLock}.
+     * The search allocates nothing; the result is packed into a long so that {@link Seats} are only created once the
+     * seats are taken.
+     *
+     * @param numSeats The number of seats the user has requested
+     * @return The row and first seat packed by {@link #toSeats(long, int)}, or {@link #NO_SEATS} if no matching seats
+     * were found
+     */
+    private long findBestSeats(final int numSeats) {
+        return allocationStrategy.find(venue, numSeats);
+    }
+
+    private static Seats toSeats(final long bestSeats, final int numSeats) {
+        final int firstSeat = (int) bestSeats;
+        return new Seats((int) (bestSeats >>> 32), firstSeat, firstSeat + numSeats - 1);
+    }
+
+    /**
+     * Generates a random seat hold Id which is not already in use. Must be called while synchronized on the
+     * {@link #seatHoldMapLock}.
+     */
+    private int nextHoldId() {
+        int id;
+        do {
+            id = random.nextInt(MAX_HOLD_ID) + 1;
+        } while (seatHoldMap.containsKey(id));
+        return id;
+    }
+
+    /**
+     * Updates each of the seats within the {@link #venue} to the provided state. Must be called while synchronized on
+     * the {@link #venueLock}.
+     */
+    private void setSeatState(final Seats seats, final SeatState seatState) {
+        venue.set(seats.getRow(), seats.getFirstSeat(), seats.getLastSeat(), seatState);
+    }
 
-            return seats;
+    private void setSeatState(final List<Seats> seats, final SeatState seatState) {
+        for (Seats group : seats) {
+            setSeatState(group, seatState);
         }
     }
 
@@ -287,18 +533,20 @@ final class TicketServiceImpl implements TicketService {
         SeatHold canceledSeatHold = null;
         synchronized (seatHoldMapLock) {
             synchronized (venueLock) {
+                checkWritable();
+
                 SeatHold seatHold = seatHoldMap.get(seatHoldId);
                 if (seatHold != null && seatHold.getEmail().equalsIgnoreCase(customerEmail)) {
                     canceledSeatHold = seatHoldMap.remove(seatHoldId);
-                    final Seats canceledSeats = canceledSeatHold.getSeats();
-                    final int canceledFirstSeat = canceledSeats.getFirstSeat();
-                    final int canceledLastSeat = canceledSeats.getLastSeat();
-                    for (int seatIndex = canceledFirstSeat; seatIndex <= canceledLastSeat; seatIndex++) {
-                        venue[canceledSeats.getRow()][seatIndex] = SeatState.OPEN;
+                    setSeatState(canceledSeatHold.getSeats(), SeatState.OPEN);
+                    if (isPublishing()) {
+                        publish(VenueMutation.release(canceledSeatHold));
                     }
+                    matchWaitlist();
                 }
             }
         }
+        commit();
         return canceledSeatHold != null;
     }
 
@@ -306,22 +554,26 @@ final class TicketServiceImpl implements TicketService {
      * To only be used by the {@link com.scott.robinson.ticketsystem.admin.AdminController} for insight into the state
      * of the holds.
      *
-     * @return The internal {@link #seatHoldMap} representing the current seat holds.
+     * @return A copy of the {@link #seatHoldMap} representing the current seat holds.
      */
     @Override
     public Map<Integer, SeatHold> getHolds() {
-        return seatHoldMap;
+        synchronized (seatHoldMapLock) {
+            return new HashMap<>(seatHoldMap);
+        }
     }
 
     /**
      * To only be used by the {@link com.scott.robinson.ticketsystem.admin.AdminController} for insight into the state
      * of the reservations.
      *
-     * @return The internal {@link #seatReservedMap} representing the current seat reservations.
+     * @return A copy of the {@link #seatReservedMap} representing the current seat reservations.
      */
     @Override
     public Map<String, SeatReservation> getReservations() {
-        return seatReservedMap;
+        synchronized (venueLock) {
+            return new HashMap<>(seatReservedMap);
+        }
     }
 
     /**
@@ -334,54 +586,357 @@ final class TicketServiceImpl implements TicketService {
      */
     @Override
     public SeatHold getHold(final int seatHoldId, final String customerEmail) {
-        final SeatHold seatHold = seatHoldMap.get(seatHoldId);
+        final SeatHold seatHold;
+        synchronized (seatHoldMapLock) {
+            seatHold = seatHoldMap.get(seatHoldId);
+        }
         if (seatHold != null && seatHold.getEmail().equalsIgnoreCase(customerEmail)) {
             return seatHold;
         }
-        throw new RuntimeException("No seat hold was found for that combination of Id and email address.");
+        throw TicketError.HOLD_NOT_FOUND.exception();
     }
 
     /**
-     * Internal class used to expire seat holds which have existed beyond the configured expiration threshold
-     * {@link ConfigurationProvider#holdTimeoutSeconds}.
+     * Adds the request to the {@link #waitlist} and then matches any seats already available, in case they were
+     * released between the customer being refused and joining.
+     *
+     * @param numSeats The number of seats to hold once available
+     * @param customerEmail The customer's email address
+     * @return {@link WaitlistStatus} of the request, matched if seats were available
      */
-    final class ExpireHoldsTask extends TimerTask {
-        @Override
-        public void run() {
-            // Calculate the cutoff time for which all seat hold created before should be removed
-            final LocalDateTime cutoff = LocalDateTime.now().minusSeconds(holdExpirationSec);
-
-            // Create a Set to hold the ids of the seat holds which need to be removed
-            final Set<Integer> expired = new LinkedHashSet<>();
-
-            // Synchronize on  the map of seat holds since we are potentially be deleting entries
-            synchronized (seatHoldMapLock) {
-                // Synchronize on the venue since we are potentially updating the array values
-                synchronized (venueLock) {
-                    // Iterate through each seat hold and check if it was created before the cutoff time
-                    seatHoldMap.values().stream().forEach(seatHold -> {
-                        if (seatHold.getCreationTime().isBefore(cutoff)) {
-                            // Add to the Set of seat hold ids which need to be removed
-                            expired.add(seatHold.getId());
-
-                            // Update the seats within the venue to be OPEN
-                            final Seats seats = seatHold.getSeats();
-                            final int canceledFirstSeat = seats.getFirstSeat();
-                            final int canceledLastSeat = seats.getLastSeat();
-                            for (int seatIndex = canceledFirstSeat; seatIndex <= canceledLastSeat; seatIndex++) {
-                                venue[seats.getRow()][seatIndex] = SeatState.OPEN;
-                            }
-                        }
-                    });
+    @Override
+    public WaitlistStatus joinWaitlist(final int numSeats, final String customerEmail) {
+        checkWaitlistEnabled();
+        if (numSeats < 1) {
+            throw TicketError.INVALID_SEAT_COUNT.exception();
+        }
+        if (numSeats > waitlist.getMaxGroupSize()) {
+            throw TicketError.GROUP_TOO_LARGE.exception();
+        }
 
-                    // Remove any expired seat holds
-                    for (Integer key : expired) {
-                        seatHoldMap.remove(key);
-                    }
+        final WaitlistEntry entry;
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                checkWritable();
+                entry = waitlist.add(numSeats, customerEmail, clock.millis());
+                matchWaitlist();
+            }
+        }
+        commit();
+        return entry.status();
+    }
+
+    /**
+     * Reads the request without locking, so customers may poll as often as they like without slowing the sale.
+     *
+     * @param waitlistId The Id of the request
+     * @param customerEmail The customer's email address
+     * @return {@link WaitlistStatus} of the request
+     */
+    @Override
+    public WaitlistStatus getWaitlistStatus(final long waitlistId, final String customerEmail) {
+        checkWaitlistEnabled();
+        final WaitlistEntry entry = waitlist.get(waitlistId, customerEmail);
+        if (entry == null) {
+            throw TicketError.WAITLIST_NOT_FOUND.exception();
+        }
+        entry.poll(clock.millis());
+        return entry.status();
+    }
+
+    @Override
+    public boolean leaveWaitlist(final long waitlistId, final String customerEmail) {
+        checkWaitlistEnabled();
+        final WaitlistEntry entry = waitlist.get(waitlistId, customerEmail);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (venueLock) {
+            return waitlist.leave(entry);
+        }
+    }
+
+    private void checkWaitlistEnabled() {
+        if (!waitlistEnabled) {
+            throw TicketError.WAITLIST_DISABLED.exception();
+        }
+    }
+
+    /**
+     * Holds the best available seats for each waiting request, oldest first, until no waiting group fits within the
+     * open seats. Called in the same critical section which released the seats, so no other request can take them
+     * first. Must be called while synchronized on both the {@link #seatHoldMapLock} and the {@link #venueLock}.
+     */
+    private void matchWaitlist() {
+        if (waitlist.isEmpty()) {
+            return;
+        }
+        WaitlistEntry entry;
+        while ((entry = waitlist.next(venue.getLongestRun())) != null) {
+            final long bestSeats = findBestSeats(entry.getNumSeats());
+            if (bestSeats == NO_SEATS) {
+                return;
+            }
+            final SeatHold seatHold = holdSeats(toSeats(bestSeats, entry.getNumSeats()), entry.getEmail());
+            waitlist.match(entry, seatHold, clock.millis());
+        }
+    }
+
+    /**
+     * To only be used by the {@link com.scott.robinson.ticketsystem.admin.AdminController} for insight into the start
+     * up time and memory footprint of the venue.
+     *
+     * @return {@link VenueReport} describing the {@link #venue}
+     */
+    @Override
+    public VenueReport getVenueReport() {
+        synchronized (venueLock) {
+            return new VenueReport(venue.getRowCount(), venue.getSeatCount(), venue.getOpenSeats(),
+                    venue.getAllocatedRows(), venue.getAllocatedBytes(), venueInitializationMicros);
+        }
+    }
+
+    /**
+     * To only be used by the {@link com.scott.robinson.ticketsystem.admin.AdminController} for insight into how the
+     * open seats are broken up. Counts every free run of the {@link #venue}, so it costs time in proportion to the
+     * number of runs rather than seats.
+     *
+     * @return {@link FragmentationReport} describing the free runs of the {@link #venue}
+     */
+    @Override
+    public FragmentationReport getFragmentationReport() {
+        synchronized (venueLock) {
+            return FragmentationReport.of(venue, allocationStrategy);
+        }
+    }
+
+    @Override
+    public void addMutationListener(final VenueMutationListener listener) {
+        synchronized (venueLock) {
+            final VenueMutationListener[] listeners = Arrays.copyOf(mutationListeners, mutationListeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            mutationListeners = listeners;
+        }
+    }
+
+    /**
+     * Captures the current holds and reservations as the mutations which would recreate them. Reservations are always
+     * expressed as {@link VenueMutation.Type#PURCHASE} since the hold they were promoted from no longer exists.
+     */
+    @Override
+    public VenueSnapshot snapshot() {
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                final List<VenueMutation> mutations = new ArrayList<>(seatHoldMap.size() + seatReservedMap.size());
+                for (SeatReservation seatReservation : seatReservedMap.values()) {
+                    mutations.add(VenueMutation.purchase(seatReservation));
                 }
+                for (SeatHold seatHold : seatHoldMap.values()) {
+                    mutations.add(VenueMutation.hold(seatHold));
+                }
+                addBlockedSeats(mutations);
+                return new VenueSnapshot(mutationSequence, mutations);
             }
         }
     }
-}
 
+    /**
+     * Adds a {@link VenueMutation.Type#BLOCK} mutation for each group of consecutive blocked seats, which are not
+     * otherwise recorded outside of the {@link #venue}.
+     */
+    private void addBlockedSeats(final List<VenueMutation> mutations) {
+        final LocalDateTime creationTime = LocalDateTime.now(clock);
+        for (int rowNum = 0; rowNum < venue.getRowCount(); rowNum++) {
+            if (venue.isRowOpen(rowNum)) {
+                continue;
+            }
+            int firstBlocked = -1;
+            for (int seat = 0; seat <= venue.getRowExtent(rowNum); seat++) {
+                final boolean blocked = seat < venue.getRowExtent(rowNum) && venue.exists(rowNum, seat)
+                        && venue.get(rowNum, seat) == SeatState.BLOCKED;
+                if (blocked && firstBlocked < 0) {
+                    firstBlocked = seat;
+                } else if (!blocked && firstBlocked >= 0) {
+                    mutations.add(VenueMutation.block(new SeatRange(rowNum, rowNum, firstBlocked, seat - 1),
+                            creationTime));
+                    firstBlocked = -1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void restore(final VenueSnapshot snapshot) {
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                seatHoldMap.clear();
+                seatReservedMap.clear();
+                venue.clear();
+                for (VenueMutation mutation : snapshot.getMutations()) {
+                    applyMutation(mutation);
+                }
+                mutationSequence = snapshot.getSequence();
+                for (VenueMutationListener listener : mutationListeners) {
+                    listener.onRestore(snapshot);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void apply(final long sequence, final VenueMutation mutation) {
+        synchronized (seatHoldMapLock) {
+            synchronized (venueLock) {
+                applyMutation(mutation);
+                mutationSequence = sequence;
+                for (VenueMutationListener listener : mutationListeners) {
+                    listener.onMutation(sequence, mutation);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setReadOnly(final boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Applies a mutation produced by another instance to the {@link #venue} and the maps of holds and reservations.
+     * Must be called while synchronized on both the {@link #seatHoldMapLock} and the {@link #venueLock}.
+     */
+    private void applyMutation(final VenueMutation mutation) {
+        final Seats seats = mutation.seats();
+        switch (mutation.getType()) {
+            case HOLD:
+                setSeatState(seats, SeatState.HELD);
+                seatHoldMap.put(mutation.getHoldId(), new SeatHold(mutation.getHoldId(), mutation.getEmail(), seats,
+                        mutation.getCreationTime()));
+                break;
+            case RESERVE:
+                seatHoldMap.remove(mutation.getHoldId());
+                // Fall through to record the reservation
+            case PURCHASE:
+                setSeatState(seats, SeatState.RESERVED);
+                seatReservedMap.put(mutation.getConfirmationCode(), new SeatReservation(mutation.getConfirmationCode(),
+                        mutation.getEmail(), seats, mutation.getCreationTime()));
+                break;
+            case RELEASE:
+                seatHoldMap.remove(mutation.getHoldId());
+                setSeatState(seats, SeatState.OPEN);
+                break;
+            case BLOCK:
+                setSeatState(rangeSegments(mutation.range()), SeatState.BLOCKED);
+                break;
+            case UNBLOCK:
+                setSeatState(rangeSegments(mutation.range()), SeatState.OPEN);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mutation type [" + mutation.getType() + "]");
+        }
+    }
+
+    /**
+     * Rejects changes from customers while this instance is replicating another. Must be called before any changes
+     * are made.
+     */
+    private void checkWritable() {
+        if (readOnly) {
+            throw TicketError.READ_ONLY.exception();
+        }
+    }
 
+    /**
+     * Notifies the listeners of a mutation. Must be called while synchronized on the {@link #venueLock}.
+     */
+    private void publish(final VenueMutation mutation) {
+        final long sequence = ++mutationSequence;
+        for (VenueMutationListener listener : mutationListeners) {
+            listener.onMutation(sequence, mutation);
+        }
+    }
+
+    /**
+     * @return Whether any listener is registered, so that hot paths only build a {@link VenueMutation} when it will be
+     * observed
+     */
+    private boolean isPublishing() {
+        return mutationListeners.length > 0;
+    }
+
+    /**
+     * Notifies the listeners that the current operation is about to return. Must be called after releasing the locks.
+     */
+    private void commit() {
+        for (VenueMutationListener listener : mutationListeners) {
+            listener.onCommit();
+        }
+    }
+
+    /**
+     * Releases the seat holds which have existed beyond the configured expiration threshold
+     * {@link ConfigurationProvider#holdTimeoutSeconds}, as measured by the {@link #clock}.
+     *
+     * @return The number of seat holds released
+     */
+    int expireHolds() {
+        // Holds are expired by the instance being replicated
+        if (readOnly) {
+            return 0;
+        }
+
+        // Calculate the cutoff time for which all seat hold created before should be removed
+        final LocalDateTime cutoff = LocalDateTime.now(clock).minusSeconds(holdExpirationSec);
+
+        // Create a Set to hold the ids of the seat holds which need to be removed
+        final Set<Integer> expired = new LinkedHashSet<>();
+
+        // Synchronize on  the map of seat holds since we are potentially be deleting entries
+        synchronized (seatHoldMapLock) {
+            // Synchronize on the venue since we are potentially updating the array values
+            synchronized (venueLock) {
+                // Iterate through each seat hold and check if it was created before the cutoff time
+                seatHoldMap.values().stream().forEach(seatHold -> {
+                    if (seatHold.getCreationTime().isBefore(cutoff)) {
+                        // Add to the Set of seat hold ids which need to be removed
+                        expired.add(seatHold.getId());
+
+                        // Update the seats within the venue to be OPEN
+                        setSeatState(seatHold.getSeats(), SeatState.OPEN);
+                        if (isPublishing()) {
+                            publish(VenueMutation.release(seatHold));
+                        }
+                    }
+                });
+
+                // Remove any expired seat holds
+                for (Integer key : expired) {
+                    seatHoldMap.remove(key);
+                }
+
+                // Offer the released seats to the waitlist, after dropping customers who stopped polling
+                waitlist.expire(clock.millis());
+                if (!expired.isEmpty()) {
+                    matchWaitlist();
+                }
+            }
+        }
+        commit();
+        return expired.size();
+    }
+
+    /**
+     * Internal class used to expire seat holds on a timer.
+     */
+    final class ExpireHoldsTask extends TimerTask {
+        @Override
+        public void run() {
+            expireHolds();
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.util.Arrays;
+
+/**
+ * The seating of the venue, storing the {@link SeatState} of every seat within its {@link VenueLayout}.
+ *
+ * <p>Storage for a row is only allocated once one of its seats leaves the {@link SeatState#OPEN} state, and is
+ * released again once every seat in the row is open. An untouched row therefore costs a single null reference, which
+ * keeps both start up time and idle memory flat regardless of the size of the venue. Seat states are stored as the
+ * {@link SeatState#ordinal()} in a byte per seat.
+ *
+ * <p>The open seats of each allocated row are also kept as a sorted list of free runs, the maximal groups of
+ * consecutive open seats within a segment, which is updated as seats change state. The longest free run of every row
+ * is indexed by a max segment tree over the rows, so the first row able to seat a group is found in logarithmic time
+ * rather than by scanning seats.
+ *
+ * <p>This class is not thread safe; callers must synchronize access.
+ */
+final class Venue {
+
+    private static final SeatState[] STATES = SeatState.values();
+
+    private static final byte OPEN = (byte) SeatState.OPEN.ordinal();
+
+    /**
+     * Approximate size in bytes of an object or array header, used when reporting the memory footprint.
+     */
+    private static final int HEADER_BYTES = 16;
+
+    private final VenueLayout layout;
+
+    /**
+     * Allocated rows, indexed by row number. A null entry is a row in which every seat is open.
+     */
+    private final Row[] rows;
+
+    /**
+     * The total number of open seats within the venue.
+     */
+    private long openSeats;
+
+    /**
+     * The number of rows which currently have storage allocated.
+     */
+    private int allocatedRows;
+
+    /**
+     * The number of bytes of seat state held by the allocated rows.
+     */
+    private long allocatedStateBytes;
+
+    /**
+     * The most recently released row, kept for reuse so that a row which repeatedly fills and empties, such as when
+     * holds are placed and cancelled, does not allocate new storage each time.
+     */
+    private Row spareRow;
+
+    /**
+     * Max segment tree of the longest free run in each row. Leaves start at {@link #treeLeaves}.
+     */
+    private final int[] longestRunTree;
+
+    private final int treeLeaves;
+
+    Venue(final int rowCount, final int seatsPerRow) {
+        this(VenueLayout.rectangle(rowCount, seatsPerRow));
+    }
+
+    Venue(final VenueLayout layout) {
+        this.layout = layout;
+        this.rows = new Row[layout.getRowCount()];
+        this.openSeats = layout.getSeatCount();
+
+        int leaves = 1;
+        while (leaves < rows.length) {
+            leaves <<= 1;
+        }
+        this.treeLeaves = leaves;
+        this.longestRunTree = new int[2 * leaves];
+        resetLongestRuns();
+    }
+
+    VenueLayout getLayout() {
+        return layout;
+    }
+
+    int getRowCount() {
+        return rows.length;
+    }
+
+    /**
+     * @return One past the position of the last seat in the row
+     */
+    int getRowExtent(final int row) {
+        return layout.getRowExtent(row);
+    }
+
+    long getSeatCount() {
+        return layout.getSeatCount();
+    }
+
+    long getOpenSeats() {
+        return openSeats;
+    }
+
+    /**
+     * @return Whether every seat in the row is open
+     */
+    boolean isRowOpen(final int row) {
+        return rows[row] == null;
+    }
+
+    /**
+     * @return Whether a sellable seat exists at the position within the row
+     */
+    boolean exists(final int row, final int seat) {
+        return layout.exists(row, seat);
+    }
+
+    /**
+     * @return The state of the seat, which must exist
+     */
+    SeatState get(final int row, final int seat) {
+        final Row allocated = rows[row];
+        return allocated == null ? SeatState.OPEN : STATES[allocated.states[seat]];
+    }
+
+    /**
+     * Updates each seat from the first to the last seat, inclusive, to the provided state. Positions within the range
+     * which do not exist, such as an aisle, are left alone, so that the free runs never span the gap between segments.
+     */
+    void set(final int row, final int firstSeat, final int lastSeat, final SeatState seatState) {
+        final int segments = layout.getSegmentCount(row);
+        for (int segment = 0; segment < segments; segment++) {
+            final int start = Math.max(firstSeat, layout.getSegmentStart(row, segment));
+            final int end = Math.min(lastSeat, layout.getSegmentEnd(row, segment));
+            if (start <= end) {
+                setWithinSegment(row, start, end, (byte) seatState.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Updates each seat from the first to the last seat, inclusive, which must all lie within one segment of the row.
+     */
+    private void setWithinSegment(final int row, final int firstSeat, final int lastSeat, final byte state) {
+        Row allocated = rows[row];
+        if (allocated == null) {
+            if (state == OPEN) {
+                return;
+            }
+            allocated = spareRow != null && spareRow.states.length == layout.getRowExtent(row) ?
+                    spareRow.reset(layout, row) : new Row(layout, row);
+            spareRow = null;
+            rows[row] = allocated;
+            allocatedRows++;
+            allocatedStateBytes += allocated.states.length;
+        }
+
+        // Track how many open seats are gained or lost by the update
+        final int wasOpen = allocated.openSeatsWithin(firstSeat, lastSeat);
+        final int isOpen = state == OPEN ? lastSeat - firstSeat + 1 : 0;
+        Arrays.fill(allocated.states, firstSeat, lastSeat + 1, state);
+        allocated.openSeats += isOpen - wasOpen;
+        openSeats += isOpen - wasOpen;
+
+        // Update the free runs, re-opening the range once any open seats within it have been closed
+        allocated.closeRuns(firstSeat, lastSeat);
+        if (state == OPEN) {
+            allocated.openRun(firstSeat, lastSeat);
+        }
+
+        // Release the storage once the row is entirely open again
+        if (allocated.openSeats == allocated.seats) {
+            rows[row] = null;
+            allocatedRows--;
+            allocatedStateBytes -= allocated.states.length;
+            spareRow = allocated;
+            setLongestRun(row, longestSegment(row));
+        } else {
+            setLongestRun(row, allocated.longestRun());
+        }
+    }
+
+    /**
+     * @return The number of open seats from the first to the last seat, inclusive, counted from the free runs
+     */
+    int countOpen(final int row, final int firstSeat, final int lastSeat) {
+        final Row allocated = rows[row];
+        if (allocated == null) {
+            int open = 0;
+            final int segments = layout.getSegmentCount(row);
+            for (int segment = 0; segment < segments; segment++) {
+                final int start = Math.max(firstSeat, layout.getSegmentStart(row, segment));
+                final int end = Math.min(lastSeat, layout.getSegmentEnd(row, segment));
+                open += Math.max(0, end - start + 1);
+            }
+            return open;
+        }
+        return allocated.openSeatsWithin(firstSeat, lastSeat);
+    }
+
+    /**
+     * @return Whether any seat from the first to the last seat, inclusive, is in the provided state
+     */
+    boolean contains(final int row, final int firstSeat, final int lastSeat, final SeatState seatState) {
+        final Row allocated = rows[row];
+        if (allocated == null) {
+            return seatState == SeatState.OPEN;
+        }
+        final byte state = (byte) seatState.ordinal();
+        for (int seat = firstSeat; seat <= lastSeat; seat++) {
+            if (allocated.states[seat] == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of free runs in the row
+     */
+    int getRunCount(final int row) {
+        final Row allocated = rows[row];
+        return allocated == null ? layout.getSegmentCount(row) : allocated.runCount;
+    }
+
+    /**
+     * @return The position of the first seat in the free run
+     */
+    int getRunStart(final int row, final int run) {
+        final Row allocated = rows[row];
+        return allocated == null ? layout.getSegmentStart(row, run) : allocated.runStarts[run];
+    }
+
+    /**
+     * @return The position of the last seat in the free run
+     */
+    int getRunEnd(final int row, final int run) {
+        final Row allocated = rows[row];
+        return allocated == null ? layout.getSegmentEnd(row, run) : allocated.runEnds[run];
+    }
+
+    /**
+     * @return The length of the longest free run in the row
+     */
+    int getLongestRun(final int row) {
+        return longestRunTree[treeLeaves + row];
+    }
+
+    /**
+     * @return The length of the longest free run in the venue
+     */
+    int getLongestRun() {
+        return longestRunTree[1];
+    }
+
+    /**
+     * Finds the first row, starting from the provided row, with a free run of at least the provided number of seats.
+     *
+     * @return The row number, or -1 if no such row exists
+     */
+    int findRow(final int fromRow, final int numSeats) {
+        if (fromRow >= rows.length) {
+            return -1;
+        }
+        return findRow(1, 0, treeLeaves - 1, fromRow, numSeats);
+    }
+
+    private int findRow(final int node, final int low, final int high, final int fromRow, final int numSeats) {
+        if (high < fromRow || longestRunTree[node] < numSeats) {
+            return -1;
+        }
+        if (low == high) {
+            return low;
+        }
+        final int middle = (low + high) >>> 1;
+        final int found = findRow(2 * node, low, middle, fromRow, numSeats);
+        return found >= 0 ? found : findRow(2 * node + 1, middle + 1, high, fromRow, numSeats);
+    }
+
+    private void setLongestRun(final int row, final int length) {
+        int node = treeLeaves + row;
+        longestRunTree[node] = length;
+        for (node >>= 1; node > 0; node >>= 1) {
+            longestRunTree[node] = Math.max(longestRunTree[2 * node], longestRunTree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Rebuilds the {@link #longestRunTree} from the layout, as if every seat were open.
+     */
+    private void resetLongestRuns() {
+        Arrays.fill(longestRunTree, 0);
+        for (int row = 0; row < rows.length; row++) {
+            longestRunTree[treeLeaves + row] = longestSegment(row);
+        }
+        for (int node = treeLeaves - 1; node > 0; node--) {
+            longestRunTree[node] = Math.max(longestRunTree[2 * node], longestRunTree[2 * node + 1]);
+        }
+    }
+
+    private int longestSegment(final int row) {
+        int longest = 0;
+        final int segments = layout.getSegmentCount(row);
+        for (int segment = 0; segment < segments; segment++) {
+            longest = Math.max(longest, layout.getSegmentEnd(row, segment) - layout.getSegmentStart(row, segment) + 1);
+        }
+        return longest;
+    }
+
+    /**
+     * Re-opens every seat in the venue.
+     */
+    void clear() {
+        Arrays.fill(rows, null);
+        spareRow = null;
+        allocatedRows = 0;
+        allocatedStateBytes = 0;
+        openSeats = getSeatCount();
+        resetLongestRuns();
+    }
+
+    int getAllocatedRows() {
+        return allocatedRows;
+    }
+
+    /**
+     * Builds a text map of the venue showing each seat by its {@link SeatState#getAbbreviation()}. Positions without a
+     * seat, such as aisles, are left blank and each section is labelled when there is more than one.
+     */
+    String seatMap() {
+        final StringBuilder sb = new StringBuilder();
+
+        // Header
+        sb.append("row\t");
+        for (int i = 0; i < layout.getMaxRowExtent(); i++) {
+            sb.append(i).append('\t');
+        }
+        sb.append("\n");
+
+        // Rows
+        int section = 0;
+        for (int rowNum = 0; rowNum < rows.length; rowNum++) {
+            while (section < layout.getSectionCount() && layout.getSectionFirstRow(section) <= rowNum) {
+                if (layout.getSectionCount() > 1) {
+                    sb.append('[').append(layout.getSectionName(section)).append("]\n");
+                }
+                section++;
+            }
+
+            sb.append(rowNum);
+            sb.append(":\t");
+            for (int seat = 0; seat < getRowExtent(rowNum); seat++) {
+                final char abbreviation = exists(rowNum, seat) ? get(rowNum, seat).getAbbreviation() : ' ';
+                sb.append(abbreviation).append('\t');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The approximate number of bytes of heap used to store the seat states
+     */
+    long getAllocatedBytes() {
+        final long rowIndexBytes = HEADER_BYTES + 8L * rows.length;
+        return rowIndexBytes + (long) allocatedRows * (2 * HEADER_BYTES + 8) + allocatedStateBytes;
+    }
+
+    private static final class Row {
+        private final byte[] states;
+        private int seats;
+        private int openSeats;
+
+        /**
+         * The first and last seat of each free run, sorted by position.
+         */
+        private int[] runStarts;
+        private int[] runEnds;
+        private int runCount;
+
+        private Row(final VenueLayout layout, final int row) {
+            this.states = new byte[layout.getRowExtent(row)];
+            if (OPEN != 0) {
+                Arrays.fill(states, OPEN);
+            }
+            runStarts = new int[Math.max(4, layout.getSegmentCount(row))];
+            runEnds = new int[runStarts.length];
+            reset(layout, row);
+        }
+
+        /**
+         * Prepares the row to store the provided row of the layout. Every seat must already be open.
+         */
+        private Row reset(final VenueLayout layout, final int row) {
+            seats = layout.getRowSeatCount(row);
+            openSeats = seats;
+
+            // Every seat starts open, so each segment is a single free run
+            runCount = 0;
+            final int segments = layout.getSegmentCount(row);
+            splice(0, 0, segments);
+            for (int segment = 0; segment < segments; segment++) {
+                runStarts[segment] = layout.getSegmentStart(row, segment);
+                runEnds[segment] = layout.getSegmentEnd(row, segment);
+            }
+            return this;
+        }
+
+        /**
+         * Removes the seats from the first to the last seat from the free runs, splitting any run they fall within.
+         */
+        private void closeRuns(final int firstSeat, final int lastSeat) {
+            final int first = firstRunEndingAtOrAfter(firstSeat);
+            if (first == runCount || runStarts[first] > lastSeat) {
+                return;
+            }
+            int last = first;
+            while (last + 1 < runCount && runStarts[last + 1] <= lastSeat) {
+                last++;
+            }
+
+            // Keep the parts of the outermost runs which lie outside the range
+            final int leftStart = runStarts[first];
+            final int rightEnd = runEnds[last];
+            final boolean keepLeft = leftStart < firstSeat;
+            final boolean keepRight = rightEnd > lastSeat;
+            splice(first, last - first + 1, (keepLeft ? 1 : 0) + (keepRight ? 1 : 0));
+            int run = first;
+            if (keepLeft) {
+                runStarts[run] = leftStart;
+                runEnds[run] = firstSeat - 1;
+                run++;
+            }
+            if (keepRight) {
+                runStarts[run] = lastSeat + 1;
+                runEnds[run] = rightEnd;
+            }
+        }
+
+        /**
+         * Adds the seats from the first to the last seat, none of which are in a free run, merging with adjacent runs.
+         * The seats must lie within a single segment, as a free run may never cross an aisle.
+         */
+        private void openRun(final int firstSeat, final int lastSeat) {
+            final int next = firstRunEndingAtOrAfter(firstSeat);
+            final boolean mergeLeft = next > 0 && runEnds[next - 1] == firstSeat - 1;
+            final boolean mergeRight = next < runCount && runStarts[next] == lastSeat + 1;
+            if (mergeLeft && mergeRight) {
+                runEnds[next - 1] = runEnds[next];
+                splice(next, 1, 0);
+            } else if (mergeLeft) {
+                runEnds[next - 1] = lastSeat;
+            } else if (mergeRight) {
+                runStarts[next] = firstSeat;
+            } else {
+                splice(next, 0, 1);
+                runStarts[next] = firstSeat;
+                runEnds[next] = lastSeat;
+            }
+        }
+
+        private int openSeatsWithin(final int firstSeat, final int lastSeat) {
+            int open = 0;
+            for (int run = firstRunEndingAtOrAfter(firstSeat); run < runCount && runStarts[run] <= lastSeat; run++) {
+                open += Math.min(runEnds[run], lastSeat) - Math.max(runStarts[run], firstSeat) + 1;
+            }
+            return open;
+        }
+
+        private int longestRun() {
+            int longest = 0;
+            for (int run = 0; run < runCount; run++) {
+                longest = Math.max(longest, runEnds[run] - runStarts[run] + 1);
+            }
+            return longest;
+        }
+
+        private int firstRunEndingAtOrAfter(final int seat) {
+            int low = 0;
+            int high = runCount;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (runEnds[middle] < seat) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Replaces the runs from the provided index with the provided number of uninitialized runs.
+         */
+        private void splice(final int index, final int removed, final int added) {
+            final int count = runCount - removed + added;
+            if (count > runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, Math.max(count, runStarts.length * 2));
+                runEnds = Arrays.copyOf(runEnds, runStarts.length);
+            }
+            final int tail = runCount - index - removed;
+            System.arraycopy(runStarts, index + removed, runStarts, index + added, tail);
+            System.arraycopy(runEnds, index + removed, runEnds, index + added, tail);
+            runCount = count;
+        }
+    }
+}
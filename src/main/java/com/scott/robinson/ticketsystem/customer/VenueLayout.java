@@ -0,0 +1,347 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The physical shape of a venue: its sections, the rows within each section, and the sellable seats within each row.
+ *
+ * <p>The seats of a row are described by segments, each a run of consecutive sellable seats. Aisles and unsellable
+ * seats are the gaps between segments, so a group of seats can never straddle them. Seats are numbered by their
+ * position within the row, which means the positions within a gap simply do not exist.
+ *
+ * <p>Layouts are stored in a binary file which is memory mapped rather than parsed. All values are big-endian:
+ * <pre>
+ * Header    int magic ({@link #MAGIC}), int version ({@link #VERSION}), int section count, int row count,
+ *           int row index offset, int segment offset
+ * Sections  per section: int first row, int row count, short name length, UTF-8 name bytes
+ * Row index per row: int first segment, int segment count
+ * Segments  per segment: int first seat, int seat count
+ * </pre>
+ * Rows are numbered across the whole venue and the segments of each row must be sorted and separated by at least one
+ * position. Because the row index and segments are fixed width, any row can be read directly from the mapping without
+ * touching the rest of the file.
+ *
+ * <p>A mapped file is validated once when it is loaded, in the same pass which counts its seats: every section, row
+ * index entry, and segment must lie within the file and its own region, and every row must be well formed. A file
+ * which fails is rejected rather than trusted, so a corrupt layout cannot later be read out of bounds. Layout files are
+ * written from a text description by {@link VenueLayoutConverter}.
+ */
+final class VenueLayout {
+
+    static final int MAGIC = 0x544B4C59;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 24;
+    private static final int ROW_INDEX_BYTES = 8;
+    private static final int SEGMENT_BYTES = 8;
+
+    private final ByteBuffer buffer;
+
+    private final int sectionCount;
+
+    private final int rowCount;
+
+    private final int rowIndexOffset;
+
+    private final int segmentOffset;
+
+    /**
+     * The number of sellable seats across every row.
+     */
+    private final long seatCount;
+
+    /**
+     * The widest row extent, used to size the header of the seat map.
+     */
+    private final int maxRowExtent;
+
+    private VenueLayout(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " venue layout.");
+        }
+        this.sectionCount = buffer.getInt(8);
+        this.rowCount = buffer.getInt(12);
+        this.rowIndexOffset = buffer.getInt(16);
+        this.segmentOffset = buffer.getInt(20);
+        if (sectionCount < 0 || rowCount < 0 || rowIndexOffset < HEADER_BYTES
+                || segmentOffset < rowIndexOffset + (long) rowCount * ROW_INDEX_BYTES
+                || segmentOffset > buffer.limit()) {
+            throw new IllegalArgumentException("Venue layout is truncated or its regions overlap.");
+        }
+        validateSections();
+
+        // Only the segments are visited, so the cost of loading is independent of the number of seats
+        final long segmentCapacity = (buffer.limit() - segmentOffset) / SEGMENT_BYTES;
+        long seats = 0;
+        int widest = 0;
+        for (int row = 0; row < rowCount; row++) {
+            final int firstSegment = buffer.getInt(rowIndexOffset + row * ROW_INDEX_BYTES);
+            final int segments = getSegmentCount(row);
+            if (firstSegment < 0 || segments < 0 || (long) firstSegment + segments > segmentCapacity) {
+                throw new IllegalArgumentException("Row [" + row + "] of the venue layout lies outside the file.");
+            }
+            long nextStart = 0;
+            for (int segment = 0; segment < segments; segment++) {
+                final int start = segmentInt(row, segment, 0);
+                final int count = segmentInt(row, segment, 4);
+                if (start < nextStart || count < 1 || (long) start + count > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Segments of row [" + row + "] of the venue layout must be "
+                            + "sorted, separated by an aisle, and contain seats.");
+                }
+                nextStart = (long) start + count + 1;
+                seats += count;
+            }
+            widest = Math.max(widest, getRowExtent(row));
+        }
+        this.seatCount = seats;
+        this.maxRowExtent = widest;
+    }
+
+    /**
+     * Checks that each section's record lies before the row index and that the sections cover the rows in order.
+     */
+    private void validateSections() {
+        int offset = HEADER_BYTES;
+        long nextRow = 0;
+        for (int section = 0; section < sectionCount; section++) {
+            if (offset + 10 > rowIndexOffset || buffer.getShort(offset + 8) < 0
+                    || offset + 10 + buffer.getShort(offset + 8) > rowIndexOffset) {
+                throw new IllegalArgumentException("Section [" + section + "] of the venue layout overlaps its rows.");
+            }
+            if (buffer.getInt(offset) != nextRow || buffer.getInt(offset + 4) < 0) {
+                throw new IllegalArgumentException("Section [" + section + "] of the venue layout does not follow "
+                        + "the previous section.");
+            }
+            nextRow += buffer.getInt(offset + 4);
+            offset += 10 + buffer.getShort(offset + 8);
+        }
+        if (nextRow != rowCount) {
+            throw new IllegalArgumentException("The sections of the venue layout do not cover its rows.");
+        }
+    }
+
+    /**
+     * Memory maps a venue layout file.
+     */
+    static VenueLayout map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new VenueLayout(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Builds the layout of a rectangular venue with a single section in which every row is one segment.
+     */
+    static VenueLayout rectangle(final int rows, final int seatsPerRow) {
+        final Builder builder = new Builder().section("Venue");
+        for (int row = 0; row < rows; row++) {
+            builder.row(0, seatsPerRow);
+        }
+        return builder.build();
+    }
+
+    int getSectionCount() {
+        return sectionCount;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    long getSeatCount() {
+        return seatCount;
+    }
+
+    int getMaxRowExtent() {
+        return maxRowExtent;
+    }
+
+    int getSegmentCount(final int row) {
+        return buffer.getInt(rowIndexOffset + row * ROW_INDEX_BYTES + 4);
+    }
+
+    /**
+     * @return The position of the first seat in the segment
+     */
+    int getSegmentStart(final int row, final int segment) {
+        return segmentInt(row, segment, 0);
+    }
+
+    /**
+     * @return The position of the last seat in the segment
+     */
+    int getSegmentEnd(final int row, final int segment) {
+        return segmentInt(row, segment, 0) + segmentInt(row, segment, 4) - 1;
+    }
+
+    /**
+     * @return One past the position of the last seat in the row
+     */
+    int getRowExtent(final int row) {
+        final int segments = getSegmentCount(row);
+        return segments == 0 ? 0 : getSegmentEnd(row, segments - 1) + 1;
+    }
+
+    /**
+     * @return The number of sellable seats in the row
+     */
+    int getRowSeatCount(final int row) {
+        int seats = 0;
+        final int segments = getSegmentCount(row);
+        for (int segment = 0; segment < segments; segment++) {
+            seats += segmentInt(row, segment, 4);
+        }
+        return seats;
+    }
+
+    /**
+     * @return Whether a sellable seat exists at the position within the row
+     */
+    boolean exists(final int row, final int seat) {
+        final int segments = getSegmentCount(row);
+        for (int segment = 0; segment < segments; segment++) {
+            if (seat < getSegmentStart(row, segment)) {
+                return false;
+            }
+            if (seat <= getSegmentEnd(row, segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String getSectionName(final int section) {
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < section; i++) {
+            offset += 10 + buffer.getShort(offset + 8);
+        }
+        final byte[] name = new byte[buffer.getShort(offset + 8)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(offset + 10 + i);
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    int getSectionFirstRow(final int section) {
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < section; i++) {
+            offset += 10 + buffer.getShort(offset + 8);
+        }
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * @return The size of the layout in bytes
+     */
+    int getByteSize() {
+        return buffer.limit();
+    }
+
+    private int segmentInt(final int row, final int segment, final int field) {
+        final int firstSegment = buffer.getInt(rowIndexOffset + row * ROW_INDEX_BYTES);
+        return buffer.getInt(segmentOffset + (firstSegment + segment) * SEGMENT_BYTES + field);
+    }
+
+    /**
+     * Assembles a layout section by section and row by row, producing the binary form which is either used directly or
+     * written to a file to be mapped later.
+     */
+    static final class Builder {
+
+        private final List<String> sectionNames = new ArrayList<>();
+        private final List<int[]> sectionRows = new ArrayList<>();
+        private final List<int[]> rows = new ArrayList<>();
+        private int segmentCount;
+
+        /**
+         * Starts a new section. Following rows belong to this section.
+         */
+        Builder section(final String name) {
+            sectionNames.add(name);
+            sectionRows.add(new int[]{rows.size(), 0});
+            return this;
+        }
+
+        /**
+         * Adds a row to the current section.
+         *
+         * @param segments Pairs of the first seat and seat count of each segment, in order
+         */
+        Builder row(final int... segments) {
+            if (sectionNames.isEmpty()) {
+                throw new IllegalStateException("A section must be started before adding rows.");
+            }
+            if (segments.length % 2 != 0) {
+                throw new IllegalArgumentException("Segments must be pairs of first seat and seat count.");
+            }
+            for (int i = 0; i < segments.length; i += 2) {
+                if (segments[i] < 0 || segments[i + 1] < 1) {
+                    throw new IllegalArgumentException("Segments must start at zero or later and contain seats.");
+                }
+                if (i > 0 && segments[i] <= segments[i - 2] + segments[i - 1]) {
+                    throw new IllegalArgumentException("Segments must be sorted and separated by an aisle.");
+                }
+            }
+            rows.add(segments);
+            segmentCount += segments.length / 2;
+            sectionRows.get(sectionRows.size() - 1)[1]++;
+            return this;
+        }
+
+        VenueLayout build() {
+            final List<byte[]> names = new ArrayList<>();
+            int sectionBytes = 0;
+            for (String name : sectionNames) {
+                final byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                names.add(encoded);
+                sectionBytes += 10 + encoded.length;
+            }
+            final int rowIndexOffset = HEADER_BYTES + sectionBytes;
+            final int segmentOffset = rowIndexOffset + rows.size() * ROW_INDEX_BYTES;
+            final ByteBuffer buffer = ByteBuffer.allocate(segmentOffset + segmentCount * SEGMENT_BYTES)
+                    .order(ByteOrder.BIG_ENDIAN);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(sectionNames.size()).putInt(rows.size())
+                    .putInt(rowIndexOffset).putInt(segmentOffset);
+            for (int section = 0; section < names.size(); section++) {
+                buffer.putInt(sectionRows.get(section)[0]).putInt(sectionRows.get(section)[1])
+                        .putShort((short) names.get(section).length).put(names.get(section));
+            }
+            int firstSegment = 0;
+            for (int[] row : rows) {
+                buffer.putInt(firstSegment).putInt(row.length / 2);
+                firstSegment += row.length / 2;
+            }
+            for (int[] row : rows) {
+                for (int value : row) {
+                    buffer.putInt(value);
+                }
+            }
+            buffer.flip();
+            return new VenueLayout(buffer);
+        }
+
+        /**
+         * Writes the layout to a file which can later be loaded with {@link VenueLayout#map(Path)}.
+         */
+        void write(final Path path) throws IOException {
+            final ByteBuffer buffer = build().buffer.duplicate();
+            buffer.rewind();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line tool which converts a text description of a venue into a {@link VenueLayout} file. Each line of the
+ * description is blank, a comment starting with {@code #}, or one of:
+ * <pre>
+ * section &lt;name&gt;
+ * row &lt;first&gt;-&lt;last&gt; [&lt;first&gt;-&lt;last&gt; ...]
+ * </pre>
+ * A section holds the rows which follow it, and each row lists the inclusive seat positions of its segments in order,
+ * so {@code row 0-4 7-11} is a row of ten seats with an aisle at positions 5 and 6. A single seat may be written as
+ * {@code 3} rather than {@code 3-3}.
+ */
+final class VenueLayoutConverter {
+
+    private VenueLayoutConverter() {
+    }
+
+    /**
+     * @param args The text description to read and the layout file to write
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: VenueLayoutConverter <description.txt> <venue.layout>");
+            System.exit(2);
+        }
+        final VenueLayout.Builder builder;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            builder = parse(reader);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(args[0] + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        final Path output = Paths.get(args[1]);
+        builder.write(output);
+        final VenueLayout layout = VenueLayout.map(output);
+        System.out.println("Wrote " + layout.getSectionCount() + " sections, " + layout.getRowCount() + " rows, and "
+                + layout.getSeatCount() + " seats to " + output);
+    }
+
+    /**
+     * Parses a text description into a layout builder.
+     *
+     * @throws IllegalArgumentException If a line cannot be parsed, with the line number in the message
+     */
+    static VenueLayout.Builder parse(final BufferedReader reader) throws IOException {
+        final VenueLayout.Builder builder = new VenueLayout.Builder();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (trimmed.startsWith("section ")) {
+                    builder.section(trimmed.substring("section ".length()).trim());
+                } else if (trimmed.equals("row") || trimmed.startsWith("row ")) {
+                    builder.row(parseSegments(trimmed.substring("row".length()).trim()));
+                } else {
+                    throw new IllegalArgumentException("Expected a section or row.");
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * @return Pairs of the first seat and seat count of each segment, as taken by {@link VenueLayout.Builder#row}
+     */
+    private static int[] parseSegments(final String segments) {
+        if (segments.isEmpty()) {
+            return new int[0];
+        }
+        final String[] ranges = segments.split("\\s+");
+        final int[] pairs = new int[ranges.length * 2];
+        for (int i = 0; i < ranges.length; i++) {
+            final int dash = ranges[i].indexOf('-');
+            try {
+                final int first = Integer.parseInt(dash < 0 ? ranges[i] : ranges[i].substring(0, dash));
+                final int last = dash < 0 ? first : Integer.parseInt(ranges[i].substring(dash + 1));
+                pairs[i * 2] = first;
+                pairs[i * 2 + 1] = last - first + 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Segment [" + ranges[i] + "] is not a seat or range of seats.");
+            }
+        }
+        return pairs;
+    }
+}
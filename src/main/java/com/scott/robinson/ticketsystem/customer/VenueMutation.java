@@ -0,0 +1,113 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable record of a single change to the venue and its holds or reservations. Applying the same sequence of
+ * mutations to an empty venue reproduces the state of the venue which produced them.
+ */
+@Value
+public final class VenueMutation {
+
+    public enum Type {
+        /**
+         * Seats were placed on hold. Carries the hold Id, email, seats, and creation time.
+         */
+        HOLD,
+        /**
+         * A hold was promoted to a reservation. Carries the hold Id and the reservation's confirmation code, email,
+         * seats, and creation time.
+         */
+        RESERVE,
+        /**
+         * Seats were reserved without a hold. Carries the reservation's confirmation code, email, seats, and creation
+         * time.
+         */
+        PURCHASE,
+        /**
+         * A hold was cancelled or expired and its seats re-opened. Carries the hold Id and seats.
+         */
+        RELEASE,
+        /**
+         * An administrator took a range of seats out of sale. Carries the range of rows and seats.
+         */
+        BLOCK,
+        /**
+         * An administrator returned a range of blocked seats to sale. Carries the range of rows and seats.
+         */
+        UNBLOCK
+    }
+
+    private final Type type;
+
+    /**
+     * The Id of the affected {@link SeatHold}, or zero if no hold was involved.
+     */
+    private final int holdId;
+
+    /**
+     * The confirmation code of the affected {@link SeatReservation}, or null if no reservation was involved.
+     */
+    private final String confirmationCode;
+
+    private final String email;
+
+    private final int row;
+
+    /**
+     * The last row of the range for {@link Type#BLOCK} and {@link Type#UNBLOCK}, otherwise the same as {@link #row}.
+     */
+    private final int lastRow;
+
+    private final int firstSeat;
+
+    private final int lastSeat;
+
+    private final LocalDateTime creationTime;
+
+    static VenueMutation hold(final SeatHold seatHold) {
+        final Seats seats = seatHold.getSeats();
+        return new VenueMutation(Type.HOLD, seatHold.getId(), null, seatHold.getEmail(), seats.getRow(),
+                seats.getRow(), seats.getFirstSeat(), seats.getLastSeat(), seatHold.getCreationTime());
+    }
+
+    static VenueMutation reserve(final SeatHold seatHold, final SeatReservation seatReservation) {
+        final Seats seats = seatReservation.getSeats();
+        return new VenueMutation(Type.RESERVE, seatHold.getId(), seatReservation.getConfirmationCode(),
+                seatReservation.getEmail(), seats.getRow(), seats.getRow(), seats.getFirstSeat(), seats.getLastSeat(),
+                seatReservation.getCreationTime());
+    }
+
+    static VenueMutation purchase(final SeatReservation seatReservation) {
+        final Seats seats = seatReservation.getSeats();
+        return new VenueMutation(Type.PURCHASE, 0, seatReservation.getConfirmationCode(), seatReservation.getEmail(),
+                seats.getRow(), seats.getRow(), seats.getFirstSeat(), seats.getLastSeat(),
+                seatReservation.getCreationTime());
+    }
+
+    static VenueMutation release(final SeatHold seatHold) {
+        final Seats seats = seatHold.getSeats();
+        return new VenueMutation(Type.RELEASE, seatHold.getId(), null, seatHold.getEmail(), seats.getRow(),
+                seats.getRow(), seats.getFirstSeat(), seats.getLastSeat(), seatHold.getCreationTime());
+    }
+
+    static VenueMutation block(final SeatRange range, final LocalDateTime creationTime) {
+        return new VenueMutation(Type.BLOCK, 0, null, null, range.getFirstRow(), range.getLastRow(),
+                range.getFirstSeat(), range.getLastSeat(), creationTime);
+    }
+
+    static VenueMutation unblock(final SeatRange range, final LocalDateTime creationTime) {
+        return new VenueMutation(Type.UNBLOCK, 0, null, null, range.getFirstRow(), range.getLastRow(),
+                range.getFirstSeat(), range.getLastSeat(), creationTime);
+    }
+
+    SeatRange range() {
+        return new SeatRange(row, lastRow, firstSeat, lastSeat);
+    }
+
+    Seats seats() {
+        return new Seats(row, firstSeat, lastSeat);
+    }
+}
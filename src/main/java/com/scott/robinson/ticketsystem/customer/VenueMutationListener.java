@@ -0,0 +1,31 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * Receives the stream of {@link VenueMutation} produced by, or replicated to, a {@link ReplicatedVenue}.
+ */
+public interface VenueMutationListener {
+
+    /**
+     * Invoked for each mutation, in order, while the venue is still locked. Implementations must not block.
+     *
+     * @param sequence The sequence number of the mutation, increasing by one for each mutation
+     * @param mutation The mutation which was applied to the venue
+     */
+    void onMutation(final long sequence, final VenueMutation mutation);
+
+    /**
+     * Invoked, while the venue is still locked, when the state of the venue has been replaced by a snapshot of another
+     * instance. Mutations applied from that instance follow through {@link #onMutation(long, VenueMutation)}.
+     *
+     * @param snapshot The snapshot the venue was restored from
+     */
+    default void onRestore(final VenueSnapshot snapshot) {
+    }
+
+    /**
+     * Invoked once the venue has been unlocked but before the result of the operation is returned to the customer.
+     * Implementations may block here to delay the confirmation until the mutations are safely stored elsewhere.
+     */
+    default void onCommit() {
+    }
+}
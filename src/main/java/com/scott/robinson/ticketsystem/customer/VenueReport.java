@@ -0,0 +1,31 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+/**
+ * Immutable report of the size, start up time, and memory footprint of the venue.
+ */
+@Value
+public final class VenueReport {
+
+    private final int rows;
+
+    private final long seats;
+
+    private final long openSeats;
+
+    /**
+     * The number of rows which have storage allocated because at least one of their seats is not open.
+     */
+    private final int allocatedRows;
+
+    /**
+     * The approximate number of bytes of heap used to store the seat states.
+     */
+    private final long allocatedBytes;
+
+    /**
+     * The number of microseconds taken to initialize the venue at start up.
+     */
+    private final long initializationMicros;
+}
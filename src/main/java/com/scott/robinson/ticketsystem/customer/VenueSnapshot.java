@@ -0,0 +1,22 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Immutable, consistent copy of a venue expressed as the {@link VenueMutation}s which rebuild it.
+ */
+@Value
+public final class VenueSnapshot {
+
+    /**
+     * The sequence number of the last mutation reflected in this snapshot.
+     */
+    private final long sequence;
+
+    /**
+     * The mutations which rebuild the venue when applied in order to an empty venue.
+     */
+    private final List<VenueMutation> mutations;
+}
@@ -0,0 +1,190 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Customers waiting for groups of consecutive seats to be released, kept in a first-in, first-out queue for each group
+ * size. Every method other than {@link #get(long, String)} must be called while synchronized on the venue lock of the
+ * {@link TicketServiceImpl}, which matches released seats against {@link #next(int)} in the same critical section that
+ * released them.
+ *
+ * <p>Entries which leave or expire are only marked as such, and are dropped from their queue when they reach its head
+ * or once they outnumber the entries still waiting.
+ */
+final class Waitlist {
+
+    /**
+     * Queue of entries for each group size, indexed by the number of seats.
+     */
+    private final List<ArrayDeque<WaitlistEntry>> queues;
+
+    /**
+     * Every waiting or matched entry by Id, so customers may poll without locking.
+     */
+    private final Map<Long, WaitlistEntry> entries = new ConcurrentHashMap<>();
+
+    private final int capacity;
+
+    /**
+     * Milliseconds a waiting customer may go without polling before their entry expires.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Milliseconds a matched entry is kept after matching, long enough for its hold to be reserved or to expire.
+     */
+    private final long retentionMillis;
+
+    private long lastId;
+
+    private int waiting;
+
+    /**
+     * The number of entries still in a queue which are no longer waiting.
+     */
+    private int stale;
+
+    Waitlist(final int maxGroupSize, final int capacity, final long timeoutMillis, final long retentionMillis) {
+        this.queues = new ArrayList<>(maxGroupSize + 1);
+        for (int size = 0; size <= maxGroupSize; size++) {
+            queues.add(new ArrayDeque<>());
+        }
+        this.capacity = capacity;
+        this.timeoutMillis = timeoutMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    int getMaxGroupSize() {
+        return queues.size() - 1;
+    }
+
+    int getWaiting() {
+        return waiting;
+    }
+
+    boolean isEmpty() {
+        return waiting == 0;
+    }
+
+    /**
+     * Places the customer at the back of the queue for their group size.
+     */
+    WaitlistEntry add(final int numSeats, final String customerEmail, final long nowMillis) {
+        if (waiting >= capacity) {
+            throw TicketError.WAITLIST_FULL.exception();
+        }
+        final WaitlistEntry entry = new WaitlistEntry(++lastId, customerEmail, numSeats, nowMillis);
+        queues.get(numSeats).addLast(entry);
+        entries.put(entry.getId(), entry);
+        waiting++;
+        return entry;
+    }
+
+    /**
+     * May be called without locking.
+     *
+     * @return The entry with the Id and email address, or null if there is none
+     */
+    WaitlistEntry get(final long id, final String customerEmail) {
+        final WaitlistEntry entry = entries.get(id);
+        return entry == null || !entry.getEmail().equalsIgnoreCase(customerEmail) ? null : entry;
+    }
+
+    /**
+     * Finds the oldest waiting entry among the groups which could fit within the longest free run. Any entry returned
+     * must be passed to {@link #match(WaitlistEntry, SeatHold, long)} before this is called again.
+     *
+     * @param longestRun The length of the longest run of open seats in the venue
+     * @return The entry to seat next, or null if no waiting group fits
+     */
+    WaitlistEntry next(final int longestRun) {
+        WaitlistEntry oldest = null;
+        final int largest = Math.min(longestRun, getMaxGroupSize());
+        for (int size = 1; size <= largest; size++) {
+            final WaitlistEntry head = head(queues.get(size));
+            if (head != null && (oldest == null || head.getId() < oldest.getId())) {
+                oldest = head;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Removes the entry returned by {@link #next(int)} from its queue, recording the hold made for it.
+     */
+    void match(final WaitlistEntry entry, final SeatHold seatHold, final long nowMillis) {
+        queues.get(entry.getNumSeats()).pollFirst();
+        waiting--;
+        entry.match(seatHold, nowMillis);
+    }
+
+    /**
+     * @return Whether the entry was still waiting, and so has now left the waitlist
+     */
+    boolean leave(final WaitlistEntry entry) {
+        if (entry.getState() != WaitlistState.WAITING) {
+            return false;
+        }
+        end(entry, WaitlistState.LEFT);
+        return true;
+    }
+
+    /**
+     * Expires the waiting entries which have not been polled within the timeout, and forgets matched entries once
+     * their hold has had time to be reserved or to expire.
+     *
+     * @return The number of waiting entries expired
+     */
+    int expire(final long nowMillis) {
+        int expired = 0;
+        for (WaitlistEntry entry : entries.values()) {
+            if (entry.getState() == WaitlistState.WAITING) {
+                if (entry.getLastSeenMillis() < nowMillis - timeoutMillis) {
+                    end(entry, WaitlistState.EXPIRED);
+                    expired++;
+                }
+            } else if (entry.getLastSeenMillis() < nowMillis - retentionMillis) {
+                entries.remove(entry.getId());
+            }
+        }
+
+        // Reclaim the queued entries which are no longer waiting once they are the majority
+        if (stale > waiting) {
+            for (ArrayDeque<WaitlistEntry> queue : queues) {
+                final Iterator<WaitlistEntry> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getState() != WaitlistState.WAITING) {
+                        iterator.remove();
+                    }
+                }
+            }
+            stale = 0;
+        }
+        return expired;
+    }
+
+    private void end(final WaitlistEntry entry, final WaitlistState state) {
+        entry.end(state);
+        entries.remove(entry.getId());
+        waiting--;
+        stale++;
+    }
+
+    /**
+     * @return The first waiting entry of the queue, dropping any entries ahead of it which are no longer waiting
+     */
+    private WaitlistEntry head(final ArrayDeque<WaitlistEntry> queue) {
+        WaitlistEntry head = queue.peekFirst();
+        while (head != null && head.getState() != WaitlistState.WAITING) {
+            queue.pollFirst();
+            stale--;
+            head = queue.peekFirst();
+        }
+        return head;
+    }
+}
@@ -0,0 +1,61 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Getter;
+
+/**
+ * A single request on the {@link Waitlist}. Its state is only changed while the venue is locked, but may be read, and
+ * its poll time updated, without locking.
+ */
+@Getter
+final class WaitlistEntry {
+
+    /**
+     * Increasing in the order the requests joined, so the lowest Id is the oldest request.
+     */
+    private final long id;
+
+    private final String email;
+
+    private final int numSeats;
+
+    private volatile WaitlistState state = WaitlistState.WAITING;
+
+    /**
+     * The hold made for the customer, set before the state becomes {@link WaitlistState#MATCHED}.
+     */
+    private volatile SeatHold seatHold;
+
+    /**
+     * When the customer last polled, or when the entry was matched, in epoch milliseconds.
+     */
+    private volatile long lastSeenMillis;
+
+    WaitlistEntry(final long id, final String email, final int numSeats, final long nowMillis) {
+        this.id = id;
+        this.email = email;
+        this.numSeats = numSeats;
+        this.lastSeenMillis = nowMillis;
+    }
+
+    /**
+     * Records that the customer is still waiting.
+     */
+    void poll(final long nowMillis) {
+        lastSeenMillis = nowMillis;
+    }
+
+    void match(final SeatHold seatHold, final long nowMillis) {
+        this.seatHold = seatHold;
+        this.lastSeenMillis = nowMillis;
+        this.state = WaitlistState.MATCHED;
+    }
+
+    void end(final WaitlistState state) {
+        this.state = state;
+    }
+
+    WaitlistStatus status() {
+        final WaitlistState state = this.state;
+        return new WaitlistStatus(id, numSeats, state, state == WaitlistState.MATCHED ? seatHold : null);
+    }
+}
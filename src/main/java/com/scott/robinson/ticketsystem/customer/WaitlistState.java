@@ -0,0 +1,23 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * {@link Enum} of the states of a request on the waitlist.
+ */
+public enum WaitlistState {
+    /**
+     * Waiting for enough consecutive seats to be released.
+     */
+    WAITING,
+    /**
+     * Seats were released and are now held for the customer, until the hold is reserved, canceled, or expires.
+     */
+    MATCHED,
+    /**
+     * The customer left the waitlist.
+     */
+    LEFT,
+    /**
+     * The customer stopped polling for longer than the waitlist timeout, so gave up their place.
+     */
+    EXPIRED
+}
@@ -0,0 +1,24 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of a customer's request on the waitlist.
+ */
+@Value
+public final class WaitlistStatus {
+
+    /**
+     * The Id used to poll for, or leave, the request.
+     */
+    private final long id;
+
+    private final int numSeats;
+
+    private final WaitlistState state;
+
+    /**
+     * The {@link SeatHold} made for the customer once {@link WaitlistState#MATCHED}, otherwise null.
+     */
+    private final SeatHold seatHold;
+}
@@ -0,0 +1,31 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+/**
+ * Immutable report of the warm-up of the ticket engine.
+ */
+@Value
+public final class WarmupReport {
+
+    /**
+     * Whether warm-up has finished, or was disabled, and the application is ready for customers.
+     */
+    private final boolean ready;
+
+    private final int rounds;
+
+    private final long operations;
+
+    private final long durationMillis;
+
+    /**
+     * The total time the JIT compiler spent compiling during warm-up, or -1 if the JVM does not report it.
+     */
+    private final long compilationMillis;
+
+    /**
+     * Whether warm-up finished because compilation settled rather than because it timed out.
+     */
+    private final boolean settled;
+}
@@ -0,0 +1,18 @@
+package com.scott.robinson.ticketsystem.customer;
+
+/**
+ * Warms up the ticket engine at start up so that the first customers are not served by interpreted or lightly
+ * compiled code.
+ */
+public interface WarmupService {
+
+    /**
+     * @return Whether warm-up has finished, or is disabled, and the application is ready for customers
+     */
+    boolean isReady();
+
+    /**
+     * @return {@link WarmupReport} of the progress of warm-up
+     */
+    WarmupReport getReport();
+}
@@ -0,0 +1,299 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Service} which warms up the ticket engine once the application has started.
+ *
+ * <p>Warm-up drives the hold, reserve, purchase, cancel, browse, and expiry paths of a scratch venue of the same kind
+ * and configuration as the real one: a {@link TicketServiceImpl}, or a {@link SharedVenueTicketServiceImpl} mapped from
+ * a temporary file when the venue is shared. The JIT compiles the same code the customers will use while the real venue
+ * is never touched. Rounds of traffic are run until the JIT's total compilation
+ * time stops growing for several consecutive rounds, or until the configured timeout. The application reports
+ * not-ready until then.
+ */
+@Service
+final class WarmupServiceImpl implements WarmupService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmupServiceImpl.class);
+
+    /**
+     * The number of operations of each kind within a round.
+     */
+    private static final int OPERATIONS_PER_ROUND = 2000;
+
+    /**
+     * Compilation is settled once this many consecutive rounds complete without any compilation.
+     */
+    private static final int SETTLED_ROUNDS = 3;
+
+    /**
+     * The number of rounds run when the JVM does not report compilation time.
+     */
+    private static final int UNMONITORED_ROUNDS = 50;
+
+    private static final String WARMUP_EMAIL = "warmup@ticketsystem.local";
+
+    private final ConfigurationProvider configurationProvider;
+
+    private final boolean enabled;
+
+    private final long timeoutNanos;
+
+    private volatile WarmupReport report;
+
+    @Autowired
+    WarmupServiceImpl(final ConfigurationProvider configurationProvider) {
+        this.configurationProvider = configurationProvider;
+        this.enabled = configurationProvider.isWarmupEnabled();
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(configurationProvider.getWarmupTimeoutSeconds());
+        this.report = new WarmupReport(!enabled, 0, 0, 0, -1, false);
+    }
+
+    @Override
+    public boolean isReady() {
+        return report.isReady();
+    }
+
+    @Override
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    /**
+     * Starts warm-up in the background once the application has started, so that the readiness endpoint is served
+     * while it runs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        final Thread thread = new Thread(this::warmup, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs warm-up to completion on the current thread.
+     */
+    void warmup() {
+        LOGGER.info("Warming up the ticket engine");
+        final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        final boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        final long startCompilationMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+        final long start = System.nanoTime();
+
+        final SimulatedClock clock = new SimulatedClock(Instant.EPOCH);
+        final ScratchVenue scratch;
+        try {
+            scratch = configurationProvider.isSharedVenue() ? new SharedScratchVenue(clock)
+                    : new HeapScratchVenue(clock);
+        } catch (IOException e) {
+            LOGGER.error("Unable to create a scratch venue, skipping warm-up", e);
+            report = new WarmupReport(true, 0, 0, elapsedMillis(start), -1, false);
+            return;
+        }
+
+        int rounds = 0;
+        int quietRounds = 0;
+        long operations = 0;
+        long lastCompilationMillis = startCompilationMillis;
+        boolean settled = false;
+        try {
+            while (System.nanoTime() - start < timeoutNanos) {
+                operations += round(scratch, clock, rounds);
+                rounds++;
+
+                if (monitored) {
+                    final long compilationMillis = compiler.getTotalCompilationTime();
+                    quietRounds = compilationMillis == lastCompilationMillis ? quietRounds + 1 : 0;
+                    lastCompilationMillis = compilationMillis;
+                    settled = quietRounds >= SETTLED_ROUNDS;
+                } else {
+                    settled = rounds >= UNMONITORED_ROUNDS;
+                }
+                if (settled) {
+                    break;
+                }
+                report = new WarmupReport(false, rounds, operations, elapsedMillis(start), monitored ?
+                        lastCompilationMillis - startCompilationMillis : -1, false);
+            }
+        } finally {
+            scratch.close();
+        }
+
+        report = new WarmupReport(true, rounds, operations, elapsedMillis(start), monitored ?
+                lastCompilationMillis - startCompilationMillis : -1, settled);
+        LOGGER.info("Warm-up {} after {} rounds in {} ms", settled ? "settled" : "timed out", rounds,
+                report.getDurationMillis());
+    }
+
+    /**
+     * Runs a round of traffic against the scratch venue, starting from an empty venue and filling it until holds fail.
+     *
+     * @return The number of operations run, counting each call made of the ticket service whether or not it succeeded
+     */
+    private long round(final ScratchVenue scratch, final SimulatedClock clock, final int round) {
+        final TicketService ticketService = scratch.empty();
+        long operations = 0;
+        for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+            final int numSeats = 1 + (i + round) % 8;
+            try {
+                operations++;
+                final SeatHold seatHold = ticketService.findAndHoldSeats(numSeats, WARMUP_EMAIL);
+                switch (i % 4) {
+                    case 0:
+                        operations++;
+                        ticketService.reserveSeats(seatHold.getId(), WARMUP_EMAIL);
+                        break;
+                    case 1:
+                        operations++;
+                        ticketService.cancelSeatHold(seatHold.getId(), WARMUP_EMAIL);
+                        break;
+                    case 2:
+                        operations++;
+                        ticketService.getHold(seatHold.getId(), WARMUP_EMAIL);
+                        break;
+                    default:
+                        // Left to expire
+                        break;
+                }
+                operations++;
+                ticketService.holdAndReserveSeats(numSeats, WARMUP_EMAIL);
+            } catch (TicketException e) {
+                // The scratch venue is full, which exercises the refusal path
+            }
+            if (i % 16 == 0) {
+                ticketService.findAvailableBlocks(numSeats, i % 64, 10);
+                ticketService.numSeatsAvailable();
+                operations += 2;
+            }
+            if (i % 256 == 0) {
+                clock.advance(Duration.ofSeconds(configurationProvider.getHoldTimeoutSeconds() + 1));
+                scratch.expireHolds();
+                operations++;
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * A scratch venue of the same kind as the real one.
+     */
+    private interface ScratchVenue {
+
+        /**
+         * @return The ticket service of the scratch venue, emptied of every hold and reservation
+         */
+        TicketService empty();
+
+        void expireHolds();
+
+        void close();
+    }
+
+    /**
+     * A scratch {@link TicketServiceImpl}, emptied by restoring an empty snapshot.
+     */
+    private final class HeapScratchVenue implements ScratchVenue {
+
+        private final TicketServiceImpl ticketService;
+
+        private HeapScratchVenue(final SimulatedClock clock) {
+            ticketService = new TicketServiceImpl(configurationProvider, clock, false);
+        }
+
+        @Override
+        public TicketService empty() {
+            ticketService.restore(new VenueSnapshot(0, Collections.emptyList()));
+            return ticketService;
+        }
+
+        @Override
+        public void expireHolds() {
+            ticketService.expireHolds();
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+
+    /**
+     * A scratch {@link SharedVenueTicketServiceImpl} mapped from a temporary file. Reservations cannot be removed from
+     * a shared venue, so it is emptied by mapping a new file.
+     */
+    private final class SharedScratchVenue implements ScratchVenue {
+
+        private final SimulatedClock clock;
+
+        private final Path directory;
+
+        private final Path file;
+
+        private SharedVenueTicketServiceImpl ticketService;
+
+        private SharedScratchVenue(final SimulatedClock clock) throws IOException {
+            this.clock = clock;
+            directory = Files.createTempDirectory("warmup");
+            file = directory.resolve("scratch.venue");
+        }
+
+        @Override
+        public TicketService empty() {
+            unmap();
+            ticketService = new SharedVenueTicketServiceImpl(configurationProvider, clock, file, false);
+            return ticketService;
+        }
+
+        @Override
+        public void expireHolds() {
+            ticketService.expireHolds();
+        }
+
+        @Override
+        public void close() {
+            unmap();
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void unmap() {
+            if (ticketService != null) {
+                ticketService.close();
+                ticketService = null;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,29 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import java.util.List;
+
+/**
+ * {@link org.springframework.stereotype.Controller} to provide a REST API to the gate scanners.
+ */
+interface GateController {
+
+    /**
+     * @return {@link GateScan} for the confirmation code, without checking it in
+     */
+    GateScan validate(final String confirmationCode);
+
+    /**
+     * @return {@link GateScan} for the confirmation code, checking it in
+     */
+    GateScan checkIn(final String confirmationCode);
+
+    /**
+     * @return {@link List} of {@link GateScan} for each of the confirmation codes
+     */
+    List<GateScan> scan(final List<String> confirmationCodes, final boolean checkIn);
+
+    /**
+     * @return {@link GateStatus} of the index and the scans made against it
+     */
+    GateStatus status();
+}
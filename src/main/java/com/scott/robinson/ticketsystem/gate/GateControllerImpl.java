@@ -0,0 +1,75 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * This {@link RestController} contains the endpoints the scanners at the venue's gates use to validate and check in
+ * confirmation codes.
+ */
+@RestController
+@RequestMapping("/gate")
+final class GateControllerImpl implements GateController {
+
+    private final GateService gateService;
+
+    @Autowired
+    GateControllerImpl(final GateService gateService) {
+        this.gateService = gateService;
+    }
+
+    /**
+     * Checks a confirmation code without checking it in, for example at a box office enquiry.
+     *
+     * @param confirmationCode The confirmation code to check
+     * @return {@link GateScan} with the seats of the reservation, if found
+     */
+    @RequestMapping(path = "/{confirmationCode}", method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public GateScan validate(@PathVariable final String confirmationCode) {
+        return gateService.validate(confirmationCode);
+    }
+
+    /**
+     * Checks in a confirmation code as the attendee passes through the gate.
+     *
+     * @param confirmationCode The confirmation code scanned
+     * @return {@link GateScan} which is {@link GateResult#ADMITTED} only for the first scan of a valid code
+     */
+    @RequestMapping(path = "/{confirmationCode}/checkin", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public GateScan checkIn(@PathVariable final String confirmationCode) {
+        return gateService.checkIn(confirmationCode);
+    }
+
+    /**
+     * Scans a batch of confirmation codes, such as those a scanner collected while offline.
+     *
+     * @param confirmationCodes JSON array of up to {@link GateService#MAX_BATCH_SIZE} confirmation codes
+     * @param checkIn Whether to check in the valid codes, defaulting to true
+     * @return {@link List} of {@link GateScan} in the same order as the codes
+     */
+    @RequestMapping(path = "/scan", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public List<GateScan> scan(@RequestBody final List<String> confirmationCodes,
+                               @RequestParam(defaultValue = "true") final boolean checkIn) {
+        return gateService.scan(confirmationCodes, checkIn);
+    }
+
+    /**
+     * @return {@link GateStatus} reporting the size of the index, check-ins, and how many unknown codes the Bloom
+     * filter turned away
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public GateStatus status() {
+        return gateService.status();
+    }
+}
@@ -0,0 +1,274 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read optimized index of confirmation codes, built for the burst of lookups when the doors open.
+ *
+ * <p>Each code is stored as the two longs of its UUID in an open addressing table rather than as a 36 character
+ * {@link String} keyed {@link java.util.HashMap} entry. Every seat can be in at most one reservation, so the table is
+ * sized once for the venue and never grows. A Bloom filter, a small fraction of the size of the table, sits in front of
+ * it so that forged or mistyped codes are almost always turned away without touching the table at all.
+ *
+ * <p>A single thread at a time may add codes. Any number of threads may look codes up and check them in without
+ * locking: a slot's state is written last, with release semantics, so a reader which sees a slot in use also sees its
+ * code and seats. Checking in is a compare-and-swap of the slot's state, so each code is admitted exactly once.
+ */
+final class GateIndex {
+
+    /**
+     * Length of a confirmation code, a UUID in its canonical form.
+     */
+    private static final int CODE_LENGTH = 36;
+
+    private static final int EMPTY = 0;
+    private static final int VALID = 1;
+    private static final int CHECKED_IN = 2;
+
+    /**
+     * Number of bits set in the Bloom filter for each code.
+     */
+    private static final int BLOOM_HASHES = 5;
+
+    /**
+     * Bits of Bloom filter for each code the index can hold, giving a false positive rate below 0.2% when full.
+     */
+    private static final int BLOOM_BITS_PER_CODE = 16;
+
+    /**
+     * Value of each hexadecimal digit by character, or -1 for characters which are not hexadecimal digits.
+     */
+    private static final byte[] HEX_VALUES = new byte['f' + 1];
+
+    static {
+        for (int c = 0; c < HEX_VALUES.length; c++) {
+            HEX_VALUES[c] = (byte) Character.digit(c, 16);
+        }
+    }
+
+    /**
+     * The most codes the index will accept.
+     */
+    private final int capacity;
+
+    private final int slotMask;
+
+    /**
+     * The most and least significant bits of the code in each slot, side by side so a comparison reads one cache line.
+     */
+    private final long[] codes;
+
+    /**
+     * The row, first seat, and last seat of each slot.
+     */
+    private final int[] seats;
+
+    /**
+     * Whether each slot is {@link #EMPTY}, {@link #VALID}, or {@link #CHECKED_IN}.
+     */
+    private final AtomicIntegerArray states;
+
+    private final AtomicLongArray bloom;
+
+    private final int bloomMask;
+
+    /**
+     * Random seed mixed into every hash, so that codes which collide cannot be worked out in advance.
+     */
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private volatile int size;
+
+    private final LongAdder checkedIn = new LongAdder();
+
+    GateIndex(final int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        final int slots = powerOfTwoAtLeast(this.capacity + this.capacity / 3 + 1);
+        this.slotMask = slots - 1;
+        this.codes = new long[slots * 2];
+        this.seats = new int[slots * 3];
+        this.states = new AtomicIntegerArray(slots);
+
+        final int bloomBits = powerOfTwoAtLeast((int) Math.min((long) this.capacity * BLOOM_BITS_PER_CODE, 1 << 30));
+        this.bloom = new AtomicLongArray(Math.max(bloomBits / Long.SIZE, 1));
+        this.bloomMask = bloom.length() * Long.SIZE - 1;
+    }
+
+    /**
+     * @return Whether the code is a UUID in its canonical form, in either case
+     */
+    static boolean isWellFormed(final String code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            final char c = code.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (c >= HEX_VALUES.length || HEX_VALUES[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The most significant bits of a code accepted by {@link #isWellFormed(String)}
+     */
+    static long mostSignificantBits(final String code) {
+        return parseHex(code, 0, 18);
+    }
+
+    /**
+     * @return The least significant bits of a code accepted by {@link #isWellFormed(String)}
+     */
+    static long leastSignificantBits(final String code) {
+        return parseHex(code, 19, CODE_LENGTH);
+    }
+
+    private static long parseHex(final String code, final int start, final int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = code.charAt(i);
+            if (c != '-') {
+                value = value << 4 | HEX_VALUES[c];
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return The hash of a code, passed to {@link #mightContain(long)} and {@link #find(long, long, long)}
+     */
+    long hash(final long mostSignificant, final long leastSignificant) {
+        long hash = mostSignificant ^ Long.rotateLeft(leastSignificant, 29) ^ seed;
+        hash = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ hash >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * @return False if the code has certainly not been added, true if it probably has
+     */
+    boolean mightContain(final long hash) {
+        final int first = (int) hash;
+        final int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            final int bit = first + i * step & bloomMask;
+            if ((bloom.get(bit >>> 6) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The slot holding the code, or -1 if it has not been added
+     */
+    int find(final long hash, final long mostSignificant, final long leastSignificant) {
+        for (int slot = slotOf(hash); ; slot = slot + 1 & slotMask) {
+            if (states.get(slot) == EMPTY) {
+                return -1;
+            }
+            if (codes[slot * 2] == mostSignificant && codes[slot * 2 + 1] == leastSignificant) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Adds a code with the seats it was issued for. Must only be called by one thread at a time.
+     *
+     * @return False if the code had already been added or the index is full
+     */
+    boolean add(final long mostSignificant, final long leastSignificant, final int row, final int firstSeat,
+                final int lastSeat) {
+        final long hash = hash(mostSignificant, leastSignificant);
+        if (find(hash, mostSignificant, leastSignificant) >= 0 || size >= capacity) {
+            return false;
+        }
+
+        // Set the Bloom filter bits before the slot is visible, so a reader finding the code also passes the filter
+        final int first = (int) hash;
+        final int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            final int bit = first + i * step & bloomMask;
+            bloom.lazySet(bit >>> 6, bloom.get(bit >>> 6) | 1L << bit);
+        }
+
+        int slot = slotOf(hash);
+        while (states.get(slot) != EMPTY) {
+            slot = slot + 1 & slotMask;
+        }
+        codes[slot * 2] = mostSignificant;
+        codes[slot * 2 + 1] = leastSignificant;
+        seats[slot * 3] = row;
+        seats[slot * 3 + 1] = firstSeat;
+        seats[slot * 3 + 2] = lastSeat;
+        states.lazySet(slot, VALID);
+        size++;
+        return true;
+    }
+
+    /**
+     * Marks the code in the slot as checked in.
+     *
+     * @return True if this call checked it in, false if it already had been
+     */
+    boolean checkIn(final int slot) {
+        if (states.compareAndSet(slot, VALID, CHECKED_IN)) {
+            checkedIn.increment();
+            return true;
+        }
+        return false;
+    }
+
+    boolean isCheckedIn(final int slot) {
+        return states.get(slot) == CHECKED_IN;
+    }
+
+    int row(final int slot) {
+        return seats[slot * 3];
+    }
+
+    int firstSeat(final int slot) {
+        return seats[slot * 3 + 1];
+    }
+
+    int lastSeat(final int slot) {
+        return seats[slot * 3 + 2];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long checkedIn() {
+        return checkedIn.sum();
+    }
+
+    /**
+     * @return The approximate number of bytes of heap used by the table and Bloom filter
+     */
+    long byteSize() {
+        final long slots = slotMask + 1L;
+        return slots * (Long.BYTES * 2 + Integer.BYTES * 4) + (long) bloom.length() * Long.BYTES;
+    }
+
+    private int slotOf(final long hash) {
+        return (int) (hash >>> 20) & slotMask;
+    }
+
+    private static int powerOfTwoAtLeast(final int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
@@ -0,0 +1,27 @@
+package com.scott.robinson.ticketsystem.gate;
+
+/**
+ * {@link Enum} of the outcomes of scanning a confirmation code at the gate.
+ */
+public enum GateResult {
+    /**
+     * The code was valid and has now been checked in.
+     */
+    ADMITTED,
+    /**
+     * The code is valid and has not been checked in. Only returned when validating without checking in.
+     */
+    VALID,
+    /**
+     * The code is valid but was checked in by an earlier scan.
+     */
+    ALREADY_CHECKED_IN,
+    /**
+     * No reservation has the code.
+     */
+    NOT_FOUND,
+    /**
+     * The code is not in the form of a confirmation code, so could not have been issued.
+     */
+    MALFORMED
+}
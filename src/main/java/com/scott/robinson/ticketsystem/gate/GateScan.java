@@ -0,0 +1,33 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import lombok.Value;
+
+/**
+ * Immutable result of scanning a single confirmation code at the gate.
+ */
+@Value
+public final class GateScan {
+
+    private final String confirmationCode;
+
+    private final GateResult result;
+
+    /**
+     * Index of the row the reservation is for, or -1 if the code was not found.
+     */
+    private final int row;
+
+    /**
+     * Index of the first seat of the reservation, or -1 if the code was not found.
+     */
+    private final int firstSeat;
+
+    /**
+     * Index of the last seat of the reservation, or -1 if the code was not found.
+     */
+    private final int lastSeat;
+
+    static GateScan notFound(final String confirmationCode, final GateResult result) {
+        return new GateScan(confirmationCode, result, -1, -1, -1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import java.util.List;
+
+/**
+ * Validates confirmation codes as attendees arrive at the venue and records which have been checked in. Lookups use an
+ * index of their own rather than the reservations of the
+ * {@link com.scott.robinson.ticketsystem.customer.TicketService}, so scanning never contends with ticket sales.
+ */
+public interface GateService {
+
+    /**
+     * The most codes which may be scanned in a single call to {@link #scan(List, boolean)}.
+     */
+    int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Checks the confirmation code without checking it in.
+     *
+     * @param confirmationCode The confirmation code presented at the gate
+     * @return {@link GateScan} with the seats of the reservation, if found
+     */
+    GateScan validate(final String confirmationCode);
+
+    /**
+     * Checks in the confirmation code. When the same code is scanned more than once, even at the same moment at
+     * different gates, exactly one scan is {@link GateResult#ADMITTED}.
+     *
+     * @param confirmationCode The confirmation code presented at the gate
+     * @return {@link GateScan} with the seats of the reservation, if found
+     */
+    GateScan checkIn(final String confirmationCode);
+
+    /**
+     * Validates, or checks in, each of the confirmation codes in turn.
+     *
+     * @param confirmationCodes Up to {@link #MAX_BATCH_SIZE} confirmation codes
+     * @param checkIn Whether to check in the valid codes
+     * @return {@link List} of {@link GateScan} in the same order as the codes
+     */
+    List<GateScan> scan(final List<String> confirmationCodes, final boolean checkIn);
+
+    /**
+     * @return {@link GateStatus} of the index and the scans made against it
+     */
+    GateStatus status();
+}
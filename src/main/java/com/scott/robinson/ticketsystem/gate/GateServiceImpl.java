@@ -0,0 +1,228 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.customer.ObservableVenue;
+import com.scott.robinson.ticketsystem.customer.TicketService;
+import com.scott.robinson.ticketsystem.customer.VenueMutation;
+import com.scott.robinson.ticketsystem.customer.VenueMutationListener;
+import com.scott.robinson.ticketsystem.customer.VenueSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link Service} which validates and checks in confirmation codes against a {@link GateIndex}.
+ *
+ * <p>The index is kept up to date by listening to the venue's {@link VenueMutation}s, so each reservation is indexed
+ * while the venue is still locked and can be scanned as soon as its confirmation code is returned. Scans themselves take
+ * no locks at all. When the venue is restored from a snapshot, as a standby is when it connects to its primary, a new
+ * index is built from the snapshot and replaces the old one.
+ */
+@Service
+final class GateServiceImpl implements GateService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GateServiceImpl.class);
+
+    private final ObservableVenue venue;
+
+    /**
+     * The most confirmation codes the venue can issue, one for each seat.
+     */
+    private final int capacity;
+
+    /**
+     * The current index, or null while gate validation is disabled.
+     */
+    private volatile GateIndex index;
+
+    /**
+     * Locking {@link Object} used to ensure only one thread at a time adds codes to the {@link #index}.
+     */
+    private final Object writeLock = new Object();
+
+    private final LongAdder scans = new LongAdder();
+
+    private final LongAdder bloomRejections = new LongAdder();
+
+    private final LongAdder bloomFalsePositives = new LongAdder();
+
+    private final LongAdder malformed = new LongAdder();
+
+    @Autowired
+    GateServiceImpl(final ConfigurationProvider configurationProvider, final TicketService ticketService,
+                    final ObservableVenue venue) {
+        this.venue = venue;
+        this.capacity = (int) Math.min(ticketService.getVenueReport().getSeats(), Integer.MAX_VALUE);
+        if (configurationProvider.isGateEnabled()) {
+            if (configurationProvider.isSharedVenue()) {
+                // Other workers' reservations are never published to this one, so most codes could not be found
+                throw new IllegalStateException("Gate validation cannot be used with a shared venue.");
+            }
+            start();
+        }
+    }
+
+    GateServiceImpl(final ObservableVenue venue, final int capacity) {
+        this.venue = venue;
+        this.capacity = capacity;
+        start();
+    }
+
+    /**
+     * Listens for new reservations and then indexes those which already exist. A reservation made in between is seen
+     * twice, and indexed once.
+     */
+    private void start() {
+        final GateIndex seeded = new GateIndex(capacity);
+        index = seeded;
+        venue.addMutationListener(new Indexer());
+
+        final VenueSnapshot snapshot = venue.snapshot();
+        synchronized (writeLock) {
+            // A restore since the listener was added has already indexed a newer snapshot
+            if (index == seeded) {
+                addAll(seeded, snapshot);
+            }
+        }
+        LOGGER.info("Gate index of {} confirmation codes ready, {} bytes", seeded.size(), seeded.byteSize());
+    }
+
+    @Override
+    public GateScan validate(final String confirmationCode) {
+        return scan(requireIndex(), confirmationCode, false);
+    }
+
+    @Override
+    public GateScan checkIn(final String confirmationCode) {
+        final GateIndex index = requireIndex();
+        requireWritable();
+        return scan(index, confirmationCode, true);
+    }
+
+    @Override
+    public List<GateScan> scan(final List<String> confirmationCodes, final boolean checkIn) {
+        if (confirmationCodes.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " codes may be scanned at once.");
+        }
+        final GateIndex index = requireIndex();
+        if (checkIn) {
+            requireWritable();
+        }
+        final List<GateScan> results = new ArrayList<>(confirmationCodes.size());
+        for (String confirmationCode : confirmationCodes) {
+            results.add(scan(index, confirmationCode, checkIn));
+        }
+        return results;
+    }
+
+    @Override
+    public GateStatus status() {
+        final GateIndex index = requireIndex();
+        return new GateStatus(index.size(), index.capacity(), index.byteSize(), index.checkedIn(), scans.sum(),
+                bloomRejections.sum(), bloomFalsePositives.sum(), malformed.sum());
+    }
+
+    private GateScan scan(final GateIndex index, final String confirmationCode, final boolean checkIn) {
+        scans.increment();
+        if (!GateIndex.isWellFormed(confirmationCode)) {
+            malformed.increment();
+            return GateScan.notFound(confirmationCode, GateResult.MALFORMED);
+        }
+
+        final long mostSignificant = GateIndex.mostSignificantBits(confirmationCode);
+        final long leastSignificant = GateIndex.leastSignificantBits(confirmationCode);
+        final long hash = index.hash(mostSignificant, leastSignificant);
+        if (!index.mightContain(hash)) {
+            bloomRejections.increment();
+            return GateScan.notFound(confirmationCode, GateResult.NOT_FOUND);
+        }
+        final int slot = index.find(hash, mostSignificant, leastSignificant);
+        if (slot < 0) {
+            bloomFalsePositives.increment();
+            return GateScan.notFound(confirmationCode, GateResult.NOT_FOUND);
+        }
+
+        final GateResult result;
+        if (checkIn) {
+            result = index.checkIn(slot) ? GateResult.ADMITTED : GateResult.ALREADY_CHECKED_IN;
+        } else {
+            result = index.isCheckedIn(slot) ? GateResult.ALREADY_CHECKED_IN : GateResult.VALID;
+        }
+        return new GateScan(confirmationCode, result, index.row(slot), index.firstSeat(slot), index.lastSeat(slot));
+    }
+
+    private GateIndex requireIndex() {
+        final GateIndex index = this.index;
+        if (index == null) {
+            throw new IllegalStateException("Gate validation is disabled.");
+        }
+        return index;
+    }
+
+    /**
+     * Check-ins are not replicated, so they are only accepted by the instance selling the tickets.
+     */
+    private void requireWritable() {
+        if (venue.isReadOnly()) {
+            throw new IllegalStateException("This instance is a standby and cannot check in attendees until it is "
+                    + "promoted.");
+        }
+    }
+
+    /**
+     * Adds the code of each reservation in the snapshot. Must be called while synchronized on the {@link #writeLock}.
+     */
+    private static void addAll(final GateIndex index, final VenueSnapshot snapshot) {
+        for (VenueMutation mutation : snapshot.getMutations()) {
+            add(index, mutation);
+        }
+    }
+
+    /**
+     * Adds the code of a reservation, ignoring any other mutation. Must be called while synchronized on the
+     * {@link #writeLock}.
+     */
+    private static void add(final GateIndex index, final VenueMutation mutation) {
+        if (mutation.getType() != VenueMutation.Type.RESERVE && mutation.getType() != VenueMutation.Type.PURCHASE) {
+            return;
+        }
+        final String confirmationCode = mutation.getConfirmationCode();
+        if (!GateIndex.isWellFormed(confirmationCode)) {
+            LOGGER.warn("Reservation [{}] cannot be scanned at the gate", confirmationCode);
+            return;
+        }
+        final long mostSignificant = GateIndex.mostSignificantBits(confirmationCode);
+        final long leastSignificant = GateIndex.leastSignificantBits(confirmationCode);
+        if (!index.add(mostSignificant, leastSignificant, mutation.getRow(), mutation.getFirstSeat(),
+                mutation.getLastSeat()) && index.size() >= index.capacity()) {
+            LOGGER.error("Gate index is full, reservation [{}] cannot be scanned at the gate", confirmationCode);
+        }
+    }
+
+    /**
+     * Indexes each reservation as it is made, while the venue is locked.
+     */
+    private final class Indexer implements VenueMutationListener {
+
+        @Override
+        public void onMutation(final long sequence, final VenueMutation mutation) {
+            synchronized (writeLock) {
+                add(index, mutation);
+            }
+        }
+
+        @Override
+        public void onRestore(final VenueSnapshot snapshot) {
+            final GateIndex restored = new GateIndex(capacity);
+            synchronized (writeLock) {
+                addAll(restored, snapshot);
+                index = restored;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the size of the gate index and the scans made against it.
+ */
+@Value
+public final class GateStatus {
+
+    /**
+     * The number of confirmation codes which can be validated.
+     */
+    private final int indexedCodes;
+
+    /**
+     * The most confirmation codes the index can hold, one for each seat in the venue.
+     */
+    private final int capacity;
+
+    /**
+     * The approximate number of bytes of heap used by the index.
+     */
+    private final long indexBytes;
+
+    private final long checkedIn;
+
+    /**
+     * The number of codes scanned, including those scanned in batches.
+     */
+    private final long scans;
+
+    /**
+     * The number of unknown codes turned away by the Bloom filter without a lookup in the index.
+     */
+    private final long bloomRejections;
+
+    /**
+     * The number of unknown codes which passed the Bloom filter and so needed a lookup in the index.
+     */
+    private final long bloomFalsePositives;
+
+    private final long malformed;
+}
@@ -0,0 +1,16 @@
+package com.scott.robinson.ticketsystem.replication;
+
+/**
+ * {@link Enum} used to represent when the primary confirms a change to the customer.
+ */
+public enum AckMode {
+    /**
+     * Changes are confirmed immediately and streamed to the standby in the background. A failover may lose the most
+     * recent changes.
+     */
+    ASYNC,
+    /**
+     * Changes are confirmed only once the standby has acknowledged them, or the acknowledgement timeout has elapsed.
+     */
+    SYNC
+}
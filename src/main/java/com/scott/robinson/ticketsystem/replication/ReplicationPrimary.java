@@ -0,0 +1,373 @@
+package com.scott.robinson.ticketsystem.replication;
+
+import com.scott.robinson.ticketsystem.customer.ReplicatedVenue;
+import com.scott.robinson.ticketsystem.customer.VenueMutation;
+import com.scott.robinson.ticketsystem.customer.VenueMutationListener;
+import com.scott.robinson.ticketsystem.customer.VenueSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the mutations of a {@link ReplicatedVenue} to a single {@link ReplicationStandby} over a socket.
+ *
+ * <p>When a standby connects it first receives a {@link VenueSnapshot} and then every mutation made after that
+ * snapshot. Mutations are queued while the venue is locked and written to the socket by a dedicated thread, so a slow
+ * standby never holds up the venue. In {@link AckMode#SYNC} the customer's request additionally waits, after the venue
+ * has been unlocked, until the standby acknowledges the mutations made by that request.
+ *
+ * <p>Each primary has an epoch, one more than that of the primary it was promoted from. A standby promoted in its place
+ * fences the primary by connecting with a higher epoch, after which the primary's venue is made read-only and it stops
+ * listening, so the two never accept changes at the same time while they can reach each other.
+ */
+public final class ReplicationPrimary implements VenueMutationListener, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationPrimary.class);
+
+    /**
+     * The most mutations buffered for a standby which is not keeping up. Beyond this the standby is disconnected and
+     * must catch up from a new snapshot.
+     */
+    private static final int MAX_PENDING = 1_000_000;
+
+    private final ReplicatedVenue venue;
+
+    private final long epoch;
+
+    private final AckMode ackMode;
+
+    private final long timeoutNanos;
+
+    private final ServerSocket serverSocket;
+
+    /**
+     * Locking {@link Object} used to manage access to the {@link #pending} mutations and the connection state. Waiters
+     * for new mutations or acknowledgements are notified through this lock.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The mutations yet to be written to the standby, in sequence order.
+     */
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * Whether mutations are being buffered for a standby which is connecting or connected.
+     */
+    private boolean streaming;
+
+    /**
+     * The connection to the standby, closed to drop a standby which has fallen too far behind.
+     */
+    private Socket standbySocket;
+
+    /**
+     * Incremented for each standby connection so a stale connection's threads cannot affect its successor.
+     */
+    private long generation;
+
+    /**
+     * Whether the standby has received its snapshot and is acknowledging mutations.
+     */
+    private volatile boolean connected;
+
+    private volatile long lastSequence;
+
+    private volatile long acknowledgedSequence;
+
+    private volatile boolean closed;
+
+    private volatile boolean fenced;
+
+    /**
+     * The sequence number of the last mutation made by the current thread's request, which must be acknowledged before
+     * the request returns in {@link AckMode#SYNC}.
+     */
+    private final ThreadLocal<long[]> awaitedSequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    private long syncWaits;
+    private long totalSyncWaitNanos;
+    private long maxSyncWaitNanos;
+    private long syncTimeouts;
+
+    public ReplicationPrimary(final ReplicatedVenue venue, final String host, final int port, final AckMode ackMode,
+                              final int timeoutMillis) throws IOException {
+        this(venue, host, port, ackMode, timeoutMillis, 0);
+    }
+
+    public ReplicationPrimary(final ReplicatedVenue venue, final String host, final int port, final AckMode ackMode,
+                              final int timeoutMillis, final long epoch) throws IOException {
+        this.venue = venue;
+        this.epoch = epoch;
+        this.ackMode = ackMode;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getByName(host));
+    }
+
+    /**
+     * Starts listening for a standby. The venue's mutations are subscribed to immediately.
+     */
+    public void start() {
+        venue.addMutationListener(this);
+
+        final Thread acceptor = new Thread(this::acceptStandbys, "replication-primary");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return The port the primary is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void onMutation(final long sequence, final VenueMutation mutation) {
+        lastSequence = sequence;
+        synchronized (lock) {
+            if (streaming) {
+                if (pending.size() < MAX_PENDING) {
+                    pending.add(new Pending(sequence, mutation));
+                    lock.notifyAll();
+                } else {
+                    // The writer is stuck on a standby which has stopped reading, so drop it rather than buffer more
+                    LOGGER.warn("Standby fell more than {} mutations behind, disconnecting", MAX_PENDING);
+                    disconnect();
+                }
+            }
+        }
+        awaitedSequence.get()[0] = sequence;
+    }
+
+    /**
+     * Waits for the standby to acknowledge the current request's mutations when in {@link AckMode#SYNC}. If no standby
+     * is connected, or it does not respond within the timeout, the request is released unacknowledged.
+     */
+    @Override
+    public void onCommit() {
+        final long[] awaited = awaitedSequence.get();
+        final long sequence = awaited[0];
+        awaited[0] = 0;
+        if (ackMode != AckMode.SYNC || sequence == 0) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutNanos;
+        boolean timedOut = false;
+        synchronized (lock) {
+            while (connected && acknowledgedSequence < sequence) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timedOut = true;
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            final long waited = System.nanoTime() - start;
+            syncWaits++;
+            totalSyncWaitNanos += waited;
+            maxSyncWaitNanos = Math.max(maxSyncWaitNanos, waited);
+            if (timedOut) {
+                syncTimeouts++;
+            }
+        }
+    }
+
+    /**
+     * @return {@link ReplicationStatus} of the connection to the standby
+     */
+    public ReplicationStatus status() {
+        synchronized (lock) {
+            final long meanWaitNanos = syncWaits == 0 ? 0 : totalSyncWaitNanos / syncWaits;
+            return new ReplicationStatus(ReplicationRole.PRIMARY, ackMode, connected, epoch, fenced, lastSequence,
+                    acknowledgedSequence, syncWaits, TimeUnit.NANOSECONDS.toMicros(meanWaitNanos),
+                    TimeUnit.NANOSECONDS.toMicros(maxSyncWaitNanos), syncTimeouts);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        disconnect();
+    }
+
+    private void acceptStandbys() {
+        while (!closed) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setTcpNoDelay(true);
+                LOGGER.info("Standby connected from {}", socket.getRemoteSocketAddress());
+                stream(socket);
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.warn("Standby disconnected: {}", e.getMessage());
+                }
+            } finally {
+                disconnect();
+            }
+        }
+    }
+
+    /**
+     * Sends the snapshot followed by each subsequent mutation until the standby disconnects, or is fenced by a promoted
+     * standby.
+     */
+    private void stream(final Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final byte frame = in.readByte();
+        final long standbyEpoch = in.readLong();
+        if (frame == VenueMutationCodec.FENCE) {
+            fence(out, standbyEpoch);
+            return;
+        } else if (frame != VenueMutationCodec.SUBSCRIBE) {
+            throw new IOException("Unknown replication frame [" + frame + "]");
+        }
+
+        // Begin buffering before the snapshot is taken so no mutation can fall between the two
+        final long connection;
+        synchronized (lock) {
+            pending.clear();
+            streaming = true;
+            standbySocket = socket;
+            connection = ++generation;
+        }
+        final VenueSnapshot snapshot = venue.snapshot();
+
+        out.writeLong(epoch);
+        VenueMutationCodec.writeSnapshot(out, snapshot);
+        out.flush();
+
+        acknowledgedSequence = in.readLong();
+        connected = true;
+
+        final Thread acknowledgements = new Thread(() -> readAcknowledgements(in, socket, connection), "replication-primary-ack");
+        acknowledgements.setDaemon(true);
+        acknowledgements.start();
+
+        while (true) {
+            final Pending next;
+            final boolean more;
+            synchronized (lock) {
+                while (pending.isEmpty() && connected) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!connected) {
+                    return;
+                }
+                next = pending.poll();
+                more = !pending.isEmpty();
+            }
+
+            // The snapshot already reflects any mutation buffered while it was being taken
+            if (next.sequence > snapshot.getSequence()) {
+                VenueMutationCodec.writeMutationFrame(out, next.sequence, next.mutation);
+            }
+            if (!more) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting changes if the standby was promoted from a later epoch than this primary's. The listener is
+     * closed before replying, so the promoted standby may listen on the same port.
+     */
+    private void fence(final DataOutputStream out, final long standbyEpoch) throws IOException {
+        if (standbyEpoch <= epoch) {
+            LOGGER.warn("Refused to be fenced by a standby from epoch {}, this primary is at epoch {}", standbyEpoch,
+                    epoch);
+            out.writeBoolean(false);
+            out.flush();
+            return;
+        }
+
+        venue.setReadOnly(true);
+        fenced = true;
+        closed = true;
+        serverSocket.close();
+        LOGGER.warn("Fenced by a standby promoted to epoch {}, no longer accepting changes", standbyEpoch);
+        out.writeBoolean(true);
+        out.flush();
+    }
+
+    private void readAcknowledgements(final DataInputStream in, final Socket socket, final long connection) {
+        try {
+            while (true) {
+                final long sequence = in.readLong();
+                synchronized (lock) {
+                    if (connection != generation) {
+                        return;
+                    }
+                    acknowledgedSequence = sequence;
+                    lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                if (connection == generation) {
+                    disconnect();
+                }
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already disconnected
+            }
+        }
+    }
+
+    /**
+     * Stops streaming to the standby. Closing its socket releases a writer blocked on a standby which is not reading.
+     */
+    private void disconnect() {
+        synchronized (lock) {
+            streaming = false;
+            connected = false;
+            pending.clear();
+            lock.notifyAll();
+            if (standbySocket != null) {
+                try {
+                    standbySocket.close();
+                } catch (IOException ignored) {
+                    // Already disconnected
+                }
+                standbySocket = null;
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final long sequence;
+        private final VenueMutation mutation;
+
+        private Pending(final long sequence, final VenueMutation mutation) {
+            this.sequence = sequence;
+            this.mutation = mutation;
+        }
+    }
+}
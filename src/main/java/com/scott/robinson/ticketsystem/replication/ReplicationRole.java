@@ -0,0 +1,19 @@
+package com.scott.robinson.ticketsystem.replication;
+
+/**
+ * {@link Enum} used to represent the part an instance plays in replicating the venue.
+ */
+public enum ReplicationRole {
+    /**
+     * The venue is not replicated.
+     */
+    NONE,
+    /**
+     * The venue accepts customer requests and streams its changes to a standby.
+     */
+    PRIMARY,
+    /**
+     * The venue mirrors a primary and rejects customer requests until promoted.
+     */
+    STANDBY
+}
@@ -0,0 +1,20 @@
+package com.scott.robinson.ticketsystem.replication;
+
+/**
+ * Manages the replication of the venue between a primary and a standby instance of the ticketing system.
+ */
+public interface ReplicationService {
+
+    /**
+     * @return {@link ReplicationStatus} describing this instance's role and replication progress
+     */
+    ReplicationStatus status();
+
+    /**
+     * Promotes a standby so that it begins accepting customer requests. If this instance is not a standby then a
+     * {@link RuntimeException} is thrown.
+     *
+     * @return {@link ReplicationStatus} after the promotion
+     */
+    ReplicationStatus promote();
+}
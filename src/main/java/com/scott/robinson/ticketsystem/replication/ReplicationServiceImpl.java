@@ -0,0 +1,109 @@
+package com.scott.robinson.ticketsystem.replication;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.customer.ReplicatedVenue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * The {@link Service} which starts replication in the configured {@link ReplicationRole}.
+ */
+@Service
+final class ReplicationServiceImpl implements ReplicationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationServiceImpl.class);
+
+    private final ReplicatedVenue venue;
+
+    private final String host;
+
+    private final int port;
+
+    private final AckMode ackMode;
+
+    private final int timeoutMillis;
+
+    private ReplicationRole role;
+
+    private ReplicationPrimary primary;
+
+    private ReplicationStandby standby;
+
+    /**
+     * @param venues The venue to replicate, which a shared venue does not provide
+     */
+    @Autowired
+    ReplicationServiceImpl(final ConfigurationProvider configurationProvider,
+                           final ObjectProvider<ReplicatedVenue> venues) {
+        this.venue = venues.getIfAvailable();
+        this.host = configurationProvider.getReplicationHost();
+        this.port = configurationProvider.getReplicationPort();
+        this.ackMode = AckMode.valueOf(configurationProvider.getReplicationAck().toUpperCase(Locale.ROOT));
+        this.timeoutMillis = configurationProvider.getReplicationTimeoutMillis();
+        this.role = ReplicationRole.valueOf(configurationProvider.getReplicationRole().toUpperCase(Locale.ROOT));
+        if (role != ReplicationRole.NONE && venue == null) {
+            // Each worker of a shared venue only publishes its own changes, so a standby would miss the others'
+            throw new IllegalStateException("Replication cannot be used with a shared venue.");
+        }
+
+        if (role == ReplicationRole.PRIMARY) {
+            try {
+                startPrimary(0);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to listen for a standby on port [" + port + "]", e);
+            }
+        } else if (role == ReplicationRole.STANDBY) {
+            standby = new ReplicationStandby(venue, host, port);
+            standby.start();
+        }
+    }
+
+    @Override
+    public synchronized ReplicationStatus status() {
+        if (primary != null) {
+            return primary.status();
+        } else if (standby != null) {
+            return standby.status();
+        }
+        return new ReplicationStatus(role, ackMode, false, 0, false, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Promotes the standby and then attempts to listen for a standby of its own, so the failed primary may rejoin as
+     * the new standby once it is restarted.
+     */
+    @Override
+    public synchronized ReplicationStatus promote() {
+        if (role != ReplicationRole.STANDBY) {
+            throw new RuntimeException("Only a standby can be promoted, this instance is [" + role + "]");
+        }
+
+        try {
+            standby.promote();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while promoting the standby.");
+        }
+        final long epoch = standby.getEpoch();
+        standby = null;
+        role = ReplicationRole.PRIMARY;
+
+        try {
+            startPrimary(epoch);
+        } catch (IOException e) {
+            LOGGER.warn("Promoted without a standby, unable to listen on port [{}]: {}", port, e.getMessage());
+        }
+        return status();
+    }
+
+    private void startPrimary(final long epoch) throws IOException {
+        primary = new ReplicationPrimary(venue, host, port, ackMode, timeoutMillis, epoch);
+        primary.start();
+    }
+}
@@ -0,0 +1,192 @@
+package com.scott.robinson.ticketsystem.replication;
+
+import com.scott.robinson.ticketsystem.customer.ReplicatedVenue;
+import com.scott.robinson.ticketsystem.customer.VenueSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors the venue of a {@link ReplicationPrimary}. The venue is kept read-only while replicating and the standby
+ * reconnects, catching up from a fresh snapshot, whenever the connection to the primary is lost. Once
+ * {@link #promote()} is called the standby stops replicating and the venue begins accepting customer requests with all
+ * of the holds and reservations it has received.
+ *
+ * <p>Promotion first fences the primary, so that a primary which is still running stops accepting changes before the
+ * standby starts. A primary which cannot be reached is presumed to have failed.
+ */
+public final class ReplicationStandby {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationStandby.class);
+
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private static final int FENCE_TIMEOUT_MS = 5000;
+
+    private final ReplicatedVenue venue;
+
+    private final String host;
+
+    private final int port;
+
+    private final Thread replicator = new Thread(this::replicate, "replication-standby");
+
+    private volatile Socket socket;
+
+    private volatile boolean connected;
+
+    private volatile boolean promoted;
+
+    private volatile long appliedSequence;
+
+    /**
+     * The epoch of the primary being replicated, and once promoted the epoch of this instance.
+     */
+    private volatile long epoch;
+
+    public ReplicationStandby(final ReplicatedVenue venue, final String host, final int port) {
+        this.venue = venue;
+        this.host = host;
+        this.port = port;
+        this.replicator.setDaemon(true);
+    }
+
+    /**
+     * Makes the venue read-only and begins replicating from the primary.
+     */
+    public void start() {
+        venue.setReadOnly(true);
+        replicator.start();
+    }
+
+    /**
+     * Stops replicating, fences the primary, and allows the venue to accept customer requests. Any mutation being
+     * applied completes before the venue becomes writable. If the primary refuses to be fenced, because another standby
+     * has already been promoted in its place, then an {@link IllegalStateException} is thrown and the venue remains
+     * read-only.
+     */
+    public void promote() throws InterruptedException {
+        promoted = true;
+        final Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Closing only interrupts the replicator
+            }
+        }
+        replicator.interrupt();
+        replicator.join(TimeUnit.SECONDS.toMillis(5));
+        epoch++;
+        fencePrimary();
+        venue.setReadOnly(false);
+        LOGGER.info("Standby promoted at sequence {}, epoch {}", appliedSequence, epoch);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    /**
+     * @return {@link ReplicationStatus} of the connection to the primary
+     */
+    public ReplicationStatus status() {
+        return new ReplicationStatus(ReplicationRole.STANDBY, null, connected, epoch, false, appliedSequence,
+                appliedSequence, 0, 0, 0, 0);
+    }
+
+    private void replicate() {
+        while (!promoted) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                current.connect(new InetSocketAddress(host, port));
+                current.setTcpNoDelay(true);
+                connected = true;
+                LOGGER.info("Connected to primary at {}:{}", host, port);
+                applyStream(current);
+            } catch (IOException e) {
+                if (!promoted) {
+                    LOGGER.debug("Unable to replicate from primary: {}", e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Asks the primary to stop accepting changes. A primary which cannot be reached is presumed to have failed.
+     */
+    private void fencePrimary() {
+        final boolean accepted;
+        try (Socket fencing = new Socket()) {
+            fencing.connect(new InetSocketAddress(host, port), FENCE_TIMEOUT_MS);
+            fencing.setSoTimeout(FENCE_TIMEOUT_MS);
+            final DataOutputStream out = new DataOutputStream(fencing.getOutputStream());
+            out.writeByte(VenueMutationCodec.FENCE);
+            out.writeLong(epoch);
+            out.flush();
+            accepted = new DataInputStream(fencing.getInputStream()).readBoolean();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to fence the primary at {}:{}, presuming it has failed: {}", host, port,
+                    e.getMessage());
+            return;
+        }
+        if (!accepted) {
+            throw new IllegalStateException("The primary at " + host + ":" + port + " has already been replaced, "
+                    + "this standby cannot be promoted.");
+        }
+        LOGGER.info("Fenced the primary at {}:{}", host, port);
+    }
+
+    /**
+     * Applies the snapshot and each following mutation, acknowledging the last applied sequence whenever no further
+     * frames are immediately available.
+     */
+    private void applyStream(final Socket current) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+        out.writeByte(VenueMutationCodec.SUBSCRIBE);
+        out.writeLong(epoch);
+        out.flush();
+        epoch = in.readLong();
+
+        while (!promoted) {
+            final byte frame = in.readByte();
+            if (frame == VenueMutationCodec.SNAPSHOT) {
+                final VenueSnapshot snapshot = VenueMutationCodec.readSnapshot(in);
+                venue.restore(snapshot);
+                appliedSequence = snapshot.getSequence();
+            } else if (frame == VenueMutationCodec.MUTATION) {
+                final long sequence = in.readLong();
+                venue.apply(sequence, VenueMutationCodec.readMutation(in));
+                appliedSequence = sequence;
+            } else {
+                throw new IOException("Unknown replication frame [" + frame + "]");
+            }
+
+            if (in.available() == 0) {
+                out.writeLong(appliedSequence);
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.scott.robinson.ticketsystem.replication;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the state of replication, including the latency the primary adds to confirmations.
+ */
+@Value
+public final class ReplicationStatus {
+
+    private final ReplicationRole role;
+
+    private final AckMode ackMode;
+
+    /**
+     * Whether the primary currently has a standby connected, or the standby is currently connected to its primary.
+     */
+    private final boolean connected;
+
+    /**
+     * The number of times the primary role has passed from one instance to another, as last known by this instance.
+     */
+    private final long epoch;
+
+    /**
+     * Whether this primary has been fenced by a standby promoted in its place, and no longer accepts changes.
+     */
+    private final boolean fenced;
+
+    /**
+     * The sequence number of the last mutation applied to this instance's venue.
+     */
+    private final long sequence;
+
+    /**
+     * The sequence number of the last mutation acknowledged by the standby.
+     */
+    private final long acknowledgedSequence;
+
+    /**
+     * The number of confirmations which waited for the standby in {@link AckMode#SYNC}.
+     */
+    private final long syncWaits;
+
+    /**
+     * The mean number of microseconds a confirmation waited for the standby.
+     */
+    private final long meanSyncWaitMicros;
+
+    /**
+     * The longest number of microseconds a confirmation waited for the standby.
+     */
+    private final long maxSyncWaitMicros;
+
+    /**
+     * The number of confirmations released without acknowledgement because the standby did not respond in time.
+     */
+    private final long syncTimeouts;
+}
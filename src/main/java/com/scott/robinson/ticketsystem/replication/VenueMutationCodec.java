@@ -0,0 +1,96 @@
+package com.scott.robinson.ticketsystem.replication;
+
+import com.scott.robinson.ticketsystem.customer.VenueMutation;
+import com.scott.robinson.ticketsystem.customer.VenueSnapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the frames exchanged between a {@link ReplicationPrimary} and a {@link ReplicationStandby}.
+ *
+ * <p>A connection opens with a {@link #SUBSCRIBE} or {@link #FENCE} frame from the standby carrying an epoch. A
+ * subscribing standby is sent the primary's epoch and a single {@link #SNAPSHOT} frame followed by a {@link #MUTATION}
+ * frame for each change, and replies to each frame with the sequence number it has applied. A primary being fenced
+ * replies with a single boolean, true if it has stopped accepting changes.
+ */
+final class VenueMutationCodec {
+
+    static final byte SNAPSHOT = 1;
+    static final byte MUTATION = 2;
+    static final byte SUBSCRIBE = 3;
+    static final byte FENCE = 4;
+
+    private static final VenueMutation.Type[] TYPES = VenueMutation.Type.values();
+
+    private VenueMutationCodec() {
+    }
+
+    static void writeSnapshot(final DataOutput out, final VenueSnapshot snapshot) throws IOException {
+        out.writeByte(SNAPSHOT);
+        out.writeLong(snapshot.getSequence());
+        out.writeInt(snapshot.getMutations().size());
+        for (VenueMutation mutation : snapshot.getMutations()) {
+            writeMutation(out, mutation);
+        }
+    }
+
+    static VenueSnapshot readSnapshot(final DataInput in) throws IOException {
+        final long sequence = in.readLong();
+        final int size = in.readInt();
+        final List<VenueMutation> mutations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mutations.add(readMutation(in));
+        }
+        return new VenueSnapshot(sequence, mutations);
+    }
+
+    static void writeMutationFrame(final DataOutput out, final long sequence, final VenueMutation mutation)
+            throws IOException {
+        out.writeByte(MUTATION);
+        out.writeLong(sequence);
+        writeMutation(out, mutation);
+    }
+
+    static void writeMutation(final DataOutput out, final VenueMutation mutation) throws IOException {
+        out.writeByte(mutation.getType().ordinal());
+        out.writeInt(mutation.getHoldId());
+        writeNullableString(out, mutation.getConfirmationCode());
+        writeNullableString(out, mutation.getEmail());
+        out.writeInt(mutation.getRow());
+        out.writeInt(mutation.getLastRow());
+        out.writeInt(mutation.getFirstSeat());
+        out.writeInt(mutation.getLastSeat());
+        out.writeLong(mutation.getCreationTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(mutation.getCreationTime().getNano());
+    }
+
+    static VenueMutation readMutation(final DataInput in) throws IOException {
+        final VenueMutation.Type type = TYPES[in.readByte()];
+        final int holdId = in.readInt();
+        final String confirmationCode = readNullableString(in);
+        final String email = readNullableString(in);
+        final int row = in.readInt();
+        final int lastRow = in.readInt();
+        final int firstSeat = in.readInt();
+        final int lastSeat = in.readInt();
+        final LocalDateTime creationTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new VenueMutation(type, holdId, confirmationCode, email, row, lastRow, firstSeat, lastSeat, creationTime);
+    }
+
+    private static void writeNullableString(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
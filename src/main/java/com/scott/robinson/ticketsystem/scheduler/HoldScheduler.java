@@ -0,0 +1,32 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Schedules hold requests from customer tiers onto the ticket engine so that each tier receives a share of the venue in
+ * proportion to its weight, however much traffic the other tiers send.
+ */
+public interface HoldScheduler {
+
+    /**
+     * Queues the request behind the other requests of the customer's tier without waiting for it to run, so that no
+     * caller's thread is held while its tier's queue drains. Requests from an unknown or missing tier are scheduled in
+     * the lowest priority tier. If the tier's queue is full then a {@link RuntimeException} is thrown without running
+     * the request.
+     *
+     * <p>The returned future may be completed on the scheduler's own thread, so anything chained onto it must be
+     * brief.
+     *
+     * @param tier The customer's tier
+     * @param request The hold request
+     * @return {@link CompletableFuture} of the result of the request, failed with any exception the request throws
+     */
+    <T> CompletableFuture<T> schedule(final String tier, final Supplier<T> request);
+
+    /**
+     * @return {@link TierStatus} of each tier, in the configured order
+     */
+    List<TierStatus> status();
+}
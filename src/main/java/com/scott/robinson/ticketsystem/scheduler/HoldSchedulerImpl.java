@@ -0,0 +1,243 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The {@link Service} which runs hold requests on a single dispatcher thread, taking them from per-tier queues by
+ * weighted round robin.
+ *
+ * <p>Holds are serialized by the venue lock regardless, so a single dispatcher costs no throughput while making the
+ * order in which tiers reach the venue explicit rather than left to lock contention. A flood from one tier only
+ * deepens that tier's queue: the other tiers keep their share of the dispatcher, and once a queue is full further
+ * requests from its tier are turned away immediately rather than adding to everyone's latency. Callers are handed a
+ * future rather than parked until their request runs, so a deep queue holds no container or worker threads which the
+ * other tiers' requests need in order to reach the scheduler at all.
+ *
+ * <p>The tier is taken from a request header and is trusted as given, so it is expected to be set by a gateway which
+ * has authenticated the customer.
+ */
+@Service
+public final class HoldSchedulerImpl implements HoldScheduler {
+
+    /**
+     * The number of power of two latency buckets, enough for latencies up to about half an hour in microseconds.
+     */
+    private static final int LATENCY_BUCKETS = 32;
+
+    private final boolean enabled;
+
+    private final String[] tierNames;
+
+    private final int[] tierWeights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * The waiting requests. Guarded by {@link #lock}.
+     */
+    private final WeightedFairQueue<Request<?>> queue;
+
+    /**
+     * The metrics of each tier. Guarded by {@link #lock}.
+     */
+    private final TierMetrics[] metrics;
+
+    @Autowired
+    public HoldSchedulerImpl(final ConfigurationProvider configurationProvider) {
+        this.enabled = configurationProvider.isSchedulerEnabled();
+        final String[] tiers = configurationProvider.getSchedulerTiers().split(",");
+        this.tierNames = new String[tiers.length];
+        this.tierWeights = new int[tiers.length];
+        this.metrics = new TierMetrics[tiers.length];
+        for (int tier = 0; tier < tiers.length; tier++) {
+            final String[] nameAndWeight = tiers[tier].trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Tiers must be listed as name:weight, not [" + tiers[tier] + "]");
+            }
+            tierNames[tier] = nameAndWeight[0].trim().toLowerCase(Locale.ROOT);
+            tierWeights[tier] = Integer.parseInt(nameAndWeight[1].trim());
+            metrics[tier] = new TierMetrics();
+        }
+        this.queue = new WeightedFairQueue<>(tierWeights, configurationProvider.getSchedulerQueueCapacity());
+
+        if (enabled) {
+            final Thread dispatcher = new Thread(this::dispatch, "hold-scheduler");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> schedule(final String tier, final Supplier<T> request) {
+        final int tierIndex = tierIndex(tier);
+        final Request<T> queued = new Request<>(tierIndex, request);
+        if (!enabled) {
+            queued.run();
+            record(tierIndex, queued.queuedNanos);
+            return queued.result;
+        }
+
+        lock.lock();
+        try {
+            if (!queue.offer(tierIndex, queued)) {
+                metrics[tierIndex].rejected++;
+                throw new RuntimeException("Too many requests are waiting in the [" + tierNames[tierIndex] +
+                        "] tier. Please try again later.");
+            }
+            final int depth = queue.size(tierIndex);
+            metrics[tierIndex].maxDepth = Math.max(metrics[tierIndex].maxDepth, depth);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return queued.result;
+    }
+
+    @Override
+    public List<TierStatus> status() {
+        lock.lock();
+        try {
+            final List<TierStatus> status = new ArrayList<>(tierNames.length);
+            for (int tier = 0; tier < tierNames.length; tier++) {
+                final TierMetrics tierMetrics = metrics[tier];
+                status.add(new TierStatus(tierNames[tier], tierWeights[tier], queue.size(tier), tierMetrics.maxDepth,
+                        tierMetrics.completed, tierMetrics.rejected,
+                        tierMetrics.completed == 0 ? 0 : tierMetrics.totalLatencyMicros / tierMetrics.completed,
+                        tierMetrics.percentile(0.99), tierMetrics.maxLatencyMicros));
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The index of the named tier, or of the last, lowest priority, tier if it is unknown
+     */
+    private int tierIndex(final String tier) {
+        if (tier != null) {
+            final String name = tier.trim().toLowerCase(Locale.ROOT);
+            for (int index = 0; index < tierNames.length; index++) {
+                if (tierNames[index].equals(name)) {
+                    return index;
+                }
+            }
+        }
+        return tierNames.length - 1;
+    }
+
+    /**
+     * Runs queued requests one at a time for the life of the application.
+     */
+    private void dispatch() {
+        while (true) {
+            final Request<?> request;
+            lock.lock();
+            try {
+                while (queue.isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                request = queue.poll();
+            } finally {
+                lock.unlock();
+            }
+            request.run();
+            record(request.tier, request.queuedNanos);
+        }
+    }
+
+    private void record(final int tier, final long startNanos) {
+        final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        lock.lock();
+        try {
+            metrics[tier].record(latencyMicros);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A queued hold request and the future through which its caller receives the result.
+     */
+    private static final class Request<T> {
+
+        private final int tier;
+
+        private final Supplier<T> supplier;
+
+        private final long queuedNanos = System.nanoTime();
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Request(final int tier, final Supplier<T> supplier) {
+            this.tier = tier;
+            this.supplier = supplier;
+        }
+
+        private void run() {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable e) {
+                // The dispatcher must survive any failure of a single request
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Running latency and queue depth figures of a single tier.
+     */
+    private static final class TierMetrics {
+
+        private int maxDepth;
+
+        private long completed;
+
+        private long rejected;
+
+        private long totalLatencyMicros;
+
+        private long maxLatencyMicros;
+
+        /**
+         * Counts of requests by latency, where bucket n holds latencies below 2^n microseconds.
+         */
+        private final long[] latencyBuckets = new long[LATENCY_BUCKETS];
+
+        private void record(final long latencyMicros) {
+            completed++;
+            totalLatencyMicros += latencyMicros;
+            maxLatencyMicros = Math.max(maxLatencyMicros, latencyMicros);
+            final int bucket = 64 - Long.numberOfLeadingZeros(latencyMicros);
+            latencyBuckets[Math.min(bucket, LATENCY_BUCKETS - 1)]++;
+        }
+
+        /**
+         * @return The upper bound of the bucket containing the percentile, capped at the maximum latency
+         */
+        private long percentile(final double fraction) {
+            final long rank = (long) Math.ceil(completed * fraction);
+            long seen = 0;
+            for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+                seen += latencyBuckets[bucket];
+                if (seen >= rank && seen > 0) {
+                    return Math.min((1L << bucket) - 1, maxLatencyMicros);
+                }
+            }
+            return maxLatencyMicros;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the queue depth and latency of a single customer tier within the {@link HoldScheduler}.
+ */
+@Value
+public final class TierStatus {
+
+    private final String tier;
+
+    private final int weight;
+
+    /**
+     * The number of requests currently waiting.
+     */
+    private final int queueDepth;
+
+    /**
+     * The largest number of requests which have waited at once.
+     */
+    private final int maxQueueDepth;
+
+    private final long completed;
+
+    /**
+     * The number of requests turned away because the queue was full.
+     */
+    private final long rejected;
+
+    /**
+     * The mean number of microseconds from a request being queued to it completing.
+     */
+    private final long meanLatencyMicros;
+
+    /**
+     * The 99th percentile latency in microseconds, accurate to within a factor of two.
+     */
+    private final long p99LatencyMicros;
+
+    private final long maxLatencyMicros;
+}
@@ -0,0 +1,88 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import java.util.ArrayDeque;
+
+/**
+ * A set of bounded FIFO queues, one per tier, which are dequeued by smooth weighted round robin.
+ *
+ * <p>On each poll every tier with waiting items earns its weight in credit, the tier with the most credit is served,
+ * and it pays back the combined weight of the waiting tiers. Over any window a busy tier is therefore served in
+ * proportion to its weight, its turns are spread evenly rather than in bursts, and an idle tier neither earns credit
+ * nor holds back the others. This class is not thread safe.
+ */
+final class WeightedFairQueue<T> {
+
+    private final int[] weights;
+
+    private final int[] credits;
+
+    private final ArrayDeque<T>[] queues;
+
+    private final int capacity;
+
+    @SuppressWarnings("unchecked")
+    WeightedFairQueue(final int[] weights, final int capacity) {
+        this.weights = weights.clone();
+        this.credits = new int[weights.length];
+        this.queues = new ArrayDeque[weights.length];
+        for (int tier = 0; tier < weights.length; tier++) {
+            if (weights[tier] < 1) {
+                throw new IllegalArgumentException("Tier weights must be at least 1.");
+            }
+            queues[tier] = new ArrayDeque<>();
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return Whether the item was queued, or false if the tier's queue is full
+     */
+    boolean offer(final int tier, final T item) {
+        if (queues[tier].size() >= capacity) {
+            return false;
+        }
+        queues[tier].addLast(item);
+        return true;
+    }
+
+    /**
+     * @return The next item by weighted round robin, or null if every queue is empty
+     */
+    T poll() {
+        int totalWeight = 0;
+        int best = -1;
+        for (int tier = 0; tier < queues.length; tier++) {
+            if (queues[tier].isEmpty()) {
+                continue;
+            }
+            credits[tier] += weights[tier];
+            totalWeight += weights[tier];
+            if (best < 0 || credits[tier] > credits[best]) {
+                best = tier;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        credits[best] -= totalWeight;
+        final T item = queues[best].pollFirst();
+        if (queues[best].isEmpty()) {
+            // An emptied tier starts afresh so that it cannot bank credit, or debt, while idle
+            credits[best] = 0;
+        }
+        return item;
+    }
+
+    int size(final int tier) {
+        return queues[tier].size();
+    }
+
+    boolean isEmpty() {
+        for (ArrayDeque<T> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of a customer's progress through the waiting room.
+ */
+@Value
+public final class QueueStatus {
+
+    /**
+     * The customer's position within the waiting room.
+     */
+    private final long position;
+
+    /**
+     * The number of customers which must be admitted before this customer, or zero once admitted.
+     */
+    private final long ahead;
+
+    /**
+     * The estimated number of seconds until this customer is admitted, or zero once admitted.
+     */
+    private final long estimatedWaitSeconds;
+
+    /**
+     * Whether the customer's admission token may currently be used to request seats.
+     */
+    private final boolean admitted;
+}
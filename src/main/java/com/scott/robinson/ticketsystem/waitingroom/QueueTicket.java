@@ -0,0 +1,21 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+import lombok.Value;
+
+/**
+ * Immutable object issued to a customer upon joining the waiting room. The {@link #token} is the signed admission
+ * token which must accompany seat requests once the {@link #position} has been admitted.
+ */
+@Value
+public final class QueueTicket {
+
+    /**
+     * The customer's position within the waiting room. Positions are issued in strictly increasing order.
+     */
+    private final long position;
+
+    /**
+     * The signed admission token bound to the {@link #position} and the customer's email address.
+     */
+    private final String token;
+}
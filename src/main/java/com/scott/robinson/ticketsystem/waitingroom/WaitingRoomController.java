@@ -0,0 +1,17 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+/**
+ * {@link org.springframework.stereotype.Controller} to provide a REST API to the waiting room.
+ */
+interface WaitingRoomController {
+
+    /**
+     * @return {@link QueueTicket} containing the position and admission token for the provided user
+     */
+    QueueTicket join(final String customerEmail);
+
+    /**
+     * @return {@link QueueStatus} for the position associated with the provided admission token
+     */
+    QueueStatus status(final String admissionToken, final String customerEmail);
+}
@@ -0,0 +1,49 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This {@link RestController} contains the endpoints a customer would use to join the waiting room and poll for
+ * admission.
+ */
+@RestController
+@RequestMapping("/waitingroom")
+final class WaitingRoomControllerImpl implements WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @Autowired
+    WaitingRoomControllerImpl(final WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    /**
+     * Places the user at the back of the waiting room.
+     *
+     * @param customerEmail User's email address
+     * @return {@link QueueTicket} containing the admission token to be passed with seat requests
+     */
+    @RequestMapping(path = "/join", method = RequestMethod.POST, produces = "application/json")
+    @Override
+    public QueueTicket join(@RequestHeader(name = "customer") final String customerEmail) {
+        return waitingRoomService.join(customerEmail);
+    }
+
+    /**
+     * Reports the user's position and estimated wait. This is cheap enough to be polled frequently.
+     *
+     * @param admissionToken The admission token returned when joining
+     * @param customerEmail User's email address
+     * @return {@link QueueStatus} for the user's position
+     */
+    @RequestMapping(path = "/status", method = RequestMethod.GET, produces = "application/json")
+    @Override
+    public QueueStatus status(@RequestHeader(name = "admission") final String admissionToken,
+                              @RequestHeader(name = "customer") final String customerEmail) {
+        return waitingRoomService.status(admissionToken, customerEmail);
+    }
+}
@@ -0,0 +1,41 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+/**
+ * Meters customers into the ticketing system in first-in, first-out order. Customers join the waiting room to receive
+ * a {@link QueueTicket} and are admitted at a configurable rate, after which their admission token may be used to
+ * request seats for a limited window of time.
+ */
+public interface WaitingRoomService {
+
+    /**
+     * @return {@link boolean} indicating whether customers must be admitted before requesting seats
+     */
+    boolean isEnabled();
+
+    /**
+     * Places the customer at the back of the waiting room.
+     *
+     * @param customerEmail The customer's email address
+     * @return {@link QueueTicket} containing the customer's position and admission token
+     */
+    QueueTicket join(final String customerEmail);
+
+    /**
+     * Reports the customer's progress through the waiting room.
+     *
+     * @param admissionToken The admission token issued by {@link #join(String)}
+     * @param customerEmail The customer's email address
+     * @return {@link QueueStatus} for the position the token was issued for
+     */
+    QueueStatus status(final String admissionToken, final String customerEmail);
+
+    /**
+     * Checks whether the admission token was issued to the customer and is within its admission window. Always
+     * returns true while the waiting room is disabled.
+     *
+     * @param admissionToken The admission token issued by {@link #join(String)}
+     * @param customerEmail The customer's email address
+     * @return {@link boolean} indicating whether the customer may request seats
+     */
+    boolean isAdmitted(final String admissionToken, final String customerEmail);
+}
@@ -0,0 +1,211 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link Service} responsible for issuing waiting room positions and admitting them at a fixed rate.
+ *
+ * <p>Because admission is strictly first-in, first-out, the queue itself is never materialized. A position is the
+ * value of an ever increasing counter and the waiting room only tracks the highest position admitted so far. A
+ * customer is admitted once their position falls at or below that watermark, so millions of waiting customers cost no
+ * more memory than a handful.
+ */
+@Service
+final class WaitingRoomServiceImpl implements WaitingRoomService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Whether the waiting room is enforced for seat requests.
+     */
+    private final boolean enabled;
+
+    /**
+     * Number of positions admitted on each tick of the {@link ReleaseAdmissionsTask}.
+     */
+    private final int admissionRate;
+
+    /**
+     * The last position issued by {@link #join(String)}.
+     */
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    /**
+     * Every position at or below this watermark has been admitted.
+     */
+    private volatile long admittedThrough;
+
+    /**
+     * Every position at or below this watermark was admitted longer than the admission window ago.
+     */
+    private volatile long expiredThrough;
+
+    /**
+     * Ring buffer of the {@link #admittedThrough} watermark recorded on each of the previous ticks. The entry about to
+     * be overwritten is the watermark from one admission window ago.
+     */
+    private final long[] admittedHistory;
+
+    /**
+     * The next slot to be written within the {@link #admittedHistory}.
+     */
+    private int historySlot;
+
+    /**
+     * Key used to sign admission tokens. A new key is generated on each start up which invalidates any outstanding
+     * tokens.
+     */
+    private final SecretKeySpec signingKey;
+
+    /**
+     * {@link Mac} instances are not thread safe so one is kept per thread.
+     */
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+    @Autowired
+    WaitingRoomServiceImpl(final ConfigurationProvider configurationProvider) {
+        this(configurationProvider.isWaitingRoomEnabled(), configurationProvider.getAdmissionRatePerSecond(),
+                configurationProvider.getAdmissionWindowSeconds());
+
+        // Trigger the admission logic on a timed interval
+        if (enabled) {
+            final Timer releaseAdmissionsTimer = new Timer();
+            releaseAdmissionsTimer.schedule(new ReleaseAdmissionsTask(), 1000, 1000);
+        }
+    }
+
+    WaitingRoomServiceImpl(final boolean enabled, final int admissionRate, final int admissionWindowSeconds) {
+        if (admissionRate < 1 || admissionWindowSeconds < 1) {
+            throw new IllegalArgumentException("Admission rate and window must be greater than zero.");
+        }
+        this.enabled = enabled;
+        this.admissionRate = admissionRate;
+        this.admittedHistory = new long[admissionWindowSeconds];
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.signingKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Issues the next position in the waiting room along with a token signed for that position and the customer's
+     * email address.
+     */
+    @Override
+    public QueueTicket join(final String customerEmail) {
+        final long position = lastIssued.incrementAndGet();
+        return new QueueTicket(position, position + "." + sign(position, customerEmail));
+    }
+
+    /**
+     * Reports the progress of the position the token was issued for. If the token was not issued to the customer then
+     * a {@link RuntimeException} is thrown.
+     */
+    @Override
+    public QueueStatus status(final String admissionToken, final String customerEmail) {
+        final long position = verifiedPosition(admissionToken, customerEmail);
+        if (position < 0) {
+            throw new RuntimeException("The admission token is not valid for email [" + customerEmail + "]");
+        }
+
+        final long ahead = Math.max(0, position - admittedThrough);
+        final long estimatedWaitSeconds = (ahead + admissionRate - 1) / admissionRate;
+        return new QueueStatus(position, ahead, estimatedWaitSeconds, isWithinWindow(position));
+    }
+
+    @Override
+    public boolean isAdmitted(final String admissionToken, final String customerEmail) {
+        if (!enabled) {
+            return true;
+        }
+        final long position = verifiedPosition(admissionToken, customerEmail);
+        return position >= 0 && isWithinWindow(position);
+    }
+
+    /**
+     * Advances the admission watermark by the configured rate and expires the positions admitted one window ago. Only
+     * invoked from a single thread.
+     */
+    void releaseAdmissions() {
+        admittedThrough = Math.min(lastIssued.get(), admittedThrough + admissionRate);
+
+        expiredThrough = admittedHistory[historySlot];
+        admittedHistory[historySlot] = admittedThrough;
+        historySlot = (historySlot + 1) % admittedHistory.length;
+    }
+
+    private boolean isWithinWindow(final long position) {
+        return position <= admittedThrough && position > expiredThrough;
+    }
+
+    /**
+     * Validates the token's signature against the customer's email address.
+     *
+     * @return The position the token was issued for, or -1 if the token is malformed or was not issued to the customer
+     */
+    private long verifiedPosition(final String admissionToken, final String customerEmail) {
+        if (admissionToken == null || customerEmail == null) {
+            return -1;
+        }
+        final int separator = admissionToken.indexOf('.');
+        if (separator < 1) {
+            return -1;
+        }
+
+        final long position;
+        try {
+            position = Long.parseLong(admissionToken.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+
+        final byte[] expected = sign(position, customerEmail).getBytes(StandardCharsets.US_ASCII);
+        final byte[] actual = admissionToken.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? position : -1;
+    }
+
+    private String sign(final long position, final String customerEmail) {
+        final String payload = position + ":" + customerEmail.toLowerCase(Locale.ROOT);
+        final byte[] signature = mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac newMac = Mac.getInstance(HMAC_ALGORITHM);
+            newMac.init(signingKey);
+            return newMac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize admission token signing.", e);
+        }
+    }
+
+    /**
+     * Internal class used to admit the next group of waiting customers once per second.
+     */
+    final class ReleaseAdmissionsTask extends TimerTask {
+        @Override
+        public void run() {
+            releaseAdmissions();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AllocationStrategy}.
+ */
+public final class AllocationStrategyTest {
+
+    private final Venue venue = new Venue(VenueLayout.rectangle(3, 20));
+
+    @Test
+    public void find_best() {
+        // The group is placed as centrally as possible in the first row
+        assertThat(AllocationStrategy.BEST.find(venue, 4), is(packed(0, 10)));
+
+        venue.set(0, 0, 19, SeatState.RESERVED);
+        assertThat(AllocationStrategy.BEST.find(venue, 4), is(packed(1, 10)));
+        assertThat(AllocationStrategy.BEST.find(venue, 21), is(-1L));
+    }
+
+    @Test
+    public void find_compactFillsExactGap() {
+        // Leave a gap of four seats just left of the middle of the first row, and a run of ten to its right
+        venue.set(0, 0, 4, SeatState.RESERVED);
+        venue.set(0, 9, 9, SeatState.RESERVED);
+
+        // The best strategy takes the middle of the run of ten, while the compact strategy fills the gap exactly
+        assertThat(AllocationStrategy.BEST.find(venue, 4), is(packed(0, 10)));
+        assertThat(AllocationStrategy.COMPACT.find(venue, 4), is(packed(0, 5)));
+    }
+
+    @Test
+    public void find_compactAvoidsStrandingSingleSeats() {
+        // A run of five seats on the left, and a run of seven in the middle of the row
+        venue.set(0, 5, 7, SeatState.RESERVED);
+        venue.set(0, 15, 19, SeatState.RESERVED);
+
+        // A group of four in the left run would strand its fifth seat, so it sits flush in the middle run instead
+        assertThat(AllocationStrategy.COMPACT.find(venue, 4), is(packed(0, 8)));
+        venue.set(0, 8, 11, SeatState.HELD);
+        assertThat(venue.getRunCount(0), is(2));
+    }
+
+    @Test
+    public void find_compactPrefersEarlierRows() {
+        // The first row has a single run of five central seats, the second row is empty
+        venue.set(0, 0, 7, SeatState.RESERVED);
+        venue.set(0, 13, 19, SeatState.RESERVED);
+
+        // A group of five fills the run exactly, but a group of four would strand a seat so moves back a row
+        assertThat(AllocationStrategy.COMPACT.find(venue, 5), is(packed(0, 8)));
+        assertThat(AllocationStrategy.COMPACT.find(venue, 4), is(packed(1, 8)));
+        assertThat(AllocationStrategy.COMPACT.find(venue, 6), is(packed(1, 7)));
+    }
+
+    @Test
+    public void findAvailableBlocks_rankedByStrategy() {
+        venue.set(0, 0, 4, SeatState.RESERVED);
+        venue.set(0, 9, 9, SeatState.RESERVED);
+
+        // Each strategy lists first the block it would hold
+        assertThat(AvailableBlocks.find(venue, AllocationStrategy.BEST, 4, 0, 1).getBlocks().get(0),
+                is(new Seats(0, 10, 13)));
+        final AvailableBlocks compact = AvailableBlocks.find(venue, AllocationStrategy.COMPACT, 4, 0, 3);
+        assertThat(compact.getBlocks().get(0), is(new Seats(0, 5, 8)));
+        assertThat(compact.getBlocks().get(1), is(new Seats(0, 10, 13)));
+        assertThat(compact.getBlocks().get(2), is(new Seats(0, 12, 15)));
+        assertThat(compact.getNextOffset(), is(3));
+    }
+
+    @Test
+    public void findAvailableBlocks_compactMatchesFind() {
+        final Random random = new Random(42);
+        for (int trial = 0; trial < 500; trial++) {
+            final Venue randomVenue = new Venue(VenueLayout.rectangle(6, 20));
+            for (int taken = 0; taken < 10 + trial % 40; taken++) {
+                final int row = random.nextInt(6);
+                final int first = random.nextInt(20);
+                randomVenue.set(row, first, Math.min(19, first + random.nextInt(4)), SeatState.RESERVED);
+            }
+            final int numSeats = 1 + random.nextInt(5);
+
+            // The first ranked block is the one the strategy would hold
+            final long found = AllocationStrategy.COMPACT.find(randomVenue, numSeats);
+            final AvailableBlocks first = AvailableBlocks.find(randomVenue, AllocationStrategy.COMPACT, numSeats, 0, 1);
+            if (found < 0) {
+                assertThat(first.getBlocks().isEmpty(), is(true));
+                continue;
+            }
+            final Seats seats = first.getBlocks().get(0);
+            assertThat(packed(seats.getRow(), seats.getFirstSeat()), is(found));
+
+            // Paging lists every block exactly once, the same blocks as the best strategy lists in another order
+            final List<Seats> compact = allBlocks(randomVenue, AllocationStrategy.COMPACT, numSeats);
+            final List<Seats> best = allBlocks(randomVenue, AllocationStrategy.BEST, numSeats);
+            assertThat(new HashSet<>(compact), is(new HashSet<>(best)));
+            assertThat(compact.size(), is(best.size()));
+        }
+    }
+
+    /**
+     * @return Every block for the group, fetched a small page at a time
+     */
+    private static List<Seats> allBlocks(final Venue venue, final AllocationStrategy strategy, final int numSeats) {
+        final List<Seats> blocks = new ArrayList<>();
+        int offset = 0;
+        while (offset >= 0) {
+            final AvailableBlocks page = AvailableBlocks.find(venue, strategy, numSeats, offset, 7);
+            blocks.addAll(page.getBlocks());
+            offset = page.getNextOffset();
+        }
+        return blocks;
+    }
+
+    private static long packed(final int row, final int firstSeat) {
+        return (long) row << 32 | firstSeat;
+    }
+}
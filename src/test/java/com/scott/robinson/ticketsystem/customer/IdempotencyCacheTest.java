@@ -0,0 +1,110 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link IdempotencyCache}.
+ */
+public final class IdempotencyCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final IdempotencyCache<Integer> cache = new IdempotencyCache<>(2, 60, clock);
+
+    private final AtomicInteger invocations = new AtomicInteger();
+
+    @Test
+    public void execute() {
+        // Repeat the same key
+        final int first = cache.execute("key", invocations::incrementAndGet);
+        final int retry = cache.execute("key", invocations::incrementAndGet);
+
+        // Verify the action was only performed once
+        assertThat(first, is(1));
+        assertThat(retry, is(1));
+        assertThat(invocations.get(), is(1));
+    }
+
+    @Test
+    public void execute_noKey() {
+        cache.execute(null, invocations::incrementAndGet);
+        cache.execute(null, invocations::incrementAndGet);
+
+        // Verify requests without a key are never de-duplicated
+        assertThat(invocations.get(), is(2));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void execute_failureNotCached() {
+        try {
+            cache.execute("key", () -> {
+                throw new RuntimeException("Failed");
+            });
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("Failed"));
+        }
+
+        // Verify the retry performs the action
+        assertThat(cache.execute("key", invocations::incrementAndGet), is(1));
+    }
+
+    @Test
+    public void execute_expired() {
+        cache.execute("key", invocations::incrementAndGet);
+
+        // Move past the time to live
+        clock.advanceSeconds(61);
+
+        // Verify the action is performed again
+        assertThat(cache.execute("key", invocations::incrementAndGet), is(2));
+    }
+
+    @Test
+    public void execute_capacity() {
+        cache.execute("first", invocations::incrementAndGet);
+        cache.execute("second", invocations::incrementAndGet);
+        cache.execute("third", invocations::incrementAndGet);
+
+        // Verify the oldest key was evicted to stay within capacity
+        assertThat(cache.size(), is(2));
+        assertThat(cache.execute("first", invocations::incrementAndGet), is(4));
+    }
+
+    /**
+     * {@link Clock} which only moves when advanced by the test.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.EPOCH;
+
+        void advanceSeconds(final long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
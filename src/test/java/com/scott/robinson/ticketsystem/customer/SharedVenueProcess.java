@@ -0,0 +1,64 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+/**
+ * Opens a {@link SharedVenue} as a worker in its own JVM for {@link SharedVenueTest}. Commands are read one per line
+ * from standard input and each is answered with a single line starting with {@link #REPLY}, so that replies can be
+ * told apart from logging.
+ */
+public final class SharedVenueProcess {
+
+    static final String REPLY = "> ";
+
+    private SharedVenueProcess() {
+    }
+
+    /**
+     * @param args The shared venue file, the rows and seats per row of its rectangular layout, the number of hold
+     *             slots, and the heartbeat timeout in milliseconds
+     */
+    public static void main(final String[] args) throws Exception {
+        final SharedVenue venue = SharedVenue.open(Paths.get(args[0]),
+                VenueLayout.rectangle(Integer.parseInt(args[1]), Integer.parseInt(args[2])), Clock.systemUTC(),
+                Integer.parseInt(args[3]), 8, Long.parseLong(args[4]));
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = in.readLine()) != null) {
+            final String[] words = command.split(" ");
+            String reply;
+            try {
+                switch (words[0]) {
+                    case "hold":
+                        // Holds the number of groups of the size, as fast as it can
+                        final int numSeats = Integer.parseInt(words[1]);
+                        final int groups = Integer.parseInt(words[2]);
+                        for (int i = 0; i < groups; i++) {
+                            venue.hold(numSeats, "process@email.com");
+                        }
+                        reply = String.valueOf(groups);
+                        break;
+                    case "claim":
+                        // Takes seats for a hold and never completes it, as a worker dying part way would
+                        venue.claim(Integer.parseInt(words[1]), "process@email.com");
+                        reply = "claimed";
+                        break;
+                    case "worker":
+                        reply = String.valueOf(venue.getWorker());
+                        break;
+                    default:
+                        reply = "unknown command " + command;
+                }
+            } catch (RuntimeException e) {
+                reply = "failed " + e.getMessage();
+            }
+            System.out.println(REPLY + reply);
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SharedVenue}. Each handle opened on the same file acts as a separate worker.
+ */
+public final class SharedVenueTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final VenueLayout layout = VenueLayout.rectangle(3, 10);
+
+    private final String testEmail = "test@email.com";
+
+    @Test
+    public void open_sharesSeatsBetweenWorkers() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue first = open(file, 4, 1000);
+        final SeatHold seatHold = first.hold(4, testEmail);
+        assertThat(seatHold.getSeats(), is(new Seats(0, 5, 8)));
+
+        // A second worker sees the hold and can reserve it
+        final SharedVenue second = open(file, 4, 1000);
+        assertThat(second.getWorker(), is(1));
+        assertThat(second.getHold(seatHold.getId()).getSeats(), is(seatHold.getSeats()));
+        assertThat(second.get(0, 5), is(SeatState.HELD));
+        assertThat(second.getOpenSeats(), is(26L));
+        final SeatReservation seatReservation = second.reserve(seatHold.getId(), "TEST@email.com");
+        assertThat(seatReservation, notNullValue());
+
+        // Both workers see the reservation and the next hold skips the reserved seats
+        assertThat(first.getHold(seatHold.getId()), nullValue());
+        assertThat(first.get(0, 8), is(SeatState.RESERVED));
+        assertThat(first.getReservations().get(seatReservation.getConfirmationCode()).getSeats(),
+                is(seatHold.getSeats()));
+        assertThat(first.hold(4, testEmail).getSeats(), is(new Seats(0, 1, 4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void open_differentLayout() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        open(file, 4, 1000);
+        SharedVenue.open(file, VenueLayout.rectangle(3, 11), Clock.systemUTC(), 16, 4, 1000);
+    }
+
+    @Test
+    public void hold_concurrentWorkersNeverShareSeats() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final VenueLayout wide = VenueLayout.rectangle(3, 40);
+        final SharedVenue[] workers = {SharedVenue.open(file, wide, Clock.systemUTC(), 64, 4, 10000),
+                SharedVenue.open(file, wide, Clock.systemUTC(), 64, 4, 10000)};
+
+        // Four threads per worker hold groups, each cancelling one of its own holds for every hold it makes once the
+        // venue fills, so the workers keep contending for the same seats
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            final SharedVenue venue = workers[thread % 2];
+            final Random random = new Random(thread);
+            futures.add(executor.submit(() -> {
+                final List<SeatHold> holds = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                    try {
+                        holds.add(venue.hold(1 + random.nextInt(4), testEmail));
+                    } catch (TicketException e) {
+                        // The venue is full
+                    }
+                    if (holds.size() > 2 || (!holds.isEmpty() && random.nextBoolean())) {
+                        final SeatHold seatHold = holds.remove(random.nextInt(holds.size()));
+                        assertThat(venue.release(seatHold.getId(), testEmail), notNullValue());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Every held seat belongs to exactly one hold, and the open seat counts match the seats
+        final SeatState[][] seen = new SeatState[3][40];
+        for (SeatHold seatHold : workers[0].getHolds().values()) {
+            final Seats seats = seatHold.getSeats();
+            for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+                assertThat(seen[seats.getRow()][seat], nullValue());
+                seen[seats.getRow()][seat] = SeatState.HELD;
+            }
+        }
+        long open = 0;
+        for (int row = 0; row < 3; row++) {
+            for (int seat = 0; seat < 40; seat++) {
+                final SeatState expected = seen[row][seat] == null ? SeatState.OPEN : SeatState.HELD;
+                assertThat(workers[1].get(row, seat), is(expected));
+                open += expected == SeatState.OPEN ? 1 : 0;
+            }
+        }
+        assertThat(workers[0].getOpenSeats(), is(open));
+    }
+
+    @Test
+    public void recover_rollsBackClaimOfDeadWorker() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue dead = open(file, 4, 50);
+        final SharedVenue alive = open(file, 4, 50);
+
+        // The dead worker takes seats for a hold but never completes it
+        dead.claim(3, testEmail);
+        assertThat(alive.get(0, 5), is(SeatState.HELD));
+        assertThat(alive.recover(), is(0));
+
+        // Once its heartbeat times out the claim is undone
+        Thread.sleep(100);
+        alive.heartbeat();
+        assertThat(alive.recover(), is(1));
+        assertThat(alive.get(0, 5), is(SeatState.OPEN));
+        assertThat(alive.getOpenSeats(), is(30L));
+        assertThat(alive.getHolds().isEmpty(), is(true));
+    }
+
+    @Test
+    public void claim_fencedOnceAdopted() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue paused = SharedVenue.open(file, layout, Clock.systemUTC(), 1, 4, 50);
+        final SharedVenue alive = SharedVenue.open(file, layout, Clock.systemUTC(), 1, 4, 50);
+        final long claimed = paused.claim(3, testEmail);
+
+        // The paused worker is presumed dead, and its only slot is undone and claimed again
+        Thread.sleep(100);
+        alive.heartbeat();
+        assertThat(alive.recover(), is(1));
+        final SeatHold seatHold = alive.hold(2, testEmail);
+
+        // On resuming it cannot complete its claim over the new one
+        try {
+            paused.completeHold(claimed);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), not(""));
+        }
+        assertThat(alive.getHold(seatHold.getId()).getSeats(), is(seatHold.getSeats()));
+        assertThat(alive.getHolds().size(), is(1));
+        assertThat(alive.getOpenSeats(), is(28L));
+    }
+
+    @Test
+    public void claim_fencedWhilePaused() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final PausingClock clock = new PausingClock();
+        final SharedVenue paused = SharedVenue.open(file, layout, clock, 16, 4, 50);
+        final SharedVenue alive = open(file, 4, 50);
+
+        // The worker pauses once it has claimed a slot and before it takes any seats
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<SeatHold> hold = executor.submit(() -> paused.hold(3, testEmail));
+            assertThat(clock.paused.await(10, TimeUnit.SECONDS), is(true));
+            Thread.sleep(100);
+            alive.heartbeat();
+            assertThat(alive.recover(), is(1));
+
+            // Having been adopted, it takes no seats when it resumes
+            clock.resume.countDown();
+            try {
+                hold.get(10, TimeUnit.SECONDS);
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof IllegalStateException, is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(alive.getOpenSeats(), is(30L));
+        assertThat(alive.getHolds().isEmpty(), is(true));
+        assertThat(alive.hold(10, testEmail).getSeats(), is(new Seats(0, 0, 9)));
+    }
+
+    @Test
+    public void hold_acrossProcesses() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final VenueLayout large = VenueLayout.rectangle(40, 20);
+        final SharedVenue venue = SharedVenue.open(file, large, Clock.systemUTC(), 512, 8, 60000);
+        final Process[] processes = {startWorker(file, 40, 20, 60000), startWorker(file, 40, 20, 60000)};
+        try {
+            final BufferedReader[] outs = new BufferedReader[processes.length];
+            final PrintStream[] ins = new PrintStream[processes.length];
+            for (int i = 0; i < processes.length; i++) {
+                outs[i] = new BufferedReader(new InputStreamReader(processes[i].getInputStream(),
+                        StandardCharsets.UTF_8));
+                ins[i] = new PrintStream(processes[i].getOutputStream(), true, "UTF-8");
+                assertThat(command(ins[i], outs[i], "worker"), not(String.valueOf(venue.getWorker())));
+            }
+
+            // Both processes and this one hold seats at once from the same file
+            for (PrintStream in : ins) {
+                in.println("hold 3 40");
+            }
+            for (int i = 0; i < 40; i++) {
+                venue.hold(3, testEmail);
+            }
+            for (BufferedReader out : outs) {
+                assertThat(reply(out), is("40"));
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+
+        // No seat was taken by two holds, and every held seat belongs to a hold
+        final boolean[][] taken = new boolean[40][20];
+        assertThat(venue.getHolds().size(), is(120));
+        for (SeatHold seatHold : venue.getHolds().values()) {
+            final Seats seats = seatHold.getSeats();
+            for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+                assertThat(taken[seats.getRow()][seat], is(false));
+                taken[seats.getRow()][seat] = true;
+            }
+        }
+        for (int row = 0; row < 40; row++) {
+            for (int seat = 0; seat < 20; seat++) {
+                assertThat(venue.get(row, seat), is(taken[row][seat] ? SeatState.HELD : SeatState.OPEN));
+            }
+        }
+        assertThat(venue.getOpenSeats(), is(800L - 360));
+    }
+
+    @Test
+    public void recover_killedProcess() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue venue = open(file, 4, 200);
+        final Process process = startWorker(file, 3, 10, 200);
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+             PrintStream in = new PrintStream(process.getOutputStream(), true, "UTF-8")) {
+            // The process completes one hold and is killed while part way through another
+            assertThat(command(in, out, "hold 2 1"), is("1"));
+            assertThat(command(in, out, "claim 5"), is("claimed"));
+            process.destroyForcibly().waitFor();
+        }
+        assertThat(venue.getOpenSeats(), is(23L));
+
+        // Once its heartbeat times out the claim is undone, and the completed hold remains. The process may have
+        // started slowly enough to take over this worker's slot, which is then recovered by registering again
+        Thread.sleep(400);
+        venue.heartbeat();
+        venue.recover();
+        assertThat(venue.getOpenSeats(), is(28L));
+        final SeatHold seatHold = venue.getHolds().values().iterator().next();
+        assertThat(venue.reserve(seatHold.getId(), "process@email.com"), notNullValue());
+    }
+
+    @Test
+    public void recover_keepsCompletedHolds() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue dead = open(file, 4, 50);
+        final SharedVenue alive = open(file, 4, 50);
+        final SeatHold seatHold = dead.hold(2, testEmail);
+
+        // A hold the customer was given outlives the worker which made it
+        Thread.sleep(100);
+        alive.heartbeat();
+        assertThat(alive.recover(), is(0));
+        assertThat(alive.reserve(seatHold.getId(), testEmail), notNullValue());
+    }
+
+    @Test
+    public void open_reusesSlotOfDeadWorker() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue dead = open(file, 1, 50);
+        dead.claim(5, testEmail);
+        try {
+            open(file, 1, 50);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), not(""));
+        }
+
+        // The worker which takes over the slot first recovers the change left by its previous holder
+        Thread.sleep(100);
+        final SharedVenue replacement = open(file, 1, 50);
+        assertThat(replacement.getWorker(), is(0));
+        assertThat(replacement.getOpenSeats(), is(30L));
+        assertThat(replacement.hold(10, testEmail).getSeats(), is(new Seats(0, 0, 9)));
+    }
+
+    @Test
+    public void expire() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue first = open(file, 4, 1000);
+        final SharedVenue second = open(file, 4, 1000);
+        final SeatHold seatHold = first.hold(2, testEmail);
+
+        // Any worker may expire a hold, but only once
+        assertThat(second.expire(System.currentTimeMillis() - 60000).isEmpty(), is(true));
+        assertThat(second.expire(System.currentTimeMillis() + 1).size(), is(1));
+        assertThat(first.expire(System.currentTimeMillis() + 1).isEmpty(), is(true));
+        assertThat(first.getHold(seatHold.getId()), nullValue());
+        assertThat(first.getOpenSeats(), is(30L));
+    }
+
+    @Test
+    public void change() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue venue = open(file, 4, 1000);
+        venue.hold(2, testEmail);
+
+        // A range containing a held seat is refused without changing any seat
+        assertThat(venue.change(new SeatRange(0, 1, 0, 9), SeatState.BLOCKED), is(-1));
+        assertThat(venue.get(0, 0), is(SeatState.OPEN));
+        assertThat(venue.get(1, 0), is(SeatState.OPEN));
+        assertThat(venue.getOpenSeats(), is(28L));
+
+        // Seats already blocked are not counted again
+        final SeatRange range = new SeatRange(1, 1, 0, 9);
+        assertThat(venue.change(range, SeatState.BLOCKED), is(10));
+        assertThat(venue.change(range, SeatState.BLOCKED), is(0));
+        assertThat(venue.getOpenSeats(), is(18L));
+
+        // Blocked seats may be reserved, and a reservation is recorded for each row
+        final List<SeatReservation> reservations = venue.reserve(new SeatRange(1, 2, 0, 1), testEmail);
+        assertThat(reservations.size(), is(2));
+        assertThat(venue.getReservations().size(), is(2));
+        assertThat(venue.get(1, 0), is(SeatState.RESERVED));
+        assertThat(venue.getOpenSeats(), is(16L));
+        assertThat(venue.reserve(new SeatRange(2, 2, 1, 2), testEmail), nullValue());
+        assertThat(venue.change(range, SeatState.OPEN), is(-1));
+        assertThat(venue.change(new SeatRange(1, 1, 2, 9), SeatState.OPEN), is(8));
+    }
+
+    @Test
+    public void find_runBound() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final SharedVenue first = open(file, 4, 1000);
+        final SharedVenue second = open(file, 4, 1000);
+
+        // Row 0 has seven open seats but no run longer than three
+        first.change(new SeatRange(0, 0, 3, 3), SeatState.BLOCKED);
+        first.change(new SeatRange(0, 0, 7, 7), SeatState.BLOCKED);
+        assertThat(first.find(4), is(1L << 32 | 5));
+        assertThat(second.find(4), is(1L << 32 | 5));
+        assertThat(second.find(3), is(4L));
+
+        // Opening a seat lets every worker find the longer run again
+        second.change(new SeatRange(0, 0, 3, 3), SeatState.OPEN);
+        assertThat(first.find(4), is(3L));
+        assertThat(first.find(8), is(1L << 32 | 2));
+    }
+
+    @Test
+    public void recover_rollsBackRangeChangeOfDeadWorker() throws Exception {
+        final Path file = folder.newFolder().toPath().resolve("venue");
+        final PausingClock clock = new PausingClock();
+        final SharedVenue paused = SharedVenue.open(file, layout, clock, 16, 4, 50);
+        final SharedVenue alive = open(file, 4, 50);
+
+        // The worker pauses once it has marked the range and before it writes the reservation records
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<SeatReservation>> reserve = executor.submit(
+                    () -> paused.reserve(new SeatRange(0, 1, 0, 9), testEmail));
+            assertThat(clock.paused.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(alive.get(1, 9), is(SeatState.HELD));
+            assertThat(alive.getOpenSeats(), is(10L));
+
+            // Once its heartbeat times out the change is rolled back, so it cannot commit when it resumes
+            Thread.sleep(100);
+            alive.heartbeat();
+            assertThat(alive.recover(), is(1));
+            clock.resume.countDown();
+            try {
+                reserve.get(10, TimeUnit.SECONDS);
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof IllegalStateException, is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The change is undone, and neither its seats nor its records survive the worker resuming
+        assertThat(alive.get(1, 9), is(SeatState.OPEN));
+        assertThat(alive.getOpenSeats(), is(30L));
+        assertThat(alive.getReservations().isEmpty(), is(true));
+    }
+
+    private SharedVenue open(final Path file, final int workers, final long heartbeatTimeoutMillis)
+            throws Exception {
+        return SharedVenue.open(file, layout, Clock.systemUTC(), 16, workers, heartbeatTimeoutMillis);
+    }
+
+    /**
+     * Starts a {@link SharedVenueProcess} on an existing shared venue file with a rectangular layout.
+     */
+    private static Process startWorker(final Path file, final int rows, final int seatsPerRow,
+                                       final long heartbeatTimeoutMillis) throws Exception {
+        return new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                SharedVenueProcess.class.getName(), file.toString(), String.valueOf(rows),
+                String.valueOf(seatsPerRow), "16", String.valueOf(heartbeatTimeoutMillis))
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    /**
+     * Sends a command to a {@link SharedVenueProcess} and waits for its reply.
+     */
+    private static String command(final PrintStream in, final BufferedReader out, final String command)
+            throws Exception {
+        in.println(command);
+        return reply(out);
+    }
+
+    /**
+     * Waits for the next reply of a {@link SharedVenueProcess}, skipping any lines it has logged.
+     */
+    private static String reply(final BufferedReader out) throws Exception {
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith(SharedVenueProcess.REPLY)) {
+                return line.substring(SharedVenueProcess.REPLY.length());
+            }
+        }
+        throw new IllegalStateException("Shared venue process exited");
+    }
+
+    /**
+     * Blocks the first thread to read it until resumed, standing in for a worker paused mid-change.
+     */
+    private static final class PausingClock extends Clock {
+
+        private final CountDownLatch paused = new CountDownLatch(1);
+
+        private final CountDownLatch resume = new CountDownLatch(1);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            if (paused.getCount() > 0) {
+                paused.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Instant.now();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SharedVenueTicketServiceImpl}, with two instances standing in for two worker processes.
+ */
+public final class SharedVenueTicketServiceImplTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final String testEmail = "test@email.com";
+
+    private final SimulatedClock clock = new SimulatedClock(Instant.parse("2018-10-01T18:00:00Z"));
+
+    private SharedVenueTicketServiceImpl first;
+
+    private SharedVenueTicketServiceImpl second;
+
+    @Before
+    public void setup() throws Exception {
+        System.setProperty("venue.shared.file", folder.newFolder().toPath().resolve("venue").toString());
+        try {
+            final ConfigurationProvider configurationProvider = new ConfigurationProvider();
+            first = new SharedVenueTicketServiceImpl(configurationProvider, clock, false);
+            second = new SharedVenueTicketServiceImpl(configurationProvider, clock, false);
+        } finally {
+            System.clearProperty("venue.shared.file");
+        }
+    }
+
+    @After
+    public void teardown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void reserveSeats_holdFromAnotherWorker() {
+        final SeatHold seatHold = first.findAndHoldSeats(2, testEmail);
+        assertThat(seatHold.getSeats(), is(new Seats(0, 16, 17)));
+        assertThat(second.getHold(seatHold.getId(), testEmail), is(seatHold));
+        assertThat(second.numSeatsAvailable(), is(9 * 33 - 2));
+
+        // The second worker reserves the hold made by the first
+        final String confirmationCode = second.reserveSeats(seatHold.getId(), testEmail);
+        assertThat(first.getReservations().get(confirmationCode).getSeats(), is(seatHold.getSeats()));
+        assertThat(first.getHolds().isEmpty(), is(true));
+        assertThat(first.seatMap(), is(second.seatMap()));
+        try {
+            first.reserveSeats(seatHold.getId(), testEmail);
+            fail("Exception expected");
+        } catch (TicketException e) {
+            assertThat(e.getError(), is(TicketError.HOLD_NOT_FOUND));
+        }
+    }
+
+    @Test
+    public void cancelSeatHold_holdFromAnotherWorker() {
+        final SeatHold seatHold = first.findAndHoldSeats(5, testEmail);
+        assertThat(second.cancelSeatHold(seatHold.getId(), "other@email.com"), is(false));
+        assertThat(second.cancelSeatHold(seatHold.getId(), testEmail), is(true));
+        assertThat(first.cancelSeatHold(seatHold.getId(), testEmail), is(false));
+        assertThat(first.numSeatsAvailable(), is(9 * 33));
+    }
+
+    @Test
+    public void holdAndReserveSeats() {
+        final SeatReservation seatReservation = first.holdAndReserveSeats(3, testEmail);
+        assertThat(seatReservation.getSeats(), is(new Seats(0, 16, 18)));
+        assertThat(second.getReservations().get(seatReservation.getConfirmationCode()), notNullValue());
+        assertThat(second.getHolds().isEmpty(), is(true));
+        assertThat(second.getFragmentationReport().getOpenSeats(), is(9L * 33 - 3));
+    }
+
+    @Test
+    public void blockSeats_rangeWithHold() {
+        first.findAndHoldSeats(2, testEmail);
+        try {
+            second.blockSeats(new SeatRange(0, 1, 0, 32));
+            fail("Exception expected");
+        } catch (TicketException e) {
+            assertThat(e.getError(), is(TicketError.RANGE_NOT_AVAILABLE));
+        }
+
+        // Nothing was blocked, so the whole of the second row can still be reserved
+        assertThat(first.numSeatsAvailable(), is(9 * 33 - 2));
+        final List<SeatReservation> reservations = second.reserveSeatRange(new SeatRange(1, 1, 0, 32), testEmail);
+        assertThat(reservations.size(), is(1));
+        assertThat(first.getReservations().size(), is(1));
+        assertThat(first.findAvailableBlocks(33, 0, 10).getBlocks().get(0).getRow(), is(2));
+    }
+
+    @Test
+    public void snapshot_changesOfEveryWorker() {
+        first.findAndHoldSeats(4, testEmail);
+        second.holdAndReserveSeats(2, testEmail);
+        second.blockSeats(new SeatRange(8, 8, 0, 9));
+
+        // The snapshot of either worker rebuilds the whole venue on the heap
+        final VenueSnapshot snapshot = first.snapshot();
+        assertThat(snapshot.getMutations().size(), is(3));
+        final TicketServiceImpl heap = new TicketServiceImpl(new ConfigurationProvider(), clock, false);
+        heap.restore(snapshot);
+        assertThat(heap.seatMap(), is(second.seatMap()));
+        assertThat(heap.getHolds(), is(second.getHolds()));
+        assertThat(heap.getReservations(), is(second.getReservations()));
+    }
+
+    @Test
+    public void joinWaitlist_refused() {
+        for (Runnable request : new Runnable[]{
+                () -> first.joinWaitlist(2, testEmail),
+                () -> first.getWaitlistStatus(1, testEmail),
+                () -> first.leaveWaitlist(1, testEmail)}) {
+            try {
+                request.run();
+                fail("Exception expected");
+            } catch (TicketException e) {
+                assertThat(e.getError(), is(TicketError.WAITLIST_DISABLED));
+            }
+        }
+    }
+
+    @Test
+    public void expireHolds() {
+        first.findAndHoldSeats(2, testEmail);
+        assertThat(second.expireHolds(), is(0));
+
+        // Either worker expires the hold once it times out
+        clock.advance(Duration.ofSeconds(61));
+        assertThat(second.expireHolds(), is(1));
+        assertThat(first.expireHolds(), is(0));
+        assertThat(first.numSeatsAvailable(), is(9 * 33));
+    }
+}
@@ -0,0 +1,87 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable description of a single customer in a simulation: when they arrive, how many seats they hold, and what
+ * they eventually do with the hold.
+ */
+@Value
+final class SimulatedArrival {
+
+    enum Outcome {
+        /**
+         * The customer reserves the held seats.
+         */
+        RESERVE,
+        /**
+         * The customer cancels the hold.
+         */
+        CANCEL,
+        /**
+         * The customer walks away and leaves the hold to expire.
+         */
+        ABANDON
+    }
+
+    /**
+     * Milliseconds from the start of the simulation at which the customer requests a hold.
+     */
+    private final long arrivalMillis;
+
+    private final int numSeats;
+
+    private final Outcome outcome;
+
+    /**
+     * Milliseconds between the hold being placed and the customer reserving or cancelling it.
+     */
+    private final long thinkMillis;
+
+    /**
+     * Parses a line of recorded traffic in the form {@code arrivalMillis,numSeats,outcome,thinkMillis}.
+     */
+    static SimulatedArrival parse(final String line) {
+        final String[] fields = line.split(",");
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected arrivalMillis,numSeats,outcome,thinkMillis but was [" + line + "]");
+        }
+        return new SimulatedArrival(Long.parseLong(fields[0].trim()), Integer.parseInt(fields[1].trim()),
+                Outcome.valueOf(fields[2].trim().toUpperCase(Locale.ROOT)), Long.parseLong(fields[3].trim()));
+    }
+
+    /**
+     * Loads a file of recorded traffic, one arrival per line as read by {@link #parse(String)}. Blank lines and lines
+     * starting with {@code #} are skipped, and the arrivals need not be in time order.
+     *
+     * @throws IllegalArgumentException If a line cannot be parsed, with the line number in the message
+     */
+    static List<SimulatedArrival> load(final Path path) throws IOException {
+        final List<SimulatedArrival> arrivals = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                try {
+                    arrivals.add(parse(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(path + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return arrivals;
+    }
+}
@@ -0,0 +1,118 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.util.Arrays;
+
+/**
+ * Immutable results of a {@link Simulator} run. Counts are measured in simulated time and are identical for repeated
+ * runs of the same arrivals, while latencies are the wall clock time spent within the {@link TicketService}.
+ */
+@Value
+final class SimulationReport {
+
+    private final long simulatedSeconds;
+
+    private final long wallMillis;
+
+    private final long holdRequests;
+
+    /**
+     * The number of hold requests which could not be allocated consecutive seats.
+     */
+    private final long holdFailures;
+
+    /**
+     * The number of hold requests which failed even though the venue had enough open seats in total, because no
+     * row had enough of them together.
+     */
+    private final long fragmentedFailures;
+
+    private final long reservations;
+
+    /**
+     * The number of reservations attempted after the hold had already expired.
+     */
+    private final long reserveFailures;
+
+    private final long cancellations;
+
+    private final long expiredHolds;
+
+    private final long seatsReserved;
+
+    /**
+     * The number of seats in the venue.
+     */
+    private final long seatCount;
+
+    /**
+     * How the seats left unsold at the end of the run are broken up.
+     */
+    private final FragmentationReport fragmentation;
+
+    private final Latency holdLatency;
+
+    private final Latency reserveLatency;
+
+    /**
+     * @return The fraction of hold requests which could not be allocated seats
+     */
+    double getHoldFailureRate() {
+        return holdRequests == 0 ? 0 : (double) holdFailures / holdRequests;
+    }
+
+    /**
+     * @return The fraction of the venue's seats which were reserved
+     */
+    double getFillRate() {
+        return seatCount == 0 ? 0 : (double) seatsReserved / seatCount;
+    }
+
+    /**
+     * @return The number of requests handled per second of wall clock time
+     */
+    double getThroughputPerSecond() {
+        final long requests = holdRequests + reservations + reserveFailures + cancellations;
+        return wallMillis == 0 ? requests * 1000.0 : requests * 1000.0 / wallMillis;
+    }
+
+    /**
+     * @return How many times faster than real time the simulation ran
+     */
+    double getSpeedup() {
+        return simulatedSeconds * 1000.0 / Math.max(1, wallMillis);
+    }
+
+    /**
+     * Immutable latency distribution in microseconds.
+     */
+    @Value
+    static final class Latency {
+
+        private final long count;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+        private final long p999Micros;
+        private final long maxMicros;
+
+        /**
+         * Summarizes the provided samples, which are sorted in place.
+         */
+        static Latency of(final long[] nanos, final int count) {
+            Arrays.sort(nanos, 0, count);
+            return new Latency(count, percentile(nanos, count, 0.5), percentile(nanos, count, 0.9),
+                    percentile(nanos, count, 0.99), percentile(nanos, count, 0.999),
+                    count == 0 ? 0 : nanos[count - 1] / 1000);
+        }
+
+        private static long percentile(final long[] sortedNanos, final int count, final double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile * count) - 1;
+            return sortedNanos[Math.max(0, index)] / 1000;
+        }
+    }
+}
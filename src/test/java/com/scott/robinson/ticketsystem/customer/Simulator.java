@@ -0,0 +1,208 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays {@link SimulatedArrival}s against a {@link TicketServiceImpl} in simulated time. Events are processed in
+ * time order on a single thread, moving a {@link SimulatedClock} to each event and expiring holds once per simulated
+ * second as the timer would. Because no time is spent waiting, an hour long on-sale replays in a fraction of the time.
+ *
+ * <p>The simulator is a test harness and is compiled with the tests. {@link #main(String[])} replays a file of
+ * recorded traffic, or an hour of generated traffic, against a venue built from the usual system properties.
+ */
+final class Simulator {
+
+    private static final long EXPIRY_INTERVAL_MILLIS = 1000;
+
+    private final ConfigurationProvider configurationProvider;
+
+    Simulator(final ConfigurationProvider configurationProvider) {
+        this.configurationProvider = configurationProvider;
+    }
+
+    /**
+     * @param args Optionally, a file of recorded traffic to replay as read by {@link SimulatedArrival#load}
+     */
+    public static void main(final String[] args) throws IOException {
+        final List<SimulatedArrival> arrivals = args.length > 0 ?
+                SimulatedArrival.load(Paths.get(args[0])) :
+                new TrafficMix(2, new int[]{2, 10, 3, 4, 1, 1}, 0.7, 0.1, 30).generate(3600, 42);
+        final SimulationReport report = new Simulator(new ConfigurationProvider()).run(arrivals);
+        System.out.println(report);
+    }
+
+    /**
+     * Replays the arrivals against a new venue, continuing until every hold has been reserved, cancelled, or expired.
+     */
+    SimulationReport run(final List<SimulatedArrival> arrivals) {
+        final Instant start = Instant.EPOCH;
+        final SimulatedClock clock = new SimulatedClock(start);
+        final TicketServiceImpl ticketService = new TicketServiceImpl(configurationProvider, clock, false);
+        final Run run = new Run(ticketService, arrivals.size());
+
+        // Events are ordered by time, and then by the order in which they were scheduled
+        final PriorityQueue<Event> events = new PriorityQueue<>();
+        long sequence = 0;
+        for (SimulatedArrival arrival : arrivals) {
+            events.add(new Event(arrival.getArrivalMillis(), sequence++, arrival, 0, null));
+        }
+
+        final long wallStart = System.nanoTime();
+        long nextExpiryMillis = EXPIRY_INTERVAL_MILLIS;
+        long nowMillis = 0;
+        while (!events.isEmpty()) {
+            final Event event = events.poll();
+            nextExpiryMillis = run.expireUntil(clock, start, nextExpiryMillis, event.timeMillis);
+            nowMillis = event.timeMillis;
+            clock.set(start.plusMillis(nowMillis));
+
+            if (event.customerEmail == null) {
+                final String customerEmail = "customer" + event.sequence + "@simulation.test";
+                final SeatHold seatHold = run.hold(event.arrival.getNumSeats(), customerEmail);
+                if (seatHold != null && event.arrival.getOutcome() != SimulatedArrival.Outcome.ABANDON) {
+                    events.add(new Event(nowMillis + event.arrival.getThinkMillis(), sequence++, event.arrival,
+                            seatHold.getId(), customerEmail));
+                }
+            } else if (event.arrival.getOutcome() == SimulatedArrival.Outcome.RESERVE) {
+                run.reserve(event.seatHoldId, event.customerEmail, event.arrival.getNumSeats());
+            } else {
+                run.cancel(event.seatHoldId, event.customerEmail);
+            }
+        }
+
+        // Let any remaining holds expire
+        final long drainMillis = nowMillis + TimeUnit.SECONDS.toMillis(configurationProvider.getHoldTimeoutSeconds())
+                + 2 * EXPIRY_INTERVAL_MILLIS;
+        run.expireUntil(clock, start, nextExpiryMillis, drainMillis);
+        final long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wallStart);
+
+        return new SimulationReport(TimeUnit.MILLISECONDS.toSeconds(nowMillis), wallMillis, run.holdRequests,
+                run.holdFailures, run.fragmentedFailures, run.reservations, run.reserveFailures, run.cancellations,
+                run.expiredHolds, run.seatsReserved, ticketService.getVenueReport().getSeats(), ticketService.getFragmentationReport(),
+                SimulationReport.Latency.of(run.holdNanos, run.holdSamples),
+                SimulationReport.Latency.of(run.reserveNanos, run.reserveSamples));
+    }
+
+    /**
+     * The counters and latency samples of a single run.
+     */
+    private static final class Run {
+        private final TicketServiceImpl ticketService;
+        private long holdRequests;
+        private long holdFailures;
+        private long fragmentedFailures;
+        private long reservations;
+        private long reserveFailures;
+        private long cancellations;
+        private long expiredHolds;
+        private long seatsReserved;
+        private long[] holdNanos;
+        private int holdSamples;
+        private long[] reserveNanos;
+        private int reserveSamples;
+
+        private Run(final TicketServiceImpl ticketService, final int expectedHolds) {
+            this.ticketService = ticketService;
+            this.holdNanos = new long[Math.max(16, expectedHolds)];
+            this.reserveNanos = new long[Math.max(16, expectedHolds / 2)];
+        }
+
+        /**
+         * Runs each expiry falling at or before the provided time.
+         *
+         * @return The time of the next expiry
+         */
+        private long expireUntil(final SimulatedClock clock, final Instant start, long nextExpiryMillis,
+                                 final long untilMillis) {
+            while (nextExpiryMillis <= untilMillis) {
+                clock.set(start.plusMillis(nextExpiryMillis));
+                expiredHolds += ticketService.expireHolds();
+                nextExpiryMillis += EXPIRY_INTERVAL_MILLIS;
+            }
+            return nextExpiryMillis;
+        }
+
+        private SeatHold hold(final int numSeats, final String customerEmail) {
+            holdRequests++;
+            final long start = System.nanoTime();
+            try {
+                return ticketService.findAndHoldSeats(numSeats, customerEmail);
+            } catch (RuntimeException e) {
+                holdFailures++;
+                if (ticketService.numSeatsAvailable() >= numSeats) {
+                    fragmentedFailures++;
+                }
+                return null;
+            } finally {
+                holdNanos = record(holdNanos, holdSamples++, System.nanoTime() - start);
+            }
+        }
+
+        private void reserve(final int seatHoldId, final String customerEmail, final int numSeats) {
+            final long start = System.nanoTime();
+            try {
+                ticketService.reserveSeats(seatHoldId, customerEmail);
+                reservations++;
+                seatsReserved += numSeats;
+            } catch (RuntimeException e) {
+                reserveFailures++;
+            } finally {
+                reserveNanos = record(reserveNanos, reserveSamples++, System.nanoTime() - start);
+            }
+        }
+
+        private void cancel(final int seatHoldId, final String customerEmail) {
+            // The hold may have expired before the customer got around to cancelling it
+            if (ticketService.cancelSeatHold(seatHoldId, customerEmail)) {
+                cancellations++;
+            }
+        }
+
+        private static long[] record(long[] samples, final int index, final long nanos) {
+            if (index == samples.length) {
+                samples = Arrays.copyOf(samples, samples.length * 2);
+            }
+            samples[index] = nanos;
+            return samples;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final long timeMillis;
+        private final long sequence;
+        private final SimulatedArrival arrival;
+
+        /**
+         * The hold being acted upon, when this is the customer returning to reserve or cancel.
+         */
+        private final int seatHoldId;
+
+        /**
+         * The customer returning to their hold, or null when this is the customer's arrival.
+         */
+        private final String customerEmail;
+
+        private Event(final long timeMillis, final long sequence, final SimulatedArrival arrival, final int seatHoldId,
+                      final String customerEmail) {
+            this.timeMillis = timeMillis;
+            this.sequence = sequence;
+            this.arrival = arrival;
+            this.seatHoldId = seatHoldId;
+            this.customerEmail = customerEmail;
+        }
+
+        @Override
+        public int compareTo(final Event other) {
+            final int byTime = Long.compare(timeMillis, other.timeMillis);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Simulator}.
+ */
+public final class SimulatorTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ConfigurationProvider configurationProvider = new ConfigurationProvider();
+
+    private final Simulator simulator = new Simulator(configurationProvider);
+
+    /**
+     * Busy on-sale: two customers a second wanting mostly pairs, most of whom reserve within half a minute.
+     */
+    private final TrafficMix trafficMix = new TrafficMix(2, new int[]{2, 10, 3, 4, 1, 1}, 0.7, 0.1, 30);
+
+    @Test
+    public void run_hourLongOnSale() {
+        final List<SimulatedArrival> arrivals = trafficMix.generate(3600, 42);
+        final SimulationReport report = simulator.run(arrivals);
+
+        // Verify an hour of traffic replays far faster than real time
+        assertThat(report.getSimulatedSeconds(), greaterThan(3500L));
+        assertThat(report.getWallMillis(), lessThan(30000L));
+        assertThat(report.getHoldRequests(), is((long) arrivals.size()));
+
+        // The venue sells out, after which hold requests fail
+        final int venueSeats = configurationProvider.getRows() * configurationProvider.getSeatsPerRow();
+        assertThat(report.getSeatsReserved(), greaterThan(venueSeats * 9L / 10));
+        assertThat(report.getSeatsReserved(), lessThan(venueSeats + 1L));
+        assertThat(report.getHoldFailureRate(), greaterThan(0.5));
+
+        // Every successful hold ends up reserved, cancelled, or expired
+        assertThat(report.getHoldRequests() - report.getHoldFailures(),
+                is(report.getReservations() + report.getCancellations() + report.getExpiredHolds()));
+        assertThat(report.getHoldLatency().getCount(), is(report.getHoldRequests()));
+        assertThat(report.getReserveLatency().getCount(), is(report.getReservations() + report.getReserveFailures()));
+    }
+
+    @Test
+    public void run_deterministic() {
+        final SimulationReport first = simulator.run(trafficMix.generate(600, 7));
+        final SimulationReport second = simulator.run(trafficMix.generate(600, 7));
+
+        // Everything measured in simulated time is identical between runs
+        assertThat(second.getHoldFailures(), is(first.getHoldFailures()));
+        assertThat(second.getReservations(), is(first.getReservations()));
+        assertThat(second.getCancellations(), is(first.getCancellations()));
+        assertThat(second.getExpiredHolds(), is(first.getExpiredHolds()));
+        assertThat(second.getSeatsReserved(), is(first.getSeatsReserved()));
+    }
+
+    @Test
+    public void run_recordedTraffic() {
+        // The second customer thinks longer than the hold timeout, and the third never returns
+        final List<SimulatedArrival> arrivals = Arrays.asList(
+                SimulatedArrival.parse("0,4,reserve,5000"),
+                SimulatedArrival.parse("1000,2,reserve,120000"),
+                SimulatedArrival.parse("2000,3,abandon,0"),
+                SimulatedArrival.parse("3000,5,cancel,1000"));
+        final SimulationReport report = simulator.run(arrivals);
+
+        assertThat(report.getReservations(), is(1L));
+        assertThat(report.getSeatsReserved(), is(4L));
+        assertThat(report.getReserveFailures(), is(1L));
+        assertThat(report.getCancellations(), is(1L));
+        assertThat(report.getExpiredHolds(), is(2L));
+        assertThat(report.getHoldFailures(), is(0L));
+    }
+
+    @Test
+    public void load_recordedTrafficFile() throws Exception {
+        final File file = folder.newFile("traffic.csv");
+        Files.write(file.toPath(), Arrays.asList(
+                "# arrivalMillis,numSeats,outcome,thinkMillis",
+                "3000,5,CANCEL,1000",
+                "",
+                "0,4,Reserve,5000"), StandardCharsets.UTF_8);
+
+        // Lines may be out of order, and are replayed in time order
+        final List<SimulatedArrival> arrivals = SimulatedArrival.load(file.toPath());
+        assertThat(arrivals.size(), is(2));
+        final SimulationReport report = simulator.run(arrivals);
+        assertThat(report.getReservations(), is(1L));
+        assertThat(report.getCancellations(), is(1L));
+
+        // Errors name the line they are on
+        Files.write(file.toPath(), Arrays.asList("0,4,reserve,5000", "1000,2,refund,0"), StandardCharsets.UTF_8);
+        try {
+            SimulatedArrival.load(file.toPath());
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().contains("line 2"), is(true));
+        }
+    }
+
+    @Test
+    public void run_compareAllocationStrategies() {
+        // Demand close to the capacity of a 1200 seat venue, from groups of up to eight
+        final List<SimulatedArrival> arrivals = new TrafficMix(1, new int[]{1, 6, 2, 4, 1, 2, 1, 2}, 0.8, 0.1, 30)
+                .generate(800, 1);
+        final SimulationReport best = simulator(AllocationStrategy.BEST).run(arrivals);
+        final SimulationReport compact = simulator(AllocationStrategy.COMPACT).run(arrivals);
+
+        // Verify the compact strategy turns fewer groups away while seats remain, and sells at least as many seats
+        assertThat(compact.getFragmentedFailures(), lessThan(best.getFragmentedFailures()));
+        assertThat(compact.getFillRate(), greaterThanOrEqualTo(best.getFillRate()));
+        assertThat(compact.getFragmentation().getStrandedSeats(),
+                lessThanOrEqualTo(best.getFragmentation().getStrandedSeats()));
+        assertThat(compact.getFragmentation().getStrategy(), is("compact"));
+    }
+
+    @Test
+    public void expireHolds_simulatedClock() {
+        final SimulatedClock clock = new SimulatedClock(Instant.EPOCH);
+        final TicketServiceImpl ticketService = new TicketServiceImpl(configurationProvider, clock, false);
+        final SeatHold seatHold = ticketService.findAndHoldSeats(2, "test@email.com");
+        assertThat(seatHold.getCreationTime(), is(LocalDateTime.now(clock)));
+
+        // The hold survives until the simulated clock passes the timeout
+        clock.advance(Duration.ofSeconds(configurationProvider.getHoldTimeoutSeconds()));
+        assertThat(ticketService.expireHolds(), is(0));
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(ticketService.expireHolds(), is(1));
+        assertThat(ticketService.getHolds().isEmpty(), is(true));
+    }
+
+    private static Simulator simulator(final AllocationStrategy strategy) {
+        System.setProperty("allocation.strategy", strategy.name());
+        System.setProperty("venue.rows", "30");
+        System.setProperty("venue.seats", "40");
+        try {
+            return new Simulator(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("allocation.strategy");
+            System.clearProperty("venue.rows");
+            System.clearProperty("venue.seats");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.replication.ReplicationStandby;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs a {@link ReplicationStandby} in its own JVM for {@link TicketServiceImplReplicationTest}. Commands are read one
+ * per line from standard input and each is answered with a single line starting with {@link #REPLY}, so that replies
+ * can be told apart from logging.
+ */
+public final class StandbyProcess {
+
+    static final String REPLY = "> ";
+
+    private StandbyProcess() {
+    }
+
+    /**
+     * @param args The port of the primary to replicate from
+     */
+    public static void main(final String[] args) throws Exception {
+        final TicketServiceImpl ticketService = new TicketServiceImpl(new ConfigurationProvider());
+        final ReplicationStandby standby = new ReplicationStandby(ticketService, "localhost",
+                Integer.parseInt(args[0]));
+        standby.start();
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = in.readLine()) != null) {
+            String reply;
+            try {
+                switch (command) {
+                    case "sequence":
+                        reply = String.valueOf(standby.status().getSequence());
+                        break;
+                    case "available":
+                        reply = String.valueOf(ticketService.numSeatsAvailable());
+                        break;
+                    case "promote":
+                        standby.promote();
+                        reply = String.valueOf(standby.getEpoch());
+                        break;
+                    case "hold":
+                        reply = String.valueOf(ticketService.findAndHoldSeats(2, "standby@email.com").getId());
+                        break;
+                    default:
+                        reply = "unknown command " + command;
+                }
+            } catch (RuntimeException e) {
+                reply = "failed " + e.getMessage();
+            }
+            System.out.println(REPLY + reply);
+            System.out.flush();
+        }
+    }
+}
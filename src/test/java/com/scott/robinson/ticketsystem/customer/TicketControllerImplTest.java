@@ -0,0 +1,229 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.scheduler.HoldSchedulerImpl;
+import com.scott.robinson.ticketsystem.scheduler.TierStatus;
+import com.scott.robinson.ticketsystem.waitingroom.QueueStatus;
+import com.scott.robinson.ticketsystem.waitingroom.QueueTicket;
+import com.scott.robinson.ticketsystem.waitingroom.WaitingRoomService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link TicketControllerImpl}, backed by a real {@link TicketServiceImpl} on a simulated clock.
+ */
+public final class TicketControllerImplTest {
+
+    private final ConfigurationProvider configurationProvider = new ConfigurationProvider();
+
+    private final String testEmail = "test@email.com";
+
+    private final String admissionToken = "admitted";
+
+    private final SimulatedClock clock = new SimulatedClock(Instant.EPOCH);
+
+    private final StubScheduler holdScheduler = new StubScheduler();
+
+    private TicketServiceImpl ticketService;
+
+    private TicketControllerImpl ticketController;
+
+    @Before
+    public void setup() {
+        ticketService = new TicketServiceImpl(configurationProvider, clock, false);
+        ticketController = new TicketControllerImpl(ticketService, new StubWaitingRoom(), holdScheduler,
+                configurationProvider, clock);
+    }
+
+    @Test
+    public void requestSeats_retried() {
+        final SeatHold seatHold = ticketController.requestSeats(2, testEmail, null, admissionToken, "key").join();
+        final int seatsAvailable = ticketService.numSeatsAvailable();
+
+        // A retry returns the original hold without holding any more seats
+        assertThat(ticketController.requestSeats(2, testEmail, null, admissionToken, "key").join(), is(seatHold));
+        assertThat(ticketService.numSeatsAvailable(), is(seatsAvailable));
+
+        // The key is scoped to the customer and the number of seats
+        assertThat(ticketController.requestSeats(3, testEmail, null, admissionToken, "key").join(), is(not(seatHold)));
+        assertThat(ticketController.requestSeats(2, "other@email.com", null, admissionToken, "key").join(),
+                is(not(seatHold)));
+        assertThat(ticketService.numSeatsAvailable(), is(seatsAvailable - 5));
+    }
+
+    @Test
+    public void requestSeats_retriedAfterHoldExpired() {
+        final SeatHold seatHold = ticketController.requestSeats(2, testEmail, null, admissionToken, "key").join();
+        clock.advance(Duration.ofSeconds(configurationProvider.getHoldTimeoutSeconds()));
+        ticketService.expireHolds();
+
+        // The expired hold is forgotten along with its key, so the retry holds seats again
+        final SeatHold retried = ticketController.requestSeats(2, testEmail, null, admissionToken, "key").join();
+        assertThat(retried.getId(), is(not(seatHold.getId())));
+        assertThat(ticketService.getHold(retried.getId(), testEmail), is(retried));
+    }
+
+    @Test
+    public void purchaseSeats_retried() {
+        final SeatReservation reservation =
+                ticketController.purchaseSeats(2, testEmail, null, admissionToken, "key").join();
+        final int seatsAvailable = ticketService.numSeatsAvailable();
+        assertThat(ticketController.purchaseSeats(2, testEmail, null, admissionToken, "key").join(), is(reservation));
+        assertThat(ticketService.numSeatsAvailable(), is(seatsAvailable));
+
+        // A different number of seats under the same key is a different purchase
+        assertThat(ticketController.purchaseSeats(4, testEmail, null, admissionToken, "key").join(),
+                is(not(reservation)));
+        assertThat(ticketService.numSeatsAvailable(), is(seatsAvailable - 4));
+    }
+
+    @Test
+    public void joinWaitlist_notAdmitted() {
+        try {
+            ticketController.joinWaitlist(2, testEmail, null, "unknown");
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(),
+                    is("A valid admission token from the waiting room is required to request seats."));
+        }
+        assertThat(holdScheduler.tiers.isEmpty(), is(true));
+    }
+
+    @Test
+    public void joinWaitlist_matchedByExpiredHold() {
+        ticketService.blockSeats(new SeatRange(1, configurationProvider.getRows() - 1, 0,
+                configurationProvider.getSeatsPerRow() - 1));
+        final SeatHold fullRow = ticketController.requestSeats(configurationProvider.getSeatsPerRow(),
+                "other@email.com", null, admissionToken, null).join();
+
+        // The request is scheduled in the customer's tier and waits for seats
+        final WaitlistStatus status = ticketController.joinWaitlist(2, testEmail, "member", admissionToken).join();
+        assertThat(status.getState(), is(WaitlistState.WAITING));
+        assertThat(holdScheduler.tiers.get(holdScheduler.tiers.size() - 1), is("member"));
+
+        // Polling keeps the customer's place until the row's hold expires
+        clock.advance(Duration.ofSeconds(configurationProvider.getHoldTimeoutSeconds() / 2));
+        assertThat(ticketController.getWaitlistStatus(status.getId(), testEmail).getState(),
+                is(WaitlistState.WAITING));
+        clock.advance(Duration.ofSeconds(configurationProvider.getHoldTimeoutSeconds()));
+        assertThat(ticketService.expireHolds(), is(1));
+
+        final WaitlistStatus matched = ticketController.getWaitlistStatus(status.getId(), testEmail);
+        assertThat(matched.getState(), is(WaitlistState.MATCHED));
+        assertThat(matched.getSeatHold().getSeats(), is(new Seats(0, 16, 17)));
+        assertThat(matched.getSeatHold().getId(), is(not(fullRow.getId())));
+        assertThat(ticketController.leaveWaitlist(status.getId(), testEmail), is("Failed to leave the waitlist ["
+                + status.getId() + "]. The request may already have been matched."));
+    }
+
+    @Test
+    public void requestSeats_floodedTierDoesNotDelayOthers() {
+        final HoldScheduler tieredScheduler = enabledScheduler();
+        final TicketControllerImpl tieredController = new TicketControllerImpl(ticketService, new StubWaitingRoom(),
+                tieredScheduler, configurationProvider, clock);
+
+        // Hold the dispatcher so that requests queue behind it
+        final CountDownLatch release = new CountDownLatch(1);
+        tieredScheduler.schedule("general", () -> awaitQuietly(release));
+
+        // A flood of general requests is queued without holding the calling thread for any of them
+        final List<CompletableFuture<SeatHold>> general = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            general.add(tieredController.requestSeats(1, "general" + i + "@email.com", "general", admissionToken, null));
+        }
+        final CompletableFuture<SeatHold> member = tieredController.requestSeats(2, testEmail, "member",
+                admissionToken, null);
+        assertThat(member.isDone(), is(false));
+
+        // The member request is served before any of the general requests queued ahead of it
+        final CompletableFuture<Long> generalServedFirst = member.thenApply(
+                seatHold -> general.stream().filter(CompletableFuture::isDone).count());
+        release.countDown();
+        assertThat(member.join().getSeats(), is(new Seats(0, 16, 17)));
+        assertThat(generalServedFirst.join(), is(0L));
+        for (CompletableFuture<SeatHold> seatHold : general) {
+            seatHold.join();
+        }
+        assertThat(ticketService.numSeatsAvailable(), is(9 * 33 - 2 - 200));
+    }
+
+    private static HoldScheduler enabledScheduler() {
+        System.setProperty("scheduler.enabled", "true");
+        System.setProperty("scheduler.tiers", "member:5,general:1");
+        try {
+            return new HoldSchedulerImpl(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("scheduler.enabled");
+            System.clearProperty("scheduler.tiers");
+        }
+    }
+
+    private static boolean awaitQuietly(final CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Admits only the customers holding {@link #admissionToken}.
+     */
+    private final class StubWaitingRoom implements WaitingRoomService {
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public QueueTicket join(final String customerEmail) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public QueueStatus status(final String admissionToken, final String customerEmail) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isAdmitted(final String token, final String customerEmail) {
+            return admissionToken.equals(token);
+        }
+    }
+
+    /**
+     * Runs each request at once, recording the tier it was scheduled in.
+     */
+    private static final class StubScheduler implements HoldScheduler {
+
+        private final List<String> tiers = new ArrayList<>();
+
+        @Override
+        public <T> CompletableFuture<T> schedule(final String tier, final Supplier<T> request) {
+            tiers.add(tier);
+            return CompletableFuture.completedFuture(request.get());
+        }
+
+        @Override
+        public List<TierStatus> status() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.scheduler.HoldScheduler;
+import com.scott.robinson.ticketsystem.scheduler.TierStatus;
+import com.scott.robinson.ticketsystem.waitingroom.QueueStatus;
+import com.scott.robinson.ticketsystem.waitingroom.QueueTicket;
+import com.scott.robinson.ticketsystem.waitingroom.WaitingRoomService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link TicketRpcServer} and {@link TicketRpcClient} over a real connection.
+ */
+public final class TicketRpcServerTest {
+
+    private final String testEmail = "test@email.com";
+
+    private final String admissionToken = "admitted";
+
+    private final StubScheduler holdScheduler = new StubScheduler();
+
+    private TicketService ticketService;
+
+    private TicketRpcServer server;
+
+    private TicketRpcClient client;
+
+    @Before
+    public void setup() throws Exception {
+        ticketService = new TicketServiceImpl(new ConfigurationProvider());
+        server = new TicketRpcServer(ticketService, new StubWaitingRoom(), holdScheduler, 0, 2);
+        server.start();
+        client = new TicketRpcClient("localhost", server.getPort());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void findAndHoldSeats() throws Exception {
+        final SeatHold seatHold = get(client.findAndHoldSeats(2, testEmail, null, admissionToken));
+        assertThat(seatHold.getSeats(), is(new Seats(0, 16, 17)));
+        assertThat(ticketService.getHold(seatHold.getId(), testEmail), is(seatHold));
+        assertThat(get(client.getHold(seatHold.getId(), testEmail)), is(seatHold));
+        assertRefused(client.getHold(seatHold.getId(), "other@email.com"), TicketError.HOLD_NOT_FOUND);
+        assertThat(get(client.numSeatsAvailable()), is(9 * 33 - 2));
+
+        // Reserve the hold
+        final String confirmationCode = get(client.reserveSeats(seatHold.getId(), testEmail));
+        assertThat(ticketService.getReservations().get(confirmationCode).getSeats(), is(seatHold.getSeats()));
+    }
+
+    @Test
+    public void holdAndReserveSeats() throws Exception {
+        final SeatReservation seatReservation = get(client.holdAndReserveSeats(3, testEmail, "member",
+                admissionToken));
+        assertThat(ticketService.getReservations().get(seatReservation.getConfirmationCode()), is(seatReservation));
+    }
+
+    @Test
+    public void findAvailableBlocksAndSeatMap() throws Exception {
+        get(client.findAndHoldSeats(33, testEmail, null, admissionToken));
+        assertThat(get(client.findAvailableBlocks(4, 0, 5)), is(ticketService.findAvailableBlocks(4, 0, 5)));
+        assertThat(get(client.seatMap()), is(ticketService.seatMap()));
+    }
+
+    @Test
+    public void refused() throws Exception {
+        assertRefused(client.findAndHoldSeats(0, testEmail, null, admissionToken), TicketError.INVALID_SEAT_COUNT);
+
+        // Requests outside the ticket service fail without a ticket error
+        try {
+            get(client.findAndHoldSeats(2, testEmail, null, "not admitted"));
+            fail("Exception expected");
+        } catch (TicketRpcException e) {
+            assertThat(e.getError(), nullValue());
+        }
+
+        // The connection is still usable
+        assertThat(get(client.numSeatsAvailable()), is(9 * 33));
+    }
+
+    @Test
+    public void pipelinedRequestsRunInOrder() throws Exception {
+        // Send every hold before waiting for any response
+        final List<CompletableFuture<SeatHold>> holds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            holds.add(client.findAndHoldSeats(2, testEmail, null, admissionToken));
+        }
+        final Set<Integer> ids = new HashSet<>();
+        for (CompletableFuture<SeatHold> hold : holds) {
+            ids.add(get(hold).getId());
+        }
+        assertThat(ids.size(), is(100));
+
+        // A cancel followed at once by a read of the same hold sees the cancellation
+        final int seatHoldId = get(holds.get(0)).getId();
+        final CompletableFuture<Boolean> canceled = client.cancelSeatHold(seatHoldId, testEmail);
+        final CompletableFuture<SeatHold> read = client.getHold(seatHoldId, testEmail);
+        assertThat(get(canceled), is(true));
+        assertRefused(read, TicketError.HOLD_NOT_FOUND);
+        assertThat(get(client.numSeatsAvailable()), is(9 * 33 - 99 * 2));
+    }
+
+    @Test
+    public void pipelinedRequestsBeyondLimits() throws Exception {
+        // Far more requests and response bytes than a connection may have outstanding, so reading pauses and resumes
+        final List<CompletableFuture<String>> maps = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            maps.add(client.seatMap());
+        }
+        final String seatMap = ticketService.seatMap();
+        for (CompletableFuture<String> map : maps) {
+            assertThat(get(map), is(seatMap));
+        }
+    }
+
+    @Test
+    public void scheduledRequestsHoldNoWorker() throws Exception {
+        holdScheduler.gate = new CompletableFuture<>();
+        final List<TicketRpcClient> clients = new ArrayList<>();
+        final List<CompletableFuture<SeatHold>> holds = new ArrayList<>();
+        final List<CompletableFuture<Integer>> behindHolds = new ArrayList<>();
+        try {
+            // More connections waiting on the scheduler than there are workers
+            for (int i = 0; i < 4; i++) {
+                final TicketRpcClient waiting = new TicketRpcClient("localhost", server.getPort());
+                clients.add(waiting);
+                holds.add(waiting.findAndHoldSeats(2, testEmail, null, admissionToken));
+                behindHolds.add(waiting.numSeatsAvailable());
+            }
+
+            // Other connections are still served, while each waiting connection's later requests stay behind its hold
+            assertThat(get(client.numSeatsAvailable()), is(9 * 33));
+            for (CompletableFuture<Integer> behindHold : behindHolds) {
+                assertThat(behindHold.isDone(), is(false));
+            }
+
+            // Once the holds run, each connection's later request sees its own hold
+            holdScheduler.gate.complete(null);
+            for (int i = 0; i < holds.size(); i++) {
+                assertThat(get(holds.get(i)).getEmail(), is(testEmail));
+                assertThat(get(behindHolds.get(i)), lessThanOrEqualTo(9 * 33 - 2));
+            }
+        } finally {
+            for (TicketRpcClient waiting : clients) {
+                waiting.close();
+            }
+        }
+    }
+
+    @Test
+    public void invalidFrameClosesConnection() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(TicketRpcCodec.MAX_REQUEST_BYTES + 1);
+            out.flush();
+            socket.setSoTimeout(5000);
+            assertThat(new DataInputStream(socket.getInputStream()).read(), is(-1));
+        }
+
+        // Other connections are unaffected
+        assertThat(get(client.numSeatsAvailable()), is(9 * 33));
+    }
+
+    @Test
+    public void close_failsOutstandingCalls() throws Exception {
+        final TicketRpcClient closed = new TicketRpcClient("localhost", server.getPort());
+        closed.close();
+        try {
+            get(closed.numSeatsAvailable());
+            fail("Exception expected");
+        } catch (TicketRpcException e) {
+            assertThat(e.getMessage(), notNullValue());
+        }
+    }
+
+    private static void assertRefused(final Future<?> future, final TicketError error) throws Exception {
+        try {
+            get(future);
+            fail("Exception expected");
+        } catch (TicketRpcException e) {
+            assertThat(e.getError(), is(error));
+            assertThat(e.getMessage(), is(error.getMessage()));
+        }
+    }
+
+    /**
+     * Waits for the call, unwrapping its failure.
+     */
+    private static <T> T get(final Future<T> future) throws Exception {
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TicketRpcException.class));
+            throw (TicketRpcException) e.getCause();
+        }
+    }
+
+    /**
+     * Admits only the customers holding {@link #admissionToken}.
+     */
+    private final class StubWaitingRoom implements WaitingRoomService {
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public QueueTicket join(final String customerEmail) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public QueueStatus status(final String admissionToken, final String customerEmail) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isAdmitted(final String token, final String customerEmail) {
+            return admissionToken.equals(token);
+        }
+    }
+
+    /**
+     * Runs each request at once, as the scheduler does when disabled, or once {@link #gate} is completed if it is set.
+     */
+    private static final class StubScheduler implements HoldScheduler {
+
+        private volatile CompletableFuture<Void> gate;
+
+        @Override
+        public <T> CompletableFuture<T> schedule(final String tier, final Supplier<T> request) {
+            final CompletableFuture<Void> start = gate == null ? CompletableFuture.completedFuture(null) : gate;
+            return start.thenApply(ignored -> request.get());
+        }
+
+        @Override
+        public List<TierStatus> status() {
+            return Collections.emptyList();
+        }
+    }
+}
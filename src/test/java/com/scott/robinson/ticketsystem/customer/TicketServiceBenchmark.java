@@ -0,0 +1,106 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the hold, reserve, and cancel hot paths. Not run as part of the test suite; run {@link #main} from
+ * the IDE or with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.scott.robinson.ticketsystem.customer.TicketServiceBenchmark} to report the time and
+ * allocation ({@code gc.alloc.rate.norm}) of each operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketServiceBenchmark {
+
+    private static final String EMAIL = "benchmark@email.com";
+
+    /**
+     * The {@link AllocationStrategy} used to find the seats of each hold.
+     */
+    @Param({"best", "compact"})
+    public String strategy;
+
+    private TicketServiceImpl ticketService;
+
+    private TicketServiceImpl soldOutService;
+
+    @Setup
+    public void setup() {
+        System.setProperty("allocation.strategy", strategy);
+        final ConfigurationProvider configurationProvider;
+        try {
+            configurationProvider = new ConfigurationProvider();
+        } finally {
+            System.clearProperty("allocation.strategy");
+        }
+        ticketService = new TicketServiceImpl(configurationProvider, Clock.systemUTC(), false);
+
+        soldOutService = new TicketServiceImpl(configurationProvider, Clock.systemUTC(), false);
+        soldOutService.blockSeats(new SeatRange(0, configurationProvider.getRows() - 1, 0,
+                configurationProvider.getSeatsPerRow() - 1));
+    }
+
+    /**
+     * A successful hold, released again so the venue stays in the same state.
+     */
+    @Benchmark
+    public boolean holdAndCancel() {
+        final SeatHold seatHold = ticketService.findAndHoldSeats(4, EMAIL);
+        return ticketService.cancelSeatHold(seatHold.getId(), EMAIL);
+    }
+
+    /**
+     * A hold refused because the venue is sold out.
+     */
+    @Benchmark
+    public TicketError holdSoldOut() {
+        try {
+            soldOutService.findAndHoldSeats(4, EMAIL);
+            return null;
+        } catch (TicketException e) {
+            return e.getError();
+        }
+    }
+
+    /**
+     * A reservation of an unknown hold.
+     */
+    @Benchmark
+    public TicketError reserveUnknownHold() {
+        try {
+            ticketService.reserveSeats(-1, EMAIL);
+            return null;
+        } catch (TicketException e) {
+            return e.getError();
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TicketServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,227 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import com.scott.robinson.ticketsystem.replication.AckMode;
+import com.scott.robinson.ticketsystem.replication.ReplicationPrimary;
+import com.scott.robinson.ticketsystem.replication.ReplicationStandby;
+import com.scott.robinson.ticketsystem.replication.ReplicationStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for replicating a {@link TicketServiceImpl} through a {@link ReplicationPrimary} and
+ * {@link ReplicationStandby}.
+ */
+public final class TicketServiceImplReplicationTest {
+
+    private final ConfigurationProvider configurationProvider = new ConfigurationProvider();
+
+    private final String testEmail = "test@email.com";
+
+    private TicketServiceImpl primaryService;
+
+    private TicketServiceImpl standbyService;
+
+    private ReplicationPrimary primary;
+
+    private ReplicationStandby standby;
+
+    @Before
+    public void setup() {
+        primaryService = new TicketServiceImpl(configurationProvider);
+        standbyService = new TicketServiceImpl(configurationProvider);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (primary != null) {
+            primary.close();
+        }
+        if (standby != null && !standby.isPromoted()) {
+            standby.promote();
+        }
+    }
+
+    @Test
+    public void replicate_async() throws Exception {
+        // Changes made before the standby connects arrive through the snapshot
+        final SeatHold reservedHold = primaryService.findAndHoldSeats(3, testEmail);
+        final String confirmationCode = primaryService.reserveSeats(reservedHold.getId(), testEmail);
+        final SeatHold openHold = primaryService.findAndHoldSeats(2, testEmail);
+        primaryService.blockSeats(new SeatRange(3, 3, 20, 25));
+
+        startReplication(AckMode.ASYNC);
+
+        // Changes made afterwards arrive as mutations
+        final SeatHold canceledHold = primaryService.findAndHoldSeats(4, testEmail);
+        primaryService.cancelSeatHold(canceledHold.getId(), testEmail);
+        primaryService.holdAndReserveSeats(5, testEmail);
+        primaryService.blockSeats(new SeatRange(5, 8, 0, 10));
+        primaryService.releaseBlockedSeats(new SeatRange(8, 8, 0, 10));
+
+        // Verify the standby converges on the same venue
+        awaitCondition(() -> standby.status().getSequence() == primary.status().getSequence());
+        assertReplicated();
+        assertThat(standbyService.getHold(openHold.getId(), testEmail), is(openHold));
+        assertThat(standbyService.getReservations().get(confirmationCode), notNullValue());
+    }
+
+    @Test
+    public void replicate_sync() throws Exception {
+        startReplication(AckMode.SYNC);
+
+        // Each change is acknowledged by the standby before it is confirmed
+        for (int i = 0; i < 10; i++) {
+            final SeatHold seatHold = primaryService.findAndHoldSeats(2, testEmail);
+            assertThat(standbyService.getHold(seatHold.getId(), testEmail), is(seatHold));
+        }
+        assertReplicated();
+
+        // Verify the acknowledgement latency was measured, though an acknowledgement may arrive within a microsecond
+        final ReplicationStatus status = primary.status();
+        assertThat(status.getSyncWaits(), is(10L));
+        assertThat(status.getSyncTimeouts(), is(0L));
+        assertThat(status.getMaxSyncWaitMicros(), greaterThanOrEqualTo(status.getMeanSyncWaitMicros()));
+    }
+
+    @Test
+    public void replicate_notifiesStandbyListeners() throws Exception {
+        final String confirmationCode = primaryService.holdAndReserveSeats(3, testEmail).getConfirmationCode();
+        final List<VenueSnapshot> restores = new CopyOnWriteArrayList<>();
+        final List<VenueMutation> mutations = new CopyOnWriteArrayList<>();
+        standbyService.addMutationListener(new VenueMutationListener() {
+            @Override
+            public void onMutation(final long sequence, final VenueMutation mutation) {
+                mutations.add(mutation);
+            }
+
+            @Override
+            public void onRestore(final VenueSnapshot snapshot) {
+                restores.add(snapshot);
+            }
+        });
+
+        startReplication(AckMode.SYNC);
+        final SeatReservation seatReservation = primaryService.holdAndReserveSeats(2, testEmail);
+
+        // The snapshot carries the earlier reservation and the later one arrives as a mutation
+        assertThat(restores.size(), is(1));
+        assertThat(restores.get(0).getMutations().get(0).getConfirmationCode(), is(confirmationCode));
+        assertThat(mutations.size(), is(1));
+        assertThat(mutations.get(0).getConfirmationCode(), is(seatReservation.getConfirmationCode()));
+    }
+
+    @Test
+    public void promote() throws Exception {
+        startReplication(AckMode.SYNC);
+        final SeatHold seatHold = primaryService.findAndHoldSeats(2, testEmail);
+
+        // The standby rejects changes from customers
+        try {
+            standbyService.findAndHoldSeats(2, testEmail);
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(standbyService.isReadOnly(), is(true));
+        }
+
+        // Fail over to the standby
+        primary.close();
+        standby.promote();
+
+        // Verify the promoted standby honours existing holds and accepts new changes
+        assertThat(standbyService.isReadOnly(), is(false));
+        assertThat(standbyService.reserveSeats(seatHold.getId(), testEmail), notNullValue());
+        assertThat(standbyService.findAndHoldSeats(2, testEmail), notNullValue());
+    }
+
+    @Test
+    public void promote_standbyProcess() throws Exception {
+        primary = new ReplicationPrimary(primaryService, "localhost", 0, AckMode.SYNC, 5000);
+        primary.start();
+        final SeatHold seatHold = primaryService.findAndHoldSeats(3, testEmail);
+
+        final Process process = new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                StandbyProcess.class.getName(), String.valueOf(primary.getPort()))
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+             PrintStream in = new PrintStream(process.getOutputStream(), true, "UTF-8")) {
+            // The standby in the other process catches up, and then acknowledges each change before it is confirmed
+            awaitCondition(() -> primary.status().isConnected());
+            primaryService.holdAndReserveSeats(4, testEmail);
+            assertThat(command(in, out, "sequence"), is(String.valueOf(primary.status().getSequence())));
+            assertThat(command(in, out, "available"), is(String.valueOf(primaryService.numSeatsAvailable())));
+
+            // Promoting the standby fences this primary while both are running
+            assertThat(command(in, out, "promote"), is("1"));
+            assertThat(primary.status().isFenced(), is(true));
+            assertThat(primaryService.isReadOnly(), is(true));
+            try {
+                primaryService.reserveSeats(seatHold.getId(), testEmail);
+                fail("Exception expected");
+            } catch (RuntimeException e) {
+                assertThat(command(in, out, "hold").startsWith("failed"), is(false));
+            }
+        } finally {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    /**
+     * Sends a command to a {@link StandbyProcess} and waits for its reply, skipping any lines it has logged.
+     */
+    private static String command(final PrintStream in, final BufferedReader out, final String command)
+            throws Exception {
+        in.println(command);
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith(StandbyProcess.REPLY)) {
+                return line.substring(StandbyProcess.REPLY.length());
+            }
+        }
+        throw new IllegalStateException("Standby process exited");
+    }
+
+    private void startReplication(final AckMode ackMode) throws Exception {
+        primary = new ReplicationPrimary(primaryService, "localhost", 0, ackMode, 5000);
+        primary.start();
+        standby = new ReplicationStandby(standbyService, "localhost", primary.getPort());
+        standby.start();
+        awaitCondition(() -> primary.status().isConnected());
+    }
+
+    private void assertReplicated() {
+        assertThat(standbyService.seatMap(), is(primaryService.seatMap()));
+        assertThat(standbyService.getHolds(), is(primaryService.getHolds()));
+        assertThat(standbyService.getReservations().keySet(), is(primaryService.getReservations().keySet()));
+    }
+
+    private void awaitCondition(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for replication");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Stress tests for {@link TicketServiceImpl} which hammer holds, reservations, purchases, cancellations, and expiry
+ * from many threads at once, and then check that the outcomes every client observed add up to the final state of the
+ * venue.
+ *
+ * <p>Each client records the holds it was given and whether its own reserve or cancel of each succeeded. Once the
+ * threads stop, every recorded hold must have ended exactly one way: reserved, canceled, still held, or expired, with
+ * the expired holds numbering exactly those reported by {@link TicketServiceImpl#expireHolds()}. A hold which was
+ * both reserved and expired, or two records sharing a seat, therefore fails the test.
+ */
+public final class TicketServiceImplStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TicketServiceImplStressTest.class);
+
+    private static final int CLIENTS = 8;
+
+    private static final int OPERATIONS_PER_CLIENT = 2500;
+
+    private static final int ROUNDS = 8;
+
+    private static final int ROWS = 100;
+
+    private static final int SEATS_PER_ROW = 100;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final SimulatedClock clock = new SimulatedClock(Instant.EPOCH);
+
+    private TicketServiceImpl ticketService;
+
+    @Before
+    public void setup() {
+        // Short holds so that holds expire throughout, and a venue which is well sold but never sold out by a round
+        System.setProperty("venue.rows", String.valueOf(ROWS));
+        System.setProperty("venue.seats", String.valueOf(SEATS_PER_ROW));
+        System.setProperty("timeout.hold", "2");
+        try {
+            ticketService = new TicketServiceImpl(new ConfigurationProvider(), clock, false);
+        } finally {
+            System.clearProperty("venue.rows");
+            System.clearProperty("venue.seats");
+            System.clearProperty("timeout.hold");
+        }
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentOperations_noDoubleBooking() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            ticketService.restore(new VenueSnapshot(0, new ArrayList<>()));
+            runRound(round);
+        }
+    }
+
+    private void runRound(final int round) throws Exception {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong expired = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // Expire holds every millisecond, advancing the clock so that holds expire while clients reserve and cancel them
+        final Future<?> expirer = executor.submit(() -> {
+            start.await();
+            while (running.get()) {
+                clock.advance(Duration.ofMillis(100));
+                expired.addAndGet(ticketService.expireHolds());
+                Thread.sleep(1);
+            }
+            return null;
+        });
+
+        // Check that no seat belongs to two records in consistent snapshots taken while the clients run
+        final Future<Integer> checker = executor.submit(() -> {
+            start.await();
+            int snapshots = 0;
+            while (running.get()) {
+                assertNoSharedSeats(ticketService.snapshot().getMutations());
+                snapshots++;
+            }
+            return snapshots;
+        });
+
+        final List<Future<ClientRecord>> clients = new ArrayList<>();
+        for (int client = 0; client < CLIENTS; client++) {
+            clients.add(executor.submit(new Client(round * CLIENTS + client, start)));
+        }
+
+        final long startNanos = System.nanoTime();
+        start.countDown();
+        final List<ClientRecord> records = new ArrayList<>();
+        for (Future<ClientRecord> client : clients) {
+            records.add(client.get(60, TimeUnit.SECONDS));
+        }
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        running.set(false);
+        expirer.get(10, TimeUnit.SECONDS);
+        final int snapshots = checker.get(10, TimeUnit.SECONDS);
+
+        final long operations = (long) CLIENTS * OPERATIONS_PER_CLIENT;
+        final int refused = records.stream().mapToInt(record -> record.refused).sum();
+        LOGGER.info("Round {}: {} operations ({} refused) from {} clients at {} operations/sec, {} snapshots checked",
+                round, operations, refused, CLIENTS, operations * TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                snapshots);
+
+        assertInvariants(records, expired.get());
+    }
+
+    private void assertInvariants(final List<ClientRecord> records, final long expired) {
+        final Map<Integer, SeatHold> liveHolds = ticketService.getHolds();
+        final Map<String, SeatReservation> reservations = ticketService.getReservations();
+
+        // Every hold a client was given ended exactly one way
+        long held = 0;
+        long reserved = 0;
+        long canceled = 0;
+        long stillHeld = 0;
+        long purchased = 0;
+        for (ClientRecord record : records) {
+            for (SeatHold seatHold : record.holds) {
+                held++;
+                final boolean wasReserved = record.reserved.containsKey(seatHold.getId() + seatHold.getEmail());
+                final boolean wasCanceled = record.canceled.contains(seatHold.getId() + seatHold.getEmail());
+                final SeatHold live = liveHolds.get(seatHold.getId());
+                final boolean isLive = live != null && live.getEmail().equals(seatHold.getEmail());
+                if ((wasReserved ? 1 : 0) + (wasCanceled ? 1 : 0) + (isLive ? 1 : 0) > 1) {
+                    fail("Hold " + seatHold + " ended more than one way");
+                }
+                if (isLive) {
+                    assertThat(live.getSeats(), is(seatHold.getSeats()));
+                    stillHeld++;
+                }
+                if (wasReserved) {
+                    final SeatReservation reservation = reservations.get(
+                            record.reserved.get(seatHold.getId() + seatHold.getEmail()));
+                    assertThat(reservation.getSeats(), is(seatHold.getSeats()));
+                    reserved++;
+                }
+                canceled += wasCanceled ? 1 : 0;
+            }
+            for (String confirmationCode : record.purchased) {
+                assertThat(reservations.get(confirmationCode).getEmail(), is(record.email));
+                purchased++;
+            }
+        }
+        assertThat(held, greaterThan(0L));
+        assertThat(held - reserved - canceled - stillHeld, is(expired));
+        assertThat((long) liveHolds.size(), is(stillHeld));
+        assertThat((long) reservations.size(), is(reserved + purchased));
+
+        // No seat belongs to two records, and the venue shows exactly the seats of the live records
+        final char[][] owners = new char[ROWS][SEATS_PER_ROW];
+        for (SeatHold seatHold : liveHolds.values()) {
+            claim(owners, seatHold.getSeats(), 'H');
+        }
+        for (SeatReservation reservation : reservations.values()) {
+            claim(owners, reservation.getSeats(), 'R');
+        }
+        final String[] rows = ticketService.seatMap().split("\n");
+        int open = 0;
+        for (int row = 0; row < ROWS; row++) {
+            final String[] seats = rows[row + 1].split("\t");
+            for (int seat = 0; seat < SEATS_PER_ROW; seat++) {
+                final char state = seats[seat + 1].charAt(0);
+                assertThat("Row " + row + " seat " + seat, state, is(owners[row][seat] == 0 ? 'O' :
+                        owners[row][seat]));
+                open += state == 'O' ? 1 : 0;
+            }
+        }
+        assertThat(ticketService.numSeatsAvailable(), is(open));
+    }
+
+    private static void claim(final char[][] owners, final Seats seats, final char state) {
+        for (int seat = seats.getFirstSeat(); seat <= seats.getLastSeat(); seat++) {
+            assertThat("Seat shared by two records " + seats, owners[seats.getRow()][seat], is((char) 0));
+            owners[seats.getRow()][seat] = state;
+        }
+    }
+
+    private static void assertNoSharedSeats(final List<VenueMutation> mutations) {
+        final Map<Long, VenueMutation> owners = new HashMap<>();
+        for (VenueMutation mutation : mutations) {
+            for (int row = mutation.getRow(); row <= mutation.getLastRow(); row++) {
+                for (int seat = mutation.getFirstSeat(); seat <= mutation.getLastSeat(); seat++) {
+                    assertThat("Seat shared by two records", owners.put((long) row << 32 | seat, mutation),
+                            nullValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * A client which repeatedly holds seats and then reserves, cancels, or abandons them, and occasionally purchases
+     * seats outright or tries another client's hold, recording the outcome of each of its requests.
+     */
+    private final class Client implements Callable<ClientRecord> {
+
+        private final int id;
+
+        private final CountDownLatch start;
+
+        private Client(final int id, final CountDownLatch start) {
+            this.id = id;
+            this.start = start;
+        }
+
+        @Override
+        public ClientRecord call() throws Exception {
+            final ClientRecord record = new ClientRecord("client" + id + "@email.com");
+            final Random random = new Random(id);
+            final List<SeatHold> pending = new ArrayList<>();
+            start.await();
+            for (int i = 0; i < OPERATIONS_PER_CLIENT; i++) {
+                final int choice = random.nextInt(100);
+                try {
+                    if (choice < 50 || pending.isEmpty()) {
+                        // Each hold has its own email so that a reused hold Id can be told apart
+                        final SeatHold seatHold = ticketService.findAndHoldSeats(1 + random.nextInt(6),
+                                i + "." + record.email);
+                        record.holds.add(seatHold);
+                        pending.add(seatHold);
+                    } else if (choice < 53) {
+                        final SeatHold seatHold = pending.remove(random.nextInt(pending.size()));
+                        record.reserved.put(seatHold.getId() + seatHold.getEmail(),
+                                ticketService.reserveSeats(seatHold.getId(), seatHold.getEmail()));
+                    } else if (choice < 85) {
+                        final SeatHold seatHold = pending.remove(random.nextInt(pending.size()));
+                        if (ticketService.cancelSeatHold(seatHold.getId(), seatHold.getEmail())) {
+                            record.canceled.add(seatHold.getId() + seatHold.getEmail());
+                        }
+                    } else if (choice < 86) {
+                        record.purchased.add(ticketService.holdAndReserveSeats(1 + random.nextInt(3), record.email)
+                                .getConfirmationCode());
+                    } else if (choice < 90) {
+                        // Another client's hold Id with this client's email must never succeed
+                        ticketService.cancelSeatHold(random.nextInt(10000000), record.email);
+                    } else {
+                        final SeatHold seatHold = pending.get(random.nextInt(pending.size()));
+                        ticketService.getHold(seatHold.getId(), seatHold.getEmail());
+                    }
+                } catch (TicketException e) {
+                    // Sold out, or the hold expired first
+                    record.refused++;
+                }
+
+                // Abandoned holds are left to expire
+                if (pending.size() > 20) {
+                    pending.remove(0);
+                }
+            }
+            return record;
+        }
+    }
+
+    /**
+     * The outcomes a single client observed.
+     */
+    private static final class ClientRecord {
+
+        private final String email;
+
+        private final List<SeatHold> holds = new ArrayList<>();
+
+        /**
+         * Confirmation codes keyed by the hold Id and email of the hold reserved.
+         */
+        private final Map<String, String> reserved = new HashMap<>();
+
+        private final Set<String> canceled = new HashSet<>();
+
+        private final List<String> purchased = new ArrayList<>();
+
+        private int refused;
+
+        private ClientRecord(final String email) {
+            this.email = email;
+        }
+    }
+}
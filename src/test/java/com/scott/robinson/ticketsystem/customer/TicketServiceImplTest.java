@@ -4,9 +4,14 @@ import com.scott.robinson.ticketsystem.ConfigurationProvider;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -123,6 +128,35 @@ public final class TicketServiceImplTest {
         fail("Exception expected");
     }
 
+    @Test
+    public void holdAndReserveSeats() {
+        // Reserve without a hold
+        final SeatReservation seatReservation = ticketService.holdAndReserveSeats(testSeatNum, testEmail);
+        assertThat(seatReservation, notNullValue());
+
+        // Verify that the reservation has the correct data and no hold was created
+        assertThat(seatReservation.getEmail(), is(testEmail));
+        assertThat(seatReservation.getSeats(), is(testSeats));
+        assertThat(ticketService.getReservations().get(seatReservation.getConfirmationCode()), is(seatReservation));
+        assertThat(ticketService.getHolds().isEmpty(), is(true));
+
+        // Verify the seats are no longer available
+        final int seats = configurationProvider.getRows() * configurationProvider.getSeatsPerRow();
+        assertThat(ticketService.numSeatsAvailable(), is(seats - testSeatNum));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void holdAndReserveSeats_tooManyConsecutiveSeats() {
+        ticketService.holdAndReserveSeats(100000, testEmail);
+        fail("Exception expected");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void holdAndReserveSeats_noSeats() {
+        ticketService.holdAndReserveSeats(0, testEmail);
+        fail("Exception expected");
+    }
+
     @Test
     public void cancelSeatHold() {
         // Create the hold
@@ -203,4 +237,294 @@ public final class TicketServiceImplTest {
         final int seatHoldId = seatHold.getId();
         ticketService.getHold(seatHoldId, "invalidEmail");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findAvailableBlocks() {
+        // The first block is the one a hold would take, followed by its neighbours outwards from the middle
+        final AvailableBlocks page = ticketService.findAvailableBlocks(testSeatNum, 0, 4);
+        assertThat(page.getBlocks().size(), is(4));
+        assertThat(page.getBlocks().get(0), is(testSeats));
+        assertThat(page.getBlocks().get(1), is(new Seats(0, 15, 16)));
+        assertThat(page.getBlocks().get(2), is(new Seats(0, 17, 18)));
+        assertThat(page.getBlocks().get(3), is(new Seats(0, 14, 15)));
+        assertThat(page.getNextOffset(), is(4));
+        assertThat(ticketService.findAndHoldSeats(testSeatNum, testEmail).getSeats(), is(page.getBlocks().get(0)));
+    }
+
+    @Test
+    public void findAvailableBlocks_paging() {
+        // Each row of 33 seats holds 32 blocks of two, so the second page starts on the second row
+        final int rows = configurationProvider.getRows();
+        final AvailableBlocks page = ticketService.findAvailableBlocks(testSeatNum, 32, 1);
+        assertThat(page.getBlocks().get(0).getRow(), is(1));
+
+        // The last page reports that there are no further blocks
+        final AvailableBlocks last = ticketService.findAvailableBlocks(testSeatNum, 32 * rows - 2, 5);
+        assertThat(last.getBlocks().size(), is(2));
+        assertThat(last.getNextOffset(), is(-1));
+    }
+
+    @Test
+    public void findAvailableBlocks_skipsFullRows() {
+        // Reserve the whole first row
+        ticketService.holdAndReserveSeats(configurationProvider.getSeatsPerRow(), testEmail);
+
+        final AvailableBlocks page = ticketService.findAvailableBlocks(testSeatNum, 0, 1);
+        assertThat(page.getBlocks().get(0), is(new Seats(1, 16, 17)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void findAvailableBlocks_limitTooLarge() {
+        ticketService.findAvailableBlocks(testSeatNum, 0, TicketServiceImpl.MAX_BLOCKS_PER_PAGE + 1);
+        fail("Exception expected");
+    }
+
+    @Test
+    public void blockSeats() {
+        final int rows = configurationProvider.getRows();
+        final int seatsPerRow = configurationProvider.getSeatsPerRow();
+
+        // Block the middle seats of the first two rows
+        assertThat(ticketService.blockSeats(new SeatRange(0, 1, 10, 22)), is(26));
+        assertThat(ticketService.numSeatsAvailable(), is(rows * seatsPerRow - 26));
+
+        // Holds are placed around the blocked seats
+        final SeatHold seatHold = ticketService.findAndHoldSeats(testSeatNum, testEmail);
+        assertThat(seatHold.getSeats(), is(new Seats(0, 23, 24)));
+
+        // Blocking an overlapping range only counts the newly blocked seats
+        assertThat(ticketService.blockSeats(new SeatRange(1, 1, 20, 30)), is(8));
+    }
+
+    @Test
+    public void blockSeats_rejectsHeldSeats() {
+        final SeatHold seatHold = ticketService.findAndHoldSeats(testSeatNum, testEmail);
+        final int available = ticketService.numSeatsAvailable();
+        try {
+            ticketService.blockSeats(new SeatRange(0, 2, 0, 32));
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            // Verify nothing was blocked, including the rows without the hold
+            assertThat(ticketService.numSeatsAvailable(), is(available));
+            assertThat(ticketService.seatMap().contains("B"), is(false));
+            assertThat(ticketService.getHold(seatHold.getId(), testEmail), is(seatHold));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void blockSeats_outsideVenue() {
+        ticketService.blockSeats(new SeatRange(0, configurationProvider.getRows(), 0, 5));
+        fail("Exception expected");
+    }
+
+    @Test
+    public void releaseBlockedSeats() {
+        final int seats = configurationProvider.getRows() * configurationProvider.getSeatsPerRow();
+        ticketService.blockSeats(new SeatRange(0, 8, 0, 32));
+        assertThat(ticketService.numSeatsAvailable(), is(0));
+
+        // Releasing part of the block re-opens only those seats
+        assertThat(ticketService.releaseBlockedSeats(new SeatRange(4, 8, 0, 32)), is(165));
+        assertThat(ticketService.numSeatsAvailable(), is(165));
+        assertThat(ticketService.findAndHoldSeats(testSeatNum, testEmail).getSeats(), is(new Seats(4, 16, 17)));
+
+        // Releasing the rest of the block
+        assertThat(ticketService.releaseBlockedSeats(new SeatRange(0, 3, 0, 32)), is(132));
+        assertThat(ticketService.numSeatsAvailable(), is(seats - testSeatNum));
+    }
+
+    @Test
+    public void reserveSeatRange() {
+        ticketService.blockSeats(new SeatRange(2, 3, 0, 9));
+
+        // Reserve comps across blocked and open seats, one reservation per row
+        final List<SeatReservation> reservations = ticketService.reserveSeatRange(new SeatRange(2, 3, 5, 14), testEmail);
+        assertThat(reservations.size(), is(2));
+        assertThat(reservations.get(0).getSeats(), is(new Seats(2, 5, 14)));
+        assertThat(reservations.get(1).getSeats(), is(new Seats(3, 5, 14)));
+        assertThat(ticketService.getReservations().size(), is(2));
+
+        // Reserved seats cannot be released
+        try {
+            ticketService.releaseBlockedSeats(new SeatRange(2, 2, 0, 32));
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(ticketService.getReservations().size(), is(2));
+        }
+    }
+
+    @Test
+    public void findAndHoldSeats_failureIsSharedAndStackless() {
+        ticketService.blockSeats(new SeatRange(0, configurationProvider.getRows() - 1, 0,
+                configurationProvider.getSeatsPerRow() - 1));
+
+        // Verify refusals reuse a single exception which carries its error and no stack trace
+        try {
+            ticketService.findAndHoldSeats(testSeatNum, testEmail);
+            fail("Exception expected");
+        } catch (TicketException e) {
+            assertThat(e.getError(), is(TicketError.NO_CONSECUTIVE_SEATS));
+            assertThat(e.getStackTrace().length, is(0));
+            assertThat(e, sameInstance(TicketError.NO_CONSECUTIVE_SEATS.exception()));
+        }
+    }
+
+    @Test
+    public void findAndHoldSeats_uniqueIds() {
+        // Hold every pair of seats in the venue and verify no hold replaced another
+        final int holds = configurationProvider.getRows() * (configurationProvider.getSeatsPerRow() / testSeatNum);
+        for (int i = 0; i < holds; i++) {
+            ticketService.findAndHoldSeats(testSeatNum, testEmail);
+        }
+        assertThat(ticketService.getHolds().size(), is(holds));
+    }
+
+    @Test
+    public void getFragmentationReport() {
+        ticketService.findAndHoldSeats(testSeatNum, testEmail);
+        ticketService.blockSeats(new SeatRange(1, 1, 1, 31));
+
+        // The hold splits the first row into runs of 16 and 15, and the block leaves single seats at the second's ends
+        final FragmentationReport report = ticketService.getFragmentationReport();
+        assertThat(report.getStrategy(), is("best"));
+        assertThat(report.getFreeRuns(), is(11L));
+        assertThat(report.getLongestRun(), is(33));
+        assertThat(report.getStrandedSeats(), is(2L));
+        assertThat(report.getRunLengths()[0], is(2L));
+        assertThat(report.getRunLengths()[14], is(1L));
+        assertThat(report.getRunLengths()[15], is(8L));
+        assertThat(report.getOpenSeats(), is((long) ticketService.numSeatsAvailable()));
+    }
+
+    @Test
+    public void joinWaitlist_matchedOnCancel() {
+        final SeatHold fullRow = fillVenueExceptFirstRow(ticketService);
+        final WaitlistStatus waiting = ticketService.joinWaitlist(testSeatNum, testEmail);
+        assertThat(waiting.getState(), is(WaitlistState.WAITING));
+        assertThat(waiting.getSeatHold(), nullValue());
+
+        // Canceling the hold turns the released seats into a hold for the waiting customer
+        ticketService.cancelSeatHold(fullRow.getId(), testEmail);
+        final WaitlistStatus matched = ticketService.getWaitlistStatus(waiting.getId(), testEmail);
+        assertThat(matched.getState(), is(WaitlistState.MATCHED));
+        assertThat(matched.getSeatHold().getSeats(), is(testSeats));
+        assertThat(ticketService.getHold(matched.getSeatHold().getId(), testEmail), is(matched.getSeatHold()));
+        assertThat(ticketService.numSeatsAvailable(), is(configurationProvider.getSeatsPerRow() - testSeatNum));
+        assertThat(ticketService.reserveSeats(matched.getSeatHold().getId(), testEmail), notNullValue());
+    }
+
+    @Test
+    public void joinWaitlist_oldestFittingGroupFirst() {
+        ticketService.blockSeats(new SeatRange(0, 0, 0, 29));
+        ticketService.blockSeats(new SeatRange(1, configurationProvider.getRows() - 1, 0,
+                configurationProvider.getSeatsPerRow() - 1));
+        final SeatHold lastSeats = ticketService.findAndHoldSeats(3, testEmail);
+        final WaitlistStatus five = ticketService.joinWaitlist(5, testEmail);
+        final WaitlistStatus firstPair = ticketService.joinWaitlist(2, testEmail);
+        final WaitlistStatus secondPair = ticketService.joinWaitlist(2, testEmail);
+
+        // Three seats cannot seat the older group of five, so the first pair is matched
+        ticketService.cancelSeatHold(lastSeats.getId(), testEmail);
+        assertThat(ticketService.getWaitlistStatus(five.getId(), testEmail).getState(), is(WaitlistState.WAITING));
+        assertThat(ticketService.getWaitlistStatus(firstPair.getId(), testEmail).getState(),
+                is(WaitlistState.MATCHED));
+        assertThat(ticketService.getWaitlistStatus(secondPair.getId(), testEmail).getState(),
+                is(WaitlistState.WAITING));
+
+        // Returning blocked seats to sale seats everyone else
+        ticketService.releaseBlockedSeats(new SeatRange(0, 0, 0, 29));
+        assertThat(ticketService.getWaitlistStatus(five.getId(), testEmail).getSeatHold().getSeats().getRow(), is(0));
+        assertThat(ticketService.getWaitlistStatus(secondPair.getId(), testEmail).getState(),
+                is(WaitlistState.MATCHED));
+        assertThat(ticketService.getHolds().size(), is(3));
+    }
+
+    @Test
+    public void joinWaitlist_seatsAvailable() {
+        // Seats released before the customer joined are held immediately
+        final WaitlistStatus status = ticketService.joinWaitlist(testSeatNum, testEmail);
+        assertThat(status.getState(), is(WaitlistState.MATCHED));
+        assertThat(status.getSeatHold().getSeats(), is(testSeats));
+
+        assertWaitlistRefused(() -> ticketService.joinWaitlist(0, testEmail), TicketError.INVALID_SEAT_COUNT);
+        assertWaitlistRefused(() -> ticketService.joinWaitlist(configurationProvider.getSeatsPerRow() + 1, testEmail),
+                TicketError.GROUP_TOO_LARGE);
+        assertWaitlistRefused(() -> ticketService.getWaitlistStatus(status.getId(), "other@email.com"),
+                TicketError.WAITLIST_NOT_FOUND);
+    }
+
+    @Test
+    public void leaveWaitlist() {
+        final SeatHold fullRow = fillVenueExceptFirstRow(ticketService);
+        final WaitlistStatus status = ticketService.joinWaitlist(testSeatNum, testEmail);
+        assertThat(ticketService.leaveWaitlist(status.getId(), "other@email.com"), is(false));
+        assertThat(ticketService.leaveWaitlist(status.getId(), testEmail), is(true));
+        assertThat(ticketService.leaveWaitlist(status.getId(), testEmail), is(false));
+        assertWaitlistRefused(() -> ticketService.getWaitlistStatus(status.getId(), testEmail),
+                TicketError.WAITLIST_NOT_FOUND);
+
+        // Nobody is waiting, so the released seats stay open
+        ticketService.cancelSeatHold(fullRow.getId(), testEmail);
+        assertThat(ticketService.getHolds().isEmpty(), is(true));
+    }
+
+    @Test
+    public void expireHolds_matchesWaitlist() {
+        final SimulatedClock clock = new SimulatedClock(Instant.EPOCH);
+        final TicketServiceImpl ticketService = new TicketServiceImpl(configurationProvider, clock, false);
+        fillVenueExceptFirstRow(ticketService);
+        final WaitlistStatus abandoned = ticketService.joinWaitlist(testSeatNum, testEmail);
+        final WaitlistStatus polling = ticketService.joinWaitlist(testSeatNum, testEmail);
+
+        // Only the second customer keeps polling
+        clock.advance(Duration.ofSeconds(30));
+        ticketService.getWaitlistStatus(polling.getId(), testEmail);
+        clock.advance(Duration.ofSeconds(40));
+
+        // The expired hold goes to the customer still polling, and the other gives up their place
+        assertThat(ticketService.expireHolds(), is(1));
+        assertWaitlistRefused(() -> ticketService.getWaitlistStatus(abandoned.getId(), testEmail),
+                TicketError.WAITLIST_NOT_FOUND);
+        assertThat(ticketService.getWaitlistStatus(polling.getId(), testEmail).getSeatHold().getSeats(),
+                is(testSeats));
+    }
+
+    @Test
+    public void joinWaitlist_disabled() {
+        System.setProperty("waitlist.enabled", "false");
+        final TicketService ticketService;
+        try {
+            ticketService = new TicketServiceImpl(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("waitlist.enabled");
+        }
+        fillVenueExceptFirstRow(ticketService);
+
+        // Customers refused seats cannot wait for them
+        assertWaitlistRefused(() -> ticketService.joinWaitlist(testSeatNum, testEmail), TicketError.WAITLIST_DISABLED);
+        assertWaitlistRefused(() -> ticketService.getWaitlistStatus(1, testEmail), TicketError.WAITLIST_DISABLED);
+        assertWaitlistRefused(() -> ticketService.leaveWaitlist(1, testEmail), TicketError.WAITLIST_DISABLED);
+    }
+
+    /**
+     * Blocks every row but the first, and holds the whole of the first row.
+     *
+     * @return The hold of the first row
+     */
+    private SeatHold fillVenueExceptFirstRow(final TicketService ticketService) {
+        ticketService.blockSeats(new SeatRange(1, configurationProvider.getRows() - 1, 0,
+                configurationProvider.getSeatsPerRow() - 1));
+        final SeatHold seatHold = ticketService.findAndHoldSeats(configurationProvider.getSeatsPerRow(), testEmail);
+        assertThat(ticketService.numSeatsAvailable(), is(0));
+        return seatHold;
+    }
+
+    private static void assertWaitlistRefused(final Runnable request, final TicketError error) {
+        try {
+            request.run();
+            fail("Exception expected");
+        } catch (TicketException e) {
+            assertThat(e.getError(), is(error));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Immutable description of synthetic traffic from which a simulation's {@link SimulatedArrival}s are generated.
+ * Customers arrive as a Poisson process and think for an exponentially distributed time before acting on their hold.
+ */
+@Value
+final class TrafficMix {
+
+    private final double arrivalsPerSecond;
+
+    /**
+     * The relative frequency of each hold size, where the first weight is for a single seat.
+     */
+    private final int[] holdSizeWeights;
+
+    /**
+     * The fraction of holds which are reserved.
+     */
+    private final double reserveRatio;
+
+    /**
+     * The fraction of holds which are cancelled. The remainder are abandoned and left to expire.
+     */
+    private final double cancelRatio;
+
+    private final double meanThinkSeconds;
+
+    /**
+     * Generates the arrivals for the provided duration. The same seed always generates the same arrivals.
+     */
+    List<SimulatedArrival> generate(final int durationSeconds, final long seed) {
+        final Random random = new Random(seed);
+        int totalWeight = 0;
+        for (int weight : holdSizeWeights) {
+            totalWeight += weight;
+        }
+
+        final List<SimulatedArrival> arrivals = new ArrayList<>();
+        final double durationMillis = durationSeconds * 1000.0;
+        double arrivalMillis = exponential(random, 1000.0 / arrivalsPerSecond);
+        while (arrivalMillis < durationMillis) {
+            // Pick the hold size by weight
+            int pick = random.nextInt(totalWeight);
+            int numSeats = 1;
+            while (pick >= holdSizeWeights[numSeats - 1]) {
+                pick -= holdSizeWeights[numSeats - 1];
+                numSeats++;
+            }
+
+            final double roll = random.nextDouble();
+            final SimulatedArrival.Outcome outcome = roll < reserveRatio ? SimulatedArrival.Outcome.RESERVE :
+                    roll < reserveRatio + cancelRatio ? SimulatedArrival.Outcome.CANCEL :
+                            SimulatedArrival.Outcome.ABANDON;
+            final long thinkMillis = (long) exponential(random, meanThinkSeconds * 1000.0);
+
+            arrivals.add(new SimulatedArrival((long) arrivalMillis, numSeats, outcome, thinkMillis));
+            arrivalMillis += exponential(random, 1000.0 / arrivalsPerSecond);
+        }
+        return arrivals;
+    }
+
+    private static double exponential(final Random random, final double mean) {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }
+}
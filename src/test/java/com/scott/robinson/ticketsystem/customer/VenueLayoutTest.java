@@ -0,0 +1,203 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link VenueLayout}.
+ */
+public final class VenueLayoutTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Two sections: the floor has a centre aisle at seats 5 and 6, and the balcony's second row starts two seats in.
+     */
+    private final VenueLayout.Builder builder = new VenueLayout.Builder()
+            .section("Floor")
+            .row(0, 5, 7, 5)
+            .row(0, 5, 7, 5)
+            .section("Balcony")
+            .row(0, 8)
+            .row(2, 6);
+
+    @Test
+    public void build() {
+        final VenueLayout layout = builder.build();
+
+        assertThat(layout.getSectionCount(), is(2));
+        assertThat(layout.getSectionName(1), is("Balcony"));
+        assertThat(layout.getSectionFirstRow(1), is(2));
+        assertThat(layout.getRowCount(), is(4));
+        assertThat(layout.getSeatCount(), is(34L));
+        assertThat(layout.getMaxRowExtent(), is(12));
+        assertThat(layout.getRowExtent(3), is(8));
+        assertThat(layout.getRowSeatCount(3), is(6));
+
+        // Verify the aisle positions do not exist
+        assertThat(layout.exists(0, 4), is(true));
+        assertThat(layout.exists(0, 5), is(false));
+        assertThat(layout.exists(0, 6), is(false));
+        assertThat(layout.exists(0, 7), is(true));
+        assertThat(layout.exists(3, 1), is(false));
+    }
+
+    @Test
+    public void writeAndMap() throws Exception {
+        final File file = folder.newFile("venue.layout");
+        builder.write(file.toPath());
+
+        // Verify the mapped layout matches the one it was written from
+        final VenueLayout layout = VenueLayout.map(file.toPath());
+        assertThat(layout.getByteSize(), is((int) file.length()));
+        assertThat(layout.getSectionName(0), is("Floor"));
+        assertThat(layout.getSeatCount(), is(34L));
+        assertThat(layout.getSegmentCount(1), is(2));
+        assertThat(layout.getSegmentStart(1, 1), is(7));
+        assertThat(layout.getSegmentEnd(1, 1), is(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void row_overlappingSegments() {
+        new VenueLayout.Builder().section("Floor").row(0, 5, 5, 5);
+    }
+
+    @Test
+    public void map_largeVenue() throws Exception {
+        // A stadium of 100 sections, each 40 rows of 25 seats with an aisle either side of the middle 11
+        final VenueLayout.Builder stadium = new VenueLayout.Builder();
+        for (int section = 0; section < 100; section++) {
+            stadium.section("Section " + section);
+            for (int row = 0; row < 40; row++) {
+                stadium.row(0, 7, 8, 11, 20, 7);
+            }
+        }
+        final File file = folder.newFile("stadium.layout");
+        stadium.write(file.toPath());
+
+        // Verify a 100,000 seat layout maps in milliseconds without being copied onto the heap, once the classes used
+        // to load it are themselves loaded
+        VenueLayout.map(file.toPath());
+        final long start = System.nanoTime();
+        final VenueLayout layout = VenueLayout.map(file.toPath());
+        final Venue venue = new Venue(layout);
+        assertThat(System.nanoTime() - start, lessThan(100_000_000L));
+        assertThat(venue.getSeatCount(), is(100000L));
+        assertThat(venue.getOpenSeats(), is(100000L));
+        assertThat(layout.getByteSize(), lessThan(200000));
+    }
+
+    @Test
+    public void map_corruptFile() throws Exception {
+        final File file = folder.newFile("venue.layout");
+        builder.write(file.toPath());
+        final int rowIndexOffset;
+        final int segmentOffset;
+        try (RandomAccessFile layout = new RandomAccessFile(file, "rw")) {
+            layout.seek(16);
+            rowIndexOffset = layout.readInt();
+            segmentOffset = layout.readInt();
+        }
+
+        // A row whose segments lie past the end of the file
+        assertRejected(file, rowIndexOffset, 1000);
+        // Overlapping segments within a row
+        assertRejected(file, segmentOffset + 8, 3);
+        // A segment without seats
+        assertRejected(file, segmentOffset + 4, 0);
+        // A row index which overlaps the section names
+        assertRejected(file, 16, 30);
+        // More rows than the file holds
+        assertRejected(file, 12, 1 << 20);
+    }
+
+    @Test
+    public void convert() throws Exception {
+        final String description = "# The same venue as the builder\n"
+                + "section Floor\n"
+                + "row 0-4 7-11\n"
+                + "row 0-4 7-11\n"
+                + "\n"
+                + "section Balcony\n"
+                + "row 0-7\n"
+                + "row 2-7\n";
+        final File converted = folder.newFile("converted.layout");
+        VenueLayoutConverter.parse(new BufferedReader(new StringReader(description))).write(converted.toPath());
+        final File built = folder.newFile("built.layout");
+        builder.write(built.toPath());
+
+        // Verify the files are identical
+        final VenueLayout layout = VenueLayout.map(converted.toPath());
+        assertThat(layout.getSeatCount(), is(34L));
+        assertThat(Files.readAllBytes(converted.toPath()), is(Files.readAllBytes(built.toPath())));
+
+        // Errors name the line they are on
+        try {
+            VenueLayoutConverter.parse(new BufferedReader(new StringReader("section Floor\nrow 0-4 3-6\n")));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("Line 2: "), is(true));
+        }
+    }
+
+    @Test
+    public void findAndHoldSeats_respectsAisles() throws Exception {
+        final File file = folder.newFile("venue.layout");
+        builder.write(file.toPath());
+
+        System.setProperty("venue.layout", file.getPath());
+        final TicketServiceImpl ticketService;
+        try {
+            ticketService = new TicketServiceImpl(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("venue.layout");
+        }
+        assertThat(ticketService.numSeatsAvailable(), is(34));
+
+        // The floor's rows are split by the aisle, so a group of six is seated in the balcony
+        final SeatHold wide = ticketService.findAndHoldSeats(6, "test@email.com");
+        assertThat(wide.getSeats(), is(new Seats(2, 2, 7)));
+
+        // A group of five fits within the side of the aisle nearest the middle of the first row
+        final SeatHold narrow = ticketService.findAndHoldSeats(5, "test@email.com");
+        assertThat(narrow.getSeats(), is(new Seats(0, 7, 11)));
+    }
+
+    /**
+     * Overwrites an int of a valid layout file and verifies the file is rejected when mapped, then restores it.
+     */
+    private static void assertRejected(final File file, final int offset, final int value) throws Exception {
+        final int original;
+        try (RandomAccessFile layout = new RandomAccessFile(file, "rw")) {
+            layout.seek(offset);
+            original = layout.readInt();
+            layout.seek(offset);
+            layout.writeInt(value);
+        }
+        try {
+            VenueLayout.map(file.toPath());
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        } finally {
+            try (RandomAccessFile layout = new RandomAccessFile(file, "rw")) {
+                layout.seek(offset);
+                layout.writeInt(original);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Venue}.
+ */
+public final class VenueTest {
+
+    private final Venue venue = new Venue(1000, 1000);
+
+    @Test
+    public void initialize() {
+        // Verify a million seat venue starts open without allocating any rows
+        assertThat(venue.getSeatCount(), is(1000000L));
+        assertThat(venue.getOpenSeats(), is(1000000L));
+        assertThat(venue.getAllocatedRows(), is(0));
+        assertThat(venue.getAllocatedBytes(), lessThan(10000L));
+        assertThat(venue.get(999, 999), is(SeatState.OPEN));
+    }
+
+    @Test
+    public void set() {
+        venue.set(5, 10, 14, SeatState.HELD);
+
+        // Verify only the touched row is allocated
+        assertThat(venue.getAllocatedRows(), is(1));
+        assertThat(venue.isRowOpen(5), is(false));
+        assertThat(venue.isRowOpen(6), is(true));
+        assertThat(venue.get(5, 9), is(SeatState.OPEN));
+        assertThat(venue.get(5, 10), is(SeatState.HELD));
+        assertThat(venue.get(5, 14), is(SeatState.HELD));
+        assertThat(venue.getOpenSeats(), is(1000000L - 5));
+
+        // Promoting seats does not change the number of open seats
+        venue.set(5, 10, 14, SeatState.RESERVED);
+        assertThat(venue.get(5, 12), is(SeatState.RESERVED));
+        assertThat(venue.getOpenSeats(), is(1000000L - 5));
+    }
+
+    @Test
+    public void set_releasesOpenRow() {
+        venue.set(5, 10, 14, SeatState.HELD);
+        venue.set(5, 10, 14, SeatState.OPEN);
+
+        // Verify the row's storage is released once it is entirely open
+        assertThat(venue.getAllocatedRows(), is(0));
+        assertThat(venue.isRowOpen(5), is(true));
+        assertThat(venue.getOpenSeats(), is(1000000L));
+    }
+
+    @Test
+    public void clear() {
+        venue.set(1, 0, 999, SeatState.RESERVED);
+        venue.set(2, 0, 0, SeatState.HELD);
+        venue.clear();
+
+        assertThat(venue.getAllocatedRows(), is(0));
+        assertThat(venue.getOpenSeats(), is(1000000L));
+    }
+
+    @Test
+    public void set_maintainsFreeRuns() {
+        venue.set(5, 10, 14, SeatState.HELD);
+        venue.set(5, 20, 20, SeatState.RESERVED);
+
+        // Verify the row is split into runs around the closed seats
+        assertThat(venue.getRunCount(5), is(3));
+        assertThat(venue.getRunEnd(5, 0), is(9));
+        assertThat(venue.getRunStart(5, 1), is(15));
+        assertThat(venue.getRunEnd(5, 1), is(19));
+        assertThat(venue.getLongestRun(5), is(979));
+
+        // Re-opening the held seats merges the runs either side
+        venue.set(5, 10, 14, SeatState.OPEN);
+        assertThat(venue.getRunCount(5), is(2));
+        assertThat(venue.getRunEnd(5, 0), is(19));
+    }
+
+    @Test
+    public void set_acrossAisle() {
+        // A row of two segments with an aisle at positions 5 and 6, beside a row without one
+        final Venue aisled = new Venue(new VenueLayout.Builder().section("Floor").row(0, 5, 7, 5).row(0, 12).build());
+        aisled.set(0, 3, 9, SeatState.BLOCKED);
+        assertThat(aisled.getOpenSeats(), is(22L - 5));
+        assertThat(aisled.countOpen(0, 0, 11), is(5));
+
+        // Re-opening part of the range across the aisle never joins the segments into one free run
+        aisled.set(0, 4, 8, SeatState.OPEN);
+        assertThat(aisled.getRunCount(0), is(4));
+        assertThat(aisled.getRunEnd(0, 1), is(4));
+        assertThat(aisled.getRunStart(0, 2), is(7));
+        assertThat(aisled.getLongestRun(0), is(3));
+        assertThat(aisled.getOpenSeats(), is(22L - 2));
+
+        aisled.set(0, 0, 11, SeatState.OPEN);
+        assertThat(aisled.getAllocatedRows(), is(0));
+        assertThat(aisled.getLongestRun(0), is(5));
+        assertThat(aisled.getOpenSeats(), is(22L));
+    }
+
+    @Test
+    public void findRow() {
+        // Fill every row but the last with groups of ten separated by a single reserved seat
+        for (int row = 0; row < 999; row++) {
+            for (int seat = 10; seat < 1000; seat += 11) {
+                venue.set(row, seat, seat, SeatState.RESERVED);
+            }
+        }
+
+        assertThat(venue.findRow(0, 10), is(0));
+        assertThat(venue.findRow(500, 10), is(500));
+        assertThat(venue.findRow(0, 11), is(999));
+        assertThat(venue.findRow(0, 1001), is(-1));
+
+        venue.clear();
+        assertThat(venue.findRow(0, 1000), is(0));
+    }
+
+    @Test
+    public void set_randomFreeRunsMatchStates() {
+        final Venue small = new Venue(VenueLayout.rectangle(3, 40));
+        final Random random = new Random(1);
+        final SeatState[] states = SeatState.values();
+        for (int i = 0; i < 2000; i++) {
+            final int row = random.nextInt(3);
+            final int first = random.nextInt(40);
+            final int last = first + random.nextInt(Math.min(8, 40 - first));
+            small.set(row, first, last, states[random.nextInt(states.length)]);
+
+            // Verify the free runs are exactly the maximal groups of open seats
+            int run = 0;
+            int seat = 0;
+            while (seat < 40) {
+                if (small.get(row, seat) != SeatState.OPEN) {
+                    seat++;
+                    continue;
+                }
+                final int start = seat;
+                while (seat < 40 && small.get(row, seat) == SeatState.OPEN) {
+                    seat++;
+                }
+                assertThat(small.getRunStart(row, run), is(start));
+                assertThat(small.getRunEnd(row, run), is(seat - 1));
+                run++;
+            }
+            assertThat(small.getRunCount(row), is(run));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.scott.robinson.ticketsystem.customer;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link WarmupServiceImpl}.
+ */
+public final class WarmupServiceImplTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void isReady_disabled() {
+        final WarmupServiceImpl warmupService = new WarmupServiceImpl(new ConfigurationProvider());
+
+        // Verify the application is ready immediately when warm-up is disabled
+        assertThat(warmupService.isReady(), is(true));
+        assertThat(warmupService.getReport().getRounds(), is(0));
+    }
+
+    @Test
+    public void warmup() {
+        System.setProperty("warmup.enabled", "true");
+        System.setProperty("warmup.timeout", "5");
+        final WarmupServiceImpl warmupService;
+        try {
+            warmupService = new WarmupServiceImpl(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("warmup.enabled");
+            System.clearProperty("warmup.timeout");
+        }
+        assertThat(warmupService.isReady(), is(false));
+
+        warmupService.warmup();
+
+        // Verify warm-up ran traffic and then reported ready
+        final WarmupReport report = warmupService.getReport();
+        assertThat(warmupService.isReady(), is(true));
+        assertThat(report.getRounds(), greaterThan(0));
+        assertThat(report.getOperations(), greaterThan(0L));
+    }
+
+    @Test
+    public void warmup_sharedVenue() throws Exception {
+        System.setProperty("warmup.enabled", "true");
+        System.setProperty("warmup.timeout", "5");
+        System.setProperty("venue.shared", "true");
+        System.setProperty("venue.shared.file", folder.newFolder().toPath().resolve("venue").toString());
+        final ConfigurationProvider configurationProvider;
+        try {
+            configurationProvider = new ConfigurationProvider();
+        } finally {
+            System.clearProperty("warmup.enabled");
+            System.clearProperty("warmup.timeout");
+            System.clearProperty("venue.shared");
+            System.clearProperty("venue.shared.file");
+        }
+        final SharedVenueTicketServiceImpl ticketService = new SharedVenueTicketServiceImpl(configurationProvider,
+                new SimulatedClock(Instant.EPOCH), false);
+        try {
+            final SeatHold seatHold = ticketService.findAndHoldSeats(4, "test@email.com");
+            final String seatMap = ticketService.seatMap();
+            final Map<String, SeatReservation> reservations = ticketService.getReservations();
+
+            final WarmupServiceImpl warmupService = new WarmupServiceImpl(configurationProvider);
+            warmupService.warmup();
+            assertThat(warmupService.getReport().getOperations(), greaterThan(0L));
+
+            // Warm-up ran against a scratch shared venue, leaving the real one untouched
+            assertThat(ticketService.seatMap(), is(seatMap));
+            assertThat(ticketService.numSeatsAvailable(), is(9 * 33 - 4));
+            assertThat(ticketService.getHolds().size(), is(1));
+            assertThat(ticketService.getHold(seatHold.getId(), "test@email.com"), is(seatHold));
+            assertThat(ticketService.getReservations(), is(reservations));
+        } finally {
+            ticketService.close();
+        }
+    }
+}
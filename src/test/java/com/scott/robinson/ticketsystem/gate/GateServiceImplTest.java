@@ -0,0 +1,236 @@
+package com.scott.robinson.ticketsystem.gate;
+
+import com.scott.robinson.ticketsystem.customer.ReplicatedVenue;
+import com.scott.robinson.ticketsystem.customer.VenueMutation;
+import com.scott.robinson.ticketsystem.customer.VenueMutationListener;
+import com.scott.robinson.ticketsystem.customer.VenueSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link GateServiceImpl}, fed by a stub venue.
+ */
+public final class GateServiceImplTest {
+
+    private final String testEmail = "test@email.com";
+
+    private final String existingCode = UUID.randomUUID().toString();
+
+    private StubVenue venue;
+
+    private GateServiceImpl gateService;
+
+    @Before
+    public void setup() {
+        venue = new StubVenue(Collections.singletonList(purchase(existingCode, 2, 5, 7)));
+        gateService = new GateServiceImpl(venue, 297);
+    }
+
+    @Test
+    public void checkIn() {
+        // Reservations which existed at start up are indexed from the snapshot
+        assertThat(gateService.validate(existingCode), is(new GateScan(existingCode, GateResult.VALID, 2, 5, 7)));
+        assertThat(gateService.checkIn(existingCode), is(new GateScan(existingCode, GateResult.ADMITTED, 2, 5, 7)));
+        assertThat(gateService.checkIn(existingCode).getResult(), is(GateResult.ALREADY_CHECKED_IN));
+        assertThat(gateService.validate(existingCode).getResult(), is(GateResult.ALREADY_CHECKED_IN));
+
+        // Codes are accepted in either case
+        assertThat(gateService.validate(existingCode.toUpperCase()).getRow(), is(2));
+        assertThat(gateService.status().getCheckedIn(), is(1L));
+    }
+
+    @Test
+    public void checkIn_newReservations() {
+        final String reservedCode = UUID.randomUUID().toString();
+        final String purchasedCode = UUID.randomUUID().toString();
+        venue.publish(new VenueMutation(VenueMutation.Type.HOLD, 1, null, testEmail, 0, 0, 0, 1,
+                LocalDateTime.now()));
+        venue.publish(new VenueMutation(VenueMutation.Type.RESERVE, 1, reservedCode, testEmail, 0, 0, 0, 1,
+                LocalDateTime.now()));
+        venue.publish(purchase(purchasedCode, 1, 10, 12));
+
+        assertThat(gateService.checkIn(reservedCode), is(new GateScan(reservedCode, GateResult.ADMITTED, 0, 0, 1)));
+        assertThat(gateService.checkIn(purchasedCode).getResult(), is(GateResult.ADMITTED));
+        assertThat(gateService.status().getIndexedCodes(), is(3));
+    }
+
+    @Test
+    public void checkIn_unknownCodes() {
+        assertThat(gateService.checkIn(UUID.randomUUID().toString()).getResult(), is(GateResult.NOT_FOUND));
+        assertThat(gateService.checkIn("not a code").getResult(), is(GateResult.MALFORMED));
+        assertThat(gateService.checkIn(existingCode.replace('-', 'x')).getResult(), is(GateResult.MALFORMED));
+        assertThat(gateService.checkIn(existingCode.substring(1) + "g").getResult(), is(GateResult.MALFORMED));
+        assertThat(gateService.checkIn(null).getResult(), is(GateResult.MALFORMED));
+
+        // Nearly all unknown codes are turned away by the Bloom filter
+        for (int i = 0; i < 10000; i++) {
+            assertThat(gateService.validate(UUID.randomUUID().toString()).getResult(), is(GateResult.NOT_FOUND));
+        }
+        final GateStatus status = gateService.status();
+        assertThat(status.getMalformed(), is(4L));
+        assertThat(status.getBloomRejections() + status.getBloomFalsePositives(), is(10001L));
+        assertThat(status.getBloomFalsePositives(), lessThan(100L));
+        assertThat(status.getCheckedIn(), is(0L));
+    }
+
+    @Test
+    public void scan() {
+        final String unknownCode = UUID.randomUUID().toString();
+        final List<GateScan> scans = gateService.scan(Arrays.asList(existingCode, unknownCode, existingCode), true);
+        assertThat(scans.get(0).getResult(), is(GateResult.ADMITTED));
+        assertThat(scans.get(1), is(GateScan.notFound(unknownCode, GateResult.NOT_FOUND)));
+        assertThat(scans.get(2).getResult(), is(GateResult.ALREADY_CHECKED_IN));
+
+        // Validating a batch checks nothing in
+        venue.publish(purchase(unknownCode, 3, 0, 0));
+        assertThat(gateService.scan(Collections.singletonList(unknownCode), false).get(0).getResult(),
+                is(GateResult.VALID));
+        assertThat(gateService.validate(unknownCode).getResult(), is(GateResult.VALID));
+    }
+
+    @Test
+    public void checkIn_concurrent() throws Exception {
+        final List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            codes.add(UUID.randomUUID().toString());
+            venue.publish(purchase(codes.get(i), i % 9, i % 33, i % 33));
+        }
+
+        // Every gate scans every code, but each code is admitted exactly once
+        final ExecutorService gates = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> admitted = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                admitted.add(gates.submit((Callable<Integer>) () -> {
+                    int count = 0;
+                    for (String code : codes) {
+                        if (gateService.checkIn(code).getResult() == GateResult.ADMITTED) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> count : admitted) {
+                total += count.get();
+            }
+            assertThat(total, is(200));
+        } finally {
+            gates.shutdownNow();
+        }
+    }
+
+    @Test
+    public void restore() {
+        gateService.checkIn(existingCode);
+
+        // A standby restored from its primary replaces the index, forgetting the previous codes
+        final String restoredCode = UUID.randomUUID().toString();
+        venue.restore(new VenueSnapshot(10, Collections.singletonList(purchase(restoredCode, 4, 1, 2))));
+        assertThat(gateService.validate(existingCode).getResult(), is(GateResult.NOT_FOUND));
+        assertThat(gateService.validate(restoredCode).getResult(), is(GateResult.VALID));
+        assertThat(gateService.status().getCheckedIn(), is(0L));
+
+        // Check-ins are only accepted once promoted
+        venue.setReadOnly(true);
+        try {
+            gateService.checkIn(restoredCode);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertThat(gateService.validate(restoredCode).getResult(), is(GateResult.VALID));
+        }
+    }
+
+    @Test
+    public void status() {
+        final GateStatus status = gateService.status();
+        assertThat(status.getIndexedCodes(), is(1));
+        assertThat(status.getCapacity(), is(297));
+        assertThat(status.getIndexBytes(), greaterThan(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scan_tooManyCodes() {
+        gateService.scan(Collections.nCopies(GateService.MAX_BATCH_SIZE + 1, existingCode), false);
+    }
+
+    private VenueMutation purchase(final String confirmationCode, final int row, final int firstSeat,
+                                   final int lastSeat) {
+        return new VenueMutation(VenueMutation.Type.PURCHASE, 0, confirmationCode, testEmail, row, row, firstSeat,
+                lastSeat, LocalDateTime.now());
+    }
+
+    /**
+     * Publishes the mutations and restores it is told to, without keeping any seats.
+     */
+    private static final class StubVenue implements ReplicatedVenue {
+
+        private final List<VenueMutation> existing;
+
+        private final List<VenueMutationListener> listeners = new ArrayList<>();
+
+        private long sequence;
+
+        private boolean readOnly;
+
+        private StubVenue(final List<VenueMutation> existing) {
+            this.existing = existing;
+        }
+
+        private void publish(final VenueMutation mutation) {
+            apply(++sequence, mutation);
+        }
+
+        @Override
+        public void addMutationListener(final VenueMutationListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public VenueSnapshot snapshot() {
+            return new VenueSnapshot(sequence, existing);
+        }
+
+        @Override
+        public void restore(final VenueSnapshot snapshot) {
+            for (VenueMutationListener listener : listeners) {
+                listener.onRestore(snapshot);
+            }
+        }
+
+        @Override
+        public void apply(final long sequence, final VenueMutation mutation) {
+            for (VenueMutationListener listener : listeners) {
+                listener.onMutation(sequence, mutation);
+            }
+        }
+
+        @Override
+        public void setReadOnly(final boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return readOnly;
+        }
+    }
+}
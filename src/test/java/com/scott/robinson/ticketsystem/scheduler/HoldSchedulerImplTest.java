@@ -0,0 +1,107 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import com.scott.robinson.ticketsystem.ConfigurationProvider;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link HoldSchedulerImpl}.
+ */
+public final class HoldSchedulerImplTest {
+
+    @Test
+    public void schedule_disabled() {
+        final HoldScheduler scheduler = new HoldSchedulerImpl(new ConfigurationProvider());
+
+        // Verify requests run directly, and unknown tiers are counted in the lowest priority tier
+        assertThat(scheduler.schedule("member", () -> 1).join(), is(1));
+        assertThat(scheduler.schedule("unknown", () -> 2).join(), is(2));
+        assertThat(scheduler.schedule(null, () -> 3).join(), is(3));
+
+        final List<TierStatus> status = scheduler.status();
+        assertThat(status.get(0).getTier(), is("member"));
+        assertThat(status.get(0).getCompleted(), is(1L));
+        assertThat(status.get(2).getTier(), is("general"));
+        assertThat(status.get(2).getCompleted(), is(2L));
+    }
+
+    @Test
+    public void schedule_rejectsWhenTierFull() throws Exception {
+        final HoldScheduler scheduler = enabledScheduler("member:2,general:1", 1);
+
+        // Hold the dispatcher so that the next requests queue behind it, without holding the caller
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Integer> blocking = scheduler.schedule("member", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return 1;
+        });
+        started.await(5, TimeUnit.SECONDS);
+        final CompletableFuture<Integer> queued = scheduler.schedule("general", () -> 2);
+        assertThat(queued.isDone(), is(false));
+        assertThat(scheduler.status().get(1).getQueueDepth(), is(1));
+
+        // The general tier is full, but the member tier still has room
+        try {
+            scheduler.schedule("general", () -> 3);
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(scheduler.status().get(1).getRejected(), is(1L));
+        }
+        final CompletableFuture<Integer> member = scheduler.schedule("member", () -> 4);
+        assertThat(scheduler.status().get(0).getQueueDepth(), is(1));
+
+        release.countDown();
+        assertThat(blocking.get(5, TimeUnit.SECONDS), is(1));
+        assertThat(queued.get(5, TimeUnit.SECONDS), is(2));
+        assertThat(member.get(5, TimeUnit.SECONDS), is(4));
+        assertThat(scheduler.status().get(1).getMaxQueueDepth(), is(1));
+    }
+
+    @Test
+    public void schedule_propagatesFailure() {
+        final HoldScheduler scheduler = enabledScheduler("general:1", 10);
+        try {
+            scheduler.schedule("general", () -> {
+                throw new IllegalStateException("Sold out");
+            }).join();
+            fail("Exception expected");
+        } catch (CompletionException e) {
+            assertThat(e.getCause().getMessage(), is("Sold out"));
+        }
+
+        // Verify the dispatcher survives the failure
+        assertThat(scheduler.schedule("general", () -> 1).join(), is(1));
+    }
+
+    private static HoldScheduler enabledScheduler(final String tiers, final int capacity) {
+        System.setProperty("scheduler.enabled", "true");
+        System.setProperty("scheduler.tiers", tiers);
+        System.setProperty("scheduler.queue", String.valueOf(capacity));
+        try {
+            return new HoldSchedulerImpl(new ConfigurationProvider());
+        } finally {
+            System.clearProperty("scheduler.enabled");
+            System.clearProperty("scheduler.tiers");
+            System.clearProperty("scheduler.queue");
+        }
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.scott.robinson.ticketsystem.scheduler;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link WeightedFairQueue}.
+ */
+public final class WeightedFairQueueTest {
+
+    private final WeightedFairQueue<String> queue = new WeightedFairQueue<>(new int[]{5, 3, 1}, 1000);
+
+    @Test
+    public void poll_sharesByWeight() {
+        for (int i = 0; i < 900; i++) {
+            queue.offer(0, "member");
+            queue.offer(1, "partner");
+            queue.offer(2, "general");
+        }
+
+        // Verify every window of nine polls serves each tier in proportion to its weight
+        for (int window = 0; window < 50; window++) {
+            final int[] served = new int[3];
+            for (int i = 0; i < 9; i++) {
+                served[tierOf(queue.poll())]++;
+            }
+            assertThat(served[0], is(5));
+            assertThat(served[1], is(3));
+            assertThat(served[2], is(1));
+        }
+    }
+
+    @Test
+    public void poll_floodDoesNotStarveOtherTiers() {
+        for (int i = 0; i < 1000; i++) {
+            queue.offer(2, "general");
+        }
+        queue.offer(0, "member");
+
+        // The single member request is served straight away despite the flood of general requests
+        assertThat(queue.poll(), is("member"));
+        assertThat(queue.poll(), is("general"));
+        assertThat(queue.size(2), is(999));
+    }
+
+    @Test
+    public void poll_idleTierDoesNotBankCredit() {
+        for (int i = 0; i < 20; i++) {
+            queue.offer(2, "general");
+        }
+        for (int i = 0; i < 20; i++) {
+            queue.poll();
+        }
+        queue.offer(0, "member");
+        queue.offer(0, "member");
+        queue.offer(2, "general");
+
+        // Verify the general tier is not owed a burst for the time the member tier was idle
+        assertThat(queue.poll(), is("member"));
+        assertThat(queue.poll(), is("member"));
+        assertThat(queue.poll(), is("general"));
+        assertThat(queue.poll(), nullValue());
+    }
+
+    @Test
+    public void offer_full() {
+        final WeightedFairQueue<String> small = new WeightedFairQueue<>(new int[]{1}, 2);
+
+        assertThat(small.offer(0, "a"), is(true));
+        assertThat(small.offer(0, "b"), is(true));
+        assertThat(small.offer(0, "c"), is(false));
+    }
+
+    private static int tierOf(final String item) {
+        return "member".equals(item) ? 0 : "partner".equals(item) ? 1 : 2;
+    }
+}
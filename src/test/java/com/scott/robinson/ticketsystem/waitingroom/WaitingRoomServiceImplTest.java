@@ -0,0 +1,104 @@
+package com.scott.robinson.ticketsystem.waitingroom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link WaitingRoomServiceImpl}.
+ */
+public final class WaitingRoomServiceImplTest {
+
+    private final int admissionRate = 2;
+    private final int admissionWindowSeconds = 3;
+    private final String testEmail = "test@email.com";
+
+    private WaitingRoomServiceImpl waitingRoomService;
+
+    @Before
+    public void setup() {
+        waitingRoomService = new WaitingRoomServiceImpl(true, admissionRate, admissionWindowSeconds);
+    }
+
+    @Test
+    public void join() {
+        final QueueTicket first = waitingRoomService.join(testEmail);
+        final QueueTicket second = waitingRoomService.join(testEmail);
+
+        // Verify positions are issued in order
+        assertThat(first.getPosition(), is(1L));
+        assertThat(second.getPosition(), is(2L));
+    }
+
+    @Test
+    public void status() {
+        // Queue up five customers
+        QueueTicket ticket = null;
+        for (int i = 0; i < 5; i++) {
+            ticket = waitingRoomService.join(testEmail);
+        }
+
+        // Verify the last customer waits on everyone ahead of them
+        final QueueStatus status = waitingRoomService.status(ticket.getToken(), testEmail);
+        assertThat(status.getPosition(), is(5L));
+        assertThat(status.getAhead(), is(5L));
+        assertThat(status.getEstimatedWaitSeconds(), is(3L));
+        assertThat(status.isAdmitted(), is(false));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void status_invalidEmail() {
+        final QueueTicket ticket = waitingRoomService.join(testEmail);
+        waitingRoomService.status(ticket.getToken(), "invalidEmail");
+    }
+
+    @Test
+    public void isAdmitted() {
+        final QueueTicket first = waitingRoomService.join(testEmail);
+        final QueueTicket second = waitingRoomService.join(testEmail);
+        final QueueTicket third = waitingRoomService.join(testEmail);
+        assertThat(waitingRoomService.isAdmitted(first.getToken(), testEmail), is(false));
+
+        // Admit the first group
+        waitingRoomService.releaseAdmissions();
+        assertThat(waitingRoomService.isAdmitted(first.getToken(), testEmail), is(true));
+        assertThat(waitingRoomService.isAdmitted(second.getToken(), testEmail), is(true));
+        assertThat(waitingRoomService.isAdmitted(third.getToken(), testEmail), is(false));
+
+        // Admit the next group
+        waitingRoomService.releaseAdmissions();
+        assertThat(waitingRoomService.isAdmitted(third.getToken(), testEmail), is(true));
+    }
+
+    @Test
+    public void isAdmitted_windowExpired() {
+        final QueueTicket ticket = waitingRoomService.join(testEmail);
+        waitingRoomService.releaseAdmissions();
+        assertThat(waitingRoomService.isAdmitted(ticket.getToken(), testEmail), is(true));
+
+        // Let the admission window pass
+        for (int i = 0; i < admissionWindowSeconds; i++) {
+            waitingRoomService.releaseAdmissions();
+        }
+        assertThat(waitingRoomService.isAdmitted(ticket.getToken(), testEmail), is(false));
+    }
+
+    @Test
+    public void isAdmitted_invalidToken() {
+        final QueueTicket ticket = waitingRoomService.join(testEmail);
+        waitingRoomService.releaseAdmissions();
+
+        // Verify tokens cannot be shared, forged, or omitted
+        assertThat(waitingRoomService.isAdmitted(ticket.getToken(), "invalidEmail"), is(false));
+        assertThat(waitingRoomService.isAdmitted("1.forged", testEmail), is(false));
+        assertThat(waitingRoomService.isAdmitted(null, testEmail), is(false));
+    }
+
+    @Test
+    public void isAdmitted_disabled() {
+        final WaitingRoomServiceImpl disabled = new WaitingRoomServiceImpl(false, admissionRate, admissionWindowSeconds);
+        assertThat(disabled.isAdmitted(null, testEmail), is(true));
+    }
+}